@@ -6,13 +6,20 @@ import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.scheduling.annotation.EnableScheduling;
 
+import java.util.TimeZone;
+
 @SpringBootApplication
 @EnableConfigurationProperties
 @ConfigurationPropertiesScan
 @EnableScheduling
 public class PaymentServiceApplication {
 
+    /**
+     * The JDBC session takes the JVM time zone: in UTC, created_at and every other TIMESTAMP column
+     * hold UTC times, and the daily outbox_event partitions are UTC days.
+     */
     public static void main(String[] args) {
+        TimeZone.setDefault(TimeZone.getTimeZone("UTC"));
         SpringApplication.run(PaymentServiceApplication.class, args);
     }
 
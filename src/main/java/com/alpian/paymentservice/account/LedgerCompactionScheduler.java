@@ -0,0 +1,63 @@
+package com.alpian.paymentservice.account;
+
+import com.alpian.paymentservice.config.PaymentProperties;
+import com.alpian.paymentservice.persistence.repository.LedgerEntryRepository;
+import com.alpian.paymentservice.service.LedgerService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Ledger mode: compacts every account that got entries since the previous run. The watermark
+ * only narrows the search and stays put when an account fails; an entry committed behind it is
+ * folded the next time its account is compacted, and balances read the ledger anyway.
+ */
+@Slf4j
+@Component
+public class LedgerCompactionScheduler {
+
+    private final LedgerEntryRepository ledgerEntryRepository;
+    private final LedgerService ledgerService;
+    private final PaymentProperties paymentProperties;
+    private final Counter folded;
+
+    private long watermark = -1;
+
+    public LedgerCompactionScheduler(LedgerEntryRepository ledgerEntryRepository,
+                                     LedgerService ledgerService,
+                                     PaymentProperties paymentProperties,
+                                     MeterRegistry meterRegistry) {
+        this.ledgerEntryRepository = ledgerEntryRepository;
+        this.ledgerService = ledgerService;
+        this.paymentProperties = paymentProperties;
+        this.folded = Counter.builder("ledger.compaction.entries")
+                .description("Ledger entries folded into account balance snapshots")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${payment.ledger.compaction-interval-ms:1000}")
+    public void compactLoop() {
+        if (!paymentProperties.getLedger().isEnabled()) return;
+
+        if (watermark < 0) {
+            watermark = ledgerEntryRepository.maxSnapshotEntryId();
+        }
+        long next = watermark;
+        boolean failed = false;
+        for (Map.Entry<UUID, Long> account : ledgerEntryRepository.lastEntryIdByAccountAfter(watermark).entrySet()) {
+            try {
+                folded.increment(ledgerService.compact(account.getKey()));
+                next = Math.max(next, account.getValue());
+            } catch (Exception ex) {
+                failed = true;
+                log.error("Ledger compaction failed for account {}", account.getKey(), ex);
+            }
+        }
+        if (!failed) watermark = next;
+    }
+}
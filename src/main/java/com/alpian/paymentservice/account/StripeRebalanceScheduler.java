@@ -0,0 +1,34 @@
+package com.alpian.paymentservice.account;
+
+import com.alpian.paymentservice.config.PaymentProperties;
+import com.alpian.paymentservice.persistence.repository.AccountRepository;
+import com.alpian.paymentservice.service.StripedBalanceService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class StripeRebalanceScheduler {
+
+    private final AccountRepository accountRepository;
+    private final StripedBalanceService stripedBalanceService;
+    private final PaymentProperties paymentProperties;
+
+    @Scheduled(fixedDelayString = "${payment.striping.rebalance-interval-ms:5000}")
+    public void rebalanceLoop() {
+        if (!paymentProperties.getStriping().isEnabled()) return;
+
+        for (UUID accountId : accountRepository.findStripedAccountIds()) {
+            try {
+                stripedBalanceService.rebalance(accountId);
+            } catch (Exception ex) {
+                log.error("Stripe rebalance failed for account {}", accountId, ex);
+            }
+        }
+    }
+}
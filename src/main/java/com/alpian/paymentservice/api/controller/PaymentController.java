@@ -1,13 +1,18 @@
 package com.alpian.paymentservice.api.controller;
 
+import com.alpian.paymentservice.api.dto.BatchPaymentResponse;
 import com.alpian.paymentservice.api.dto.PaymentRequest;
 import com.alpian.paymentservice.api.dto.PaymentResponse;
+import com.alpian.paymentservice.service.BatchPaymentService;
+import com.alpian.paymentservice.service.PaymentGroupCommitter;
+import com.alpian.paymentservice.service.PaymentReplayCache;
 import com.alpian.paymentservice.service.PaymentService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
 import java.util.UUID;
 
 @RestController
@@ -16,13 +21,17 @@ import java.util.UUID;
 public class PaymentController {
 
     private final PaymentService paymentService;
+    private final BatchPaymentService batchPaymentService;
+    private final PaymentGroupCommitter paymentGroupCommitter;
+    private final PaymentReplayCache paymentReplayCache;
 
     @PostMapping
     public ResponseEntity<PaymentResponse> createPayment(
             @RequestHeader("X-User-Id") UUID userId,
             @Valid @RequestBody PaymentRequest request
     ) {
-        PaymentResponse result = paymentService.createPayment(request, userId);
+        PaymentResponse result = paymentReplayCache.lookup(request, userId)
+                .orElseGet(() -> process(request, userId));
 
         return ResponseEntity.ok(
                 new PaymentResponse(
@@ -31,4 +40,21 @@ public class PaymentController {
                 )
         );
     }
-}
\ No newline at end of file
+
+    @PostMapping("/batch")
+    public ResponseEntity<BatchPaymentResponse> createPayments(
+            @RequestHeader("X-User-Id") UUID userId,
+            @RequestBody List<@Valid PaymentRequest> requests
+    ) {
+        return ResponseEntity.ok(batchPaymentService.createPayments(requests, userId));
+    }
+
+    private PaymentResponse process(PaymentRequest request, UUID userId) {
+        PaymentResponse result = paymentGroupCommitter.isEnabled()
+                ? paymentGroupCommitter.submit(request, userId)
+                : paymentService.createPayment(request, userId);
+
+        paymentReplayCache.put(request, userId, result);
+        return result;
+    }
+}
@@ -0,0 +1,9 @@
+package com.alpian.paymentservice.api.dto;
+
+public enum BatchItemStatus {
+    COMPLETED,
+    DUPLICATE,
+    INSUFFICIENT_FUNDS,
+    FORBIDDEN,
+    FAILED
+}
@@ -0,0 +1,10 @@
+package com.alpian.paymentservice.api.dto;
+
+import java.util.UUID;
+
+public record BatchPaymentItemResult(
+        int index,              // Position of the item in the submitted list
+        UUID accountId,
+        UUID paymentId,
+        BatchItemStatus status
+) {}
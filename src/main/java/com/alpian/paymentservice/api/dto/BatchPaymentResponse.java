@@ -0,0 +1,7 @@
+package com.alpian.paymentservice.api.dto;
+
+import java.util.List;
+
+public record BatchPaymentResponse(
+        List<BatchPaymentItemResult> results
+) {}
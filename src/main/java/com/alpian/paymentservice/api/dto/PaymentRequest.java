@@ -1,15 +1,47 @@
 package com.alpian.paymentservice.api.dto;
 
+import com.alpian.paymentservice.money.Money;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.validation.constraints.NotNull;
-import jakarta.validation.constraints.Positive;
 
 import java.math.BigDecimal;
 import java.util.UUID;
 
+/**
+ * The JSON shape is unchanged ({@code amount} as a decimal plus {@code currency}); the amount is
+ * converted to {@link Money} once, when the request is read. An amount with more than two
+ * decimals, zero or negative is rejected there and never reaches the debit path.
+ */
 public record PaymentRequest(
         @NotNull UUID accountId,
-        @NotNull @Positive BigDecimal amount,
-        @NotNull String currency,
+        @NotNull @JsonIgnore Money money,
         //idempotencyKey
         @NotNull UUID paymentId
-) {}
+) {
+
+    public PaymentRequest {
+        if (money != null && !money.isPositive()) {
+            throw new IllegalArgumentException("Amount must be positive: " + money);
+        }
+    }
+
+    @JsonCreator
+    public PaymentRequest(@JsonProperty("accountId") UUID accountId,
+                          @JsonProperty("amount") BigDecimal amount,
+                          @JsonProperty("currency") String currency,
+                          @JsonProperty("paymentId") UUID paymentId) {
+        this(accountId, amount == null || currency == null ? null : Money.of(amount, currency), paymentId);
+    }
+
+    @JsonProperty("amount")
+    public BigDecimal amount() {
+        return money == null ? null : money.toBigDecimal();
+    }
+
+    @JsonProperty("currency")
+    public String currency() {
+        return money == null ? null : money.currency();
+    }
+}
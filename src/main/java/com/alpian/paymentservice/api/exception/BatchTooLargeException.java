@@ -0,0 +1,5 @@
+package com.alpian.paymentservice.api.exception;
+
+public class BatchTooLargeException extends RuntimeException {
+    public BatchTooLargeException(String message) { super(message); }
+}
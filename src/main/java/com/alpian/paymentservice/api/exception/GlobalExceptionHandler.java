@@ -4,8 +4,11 @@ import com.alpian.paymentservice.api.dto.ErrorResponse;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.method.annotation.HandlerMethodValidationException;
 
 import java.time.Instant;
 
@@ -37,6 +40,23 @@ public class GlobalExceptionHandler {
                 ));
     }
 
+    /**
+     * Malformed bodies, including amounts rejected by Money (more than two decimals, not positive),
+     * and bulk submissions over payment.batch.max-items.
+     */
+    @ExceptionHandler({HttpMessageNotReadableException.class, MethodArgumentNotValidException.class,
+            HandlerMethodValidationException.class, BatchTooLargeException.class})
+    public ResponseEntity<ErrorResponse> handleInvalidRequest(Exception ex) {
+        log.warn("Invalid payment request: {}", ex.getMessage());
+
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(new ErrorResponse(
+                        "INVALID_REQUEST",
+                        "The request body is invalid",
+                        Instant.now()
+                ));
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<ErrorResponse> handleUnexpected(Exception ex) {
         log.error("Unexpected error occurred", ex);
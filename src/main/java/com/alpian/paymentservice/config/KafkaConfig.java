@@ -1,20 +1,31 @@
 package com.alpian.paymentservice.config;
 
+import com.alpian.paymentservice.kafka.OutboxKafkaProducer;
 import com.alpian.paymentservice.kafka.PaymentNotification;
-import com.alpian.paymentservice.kafka.PaymentNotificationProducer;
+import com.alpian.paymentservice.kafka.PaymentNotificationBinarySerializer;
+import com.alpian.paymentservice.kafka.PaymentNotificationEncoder;
+import com.alpian.paymentservice.outbox.OutboxEventRouter;
+import com.alpian.paymentservice.outbox.model.OutboxRoutingProperties;
 import lombok.RequiredArgsConstructor;
 import org.apache.kafka.clients.admin.NewTopic;
 import org.apache.kafka.clients.producer.ProducerConfig;
 import org.apache.kafka.common.config.TopicConfig;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.Serializer;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.config.TopicBuilder;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
 import org.springframework.kafka.core.KafkaAdmin;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.kafka.support.serializer.JacksonJsonSerializer;
 
+import java.util.HashMap;
 import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
 
 
 @Configuration
@@ -33,24 +44,68 @@ public class KafkaConfig {
     }
 
     /**
-     * Initialisation personnalisée du producteur Kafka avec injection dynamique du nom de topic.
+     * Value serializer of payment notifications, applied once when the outbox row is written.
+     * JSON: Spring's JacksonJsonSerializer, records keep the JSON body and __TypeId__ header they always had.
+     * BINARY: PaymentNotificationBinarySerializer, 52 bytes plus a schema version header.
+     */
+    @Bean
+    public Serializer<PaymentNotification> paymentNotificationSerializer() {
+        return switch (kafkaTopicProperties.getPaymentNotificationFormat()) {
+            case JSON -> new JacksonJsonSerializer<>();
+            case BINARY -> new PaymentNotificationBinarySerializer();
+        };
+    }
+
+    /**
+     * Topics of the other routed outbox event types, same settings as the payment notification topic.
+     */
+    @Bean
+    public KafkaAdmin.NewTopics outboxRouteTopics(OutboxRoutingProperties outboxRoutingProperties) {
+        return new KafkaAdmin.NewTopics(outboxRoutingProperties.getRoutes().values().stream()
+                .filter(route -> !route.getTopic().equals(kafkaTopicProperties.getPaymentNotification()))
+                .map(route -> TopicBuilder.name(route.getTopic())
+                        .partitions(route.getPartitions())
+                        .replicas(1)
+                        .config(TopicConfig.CLEANUP_POLICY_CONFIG, TopicConfig.CLEANUP_POLICY_DELETE)
+                        .config(TopicConfig.RETENTION_MS_CONFIG, "604800000")
+                        .build())
+                .collect(Collectors.toMap(NewTopic::name, topic -> topic, (first, other) -> first))
+                .values()
+                .toArray(NewTopic[]::new));
+    }
+
+    @Bean
+    public PaymentNotificationEncoder paymentNotificationEncoder(OutboxEventRouter outboxEventRouter) {
+        return new PaymentNotificationEncoder(outboxEventRouter);
+    }
+
+    /**
+     * Initialisation personnalisée du producteur Kafka de l'outbox, partagé par tous les types d'événements.
+     * Les valeurs sont déjà sérialisées dans l'outbox : ByteArraySerializer.
      * @param kafkaProducerFactory
-     * @param paymentNotificationTopic
-     * @return PaymentNotificationProducer
+     * @return OutboxKafkaProducer
      */
     @Bean
-    public PaymentNotificationProducer paymentNotificationProducer(
-            ProducerFactory<String, PaymentNotification> kafkaProducerFactory,
-            NewTopic paymentNotificationTopic
-    ) {
-        Map<String, Object> overrideProps = Map.of(
-                ProducerConfig.MAX_REQUEST_SIZE_CONFIG, kafkaTopicProperties.getRequestMaxSize(),
-                ProducerConfig.COMPRESSION_TYPE_CONFIG, kafkaTopicProperties.getCompressionType());
+    public OutboxKafkaProducer outboxKafkaProducer(ProducerFactory<String, byte[]> kafkaProducerFactory) {
+        Map<String, Object> overrideProps = new HashMap<>();
+        overrideProps.put(ProducerConfig.MAX_REQUEST_SIZE_CONFIG, kafkaTopicProperties.getRequestMaxSize());
+        overrideProps.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, kafkaTopicProperties.getCompressionType());
+        overrideProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class);
+        if (kafkaTopicProperties.getLingerMs() != null) {
+            overrideProps.put(ProducerConfig.LINGER_MS_CONFIG, kafkaTopicProperties.getLingerMs());
+        }
+        if (kafkaTopicProperties.getBatchSize() != null) {
+            overrideProps.put(ProducerConfig.BATCH_SIZE_CONFIG, kafkaTopicProperties.getBatchSize());
+        }
+        if (kafkaTopicProperties.getEnableIdempotence() != null) {
+            overrideProps.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, kafkaTopicProperties.getEnableIdempotence());
+        }
         var producerfactory = kafkaProducerFactory.copyWithConfigurationOverride(overrideProps);
+        if (kafkaTopicProperties.getProducerMode() == KafkaTopicProperties.ProducerMode.TRANSACTIONAL
+                && producerfactory instanceof DefaultKafkaProducerFactory<String, byte[]> transactional) {
+            transactional.setTransactionIdPrefix(kafkaTopicProperties.getTransactionIdPrefix() + UUID.randomUUID() + "-");
+        }
         var kafkaTemplate = new KafkaTemplate<>(producerfactory);
-        return new PaymentNotificationProducer(
-                kafkaTemplate,
-                paymentNotificationTopic.name()
-        );
+        return new OutboxKafkaProducer(kafkaTemplate);
     }
 }
\ No newline at end of file
@@ -11,4 +11,37 @@ public class KafkaTopicProperties {
     String paymentNotification;
     Integer requestMaxSize;
     String compressionType;
+    /**
+     * RECORD: every outbox event is sent on its own and acknowledged from its callback (default).
+     * BATCH: a claimed batch is sent, flushed once, and acknowledged together.
+     * TRANSACTIONAL: a claimed batch is sent in one Kafka transaction, all or nothing.
+     */
+    ProducerMode producerMode = ProducerMode.RECORD;
+    /**
+     * Producer batching (linger.ms, batch.size in bytes, enable.idempotence); Kafka defaults when unset.
+     */
+    Integer lingerMs;
+    Integer batchSize;
+    Boolean enableIdempotence;
+    /**
+     * TRANSACTIONAL mode: a random suffix is appended per instance so instances never fence each other.
+     */
+    String transactionIdPrefix = "payment-outbox-";
+    /**
+     * Wire format of new payment notifications. Rows already in the outbox keep the format they
+     * were written with, so switching is safe at any time; consumers read both with
+     * PaymentNotificationBinaryDeserializer.
+     */
+    WireFormat paymentNotificationFormat = WireFormat.JSON;
+
+    public enum ProducerMode {
+        RECORD,
+        BATCH,
+        TRANSACTIONAL
+    }
+
+    public enum WireFormat {
+        JSON,
+        BINARY
+    }
 }
@@ -0,0 +1,205 @@
+package com.alpian.paymentservice.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "payment")
+@Getter
+@Setter
+public class PaymentProperties {
+
+    /**
+     * JPA: lock, insert, debit, complete and outbox write as separate statements (default).
+     * SINGLE_STATEMENT: the whole flow runs in one call to create_payment_single_statement,
+     * so the account row lock is held for a single round trip.
+     */
+    CommitMode commitMode = CommitMode.JPA;
+
+    Striping striping = new Striping();
+
+    Locking locking = new Locking();
+
+    Batch batch = new Batch();
+
+    GroupCommit groupCommit = new GroupCommit();
+
+    ReplayCache replayCache = new ReplayCache();
+
+    Ledger ledger = new Ledger();
+
+    Engine engine = new Engine();
+
+    public enum CommitMode {
+        JPA,
+        SINGLE_STATEMENT
+    }
+
+    public enum LockingMode {
+        /**
+         * Always SELECT ... FOR UPDATE the account row (default).
+         */
+        PESSIMISTIC,
+        /**
+         * Version-checked debits, accounts with a high conflict rate are moved to the pessimistic path.
+         */
+        ADAPTIVE
+    }
+
+    @Getter
+    @Setter
+    public static class Striping {
+        /**
+         * Enables the striped debit path for accounts flagged with account.striped. When disabled the
+         * flag is ignored, and startup fails while account_balance_stripe still has rows.
+         */
+        boolean enabled;
+        /**
+         * Number of sub-balance rows created when a flagged account is first striped.
+         */
+        int stripeCount = 8;
+        long rebalanceIntervalMs = 5000;
+    }
+
+    @Getter
+    @Setter
+    public static class Locking {
+        LockingMode mode = LockingMode.PESSIMISTIC;
+        /**
+         * Version conflicts tolerated before the debit falls back to the account row lock.
+         */
+        int maxOptimisticRetries = 3;
+        /**
+         * Conflict rate (0..1) above which an account is moved to the pessimistic path.
+         */
+        double pessimisticEnterRate = 0.3;
+        /**
+         * Conflict rate (0..1) below which a pessimistic account returns to the optimistic path.
+         */
+        double pessimisticExitRate = 0.05;
+        /**
+         * Half-life of the conflict rate, so an account that stops conflicting decays back.
+         */
+        long conflictRateHalfLifeMs = 10000;
+    }
+
+    @Getter
+    @Setter
+    public static class Batch {
+        /**
+         * Rows sent per JDBC batch when inserting the payments and outbox events of a bulk submission.
+         */
+        int jdbcBatchSize = 500;
+        /**
+         * Most items accepted in one bulk submission; a larger one is rejected with 400.
+         */
+        int maxItems = 1000;
+    }
+
+    @Getter
+    @Setter
+    public static class GroupCommit {
+        /**
+         * Queues concurrent API payments and commits them together through create_payment_single_statement.
+         */
+        boolean enabled;
+        /**
+         * Longest time the first payment of a group waits for others to join.
+         */
+        long maxWaitMicros = 300;
+        int maxGroupSize = 64;
+        /**
+         * Payments waiting for a group; beyond this requests are committed on their own.
+         */
+        int queueCapacity = 10000;
+        /**
+         * Groups committed concurrently.
+         */
+        int committers = 4;
+    }
+
+    @Getter
+    @Setter
+    public static class ReplayCache {
+        /**
+         * Answers retries of completed payments from memory; payment.uk_payment_idempotency stays the source of truth.
+         */
+        boolean enabled;
+        /**
+         * Upper bound of cached responses, rounded up to a power of two per segment.
+         */
+        int maxEntries = 100_000;
+        long ttlSeconds = 600;
+        /**
+         * Independently locked parts of the cache.
+         */
+        int segments = 16;
+    }
+
+    @Getter
+    @Setter
+    public static class Ledger {
+        /**
+         * Debits append ledger_entry rows instead of updating account.balance, which is only
+         * rewritten by the compaction job (see LedgerService). Requires commit-mode JPA,
+         * PESSIMISTIC locking and group commit off, whose debits bypass the ledger.
+         */
+        boolean enabled;
+        long compactionIntervalMs = 1000;
+    }
+
+    @Getter
+    @Setter
+    public static class Engine {
+        /**
+         * Debits are applied in memory by the single-writer partition owning the account, journaled
+         * and written to account and payment asynchronously (see AccountEngine). Requires group
+         * commit, striping and the ledger off: the engine must be the only writer of balances.
+         */
+        boolean enabled;
+        /**
+         * Partition threads; an account is owned by hash(accountId) mod partitions. Must not change
+         * while a journal still holds records that are not written behind.
+         */
+        int partitions = 4;
+        /**
+         * Slots of the ring buffer in front of each partition, rounded up to a power of two.
+         */
+        int ringBufferSize = 4096;
+        /**
+         * Commands applied per journal sync; their callers are answered once the sync returns.
+         */
+        int maxSyncBatch = 256;
+        String journalDir = "data/engine-journal";
+        int journalSegmentMb = 64;
+        /**
+         * Forces the journal to disk before answering. Off only trades durability of the last
+         * batches for latency.
+         */
+        boolean fsync = true;
+        /**
+         * How long a caller waits for its debit, ring buffer claim included, before it gets an error.
+         */
+        long submitTimeoutMs = 5_000;
+        /**
+         * Journaled debits waiting to be written to the database; a full queue stalls its partition.
+         */
+        int writeBehindQueueCapacity = 100_000;
+        int writeBehindBatchSize = 500;
+        /**
+         * How long a partition waits for room in a full write-behind queue before it fails.
+         */
+        long writeBehindEnqueueTimeoutMs = 10_000;
+        /**
+         * Attempts at committing one write-behind batch; a batch that still fails stops the partition.
+         */
+        int writeBehindMaxAttempts = 10;
+        long writeBehindRetryDelayMs = 1_000;
+        /**
+         * How long a written-behind payment stays in the partition's duplicate table, which covers
+         * callers whose database lookup ran before the payment was committed.
+         */
+        long duplicateWindowMs = 30_000;
+        long idleParkMicros = 50;
+    }
+}
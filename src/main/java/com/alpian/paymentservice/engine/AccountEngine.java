@@ -0,0 +1,187 @@
+package com.alpian.paymentservice.engine;
+
+import com.alpian.paymentservice.api.dto.PaymentRequest;
+import com.alpian.paymentservice.api.dto.PaymentResponse;
+import com.alpian.paymentservice.api.exception.DuplicatePaymentException;
+import com.alpian.paymentservice.config.PaymentProperties;
+import com.alpian.paymentservice.kafka.PaymentNotificationEncoder;
+import com.alpian.paymentservice.persistence.entity.PaymentEntity;
+import com.alpian.paymentservice.persistence.repository.AccountEngineRepository;
+import com.alpian.paymentservice.persistence.repository.PaymentBatchRepository;
+import com.alpian.paymentservice.persistence.repository.PaymentRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Engine mode (payment.engine.enabled), LMAX style: every account is owned by one
+ * {@link EnginePartition} thread, picked by hash of its id, and payments reach it through that
+ * partition's lock-free ring buffer. Balances live in memory and the journal is the durable record;
+ * account, payment and outbox_event are written behind, with engine_checkpoint marking how far.
+ * At startup each partition replays its journal on top of that checkpoint.
+ */
+@Slf4j
+@Service
+public class AccountEngine {
+
+    private final PaymentProperties paymentProperties;
+    private final PaymentProperties.Engine config;
+    private final AccountEngineRepository accountEngineRepository;
+    private final PaymentRepository paymentRepository;
+    private final PaymentBatchRepository paymentBatchRepository;
+    private final PaymentNotificationEncoder notificationEncoder;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+
+    private EnginePartition[] partitions;
+
+    public AccountEngine(PaymentProperties paymentProperties,
+                         AccountEngineRepository accountEngineRepository,
+                         PaymentRepository paymentRepository,
+                         PaymentBatchRepository paymentBatchRepository,
+                         PaymentNotificationEncoder notificationEncoder,
+                         TransactionTemplate transactionTemplate,
+                         MeterRegistry meterRegistry) {
+        this.paymentProperties = paymentProperties;
+        this.config = paymentProperties.getEngine();
+        this.accountEngineRepository = accountEngineRepository;
+        this.paymentRepository = paymentRepository;
+        this.paymentBatchRepository = paymentBatchRepository;
+        this.notificationEncoder = notificationEncoder;
+        this.transactionTemplate = transactionTemplate;
+        this.meterRegistry = meterRegistry;
+    }
+
+    public boolean isEnabled() {
+        return config.isEnabled();
+    }
+
+    @PostConstruct
+    void start() throws InterruptedException {
+        if (!config.isEnabled()) return;
+
+        // these paths write balances without going through the engine
+        if (paymentProperties.getGroupCommit().isEnabled()
+                || paymentProperties.getStriping().isEnabled()
+                || paymentProperties.getLedger().isEnabled()) {
+            throw new IllegalStateException(
+                    "payment.engine.enabled requires group-commit, striping and ledger disabled");
+        }
+
+        DistributionSummary syncBatchSizes = DistributionSummary.builder("payment.engine.sync-batch-size")
+                .description("Debits covered by one journal sync")
+                .register(meterRegistry);
+        Path journalDir = Path.of(config.getJournalDir());
+
+        partitions = new EnginePartition[config.getPartitions()];
+        for (int i = 0; i < partitions.length; i++) {
+            PartitionWriteBehind writeBehind = new PartitionWriteBehind(i, config.getWriteBehindQueueCapacity(),
+                    config.getWriteBehindBatchSize(), config.getWriteBehindEnqueueTimeoutMs(),
+                    config.getWriteBehindMaxAttempts(), config.getWriteBehindRetryDelayMs(),
+                    accountEngineRepository, paymentBatchRepository, notificationEncoder, transactionTemplate);
+            PaymentJournal journal = new PaymentJournal(journalDir, i, config.getJournalSegmentMb() << 20, config.isFsync());
+            EnginePartition partition = new EnginePartition(i, new DebitRingBuffer(config.getRingBufferSize()),
+                    journal, writeBehind, accountEngineRepository, syncBatchSizes, config.getMaxSyncBatch(),
+                    config.getDuplicateWindowMs(), config.getIdleParkMicros(), config.getSubmitTimeoutMs());
+            partitions[i] = partition;
+
+            String tag = String.valueOf(i);
+            Gauge.builder("payment.engine.ring-depth", partition, EnginePartition::ringDepth)
+                    .description("Commands published to the partition and not yet applied")
+                    .tag("partition", tag)
+                    .register(meterRegistry);
+            Gauge.builder("payment.engine.write-behind-lag", partition, EnginePartition::writeBehindLag)
+                    .description("Journaled debits not yet written to the database")
+                    .tag("partition", tag)
+                    .register(meterRegistry);
+
+            partition.start();
+        }
+        log.info("Account engine started: partitions={}, journalDir={}, fsync={}",
+                partitions.length, journalDir.toAbsolutePath(), config.isFsync());
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        if (partitions == null) return;
+
+        for (EnginePartition partition : partitions) {
+            if (partition != null) partition.stop();
+        }
+    }
+
+    public PaymentResponse submit(PaymentRequest request, UUID userId) {
+        try {
+            return submitAsync(request, userId).join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) throw cause;
+            if (ex.getCause() instanceof TimeoutException) {
+                throw new IllegalStateException("Account engine did not answer within "
+                        + config.getSubmitTimeoutMs() + " ms", ex.getCause());
+            }
+            throw ex;
+        }
+    }
+
+    /**
+     * Looks the payment up in the database, which holds everything the partitions have forgotten,
+     * then publishes it to the owning partition. Completes once the debit is journaled and synced,
+     * or with a TimeoutException after submit-timeout-ms: the debit may still be applied then, and a
+     * retry with the same paymentId replays it.
+     */
+    public CompletableFuture<PaymentResponse> submitAsync(PaymentRequest request, UUID userId) {
+        return publish(request, userId).orTimeout(config.getSubmitTimeoutMs(), TimeUnit.MILLISECONDS);
+    }
+
+    private CompletableFuture<PaymentResponse> publish(PaymentRequest request, UUID userId) {
+        EnginePartition partition = partitions[Math.floorMod(request.accountId().hashCode(), partitions.length)];
+        long amountMinor;
+        long checkedAt = System.nanoTime();
+        try {
+            if (!partition.isRunning()) {
+                throw new IllegalStateException("Account engine is not running");
+            }
+            amountMinor = request.money().minorUnits();
+
+            Optional<PaymentEntity> stored = paymentRepository.findByAccountIdAndPaymentId(request.accountId(), request.paymentId());
+            if (stored.isPresent()) {
+                return CompletableFuture.completedFuture(replayOrThrow(stored.get(), request, amountMinor));
+            }
+        } catch (RuntimeException ex) {
+            return CompletableFuture.failedFuture(ex);
+        }
+
+        return partition.publish(request.accountId(), userId, request.paymentId(), amountMinor, request.currency(), checkedAt)
+                .exceptionallyComposeAsync(ex -> {
+                    Throwable cause = ex instanceof CompletionException ? ex.getCause() : ex;
+                    return cause instanceof StaleDuplicateCheckException
+                            ? publish(request, userId)
+                            : CompletableFuture.failedFuture(cause);
+                });
+    }
+
+    private static PaymentResponse replayOrThrow(PaymentEntity stored, PaymentRequest request, long amountMinor) {
+        if (stored.getAmount() == amountMinor && stored.getCurrency().equals(request.currency())) {
+            log.info("Identical payment retry replayed: internalId={}, accountId={}, paymentId={}",
+                    stored.getId(), request.accountId(), request.paymentId());
+            return PaymentResponse.from(stored);
+        }
+
+        log.warn("Duplicate payment request rejected: accountId={}, paymentId={}",
+                request.accountId(), request.paymentId());
+        throw new DuplicatePaymentException("Duplicate payment request detected");
+    }
+}
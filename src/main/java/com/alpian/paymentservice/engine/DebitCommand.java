@@ -0,0 +1,44 @@
+package com.alpian.paymentservice.engine;
+
+import com.alpian.paymentservice.api.dto.PaymentResponse;
+
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Pre-allocated ring buffer slot: filled by the publishing caller, read by the partition thread.
+ * The fields are made visible by the slot's publication in {@link DebitRingBuffer}.
+ */
+final class DebitCommand {
+
+    UUID accountId;
+    UUID userId;
+    UUID paymentId;
+    UUID paymentInternalId;
+    long amountMinor;
+    String currency;
+    Instant createdAt;
+    /**
+     * When the caller started its duplicate lookup in the database, see EnginePartition.
+     */
+    long checkedAtNanos;
+    CompletableFuture<PaymentResponse> result;
+
+    PaymentResponse response;
+    RuntimeException error;
+
+    void clearOutcome() {
+        response = null;
+        error = null;
+    }
+
+    void complete() {
+        if (error != null) {
+            result.completeExceptionally(error);
+        } else {
+            result.complete(response);
+        }
+        result = null;
+    }
+}
@@ -0,0 +1,95 @@
+package com.alpian.paymentservice.engine;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Multi-producer, single-consumer ring of pre-allocated {@link DebitCommand} slots. Producers claim
+ * a sequence with a CAS, fill its slot and publish it; the consumer reads the contiguous published
+ * run and releases the slots once done. No locks: a full ring makes producers park briefly, up to
+ * a deadline.
+ */
+final class DebitRingBuffer {
+
+    private final DebitCommand[] slots;
+    private final AtomicLongArray published;
+    private final int mask;
+    private final AtomicLong claimed = new AtomicLong(-1);
+    private volatile long released = -1;
+
+    DebitRingBuffer(int requestedSize) {
+        int size = Integer.highestOneBit(Math.max(2, requestedSize - 1)) << 1;
+        this.slots = new DebitCommand[size];
+        this.published = new AtomicLongArray(size);
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            slots[i] = new DebitCommand();
+            published.set(i, -1);
+        }
+    }
+
+    /**
+     * Claims the next sequence, waiting while the consumer is a whole ring behind.
+     *
+     * @return the claimed sequence, or -1 if the ring stayed full for timeoutNanos
+     */
+    long claim(long timeoutNanos) {
+        long deadline = System.nanoTime() + timeoutNanos;
+        while (true) {
+            long current = claimed.get();
+            long next = current + 1;
+            if (next - slots.length > released) {
+                if (System.nanoTime() - deadline >= 0) return -1;
+                LockSupport.parkNanos(1_000);
+                continue;
+            }
+            if (claimed.compareAndSet(current, next)) return next;
+        }
+    }
+
+    DebitCommand slot(long sequence) {
+        return slots[(int) sequence & mask];
+    }
+
+    /**
+     * Volatile write, not just a release: a producer reads the partition state right after it, see
+     * EnginePartition.publish.
+     */
+    void publish(long sequence) {
+        published.set((int) sequence & mask, sequence);
+    }
+
+    /**
+     * Number of consecutive published slots from the given sequence, at most max.
+     */
+    int available(long from, int max) {
+        int count = 0;
+        while (count < max && published.getAcquire((int) (from + count) & mask) == from + count) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Hands the slots up to the given sequence back to the producers.
+     */
+    void release(long upTo) {
+        released = upTo;
+    }
+
+    /**
+     * Highest sequence claimed by a producer, published or not yet.
+     */
+    long claimedSequence() {
+        return claimed.get();
+    }
+
+    long depth() {
+        return claimed.get() - released;
+    }
+
+    int capacity() {
+        return slots.length;
+    }
+}
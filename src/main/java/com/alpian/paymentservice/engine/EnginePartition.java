@@ -0,0 +1,368 @@
+package com.alpian.paymentservice.engine;
+
+import com.alpian.paymentservice.api.dto.PaymentResponse;
+import com.alpian.paymentservice.api.exception.AccountNotFoundOrForbiddenException;
+import com.alpian.paymentservice.api.exception.DuplicatePaymentException;
+import com.alpian.paymentservice.api.exception.InsufficientFundsException;
+import com.alpian.paymentservice.persistence.entity.PaymentStatus;
+import com.alpian.paymentservice.persistence.id.UuidV7;
+import com.alpian.paymentservice.persistence.repository.AccountEngineRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.invoke.VarHandle;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Single writer of the accounts hashed to it. The partition thread takes runs of commands from its
+ * ring buffer, applies each debit to a primitive balance table without any lock, appends it to the
+ * journal, syncs the journal once for the whole run and only then answers the callers. Debits reach
+ * the database through the partition's {@link PartitionWriteBehind}.
+ * <p>
+ * Duplicates: callers look the payment up in the database before publishing, and the partition
+ * keeps the payments it journaled until they have been committed for duplicate-window-ms. A caller
+ * whose lookup is older than half the window is sent back to look again, so a lookup can never have
+ * missed a payment that the partition has already forgotten.
+ * <p>
+ * Failure: an error while applying or journaling, or a failed or stalled write-behind, stops the
+ * partition. Every command still in the ring is answered with the error, and so is every command
+ * published after the thread has exited (see {@link #publish} and {@link #failLateCommands}).
+ */
+@Slf4j
+final class EnginePartition {
+
+    private static final String COMPLETED = PaymentStatus.COMPLETED.name();
+
+    private final int id;
+    private final DebitRingBuffer ring;
+    private final PaymentJournal journal;
+    private final PartitionWriteBehind writeBehind;
+    private final AccountEngineRepository accountEngineRepository;
+    private final DistributionSummary syncBatchSizes;
+    private final int maxSyncBatch;
+    private final long duplicateWindowNanos;
+    private final long idleParkNanos;
+    private final long claimTimeoutNanos;
+
+    private final Map<UUID, Integer> accountSlots = new HashMap<>();
+    private UUID[] owners = new UUID[1024];
+    private long[] balances = new long[1024];
+    private int accountCount;
+
+    private final Map<PaymentKey, JournalRecord> recentPayments = new HashMap<>();
+    private final ArrayDeque<JournalRecord> recentOrder = new ArrayDeque<>();
+    private final ArrayDeque<PersistMark> persistMarks = new ArrayDeque<>();
+    private final List<JournalRecord> journaled = new ArrayList<>();
+    private long lastObservedPersisted;
+
+    private long sequence;
+    private volatile long syncedSequence;
+    private long consumed = -1;
+    private RuntimeException failure;
+    private Thread thread;
+    private volatile boolean running;
+    private volatile boolean exited;
+
+    EnginePartition(int id,
+                    DebitRingBuffer ring,
+                    PaymentJournal journal,
+                    PartitionWriteBehind writeBehind,
+                    AccountEngineRepository accountEngineRepository,
+                    DistributionSummary syncBatchSizes,
+                    int maxSyncBatch,
+                    long duplicateWindowMs,
+                    long idleParkMicros,
+                    long claimTimeoutMs) {
+        this.id = id;
+        this.ring = ring;
+        this.journal = journal;
+        this.writeBehind = writeBehind;
+        this.accountEngineRepository = accountEngineRepository;
+        this.syncBatchSizes = syncBatchSizes;
+        this.maxSyncBatch = Math.max(1, Math.min(maxSyncBatch, ring.capacity()));
+        this.duplicateWindowNanos = TimeUnit.MILLISECONDS.toNanos(duplicateWindowMs);
+        this.idleParkNanos = TimeUnit.MICROSECONDS.toNanos(idleParkMicros);
+        this.claimTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(claimTimeoutMs);
+    }
+
+    /**
+     * Recovery: the database is the snapshot as of its checkpoint, the journal records after it are
+     * applied again and queued for write-behind. Then the partition thread starts.
+     */
+    void start() throws InterruptedException {
+        long applied = accountEngineRepository.appliedSequence(id);
+        writeBehind.start(applied);
+        lastObservedPersisted = applied;
+
+        List<JournalRecord> replayed = journal.recover(applied);
+        for (JournalRecord record : replayed) {
+            int slot = slotOf(record.accountId());
+            if (slot < 0) {
+                throw new IllegalStateException("Journaled account " + record.accountId() + " no longer exists");
+            }
+            balances[slot] = record.balanceAfterMinor();
+            remember(record);
+            writeBehind.enqueue(record);
+        }
+        sequence = Math.max(applied, journal.lastSequence());
+        syncedSequence = sequence;
+
+        running = true;
+        thread = Thread.ofPlatform().name("engine-partition-" + id).start(this::runLoop);
+        log.info("Engine partition started: partition={}, checkpoint={}, replayed={}, sequence={}",
+                id, applied, replayed.size(), sequence);
+    }
+
+    /**
+     * Applies what is already published, then stops the thread and the write-behind.
+     */
+    void stop() throws InterruptedException {
+        if (thread == null) return;
+
+        running = false;
+        thread.join(TimeUnit.SECONDS.toMillis(10));
+        if (thread.isAlive()) {
+            thread.interrupt();
+            thread.join();
+        }
+        writeBehind.stop();
+        journal.close();
+    }
+
+    boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Fails fast once the partition thread has exited, and gives up if the ring stays full for
+     * claim-timeout. A command published while the thread exits is answered either by its final
+     * pass over the ring or, if that pass did not see it, here: the thread sets exited before that
+     * pass and the publication is a volatile write, so at least one of the two sees the other.
+     */
+    CompletableFuture<PaymentResponse> publish(UUID accountId, UUID userId, UUID paymentId, long amountMinor,
+                                               String currency, long checkedAtNanos) {
+        if (exited) return CompletableFuture.failedFuture(stopped());
+
+        long claimed = ring.claim(claimTimeoutNanos);
+        if (claimed < 0) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Engine partition " + id
+                    + " ring buffer stayed full for " + TimeUnit.NANOSECONDS.toMillis(claimTimeoutNanos) + " ms"));
+        }
+        CompletableFuture<PaymentResponse> result = new CompletableFuture<>();
+        DebitCommand command = ring.slot(claimed);
+        command.accountId = accountId;
+        command.userId = userId;
+        command.paymentId = paymentId;
+        command.paymentInternalId = UuidV7.next();
+        command.amountMinor = amountMinor;
+        command.currency = currency;
+        command.createdAt = Instant.now().truncatedTo(ChronoUnit.MICROS);
+        command.checkedAtNanos = checkedAtNanos;
+        command.result = result;
+        ring.publish(claimed);
+        if (exited) result.completeExceptionally(stopped());
+        return result;
+    }
+
+    long ringDepth() {
+        return ring.depth();
+    }
+
+    long writeBehindLag() {
+        return syncedSequence - writeBehind.persistedSequence();
+    }
+
+    private void runLoop() {
+        while (running || ring.available(consumed + 1, 1) > 0) {
+            if (failure == null && writeBehind.failure() != null) {
+                fail(new IllegalStateException("Engine write-behind failed", writeBehind.failure()));
+            }
+            int count = ring.available(consumed + 1, maxSyncBatch);
+            if (count == 0) {
+                observePersisted(System.nanoTime());
+                LockSupport.parkNanos(idleParkNanos);
+                continue;
+            }
+
+            long from = consumed + 1;
+            if (failure == null) {
+                try {
+                    long now = System.nanoTime();
+                    for (int i = 0; i < count; i++) {
+                        apply(ring.slot(from + i), now);
+                    }
+                    journal.sync();
+                    syncedSequence = sequence;
+                    syncBatchSizes.record(count);
+                } catch (RuntimeException ex) {
+                    fail(ex);
+                }
+            }
+            if (failure != null) {
+                for (int i = 0; i < count; i++) {
+                    ring.slot(from + i).error = stopped();
+                }
+            }
+
+            for (int i = 0; i < count; i++) {
+                ring.slot(from + i).complete();
+            }
+            consumed = from + count - 1;
+            ring.release(consumed);
+
+            try {
+                for (JournalRecord record : journaled) {
+                    writeBehind.enqueue(record);
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                running = false;
+            } catch (RuntimeException ex) {
+                // the records are synced: they are written behind from the journal at the next startup
+                fail(ex);
+            } finally {
+                journaled.clear();
+            }
+            observePersisted(System.nanoTime());
+        }
+        failLateCommands();
+    }
+
+    private void fail(RuntimeException ex) {
+        log.error("Engine partition {} failed, stopping it", id, ex);
+        failure = ex;
+        running = false;
+        journaled.clear();
+    }
+
+    private IllegalStateException stopped() {
+        return new IllegalStateException("Engine partition " + id + " stopped", failure);
+    }
+
+    /**
+     * Answers the commands claimed before the thread marked itself exited: their producers may have
+     * checked exited too early to fail them themselves. Producers publish right after claiming, so
+     * the wait for each slot is short; it is bounded by claim-timeout all the same.
+     */
+    private void failLateCommands() {
+        exited = true;
+        VarHandle.fullFence();
+        long claimedUpTo = ring.claimedSequence();
+        long deadline = System.nanoTime() + claimTimeoutNanos;
+        for (long s = consumed + 1; s <= claimedUpTo; s++) {
+            while (ring.available(s, 1) == 0) {
+                if (System.nanoTime() - deadline >= 0) return;
+                Thread.onSpinWait();
+            }
+            DebitCommand command = ring.slot(s);
+            command.clearOutcome();
+            command.error = stopped();
+            command.complete();
+        }
+    }
+
+    private void apply(DebitCommand command, long now) {
+        command.clearOutcome();
+        if (now - command.checkedAtNanos > duplicateWindowNanos / 2) {
+            command.error = StaleDuplicateCheckException.INSTANCE;
+            return;
+        }
+
+        JournalRecord recent = recentPayments.get(new PaymentKey(command.accountId, command.paymentId));
+        if (recent != null) {
+            if (recent.amountMinor() == command.amountMinor && recent.currency().equals(command.currency)) {
+                command.response = new PaymentResponse(command.paymentId, COMPLETED);
+            } else {
+                command.error = new DuplicatePaymentException("Duplicate payment request detected");
+            }
+            return;
+        }
+
+        int slot;
+        try {
+            slot = slotOf(command.accountId);
+        } catch (RuntimeException ex) {
+            command.error = ex;
+            return;
+        }
+        if (slot < 0 || !owners[slot].equals(command.userId)) {
+            command.error = new AccountNotFoundOrForbiddenException("Account not found or not owned by user");
+            return;
+        }
+        if (balances[slot] < command.amountMinor) {
+            command.error = new InsufficientFundsException("Insufficient funds");
+            return;
+        }
+
+        balances[slot] -= command.amountMinor;
+        JournalRecord record = new JournalRecord(++sequence, command.accountId, command.paymentId,
+                command.paymentInternalId, command.amountMinor, balances[slot], command.currency, command.createdAt);
+        journal.append(record);
+        remember(record);
+        journaled.add(record);
+        command.response = new PaymentResponse(command.paymentId, COMPLETED);
+    }
+
+    /**
+     * Slot of the account in the balance table, loaded from the database the first time the
+     * partition sees it: no other writer touches the balance while the engine runs. -1 if unknown.
+     */
+    private int slotOf(UUID accountId) {
+        Integer slot = accountSlots.get(accountId);
+        if (slot != null) return slot;
+
+        return accountEngineRepository.findAccount(accountId)
+                .map(account -> {
+                    if (accountCount == owners.length) {
+                        owners = Arrays.copyOf(owners, accountCount * 2);
+                        balances = Arrays.copyOf(balances, accountCount * 2);
+                    }
+                    owners[accountCount] = account.userId();
+                    balances[accountCount] = account.balanceMinor();
+                    accountSlots.put(accountId, accountCount);
+                    return accountCount++;
+                })
+                .orElse(-1);
+    }
+
+    private void remember(JournalRecord record) {
+        recentPayments.put(new PaymentKey(record.accountId(), record.paymentId()), record);
+        recentOrder.addLast(record);
+    }
+
+    /**
+     * Forgets the payments committed to the database more than duplicate-window-ms ago and
+     * deletes the journal segments that are fully written behind.
+     */
+    private void observePersisted(long now) {
+        long persisted = writeBehind.persistedSequence();
+        if (persisted > lastObservedPersisted) {
+            persistMarks.addLast(new PersistMark(persisted, now));
+            lastObservedPersisted = persisted;
+            journal.releaseUpTo(persisted);
+        }
+
+        while (!persistMarks.isEmpty() && now - persistMarks.peekFirst().observedAtNanos() > duplicateWindowNanos) {
+            long upTo = persistMarks.pollFirst().sequence();
+            while (!recentOrder.isEmpty() && recentOrder.peekFirst().sequence() <= upTo) {
+                JournalRecord forgotten = recentOrder.pollFirst();
+                recentPayments.remove(new PaymentKey(forgotten.accountId(), forgotten.paymentId()));
+            }
+        }
+    }
+
+    private record PaymentKey(UUID accountId, UUID paymentId) {}
+
+    private record PersistMark(long sequence, long observedAtNanos) {}
+}
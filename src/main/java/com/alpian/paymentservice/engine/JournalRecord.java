@@ -0,0 +1,16 @@
+package com.alpian.paymentservice.engine;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * One applied debit: the payment and the balance of its account right after it.
+ */
+record JournalRecord(long sequence,
+                     UUID accountId,
+                     UUID paymentId,
+                     UUID paymentInternalId,
+                     long amountMinor,
+                     long balanceAfterMinor,
+                     String currency,
+                     Instant createdAt) {}
@@ -0,0 +1,211 @@
+package com.alpian.paymentservice.engine;
+
+import com.alpian.paymentservice.kafka.PaymentNotification;
+import com.alpian.paymentservice.kafka.PaymentNotificationEncoder;
+import com.alpian.paymentservice.outbox.model.OutboxMessage;
+import com.alpian.paymentservice.persistence.entity.*;
+import com.alpian.paymentservice.persistence.id.UuidV7;
+import com.alpian.paymentservice.persistence.repository.AccountEngineRepository;
+import com.alpian.paymentservice.persistence.repository.PaymentBatchRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Writes the journaled debits of one partition to the database in batches: payments, outbox events,
+ * the last balance of every account and the partition checkpoint in one transaction. A failed batch
+ * is retried up to max-attempts times; its records stay in the journal meanwhile. A batch that still
+ * does not commit (constraint, foreign key) stops the write-behind and fails its partition, see
+ * {@link #failure()}: the records are written again from the journal at the next startup.
+ */
+@Slf4j
+final class PartitionWriteBehind {
+
+    private final int partition;
+    private final BlockingQueue<JournalRecord> queue;
+    private final AccountEngineRepository accountEngineRepository;
+    private final PaymentBatchRepository paymentBatchRepository;
+    private final PaymentNotificationEncoder notificationEncoder;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final long enqueueTimeoutMs;
+    private final int maxAttempts;
+    private final long retryDelayMs;
+    private final AtomicLong persistedSequence = new AtomicLong();
+
+    private Thread thread;
+    private volatile boolean running;
+    private volatile RuntimeException failure;
+
+    PartitionWriteBehind(int partition,
+                         int queueCapacity,
+                         int batchSize,
+                         long enqueueTimeoutMs,
+                         int maxAttempts,
+                         long retryDelayMs,
+                         AccountEngineRepository accountEngineRepository,
+                         PaymentBatchRepository paymentBatchRepository,
+                         PaymentNotificationEncoder notificationEncoder,
+                         TransactionTemplate transactionTemplate) {
+        this.partition = partition;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        this.batchSize = Math.max(1, batchSize);
+        this.enqueueTimeoutMs = enqueueTimeoutMs;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.retryDelayMs = retryDelayMs;
+        this.accountEngineRepository = accountEngineRepository;
+        this.paymentBatchRepository = paymentBatchRepository;
+        this.notificationEncoder = notificationEncoder;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    void start(long appliedSequence) {
+        persistedSequence.set(appliedSequence);
+        running = true;
+        thread = Thread.ofPlatform().name("engine-write-behind-" + partition).start(this::writeLoop);
+    }
+
+    /**
+     * Writes what is queued, then stops. Records left behind are replayed from the journal at startup.
+     */
+    void stop() throws InterruptedException {
+        if (thread == null) return;
+
+        running = false;
+        thread.join(TimeUnit.SECONDS.toMillis(10));
+        if (thread.isAlive()) {
+            thread.interrupt();
+            log.warn("Engine write-behind stopped with {} records left in partition {}", queue.size(), partition);
+        }
+    }
+
+    /**
+     * Waits up to enqueue-timeout-ms for room in the queue.
+     *
+     * @throws IllegalStateException if the write-behind failed or its queue stayed full
+     */
+    void enqueue(JournalRecord record) throws InterruptedException {
+        RuntimeException failed = failure;
+        if (failed != null) {
+            throw new IllegalStateException("Engine write-behind of partition " + partition + " failed", failed);
+        }
+        if (!queue.offer(record, enqueueTimeoutMs, TimeUnit.MILLISECONDS)) {
+            throw new IllegalStateException("Engine write-behind queue of partition " + partition
+                    + " stayed full for " + enqueueTimeoutMs + " ms");
+        }
+    }
+
+    /**
+     * Error of the batch that could not be committed, null while the write-behind works.
+     */
+    RuntimeException failure() {
+        return failure;
+    }
+
+    /**
+     * Highest sequence committed to the database.
+     */
+    long persistedSequence() {
+        return persistedSequence.get();
+    }
+
+    private void writeLoop() {
+        List<JournalRecord> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                JournalRecord first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                if (!writeUntilCommitted(batch)) return;
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * @return false if the batch did not commit within max-attempts, the write-behind is then failed
+     */
+    private boolean writeUntilCommitted(List<JournalRecord> batch) throws InterruptedException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                write(batch);
+                return true;
+            } catch (RuntimeException ex) {
+                if (attempt >= maxAttempts) {
+                    log.error("Engine write-behind gave up after {} attempts, failing partition {}: records={}",
+                            attempt, partition, batch.size(), ex);
+                    running = false;
+                    failure = ex;
+                    return false;
+                }
+                log.error("Engine write-behind failed, retrying: partition={}, records={}, attempt={}",
+                        partition, batch.size(), attempt, ex);
+                Thread.sleep(retryDelayMs);
+            }
+        }
+    }
+
+    private void write(List<JournalRecord> batch) {
+        List<PaymentEntity> payments = new ArrayList<>(batch.size());
+        Map<UUID, Long> balances = new LinkedHashMap<>();
+        for (JournalRecord record : batch) {
+            payments.add(PaymentEntity.builder()
+                    .id(record.paymentInternalId())
+                    .accountId(record.accountId())
+                    .amount(record.amountMinor())
+                    .currency(record.currency())
+                    .paymentId(record.paymentId())
+                    .status(PaymentStatus.COMPLETED)
+                    .createdAt(record.createdAt())
+                    .build());
+            balances.put(record.accountId(), record.balanceAfterMinor());
+        }
+        long lastSequence = batch.getLast().sequence();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            // duplicates were rejected by the partition; a skipped row would have been inserted by another writer
+            boolean[] inserted = paymentBatchRepository.insertPaymentsIgnoringDuplicates(payments, batchSize);
+
+            List<OutboxEventEntity> events = new ArrayList<>(payments.size());
+            for (int i = 0; i < payments.size(); i++) {
+                if (inserted[i]) events.add(outboxEvent(payments.get(i)));
+            }
+            paymentBatchRepository.insertOutboxEvents(events, batchSize);
+            accountEngineRepository.updateBalances(balances, batchSize);
+            accountEngineRepository.saveAppliedSequence(partition, lastSequence);
+        });
+
+        persistedSequence.set(lastSequence);
+    }
+
+    private OutboxEventEntity outboxEvent(PaymentEntity payment) {
+        OutboxMessage message = notificationEncoder.encode(PaymentNotification.from(payment));
+        return OutboxEventEntity.builder()
+                .id(UuidV7.next())
+                .aggregateType("PAYMENT")
+                .aggregateId(payment.getId())
+                .shardKey(payment.getAccountId())
+                .eventType(EventType.PAYMENT_CREATED)
+                .eventStatus(EventStatus.PENDING)
+                .payload(message.value())
+                .messageKey(message.key())
+                .headers(message.headers())
+                .createdAt(payment.getCreatedAt())
+                .build();
+    }
+}
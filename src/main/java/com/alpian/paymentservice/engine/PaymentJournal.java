@@ -0,0 +1,207 @@
+package com.alpian.paymentservice.engine;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only journal of one partition: fixed-size records in memory-mapped segment files named
+ * partition-{partition}-{first sequence}.journal. An append is a plain memory write; {@link #sync()}
+ * forces everything appended since the previous sync, so one fsync covers a whole batch.
+ * Only used by its partition thread.
+ */
+final class PaymentJournal implements Closeable {
+
+    static final int RECORD_BYTES = 96;
+    private static final int CHECKSUM_OFFSET = RECORD_BYTES - Integer.BYTES;
+
+    private final Path dir;
+    private final int partition;
+    private final int segmentBytes;
+    private final boolean fsync;
+    private final TreeMap<Long, Path> segments = new TreeMap<>();
+
+    private MappedByteBuffer current;
+    private int position;
+    private int syncedPosition;
+    private long lastSequence;
+
+    PaymentJournal(Path dir, int partition, int segmentBytes, boolean fsync) {
+        this.dir = dir;
+        this.partition = partition;
+        this.segmentBytes = Math.max(1, segmentBytes / RECORD_BYTES) * RECORD_BYTES;
+        this.fsync = fsync;
+    }
+
+    /**
+     * Reads the segments on disk and positions the journal after the last intact record. A record
+     * torn by a crash ends its segment and is cleared.
+     *
+     * @return the intact records whose sequence is above afterSequence, in order
+     */
+    List<JournalRecord> recover(long afterSequence) {
+        List<JournalRecord> records = new ArrayList<>();
+        try {
+            Files.createDirectories(dir);
+            String prefix = "partition-" + partition + "-";
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, prefix + "*.journal")) {
+                for (Path file : files) {
+                    String name = file.getFileName().toString();
+                    segments.put(Long.parseLong(name.substring(prefix.length(), name.length() - ".journal".length())), file);
+                }
+            }
+
+            for (Map.Entry<Long, Path> segment : segments.entrySet()) {
+                MappedByteBuffer buffer = map(segment.getValue(), Files.size(segment.getValue()));
+                int offset = 0;
+                long expected = segment.getKey();
+                while (offset + RECORD_BYTES <= buffer.capacity()) {
+                    long sequence = buffer.getLong(offset);
+                    if (sequence == 0) break;
+                    if (sequence != expected || checksum(buffer, offset) != buffer.getInt(offset + CHECKSUM_OFFSET)) {
+                        buffer.put(offset, new byte[RECORD_BYTES]);
+                        buffer.force(offset, RECORD_BYTES);
+                        break;
+                    }
+                    if (sequence > afterSequence) records.add(read(buffer, offset));
+                    lastSequence = sequence;
+                    expected = sequence + 1;
+                    offset += RECORD_BYTES;
+                }
+                current = buffer;
+                position = offset;
+                syncedPosition = offset;
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot recover journal of partition " + partition, ex);
+        }
+        return records;
+    }
+
+    long lastSequence() {
+        return lastSequence;
+    }
+
+    /**
+     * Records must be appended in sequence order; a gap (sequences already applied from a lost
+     * journal) starts a new segment, so every segment holds consecutive sequences.
+     */
+    void append(JournalRecord record) {
+        if (current == null || position + RECORD_BYTES > current.capacity() || record.sequence() != lastSequence + 1) {
+            roll(record.sequence());
+        }
+
+        MappedByteBuffer buffer = current;
+        int offset = position;
+        buffer.putLong(offset, record.sequence());
+        putUuid(buffer, offset + 8, record.accountId());
+        putUuid(buffer, offset + 24, record.paymentId());
+        putUuid(buffer, offset + 40, record.paymentInternalId());
+        buffer.putLong(offset + 56, record.amountMinor());
+        buffer.putLong(offset + 64, record.balanceAfterMinor());
+        buffer.putLong(offset + 72, ChronoUnit.MICROS.between(Instant.EPOCH, record.createdAt()));
+        buffer.put(offset + 80, record.currency().getBytes(StandardCharsets.US_ASCII), 0, 3);
+        buffer.putInt(offset + CHECKSUM_OFFSET, checksum(buffer, offset));
+
+        position += RECORD_BYTES;
+        lastSequence = record.sequence();
+    }
+
+    /**
+     * Forces the records appended since the previous sync to the storage device.
+     */
+    void sync() {
+        if (current == null || position == syncedPosition) return;
+
+        if (fsync) {
+            current.force(syncedPosition, position - syncedPosition);
+        }
+        syncedPosition = position;
+    }
+
+    /**
+     * Deletes the segments whose records are all written to the database. The current segment is kept.
+     */
+    void releaseUpTo(long appliedSequence) {
+        while (segments.size() > 1) {
+            Map.Entry<Long, Path> oldest = segments.firstEntry();
+            if (segments.higherKey(oldest.getKey()) - 1 > appliedSequence) return;
+            try {
+                Files.deleteIfExists(oldest.getValue());
+            } catch (IOException ex) {
+                throw new UncheckedIOException("Cannot delete journal segment " + oldest.getValue(), ex);
+            }
+            segments.pollFirstEntry();
+        }
+    }
+
+    @Override
+    public void close() {
+        sync();
+    }
+
+    private void roll(long firstSequence) {
+        sync();
+        Path file = dir.resolve("partition-%d-%020d.journal".formatted(partition, firstSequence));
+        try {
+            current = map(file, segmentBytes);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot create journal segment " + file, ex);
+        }
+        segments.put(firstSequence, file);
+        position = 0;
+        syncedPosition = 0;
+    }
+
+    private static MappedByteBuffer map(Path file, long size) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            if (raf.length() < size) raf.setLength(size);
+            return raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+
+    private static JournalRecord read(ByteBuffer buffer, int offset) {
+        byte[] currency = new byte[3];
+        buffer.get(offset + 80, currency);
+        return new JournalRecord(
+                buffer.getLong(offset),
+                getUuid(buffer, offset + 8),
+                getUuid(buffer, offset + 24),
+                getUuid(buffer, offset + 40),
+                buffer.getLong(offset + 56),
+                buffer.getLong(offset + 64),
+                new String(currency, StandardCharsets.US_ASCII),
+                Instant.EPOCH.plus(buffer.getLong(offset + 72), ChronoUnit.MICROS));
+    }
+
+    private static int checksum(ByteBuffer buffer, int offset) {
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.slice(offset, CHECKSUM_OFFSET));
+        return (int) crc.getValue();
+    }
+
+    private static void putUuid(ByteBuffer buffer, int offset, UUID uuid) {
+        buffer.putLong(offset, uuid.getMostSignificantBits());
+        buffer.putLong(offset + 8, uuid.getLeastSignificantBits());
+    }
+
+    private static UUID getUuid(ByteBuffer buffer, int offset) {
+        return new UUID(buffer.getLong(offset), buffer.getLong(offset + 8));
+    }
+}
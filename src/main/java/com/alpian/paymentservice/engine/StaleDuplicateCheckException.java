@@ -0,0 +1,13 @@
+package com.alpian.paymentservice.engine;
+
+/**
+ * The caller's duplicate lookup is too old for the partition's duplicate window; it must look again.
+ */
+final class StaleDuplicateCheckException extends RuntimeException {
+
+    static final StaleDuplicateCheckException INSTANCE = new StaleDuplicateCheckException();
+
+    private StaleDuplicateCheckException() {
+        super("Duplicate check expired", null, false, false);
+    }
+}
@@ -0,0 +1,64 @@
+package com.alpian.paymentservice.kafka;
+
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Byte encoding of Kafka headers for the outbox headers column: int count, then per header
+ * int name length, UTF-8 name, int value length (-1 for null), value bytes. Ints are big-endian.
+ */
+public final class KafkaHeadersCodec {
+
+    private KafkaHeadersCodec() {
+    }
+
+    public static byte[] encode(Headers headers) {
+        Header[] all = headers.toArray();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(all.length);
+            for (Header header : all) {
+                byte[] name = header.key().getBytes(StandardCharsets.UTF_8);
+                out.writeInt(name.length);
+                out.write(name);
+                if (header.value() == null) {
+                    out.writeInt(-1);
+                } else {
+                    out.writeInt(header.value().length);
+                    out.write(header.value());
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public static Headers decode(byte[] encoded) {
+        RecordHeaders headers = new RecordHeaders();
+        if (encoded == null) return headers;
+
+        ByteBuffer in = ByteBuffer.wrap(encoded);
+        int count = in.getInt();
+        for (int i = 0; i < count; i++) {
+            byte[] name = new byte[in.getInt()];
+            in.get(name);
+            int valueLength = in.getInt();
+            byte[] value = null;
+            if (valueLength >= 0) {
+                value = new byte[valueLength];
+                in.get(value);
+            }
+            headers.add(new String(name, StandardCharsets.UTF_8), value);
+        }
+        return headers;
+    }
+}
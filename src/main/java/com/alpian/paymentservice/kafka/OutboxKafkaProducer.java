@@ -0,0 +1,59 @@
+package com.alpian.paymentservice.kafka;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Sends outbox records as is (ByteArraySerializer, no transcoding). Topic and key are chosen
+ * by OutboxEventRouter, so one producer serves every event type.
+ */
+@Slf4j
+public class OutboxKafkaProducer {
+
+    private final KafkaTemplate<String, byte[]> kafkaTemplate;
+
+    public OutboxKafkaProducer(KafkaTemplate<String, byte[]> kafkaTemplate) {
+        this.kafkaTemplate = kafkaTemplate;
+    }
+
+    public CompletableFuture<SendResult<String, byte[]>> sendAsync(ProducerRecord<String, byte[]> record) {
+        return kafkaTemplate.send(record);
+    }
+
+    /**
+     * Sends all records then flushes once: when this returns every future is complete.
+     * A record rejected before reaching the producer gets a failed future, the others are still sent.
+     */
+    public List<CompletableFuture<SendResult<String, byte[]>>> sendAndFlush(List<ProducerRecord<String, byte[]>> records) {
+        List<CompletableFuture<SendResult<String, byte[]>>> futures = new ArrayList<>(records.size());
+        for (ProducerRecord<String, byte[]> record : records) {
+            try {
+                futures.add(kafkaTemplate.send(record));
+            } catch (RuntimeException ex) {
+                futures.add(CompletableFuture.failedFuture(ex));
+            }
+        }
+        kafkaTemplate.flush();
+        return futures;
+    }
+
+    /**
+     * Sends all records in one Kafka transaction (transactional producer factory required):
+     * read_committed consumers see all of them or none, whatever their topics. Throws when the
+     * transaction is aborted.
+     */
+    public void sendInTransaction(List<ProducerRecord<String, byte[]>> records) {
+        kafkaTemplate.executeInTransaction(operations -> {
+            for (ProducerRecord<String, byte[]> record : records) {
+                operations.send(record);
+            }
+            return null;
+        });
+    }
+}
@@ -1,5 +1,12 @@
 package com.alpian.paymentservice.kafka;
 
+import com.alpian.paymentservice.api.dto.PaymentRequest;
+import com.alpian.paymentservice.money.Money;
+import com.alpian.paymentservice.persistence.entity.PaymentEntity;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
 import java.math.BigDecimal;
 import java.time.Instant;
 import java.util.UUID;
@@ -7,7 +14,43 @@ import java.util.UUID;
     public record PaymentNotification(
             UUID paymentId,           // ID unique de la transaction (idempotency key)
             UUID accountId,           // Compte depuis lequel le paiement est effectué
-            BigDecimal amount,        // Montant du paiement
-            String currency,          // Devise du paiement
+            @JsonIgnore Money money,  // Montant et devise du paiement (amount et currency en JSON)
             Instant createdAt         // Timestamp de création du paiement
-    ) {}
\ No newline at end of file
+    ) {
+        @JsonCreator
+        public PaymentNotification(@JsonProperty("paymentId") UUID paymentId,
+                                   @JsonProperty("accountId") UUID accountId,
+                                   @JsonProperty("amount") BigDecimal amount,
+                                   @JsonProperty("currency") String currency,
+                                   @JsonProperty("createdAt") Instant createdAt) {
+            this(paymentId, accountId, Money.of(amount, currency), createdAt);
+        }
+
+        public static PaymentNotification from(PaymentEntity payment) {
+            return new PaymentNotification(
+                    payment.getPaymentId(),
+                    payment.getAccountId(),
+                    new Money(payment.getAmount(), payment.getCurrency()),
+                    payment.getCreatedAt()
+            );
+        }
+
+        public static PaymentNotification from(PaymentRequest request, Instant createdAt) {
+            return new PaymentNotification(
+                    request.paymentId(),
+                    request.accountId(),
+                    request.money(),
+                    createdAt
+            );
+        }
+
+        @JsonProperty("amount")
+        public BigDecimal amount() {
+            return money.toBigDecimal();
+        }
+
+        @JsonProperty("currency")
+        public String currency() {
+            return money.currency();
+        }
+    }
@@ -0,0 +1,82 @@
+package com.alpian.paymentservice.kafka;
+
+import com.alpian.paymentservice.money.Money;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.springframework.kafka.support.serializer.JacksonJsonDeserializer;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.UUID;
+
+import static com.alpian.paymentservice.kafka.PaymentNotificationBinarySerializer.SCHEMA_VERSION_HEADER;
+
+/**
+ * Reads the format written by PaymentNotificationBinarySerializer. Records without the schema
+ * version header are JSON records from before (or beside) the binary format and are delegated to
+ * a JacksonJsonDeserializer, so one consumer reads both formats during the migration.
+ */
+public class PaymentNotificationBinaryDeserializer implements Deserializer<PaymentNotification> {
+
+    private final Deserializer<PaymentNotification> jsonFallback;
+
+    public PaymentNotificationBinaryDeserializer() {
+        this(new JacksonJsonDeserializer<>(PaymentNotification.class, false));
+    }
+
+    public PaymentNotificationBinaryDeserializer(Deserializer<PaymentNotification> jsonFallback) {
+        this.jsonFallback = jsonFallback;
+    }
+
+    @Override
+    public PaymentNotification deserialize(String topic, Headers headers, byte[] data) {
+        Header version = headers == null ? null : headers.lastHeader(SCHEMA_VERSION_HEADER);
+        if (version == null) {
+            return jsonFallback.deserialize(topic, headers, data);
+        }
+        if (version.value() == null || version.value().length != 1) {
+            throw new SerializationException("Malformed " + SCHEMA_VERSION_HEADER + " header");
+        }
+        return switch (version.value()[0]) {
+            case 1 -> readV1(data);
+            default -> throw new SerializationException("Unsupported PaymentNotification schema version " + version.value()[0]);
+        };
+    }
+
+    /**
+     * Without headers the schema version is unknown: assumes the current binary version.
+     */
+    @Override
+    public PaymentNotification deserialize(String topic, byte[] data) {
+        return readV1(data);
+    }
+
+    @Override
+    public void close() {
+        jsonFallback.close();
+    }
+
+    private static PaymentNotification readV1(byte[] data) {
+        if (data == null) return null;
+        if (data.length != PaymentNotificationBinarySerializer.V1_SIZE) {
+            throw new SerializationException("PaymentNotification v1 is " + PaymentNotificationBinarySerializer.V1_SIZE
+                    + " bytes, got " + data.length);
+        }
+        ByteBuffer in = ByteBuffer.wrap(data);
+        UUID paymentId = new UUID(in.getLong(), in.getLong());
+        UUID accountId = new UUID(in.getLong(), in.getLong());
+        long unscaled = in.getLong();
+        int scale = in.get();
+        byte[] currency = new byte[3];
+        in.get(currency);
+        Instant createdAt = Instant.EPOCH.plus(in.getLong(), ChronoUnit.MICROS);
+        String code = new String(currency, StandardCharsets.US_ASCII);
+        Money money = scale == Money.SCALE ? new Money(unscaled, code) : Money.of(BigDecimal.valueOf(unscaled, scale), code);
+        return new PaymentNotification(paymentId, accountId, money, createdAt);
+    }
+}
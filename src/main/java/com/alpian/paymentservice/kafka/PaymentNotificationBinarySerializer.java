@@ -0,0 +1,67 @@
+package com.alpian.paymentservice.kafka;
+
+import com.alpian.paymentservice.money.Money;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Serializer;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.UUID;
+
+/**
+ * Compact binary PaymentNotification, schema version 1 (52 bytes, big-endian):
+ * <pre>
+ * paymentId   16  UUID most then least significant bits
+ * accountId   16  UUID most then least significant bits
+ * amount       8  unscaled value (long)
+ * scale        1  amount = unscaled * 10^-scale, always Money.SCALE when written by this class
+ * currency     3  ISO 4217 code, ASCII
+ * createdAt    8  microseconds since the epoch
+ * </pre>
+ * The version is carried by the {@value #SCHEMA_VERSION_HEADER} header (one byte), so consumers
+ * can tell binary records from JSON ones while both formats are produced.
+ */
+public class PaymentNotificationBinarySerializer implements Serializer<PaymentNotification> {
+
+    public static final String SCHEMA_VERSION_HEADER = "payment-notification-schema-version";
+    public static final byte SCHEMA_VERSION = 1;
+    static final int V1_SIZE = 16 + 16 + 8 + 1 + 3 + 8;
+
+    @Override
+    public byte[] serialize(String topic, PaymentNotification data) {
+        if (data == null) return null;
+
+        byte[] currency = data.currency().getBytes(StandardCharsets.US_ASCII);
+        if (currency.length != 3) {
+            throw new SerializationException("Currency must be a 3-letter ISO code: " + data.currency());
+        }
+
+        ByteBuffer out = ByteBuffer.allocate(V1_SIZE);
+        putUuid(out, data.paymentId());
+        putUuid(out, data.accountId());
+        out.putLong(data.money().minorUnits());
+        out.put((byte) Money.SCALE);
+        out.put(currency);
+        out.putLong(epochMicros(data.createdAt()));
+        return out.array();
+    }
+
+    @Override
+    public byte[] serialize(String topic, Headers headers, PaymentNotification data) {
+        headers.remove(SCHEMA_VERSION_HEADER);
+        headers.add(SCHEMA_VERSION_HEADER, new byte[]{SCHEMA_VERSION});
+        return serialize(topic, data);
+    }
+
+    private static void putUuid(ByteBuffer out, UUID uuid) {
+        out.putLong(uuid.getMostSignificantBits());
+        out.putLong(uuid.getLeastSignificantBits());
+    }
+
+    private static long epochMicros(Instant instant) {
+        return ChronoUnit.MICROS.between(Instant.EPOCH, instant);
+    }
+}
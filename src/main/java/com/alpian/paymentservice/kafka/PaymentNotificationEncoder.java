@@ -0,0 +1,25 @@
+package com.alpian.paymentservice.kafka;
+
+import com.alpian.paymentservice.outbox.OutboxEventRouter;
+import com.alpian.paymentservice.outbox.model.OutboxMessage;
+import com.alpian.paymentservice.persistence.entity.EventType;
+
+/**
+ * Serializes a notification once, when its outbox row is written: the stored bytes, key and
+ * headers are exactly what the publisher sends.
+ */
+public class PaymentNotificationEncoder {
+
+    private final OutboxEventRouter router;
+
+    public PaymentNotificationEncoder(OutboxEventRouter router) {
+        this.router = router;
+    }
+
+    /**
+     * Keyed by account, so all notifications of an account land in one partition, in publish order.
+     */
+    public OutboxMessage encode(PaymentNotification notification) {
+        return router.encode(EventType.PAYMENT_CREATED, notification, notification.accountId().toString());
+    }
+}
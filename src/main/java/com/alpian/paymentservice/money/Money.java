@@ -0,0 +1,60 @@
+package com.alpian.paymentservice.money;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Objects;
+
+/**
+ * An amount as a whole number of minor units (cents) plus its ISO 4217 currency code.
+ * Every amount column is NUMERIC(19,2), so the scale is fixed at {@value #SCALE}: comparing and
+ * subtracting amounts is plain long arithmetic and never allocates.
+ * BigDecimal only appears at the edges (JSON, JDBC), where conversions are exact: an amount with
+ * more decimals than {@value #SCALE} is rejected, never rounded.
+ */
+public record Money(long minorUnits, String currency) {
+
+    public static final int SCALE = 2;
+
+    public Money {
+        Objects.requireNonNull(currency, "currency");
+        if (currency.length() != 3) {
+            throw new IllegalArgumentException("Currency must be a 3-letter ISO 4217 code: " + currency);
+        }
+    }
+
+    public static Money of(BigDecimal amount, String currency) {
+        return new Money(minorUnits(amount), currency);
+    }
+
+    /**
+     * Exact conversion of an amount to minor units.
+     *
+     * @throws IllegalArgumentException when the amount has more than {@value #SCALE} decimals or does not fit a long
+     */
+    public static long minorUnits(BigDecimal amount) {
+        Objects.requireNonNull(amount, "amount");
+        try {
+            return amount.setScale(SCALE, RoundingMode.UNNECESSARY).unscaledValue().longValueExact();
+        } catch (ArithmeticException ex) {
+            throw new IllegalArgumentException("Amount must have at most " + SCALE + " decimals and fit in a long: "
+                    + amount.toPlainString(), ex);
+        }
+    }
+
+    public static BigDecimal toDecimal(long minorUnits) {
+        return BigDecimal.valueOf(minorUnits, SCALE);
+    }
+
+    public BigDecimal toBigDecimal() {
+        return toDecimal(minorUnits);
+    }
+
+    public boolean isPositive() {
+        return minorUnits > 0;
+    }
+
+    @Override
+    public String toString() {
+        return toBigDecimal().toPlainString() + " " + currency;
+    }
+}
@@ -0,0 +1,178 @@
+package com.alpian.paymentservice.outbox;
+
+import com.alpian.paymentservice.outbox.model.OutboxFailure;
+import com.alpian.paymentservice.outbox.model.OutboxPublisherProperties;
+import com.alpian.paymentservice.service.OutboxTxService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Completion pipeline of the outbox publisher. Kafka callbacks only enqueue their outcome into a
+ * bounded queue, so the producer network thread never waits on the database; ack-writers virtual
+ * threads drain it and write back set-based updates, once ack-batch-size outcomes are collected or
+ * ack-flush-interval-ms after the first one. Outcomes lost in a crash, a failed write or a full queue
+ * are harmless: the rows stay PROCESSING and are claimed again after processing-timeout-seconds.
+ */
+@Slf4j
+@Component
+public class OutboxAckBuffer {
+
+    private final OutboxTxService outboxTxService;
+    private final OutboxPublisherProperties props;
+    private final BlockingQueue<Completion> queue;
+    private final Timer enqueueStalls;
+    private final Counter dropped;
+    private final Timer writes;
+
+    private ExecutorService writers;
+    private volatile boolean running;
+
+    public OutboxAckBuffer(OutboxTxService outboxTxService,
+                           OutboxPublisherProperties props,
+                           MeterRegistry meterRegistry) {
+        this.outboxTxService = outboxTxService;
+        this.props = props;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, props.getAckQueueCapacity()));
+
+        Gauge.builder("outbox.ack.queue.depth", queue, BlockingQueue::size)
+                .description("Send outcomes waiting to be written back")
+                .register(meterRegistry);
+        this.enqueueStalls = Timer.builder("outbox.ack.enqueue.stall")
+                .description("Time a Kafka callback waited for room in the full ack queue")
+                .register(meterRegistry);
+        this.dropped = Counter.builder("outbox.ack.dropped")
+                .description("Send outcomes dropped because the ack queue stayed full, left to the processing timeout")
+                .register(meterRegistry);
+        this.writes = Timer.builder("outbox.ack.write")
+                .description("Duration of one set-based ack write")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void start() {
+        running = true;
+        writers = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("outbox-ack-", 0).factory());
+        for (int i = 0; i < Math.max(1, props.getAckWriters()); i++) {
+            writers.submit(this::writeLoop);
+        }
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        writers.shutdown();
+        if (!writers.awaitTermination(5, TimeUnit.SECONDS)) {
+            writers.shutdownNow();
+        }
+    }
+
+    public void ackSent(UUID outboxId) {
+        enqueue(new Completion(outboxId, null));
+    }
+
+    public void ackFailure(OutboxFailure failure) {
+        enqueue(new Completion(failure.outboxId(), failure));
+    }
+
+    private void enqueue(Completion completion) {
+        if (queue.offer(completion)) return;
+
+        long start = System.nanoTime();
+        boolean accepted;
+        try {
+            accepted = queue.offer(completion, props.getAckEnqueueTimeoutMs(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            accepted = false;
+        }
+        enqueueStalls.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+        if (!accepted) {
+            dropped.increment();
+            log.warn("Outbox ack queue full, outcome of event {} dropped until the processing timeout", completion.outboxId());
+        }
+    }
+
+    private void writeLoop() {
+        List<Completion> batch = new ArrayList<>(props.getAckBatchSize());
+        while (running || !queue.isEmpty()) {
+            try {
+                Completion first = queue.poll(props.getAckFlushIntervalMs(), TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+
+                batch.add(first);
+                fillBatch(batch);
+                write(batch);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void fillBatch(List<Completion> batch) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(props.getAckFlushIntervalMs());
+        while (batch.size() < props.getAckBatchSize()) {
+            queue.drainTo(batch, props.getAckBatchSize() - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= props.getAckBatchSize() || remaining <= 0 || !running) return;
+
+            Completion next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) return;
+            batch.add(next);
+        }
+    }
+
+    private void write(List<Completion> batch) {
+        List<UUID> sent = new ArrayList<>(batch.size());
+        List<OutboxFailure> failures = new ArrayList<>();
+        for (Completion completion : batch) {
+            if (completion.failure() == null) {
+                sent.add(completion.outboxId());
+            } else {
+                failures.add(completion.failure());
+            }
+        }
+
+        writes.record(() -> {
+            if (!sent.isEmpty()) {
+                try {
+                    outboxTxService.markSent(sent);
+                } catch (Exception ex) {
+                    log.error("Outbox SENT ack write failed, {} events will be reclaimed after the processing timeout",
+                            sent.size(), ex);
+                }
+            }
+            if (!failures.isEmpty()) {
+                try {
+                    outboxTxService.markFailedOrRetry(failures);
+                } catch (Exception ex) {
+                    log.error("Outbox failure ack write failed, {} events will be reclaimed after the processing timeout",
+                            failures.size(), ex);
+                }
+            }
+        });
+    }
+
+    /**
+     * A send outcome; failure is null when the event was sent.
+     */
+    private record Completion(UUID outboxId, OutboxFailure failure) {}
+}
@@ -0,0 +1,49 @@
+package com.alpian.paymentservice.outbox;
+
+import com.alpian.paymentservice.persistence.repository.OutboxDeadLetterRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.jspecify.annotations.Nullable;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Operations on outbox dead letters: GET /actuator/outboxdeadletters counts them per event type,
+ * POST /actuator/outboxdeadletters {"eventType": ..., "limit": ...} replays them in bulk.
+ */
+@Component
+@Endpoint(id = "outboxdeadletters")
+@RequiredArgsConstructor
+@Slf4j
+public class OutboxDeadLetterEndpoint {
+
+    static final int REPLAY_CHUNK_SIZE = 1000;
+
+    private final OutboxDeadLetterRepository deadLetterRepository;
+
+    @ReadOperation
+    public Map<String, Long> deadLetters() {
+        return deadLetterRepository.countByEventType();
+    }
+
+    /**
+     * Replays in chunks (one transaction each) so a large replay does not hold one long transaction.
+     */
+    @WriteOperation
+    public Map<String, Integer> replay(@Nullable String eventType, @Nullable Integer limit) {
+        int remaining = limit == null ? Integer.MAX_VALUE : limit;
+        int replayed = 0;
+        while (remaining > 0) {
+            int chunk = deadLetterRepository.replay(eventType, Math.min(remaining, REPLAY_CHUNK_SIZE));
+            if (chunk == 0) break;
+            replayed += chunk;
+            remaining -= chunk;
+        }
+        log.info("Replayed {} outbox dead letters (eventType={})", replayed, eventType == null ? "all" : eventType);
+        return Map.of("replayed", replayed);
+    }
+}
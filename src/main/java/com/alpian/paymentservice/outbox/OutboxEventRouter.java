@@ -0,0 +1,121 @@
+package com.alpian.paymentservice.outbox;
+
+import com.alpian.paymentservice.config.KafkaTopicProperties;
+import com.alpian.paymentservice.kafka.KafkaHeadersCodec;
+import com.alpian.paymentservice.kafka.PaymentNotification;
+import com.alpian.paymentservice.outbox.model.OutboxMessage;
+import com.alpian.paymentservice.outbox.model.OutboxRoutingProperties;
+import com.alpian.paymentservice.outbox.model.OutboxRoutingProperties.Route;
+import com.alpian.paymentservice.persistence.entity.EventType;
+import com.alpian.paymentservice.persistence.entity.OutboxEventEntity;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.serialization.Serializer;
+import org.springframework.beans.BeanUtils;
+import org.springframework.kafka.support.serializer.JacksonJsonSerializer;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.StringUtils;
+
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Maps every outbox event type to its topic, serializer and record key (outbox.routing.routes).
+ * PAYMENT_CREATED defaults to kafka.topics.paymentNotification when it has no route.
+ * Write side: encode() serializes a payload with the serializer of its type. Publish side:
+ * record() turns a claimed row into the ProducerRecord of its topic.
+ */
+@Slf4j
+@Component
+public class OutboxEventRouter {
+
+    private final Map<EventType, Route> routes = new EnumMap<>(EventType.class);
+    private final Map<EventType, Serializer<Object>> serializers = new EnumMap<>(EventType.class);
+    private final List<String> routedTypeNames;
+
+    @SuppressWarnings("unchecked")
+    public OutboxEventRouter(OutboxRoutingProperties props,
+                             KafkaTopicProperties kafkaTopicProperties,
+                             Serializer<PaymentNotification> paymentNotificationSerializer) {
+        routes.putAll(props.getRoutes());
+        routes.computeIfAbsent(EventType.PAYMENT_CREATED, type -> {
+            Route route = new Route();
+            route.setTopic(kafkaTopicProperties.getPaymentNotification());
+            return route;
+        });
+        routes.forEach((type, route) -> {
+            if (!StringUtils.hasText(route.getTopic())) {
+                throw new IllegalStateException("outbox.routing.routes." + type + ".topic is required");
+            }
+            Serializer<?> serializer = StringUtils.hasText(route.getSerializer())
+                    ? instantiate(route.getSerializer())
+                    : type == EventType.PAYMENT_CREATED
+                            ? paymentNotificationSerializer
+                            : new JacksonJsonSerializer<>();
+            serializers.put(type, (Serializer<Object>) serializer);
+        });
+        this.routedTypeNames = routes.keySet().stream().map(Enum::name).toList();
+
+        Set<EventType> unrouted = EnumSet.complementOf(EnumSet.copyOf(routes.keySet()));
+        if (!unrouted.isEmpty()) {
+            log.warn("Outbox event types without route, never published: {}", unrouted);
+        }
+    }
+
+    public Set<EventType> routedTypes() {
+        return routes.keySet();
+    }
+
+    /**
+     * Event type names for the claim queries.
+     */
+    public List<String> routedTypeNames() {
+        return routedTypeNames;
+    }
+
+    public Route route(EventType type) {
+        Route route = routes.get(type);
+        if (route == null) {
+            throw new IllegalArgumentException("No outbox route for event type " + type);
+        }
+        return route;
+    }
+
+    /**
+     * Serializes the payload once, with the serializer of its type, into the record stored in the outbox.
+     */
+    public OutboxMessage encode(EventType type, Object payload, String key) {
+        Serializer<Object> serializer = serializers.get(type);
+        if (serializer == null) {
+            throw new IllegalArgumentException("No outbox route for event type " + type);
+        }
+        RecordHeaders headers = new RecordHeaders();
+        byte[] value = serializer.serialize(route(type).getTopic(), headers, payload);
+        return new OutboxMessage(key, value, KafkaHeadersCodec.encode(headers));
+    }
+
+    public ProducerRecord<String, byte[]> record(OutboxEventEntity e) {
+        Route route = route(e.getEventType());
+        String key = switch (route.getKey()) {
+            case MESSAGE_KEY -> e.getMessageKey();
+            case SHARD_KEY -> e.getShardKey().toString();
+            case AGGREGATE_ID -> e.getAggregateId().toString();
+            case NONE -> null;
+        };
+        return new ProducerRecord<>(route.getTopic(), null, key, e.getPayload(), KafkaHeadersCodec.decode(e.getHeaders()));
+    }
+
+    private static Serializer<?> instantiate(String className) {
+        try {
+            Class<?> type = ClassUtils.forName(className, OutboxEventRouter.class.getClassLoader());
+            return (Serializer<?>) BeanUtils.instantiateClass(type);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("Unknown outbox serializer " + className, e);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.alpian.paymentservice.outbox;
+
+import com.alpian.paymentservice.outbox.model.OutboxPublisherProperties;
+import com.alpian.paymentservice.persistence.entity.EventType;
+import com.alpian.paymentservice.persistence.entity.OutboxEventEntity;
+import com.alpian.paymentservice.persistence.repository.OutboxBacklogView;
+import com.alpian.paymentservice.persistence.repository.OutboxRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Throughput and lag of each outbox event type, tagged event_type:
+ * <ul>
+ *   <li>outbox.events.published / outbox.events.failed: Kafka acknowledgements and failures;</li>
+ *   <li>outbox.events.publish-lag: time from the outbox insert to the Kafka acknowledgement;</li>
+ *   <li>outbox.type.backlog.pending / outbox.type.backlog.oldest-age-ms: sampled like
+ *   outbox.backlog.* but per routed type.</li>
+ * </ul>
+ */
+@Component
+public class OutboxEventTypeMetrics {
+
+    private final OutboxRepository outboxRepository;
+    private final OutboxEventRouter router;
+    private final OutboxPublisherProperties props;
+    private final Map<EventType, TypeMeters> meters = new EnumMap<>(EventType.class);
+
+    public OutboxEventTypeMetrics(OutboxRepository outboxRepository,
+                                  OutboxEventRouter router,
+                                  OutboxPublisherProperties props,
+                                  MeterRegistry meterRegistry) {
+        this.outboxRepository = outboxRepository;
+        this.router = router;
+        this.props = props;
+        for (EventType type : router.routedTypes()) {
+            meters.put(type, new TypeMeters(type, meterRegistry));
+        }
+    }
+
+    public void published(OutboxEventEntity e) {
+        TypeMeters m = meters.get(e.getEventType());
+        m.published.increment();
+        if (e.getCreatedAt() != null) {
+            m.publishLag.record(Duration.between(e.getCreatedAt(), Instant.now()));
+        }
+    }
+
+    public void failed(OutboxEventEntity e) {
+        meters.get(e.getEventType()).failed.increment();
+    }
+
+    @Scheduled(fixedDelayString = "${outbox.publisher.backlog-sample-interval-ms:1000}")
+    public void sampleBacklog() {
+        // Rows stay PENDING in LOGICAL_REPLICATION mode: the slot lag is the backlog.
+        if (props.getRelayMode() == OutboxPublisherProperties.RelayMode.LOGICAL_REPLICATION) return;
+
+        for (EventType type : router.routedTypes()) {
+            OutboxBacklogView backlog = outboxRepository.sampleBacklogOf(type.name(), props.getBacklogCountCap());
+            TypeMeters m = meters.get(type);
+            m.pending = backlog.getPending() == null ? 0 : backlog.getPending();
+            m.oldestAgeMs = backlog.getOldestAgeMs() == null ? 0 : backlog.getOldestAgeMs();
+        }
+    }
+
+    private static final class TypeMeters {
+        private final Counter published;
+        private final Counter failed;
+        private final Timer publishLag;
+        private volatile long pending;
+        private volatile long oldestAgeMs;
+
+        private TypeMeters(EventType type, MeterRegistry meterRegistry) {
+            String tag = type.name();
+            this.published = Counter.builder("outbox.events.published")
+                    .description("Outbox events acknowledged by Kafka")
+                    .tag("event_type", tag)
+                    .register(meterRegistry);
+            this.failed = Counter.builder("outbox.events.failed")
+                    .description("Outbox event publish attempts that failed")
+                    .tag("event_type", tag)
+                    .register(meterRegistry);
+            this.publishLag = Timer.builder("outbox.events.publish-lag")
+                    .description("Time between the outbox insert and the Kafka acknowledgement")
+                    .tag("event_type", tag)
+                    .register(meterRegistry);
+            Gauge.builder("outbox.type.backlog.pending", this, m -> m.pending)
+                    .description("PENDING outbox events of the type at the last sample (capped at backlog-count-cap)")
+                    .tag("event_type", tag)
+                    .register(meterRegistry);
+            Gauge.builder("outbox.type.backlog.oldest-age-ms", this, m -> m.oldestAgeMs)
+                    .description("Age of the oldest due PENDING outbox event of the type at the last sample")
+                    .tag("event_type", tag)
+                    .register(meterRegistry);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.alpian.paymentservice.outbox;
+
+import com.alpian.paymentservice.outbox.model.OutboxPublisherProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * NOTIFY wakeup mode of the outbox publisher. One connection is held for LISTEN outbox_event
+ * (fed by the trigger of V6__outbox_event_notify.sql); every notification wakes the publisher
+ * workers, which wait notify-debounce-ms for the rest of the burst and then claim until their
+ * shards are drained. Without notifications they still poll every fallback-poll-interval-ms.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "outbox.publisher", name = "wakeup-mode", havingValue = "NOTIFY")
+public class OutboxNotifyListener {
+
+    static final String CHANNEL = "outbox_event";
+    private static final int NOTIFICATION_WAIT_MS = 500;
+
+    private final DataSource dataSource;
+    private final OutboxPublisherWorkers workers;
+    private final OutboxPublisherProperties props;
+    private final Counter notifiedWakeups;
+
+    private volatile boolean running;
+    private Thread listenThread;
+
+    public OutboxNotifyListener(DataSource dataSource,
+                                OutboxPublisherWorkers workers,
+                                OutboxPublisherProperties props,
+                                MeterRegistry meterRegistry) {
+        this.dataSource = dataSource;
+        this.workers = workers;
+        this.props = props;
+        this.notifiedWakeups = Counter.builder("outbox.publisher.wakeups")
+                .description("Outbox publisher wakeups by cause")
+                .tag("cause", "notify")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void start() {
+        running = true;
+        listenThread = Thread.ofPlatform().name("outbox-listen").daemon().start(this::listenLoop);
+        log.info("Outbox publisher in NOTIFY mode: channel={}, fallbackPollIntervalMs={}",
+                CHANNEL, props.getFallbackPollIntervalMs());
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        listenThread.interrupt();
+        listenThread.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    private void listenLoop() {
+        while (running) {
+            try (Connection connection = dataSource.getConnection()) {
+                connection.setAutoCommit(true);
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + CHANNEL);
+                }
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                log.info("Listening for outbox notifications on channel {}", CHANNEL);
+
+                // Inserts committed while we were not listening would otherwise wait for the fallback poll.
+                workers.wakeUp();
+
+                while (running) {
+                    // Blocks on the socket without querying, so an idle service costs the database nothing.
+                    PGNotification[] notifications = pgConnection.getNotifications(NOTIFICATION_WAIT_MS);
+                    if (notifications != null && notifications.length > 0) {
+                        notifiedWakeups.increment();
+                        workers.wakeUp();
+                    }
+                }
+
+                // The connection returns to the pool with its session: stop listening first.
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("UNLISTEN *");
+                }
+            } catch (SQLException ex) {
+                if (!running) return;
+                log.warn("Outbox listener connection lost, reconnecting in {} ms", props.getListenerReconnectDelayMs(), ex);
+                sleepQuietly(props.getListenerReconnectDelayMs());
+            }
+        }
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
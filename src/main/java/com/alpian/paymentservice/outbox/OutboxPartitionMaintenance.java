@@ -0,0 +1,248 @@
+package com.alpian.paymentservice.outbox;
+
+import com.alpian.paymentservice.outbox.model.OutboxPartitionProperties;
+import com.alpian.paymentservice.outbox.model.OutboxPublisherProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps the daily partitions of outbox_event: creates premake-days partitions ahead, and removes
+ * partitions older than retention-days whose rows are all SENT or FAILED. Removing is a
+ * DETACH (+ DROP), a metadata operation, instead of deleting rows one by one.
+ * Rows that reached the default partition (maintenance late, replayed dead letters of dropped
+ * days) are moved into a partition of their own day first, so that day is retired like any other.
+ * Days are UTC days of created_at: the JVM, hence the JDBC session and Hibernate, run in UTC.
+ * Safe to run on several instances: every step is idempotent and re-checked under lock.
+ */
+@Slf4j
+@Component
+public class OutboxPartitionMaintenance {
+
+    static final String PARTITION_PREFIX = "outbox_event_p";
+    static final String DEFAULT_PARTITION = "outbox_event_p_default";
+    static final DateTimeFormatter PARTITION_DAY = DateTimeFormatter.ofPattern("yyyyMMdd");
+    private static final Pattern UPPER_BOUND = Pattern.compile("TO \\('([^']+)'\\)");
+    private static final DateTimeFormatter BOUND_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final OutboxPartitionProperties props;
+    private final OutboxPublisherProperties publisherProps;
+    private final Counter created;
+    private final Counter removed;
+    private final Counter movedRows;
+    private final Counter failures;
+
+    public OutboxPartitionMaintenance(JdbcTemplate jdbcTemplate,
+                                      TransactionTemplate transactionTemplate,
+                                      OutboxPartitionProperties props,
+                                      OutboxPublisherProperties publisherProps,
+                                      MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.props = props;
+        this.publisherProps = publisherProps;
+        this.created = Counter.builder("outbox.partitions.created")
+                .description("outbox_event partitions created ahead of time")
+                .register(meterRegistry);
+        this.removed = Counter.builder("outbox.partitions.removed")
+                .description("outbox_event partitions detached or dropped after retention")
+                .register(meterRegistry);
+        this.movedRows = Counter.builder("outbox.partitions.default.moved")
+                .description("outbox_event rows moved out of the default partition into their day partition")
+                .register(meterRegistry);
+        this.failures = Counter.builder("outbox.partitions.failures")
+                .description("outbox_event partitions that could not be created or filled from the default partition")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${outbox.partitions.maintenance-interval-ms:3600000}")
+    public void maintain() {
+        if (!props.isMaintenanceEnabled()) return;
+
+        LocalDate today = jdbcTemplate.queryForObject("SELECT (now() AT TIME ZONE 'UTC')::date", LocalDate.class);
+        for (LocalDate day : daysInDefaultPartition()) {
+            moveOutOfDefault(day);
+        }
+        for (int d = 0; d <= props.getPremakeDays(); d++) {
+            createPartition(today.plusDays(d));
+        }
+
+        LocalDateTime cutoff = today.minusDays(props.getRetentionDays()).atStartOfDay();
+        for (PartitionBound partition : partitions()) {
+            if (partition.upperBound().isPresent() && !partition.upperBound().get().isAfter(cutoff)) {
+                removeIfDone(partition.name());
+            }
+        }
+    }
+
+    void createPartition(LocalDate day) {
+        String name = partitionName(day);
+        try {
+            if (exists(name)) return;
+
+            jdbcTemplate.execute(createPartitionSql(name, day));
+            created.increment();
+            log.info("Created outbox partition {}", name);
+        } catch (DataAccessException ex) {
+            if (exists(name)) return; // another instance created it meanwhile
+            // rows of that day reached the default partition first: the next run moves them
+            failures.increment();
+            log.error("Could not create outbox partition {}", name, ex);
+        }
+    }
+
+    /**
+     * Days of the rows sitting in the default partition.
+     */
+    List<LocalDate> daysInDefaultPartition() {
+        return jdbcTemplate.queryForList(
+                "SELECT DISTINCT created_at::date FROM \"%s\" ORDER BY 1".formatted(DEFAULT_PARTITION), LocalDate.class);
+    }
+
+    /**
+     * A day partition cannot be created while the default partition holds rows of that day. In one
+     * transaction (ACCESS EXCLUSIVE on outbox_event, inserts wait): detach the default partition,
+     * create the day partition, move the rows of that day into it, attach the default partition back.
+     * In LOGICAL_REPLICATION relay mode the moved rows are streamed again, like any redelivery.
+     */
+    void moveOutOfDefault(LocalDate day) {
+        String name = partitionName(day);
+        try {
+            Integer moved = transactionTemplate.execute(status -> {
+                jdbcTemplate.execute("SET LOCAL lock_timeout = '5s'");
+                jdbcTemplate.execute("ALTER TABLE outbox_event DETACH PARTITION \"%s\"".formatted(DEFAULT_PARTITION));
+                jdbcTemplate.execute(createPartitionSql(name, day));
+                int rows = jdbcTemplate.update("""
+                        WITH moved AS (DELETE FROM "%1$s" WHERE created_at >= ? AND created_at < ? RETURNING *)
+                        INSERT INTO outbox_event (%2$s) SELECT %2$s FROM moved
+                        """.formatted(DEFAULT_PARTITION, insertableColumns()),
+                        day.atStartOfDay(), day.plusDays(1).atStartOfDay());
+                jdbcTemplate.execute("ALTER TABLE outbox_event ATTACH PARTITION \"%s\" DEFAULT".formatted(DEFAULT_PARTITION));
+                return rows;
+            });
+            if (moved != null && moved > 0) {
+                created.increment();
+                movedRows.increment(moved);
+                log.warn("Moved {} outbox events of {} out of the default partition into {}", moved, day, name);
+            }
+        } catch (DataAccessException ex) {
+            failures.increment();
+            log.error("Could not move outbox events of {} out of the default partition", day, ex);
+        }
+    }
+
+    /**
+     * Columns of outbox_event an INSERT may set: all but the generated ones (shard).
+     */
+    private String insertableColumns() {
+        return jdbcTemplate.queryForObject("""
+                SELECT string_agg(quote_ident(attname), ', ' ORDER BY attnum)
+                FROM pg_attribute
+                WHERE attrelid = 'outbox_event'::regclass AND attnum > 0 AND NOT attisdropped AND attgenerated = ''
+                """, String.class);
+    }
+
+    private static String partitionName(LocalDate day) {
+        return PARTITION_PREFIX + PARTITION_DAY.format(day);
+    }
+
+    private static String createPartitionSql(String name, LocalDate day) {
+        return "CREATE TABLE IF NOT EXISTS \"%s\" PARTITION OF outbox_event FOR VALUES FROM ('%s') TO ('%s')"
+                .formatted(name, day, day.plusDays(1));
+    }
+
+    private boolean exists(String table) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject("SELECT to_regclass(?) IS NOT NULL", Boolean.class, table));
+    }
+
+    /**
+     * Detaches the partition (ACCESS EXCLUSIVE on outbox_event, so no row can change meanwhile),
+     * checks again that nothing is left to publish, then drops it. Rolled back otherwise.
+     */
+    void removeIfDone(String name) {
+        if (hasUnfinishedEvents(name)) {
+            log.debug("Outbox partition {} is past retention but still has unpublished events", name);
+            return;
+        }
+        try {
+            Boolean removedPartition = transactionTemplate.execute(status -> {
+                jdbcTemplate.execute("SET LOCAL lock_timeout = '5s'");
+                jdbcTemplate.execute("ALTER TABLE outbox_event DETACH PARTITION \"%s\"".formatted(name));
+                if (hasUnfinishedEvents(name)) {
+                    status.setRollbackOnly();
+                    return false;
+                }
+                if (props.getRetentionMode() == OutboxPartitionProperties.RetentionMode.DROP) {
+                    jdbcTemplate.execute("DROP TABLE \"%s\"".formatted(name));
+                }
+                return true;
+            });
+            if (Boolean.TRUE.equals(removedPartition)) {
+                removed.increment();
+                log.info("Outbox partition {} {}", name,
+                        props.getRetentionMode() == OutboxPartitionProperties.RetentionMode.DROP ? "dropped" : "detached");
+            }
+        } catch (DataAccessException ex) {
+            log.warn("Could not remove outbox partition {}: {}", name, ex.getMessage());
+        }
+    }
+
+    /**
+     * PENDING or PROCESSING rows, each looked up through its partial index. In LOGICAL_REPLICATION
+     * relay mode rows stay PENDING: those created before the last transaction confirmed by the
+     * relay (outbox_relay_checkpoint) count as published.
+     */
+    private boolean hasUnfinishedEvents(String name) {
+        if (publisherProps.getRelayMode() == OutboxPublisherProperties.RelayMode.LOGICAL_REPLICATION) {
+            return Boolean.TRUE.equals(jdbcTemplate.queryForObject("""
+                    SELECT EXISTS (SELECT 1 FROM "%1$s"
+                                   WHERE event_status = 'PENDING'
+                                     AND created_at >= (SELECT coalesce(max(committed_at)::timestamp, '-infinity')
+                                                        FROM outbox_relay_checkpoint
+                                                        WHERE slot_name = ?))
+                        OR EXISTS (SELECT 1 FROM "%1$s" WHERE event_status = 'PROCESSING')
+                    """.formatted(name), Boolean.class, publisherProps.getReplicationSlot()));
+        }
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject("""
+                SELECT EXISTS (SELECT 1 FROM "%1$s" WHERE event_status = 'PENDING')
+                    OR EXISTS (SELECT 1 FROM "%1$s" WHERE event_status = 'PROCESSING')
+                """.formatted(name), Boolean.class));
+    }
+
+    /**
+     * Partitions of outbox_event with the end of their range; the default partition has none.
+     */
+    List<PartitionBound> partitions() {
+        return jdbcTemplate.query("""
+                SELECT c.relname AS name, pg_get_expr(c.relpartbound, c.oid) AS bound
+                FROM pg_inherits i
+                JOIN pg_class c ON c.oid = i.inhrelid
+                WHERE i.inhparent = 'outbox_event'::regclass
+                ORDER BY c.relname
+                """, (rs, rowNum) -> new PartitionBound(rs.getString("name"), upperBound(rs.getString("bound"))));
+    }
+
+    static Optional<LocalDateTime> upperBound(String bound) {
+        Matcher matcher = UPPER_BOUND.matcher(bound);
+        if (!matcher.find()) return Optional.empty();
+        return Optional.of(LocalDateTime.parse(matcher.group(1), BOUND_FORMAT));
+    }
+
+    record PartitionBound(String name, Optional<LocalDateTime> upperBound) {
+    }
+}
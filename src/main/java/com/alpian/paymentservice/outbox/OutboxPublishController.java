@@ -0,0 +1,121 @@
+package com.alpian.paymentservice.outbox;
+
+import com.alpian.paymentservice.outbox.model.OutboxPublisherProperties;
+import com.alpian.paymentservice.persistence.repository.OutboxBacklogView;
+import com.alpian.paymentservice.persistence.repository.OutboxRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Adaptive batch size and idle poll interval of the outbox publisher.
+ * <ul>
+ *   <li>batch size: doubled at each backlog sample while the publisher is behind (more pending
+ *   events than one batch per worker, or oldest pending event older than target-lag-ms) and
+ *   Kafka keeps up; halved otherwise;</li>
+ *   <li>poll interval: reset to min-poll-interval-ms whenever a claim finds events, doubled up to
+ *   max-poll-interval-ms after each empty claim.</li>
+ * </ul>
+ * Workers already drain back-to-back while their claims return full batches.
+ * With adaptive off, batch-size and poll-interval-ms are used as is.
+ */
+@Slf4j
+@Component
+public class OutboxPublishController {
+
+    private static final double ACK_LATENCY_WEIGHT = 0.1;
+
+    private final OutboxRepository outboxRepository;
+    private final OutboxPublisherProperties props;
+    private final Timer ackLatency;
+
+    private volatile int batchSize;
+    private volatile long pollIntervalMs;
+    private volatile long pendingEvents;
+    private volatile long oldestPendingAgeMs;
+    private volatile double ackLatencyEwmaMs;
+
+    public OutboxPublishController(OutboxRepository outboxRepository,
+                                   OutboxPublisherProperties props,
+                                   MeterRegistry meterRegistry) {
+        this.outboxRepository = outboxRepository;
+        this.props = props;
+        this.batchSize = clamp(props.getBatchSize(), props.getMinBatchSize(), props.getMaxBatchSize());
+        this.pollIntervalMs = props.getMinPollIntervalMs();
+
+        this.ackLatency = Timer.builder("outbox.publisher.ack-latency")
+                .description("Time between a Kafka send and its acknowledgement")
+                .register(meterRegistry);
+        Gauge.builder("outbox.publisher.batch-size", this, OutboxPublishController::batchSize)
+                .description("Current outbox claim batch size")
+                .register(meterRegistry);
+        Gauge.builder("outbox.publisher.poll-interval-ms", this, OutboxPublishController::pollIntervalMs)
+                .description("Current wait of a worker after a partial claim")
+                .register(meterRegistry);
+        Gauge.builder("outbox.backlog.pending", this, c -> c.pendingEvents)
+                .description("PENDING outbox events at the last sample (capped at backlog-count-cap)")
+                .register(meterRegistry);
+        Gauge.builder("outbox.backlog.oldest-age-ms", this, c -> c.oldestPendingAgeMs)
+                .description("Age of the oldest PENDING outbox event at the last sample")
+                .register(meterRegistry);
+    }
+
+    public int batchSize() {
+        return props.isAdaptive() ? batchSize : props.getBatchSize();
+    }
+
+    public long pollIntervalMs() {
+        return props.isAdaptive() ? pollIntervalMs : props.getPollIntervalMs();
+    }
+
+    /**
+     * Exponential idle backoff: any claim that finds work resets the interval.
+     */
+    public void onClaim(int claimed) {
+        if (!props.isAdaptive()) return;
+
+        pollIntervalMs = claimed > 0
+                ? props.getMinPollIntervalMs()
+                : Math.min(props.getMaxPollIntervalMs(), Math.max(1, pollIntervalMs * 2));
+    }
+
+    public void recordAckLatency(long nanos) {
+        ackLatency.record(nanos, TimeUnit.NANOSECONDS);
+        double ms = nanos / 1_000_000.0;
+        ackLatencyEwmaMs = ackLatencyEwmaMs * (1 - ACK_LATENCY_WEIGHT) + ms * ACK_LATENCY_WEIGHT;
+    }
+
+    @Scheduled(fixedDelayString = "${outbox.publisher.backlog-sample-interval-ms:1000}")
+    public void sampleBacklog() {
+        if (!props.isAdaptive()) return;
+
+        OutboxBacklogView backlog = outboxRepository.sampleBacklog(props.getBacklogCountCap());
+        pendingEvents = backlog.getPending() == null ? 0 : backlog.getPending();
+        oldestPendingAgeMs = backlog.getOldestAgeMs() == null ? 0 : backlog.getOldestAgeMs();
+
+        boolean behind = pendingEvents > (long) batchSize * Math.max(1, props.getWorkers())
+                || oldestPendingAgeMs > props.getTargetLagMs();
+        boolean kafkaSlow = ackLatencyEwmaMs > props.getMaxAckLatencyMs();
+
+        int next = behind && !kafkaSlow
+                ? clamp(batchSize * 2, props.getMinBatchSize(), props.getMaxBatchSize())
+                : clamp(batchSize / 2, props.getMinBatchSize(), props.getMaxBatchSize());
+        if (next != batchSize) {
+            log.debug("Outbox batch size {} -> {} (pending={}, oldestAgeMs={}, ackLatencyMs={})",
+                    batchSize, next, pendingEvents, oldestPendingAgeMs, ackLatencyEwmaMs);
+            batchSize = next;
+        }
+        if (behind) {
+            pollIntervalMs = props.getMinPollIntervalMs();
+        }
+    }
+
+    private static int clamp(int value, int min, int max) {
+        return Math.max(min, Math.min(max, value));
+    }
+}
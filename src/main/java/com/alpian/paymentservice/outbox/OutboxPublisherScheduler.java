@@ -1,15 +1,23 @@
 package com.alpian.paymentservice.outbox;
 
-import com.alpian.paymentservice.kafka.PaymentNotification;
-import com.alpian.paymentservice.kafka.PaymentNotificationProducer;
+import com.alpian.paymentservice.config.KafkaTopicProperties;
+import com.alpian.paymentservice.kafka.OutboxKafkaProducer;
+import com.alpian.paymentservice.outbox.model.OutboxFailure;
 import com.alpian.paymentservice.persistence.entity.OutboxEventEntity;
 import com.alpian.paymentservice.service.OutboxTxService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.scheduling.annotation.Scheduled;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.springframework.kafka.support.SendResult;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @Component
 @RequiredArgsConstructor
@@ -17,11 +25,114 @@ import java.util.UUID;
 public class OutboxPublisherScheduler {
 
     private final OutboxTxService outboxTxService;
-    private final PaymentNotificationProducer producer;
+    private final OutboxKafkaProducer producer;
+    private final OutboxEventRouter router;
+    private final OutboxEventTypeMetrics typeMetrics;
+    private final OutboxAckBuffer ackBuffer;
+    private final OutboxPublishController controller;
+    private final KafkaTopicProperties kafkaTopicProperties;
 
-    @Scheduled(fixedDelayString = "${outbox.publisher.poll-interval-ms:1000}")
-    public void publishLoop() {
-        outboxTxService.claimBatch().forEach(this::publishOne);
+    /**
+     * Claims and publishes one batch across all shards and routed event types. Each event goes to
+     * the topic of its type, so the types of a batch are sent side by side.
+     *
+     * @return number of claimed events, a full batch means more may be pending
+     */
+    public int publishLoop() {
+        return publish(outboxTxService.claimBatch());
+    }
+
+    /**
+     * Claims and publishes one batch of the given shards.
+     *
+     * @return number of claimed events, a full batch means more may be pending
+     */
+    public int publishShards(Collection<Integer> shards, int batchSize) {
+        return publish(outboxTxService.claimShardBatch(shards, batchSize));
+    }
+
+    private int publish(List<OutboxEventEntity> batch) {
+        if (batch.isEmpty()) return 0;
+
+        switch (kafkaTopicProperties.getProducerMode()) {
+            case RECORD -> batch.forEach(this::publishOne);
+            case BATCH -> publishBatch(batch);
+            case TRANSACTIONAL -> publishTransaction(batch);
+        }
+        return batch.size();
+    }
+
+    /**
+     * BATCH mode: send everything, flush once, then acknowledge the batch in two set-based updates.
+     * A send that throws before returning the futures (serialization, metadata timeout, closed
+     * producer) fails the whole batch; records already handed to the producer may still be
+     * delivered, the retry then publishes them again (at-least-once).
+     */
+    private void publishBatch(List<OutboxEventEntity> batch) {
+        long sentAt = System.nanoTime();
+        List<CompletableFuture<SendResult<String, byte[]>>> futures;
+        try {
+            futures = producer.sendAndFlush(records(batch));
+        } catch (RuntimeException ex) {
+            log.warn("Kafka send failed for a batch of {} outbox events", batch.size(), ex);
+            batch.forEach(typeMetrics::failed);
+            acknowledge(List.of(), batch.stream()
+                    .map(e -> OutboxFailure.of(e.getId(), e.getAttemptCount(), ex))
+                    .toList());
+            return;
+        }
+        controller.recordAckLatency(System.nanoTime() - sentAt);
+
+        List<UUID> sent = new ArrayList<>(batch.size());
+        List<OutboxFailure> failures = new ArrayList<>();
+        for (int i = 0; i < batch.size(); i++) {
+            OutboxEventEntity e = batch.get(i);
+            try {
+                futures.get(i).join();
+                sent.add(e.getId());
+                typeMetrics.published(e);
+            } catch (CompletionException | CancellationException ex) {
+                Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+                log.warn("Kafka publish failed for outbox event id={} (attempt={})", e.getId(), e.getAttemptCount(), cause);
+                failures.add(OutboxFailure.of(e.getId(), e.getAttemptCount(), cause));
+                typeMetrics.failed(e);
+            }
+        }
+        acknowledge(sent, failures);
+        log.info("Published outbox batch: sent={}, failed={}", sent.size(), failures.size());
+    }
+
+    /**
+     * TRANSACTIONAL mode: the whole batch is committed to Kafka or none of it.
+     */
+    private void publishTransaction(List<OutboxEventEntity> batch) {
+        long sentAt = System.nanoTime();
+        try {
+            producer.sendInTransaction(records(batch));
+        } catch (RuntimeException ex) {
+            log.warn("Kafka transaction aborted for {} outbox events", batch.size(), ex);
+            batch.forEach(typeMetrics::failed);
+            acknowledge(List.of(), batch.stream()
+                    .map(e -> OutboxFailure.of(e.getId(), e.getAttemptCount(), ex))
+                    .toList());
+            return;
+        }
+        controller.recordAckLatency(System.nanoTime() - sentAt);
+        batch.forEach(typeMetrics::published);
+        acknowledge(batch.stream().map(OutboxEventEntity::getId).toList(), List.of());
+        log.info("Published outbox batch of {} events in one Kafka transaction", batch.size());
+    }
+
+    private void acknowledge(List<UUID> sent, List<OutboxFailure> failures) {
+        if (!sent.isEmpty()) outboxTxService.markSent(sent);
+        if (!failures.isEmpty()) outboxTxService.markFailedOrRetry(failures);
+    }
+
+    /**
+     * Claims only return routed event types, so every row has a route.
+     */
+    private List<ProducerRecord<String, byte[]>> records(List<OutboxEventEntity> batch) {
+        return batch.stream().map(router::record).toList();
     }
 
     private void publishOne(OutboxEventEntity e) {
@@ -29,33 +140,38 @@ public class OutboxPublisherScheduler {
         int attempt = e.getAttemptCount();
 
         log.info(
-                "Publishing outbox event id={}, aggregateType={}, aggregateId={}, attempt={}",
-                outboxId, e.getAggregateType(), e.getAggregateId(), attempt
+                "Publishing outbox event id={}, eventType={}, aggregateType={}, aggregateId={}, attempt={}",
+                outboxId, e.getEventType(), e.getAggregateType(), e.getAggregateId(), attempt
         );
-        PaymentNotification notif;
+        // Callbacks run on the Kafka producer network thread: they only hand the outcome to the ack pipeline.
+        long sentAt = System.nanoTime();
+        CompletableFuture<SendResult<String, byte[]>> sent;
         try {
-            notif = outboxTxService.deserialize(e);
-        } catch (Exception ex) {
-            outboxTxService.markFailedOrRetry(outboxId, attempt, ex);
+            sent = producer.sendAsync(router.record(e));
+        } catch (RuntimeException ex) {
+            typeMetrics.failed(e);
+            ackBuffer.ackFailure(OutboxFailure.of(outboxId, attempt, ex));
             return;
         }
-
-        producer.sendAsync(notif)
+        sent
                 .thenAccept(result -> {
+                    controller.recordAckLatency(System.nanoTime() - sentAt);
                     log.info(
                             "Outbox event {} successfully published to Kafka (partition={}, offset={})",
                             outboxId,
                             result.getRecordMetadata().partition(),
                             result.getRecordMetadata().offset()
                     );
-                    outboxTxService.markSent(outboxId);
+                    typeMetrics.published(e);
+                    ackBuffer.ackSent(outboxId);
                 })
                 .exceptionally(ex -> {
                     log.warn(
                             "Kafka publish failed for outbox event id={} (attempt={})",
                             outboxId, attempt, ex
                     );
-                    outboxTxService.markFailedOrRetry(outboxId, attempt, ex);
+                    typeMetrics.failed(e);
+                    ackBuffer.ackFailure(OutboxFailure.of(outboxId, attempt, ex));
                     return null;
                 });
     }
@@ -0,0 +1,202 @@
+package com.alpian.paymentservice.outbox;
+
+import com.alpian.paymentservice.outbox.model.OutboxPublisherProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the outbox publisher on `workers` threads. Each worker claims (SKIP LOCKED) only the events
+ * of its own shards among those owned by this instance (see OutboxShardOwnership), drains them
+ * back-to-back while it gets full batches and otherwise waits for a wakeup (NOTIFY mode) or the
+ * poll interval. Since all events of an account share a shard, one worker publishes them, in
+ * created_at order.
+ * No worker runs in LOGICAL_REPLICATION relay mode (see OutboxReplicationRelay).
+ */
+@Slf4j
+@Component
+public class OutboxPublisherWorkers {
+
+    private static final long STOP_TIMEOUT_MS = 30_000;
+
+    private final OutboxPublisherScheduler publisher;
+    private final OutboxShardOwnership ownership;
+    private final OutboxPublishController controller;
+    private final OutboxPublisherProperties props;
+    private final Counter fallbackWakeups;
+    private final List<Worker> workers = new ArrayList<>();
+
+    private int assignedShardCount;
+
+    public OutboxPublisherWorkers(OutboxPublisherScheduler publisher,
+                                  OutboxShardOwnership ownership,
+                                  OutboxPublishController controller,
+                                  OutboxPublisherProperties props,
+                                  MeterRegistry meterRegistry) {
+        this.publisher = publisher;
+        this.ownership = ownership;
+        this.controller = controller;
+        this.props = props;
+        this.fallbackWakeups = Counter.builder("outbox.publisher.wakeups")
+                .description("Outbox publisher wakeups by cause")
+                .tag("cause", "fallback")
+                .register(meterRegistry);
+        Gauge.builder("outbox.publisher.workers", this, w -> w.workerCount())
+                .description("Running outbox publisher workers")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void start() {
+        reconcile();
+    }
+
+    @PreDestroy
+    synchronized void stop() {
+        stopWorkers();
+    }
+
+    /**
+     * Restarts the workers when `workers` or `shard-count` changed. Old workers finish their current
+     * batch before the new ones start, so a shard is never published by two workers at once.
+     */
+    @Scheduled(fixedDelayString = "${outbox.publisher.worker-reconcile-interval-ms:1000}")
+    public synchronized void reconcile() {
+        if (props.getRelayMode() == OutboxPublisherProperties.RelayMode.LOGICAL_REPLICATION) return;
+
+        int wanted = Math.max(1, props.getWorkers());
+        if (wanted == workers.size() && props.getShardCount() == assignedShardCount) return;
+
+        stopWorkers();
+        assignedShardCount = props.getShardCount();
+        for (int i = 0; i < wanted; i++) {
+            Worker worker = new Worker(i, wanted);
+            workers.add(worker);
+            worker.thread = Thread.ofPlatform().name("outbox-publisher-" + i).daemon().start(worker::run);
+        }
+        log.info("Outbox publisher workers started: workers={}, shardCount={}", wanted, assignedShardCount);
+    }
+
+    /**
+     * Wakes every worker up, e.g. after a pg_notify on outbox_event.
+     */
+    public void wakeUp() {
+        for (Worker worker : snapshot()) {
+            worker.wakeUp();
+        }
+    }
+
+    private synchronized List<Worker> snapshot() {
+        return List.copyOf(workers);
+    }
+
+    private synchronized int workerCount() {
+        return workers.size();
+    }
+
+    private void stopWorkers() {
+        workers.forEach(Worker::stop);
+        for (Worker worker : workers) {
+            try {
+                worker.thread.join(STOP_TIMEOUT_MS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        workers.clear();
+    }
+
+    /**
+     * Shards of one worker: every shard s owned by this instance with s % workerCount == index.
+     * The mapping does not depend on the other owned shards, so a shard never moves between
+     * workers of the instance while ownership changes.
+     */
+    List<Integer> shardsOf(int index, int workerCount) {
+        List<Integer> shards = new ArrayList<>();
+        for (int shard : ownership.ownedShards()) {
+            if (shard % workerCount == index) {
+                shards.add(shard);
+            }
+        }
+        return shards;
+    }
+
+    private final class Worker {
+
+        private final int index;
+        private final int workerCount;
+        private final Semaphore wakeups = new Semaphore(0);
+        private volatile boolean active = true;
+        private Thread thread;
+
+        Worker(int index, int workerCount) {
+            this.index = index;
+            this.workerCount = workerCount;
+        }
+
+        void run() {
+            while (active) {
+                try {
+                    List<Integer> shards = shardsOf(index, workerCount);
+                    int batchSize = controller.batchSize();
+                    int claimed = shards.isEmpty() ? 0 : publisher.publishShards(shards, batchSize);
+                    controller.onClaim(claimed);
+                    if (claimed < batchSize) {
+                        awaitWork();
+                    }
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (Exception ex) {
+                    log.error("Outbox publisher worker {} failed", index, ex);
+                    sleepQuietly(controller.pollIntervalMs());
+                }
+            }
+        }
+
+        private void awaitWork() throws InterruptedException {
+            boolean notifyMode = props.getWakeupMode() == OutboxPublisherProperties.WakeupMode.NOTIFY;
+            long waitMs = notifyMode ? props.getFallbackPollIntervalMs() : controller.pollIntervalMs();
+
+            if (wakeups.tryAcquire(waitMs, TimeUnit.MILLISECONDS)) {
+                if (notifyMode && props.getNotifyDebounceMs() > 0) {
+                    Thread.sleep(props.getNotifyDebounceMs());
+                }
+            } else if (notifyMode) {
+                fallbackWakeups.increment();
+            }
+            // Wakeups received so far are covered by the claim that follows.
+            wakeups.drainPermits();
+        }
+
+        void wakeUp() {
+            if (wakeups.availablePermits() == 0) {
+                wakeups.release();
+            }
+        }
+
+        void stop() {
+            active = false;
+            wakeUp();
+        }
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
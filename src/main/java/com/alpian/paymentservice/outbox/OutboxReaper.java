@@ -0,0 +1,51 @@
+package com.alpian.paymentservice.outbox;
+
+import com.alpian.paymentservice.outbox.model.OutboxPublisherProperties;
+import com.alpian.paymentservice.persistence.repository.OutboxRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Low-frequency recovery of outbox events left in PROCESSING for longer than
+ * processing-timeout-seconds (publisher crashed between claim and acknowledgement).
+ * Kept off the claim query so that one stays a range scan of the PENDING index.
+ * The attempt consumed by the lost claim still counts towards max-attempts.
+ */
+@Slf4j
+@Component
+public class OutboxReaper {
+
+    private final OutboxRepository outboxRepository;
+    private final OutboxPublisherProperties props;
+    private final Counter recovered;
+
+    public OutboxReaper(OutboxRepository outboxRepository,
+                        OutboxPublisherProperties props,
+                        MeterRegistry meterRegistry) {
+        this.outboxRepository = outboxRepository;
+        this.props = props;
+        this.recovered = Counter.builder("outbox.reaper.recovered")
+                .description("PROCESSING outbox events put back to PENDING after the processing timeout")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${outbox.publisher.reaper-interval-ms:60000}")
+    public int reap() {
+        int total = 0;
+        int reaped;
+        do {
+            reaped = outboxRepository.recoverTimedOutProcessing(props.getProcessingTimeoutSeconds(), props.getReaperBatchSize());
+            total += reaped;
+        } while (reaped == props.getReaperBatchSize());
+
+        if (total > 0) {
+            recovered.increment(total);
+            log.warn("Recovered {} outbox events stuck in PROCESSING for more than {} s",
+                    total, props.getProcessingTimeoutSeconds());
+        }
+        return total;
+    }
+}
@@ -0,0 +1,283 @@
+package com.alpian.paymentservice.outbox;
+
+import com.alpian.paymentservice.kafka.OutboxKafkaProducer;
+import com.alpian.paymentservice.outbox.PgOutputDecoder.Begin;
+import com.alpian.paymentservice.outbox.PgOutputDecoder.Commit;
+import com.alpian.paymentservice.outbox.PgOutputDecoder.Insert;
+import com.alpian.paymentservice.outbox.model.OutboxPublisherProperties;
+import com.alpian.paymentservice.persistence.entity.EventStatus;
+import com.alpian.paymentservice.persistence.entity.EventType;
+import com.alpian.paymentservice.persistence.entity.OutboxEventEntity;
+import com.alpian.paymentservice.persistence.repository.OutboxRelayCheckpointRepository;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGProperty;
+import org.postgresql.replication.LogSequenceNumber;
+import org.postgresql.replication.PGReplicationStream;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.nio.ByteBuffer;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * LOGICAL_REPLICATION relay mode of the outbox: instead of claiming rows and marking them SENT,
+ * streams outbox_event inserts from a pgoutput replication slot (publication of
+ * V14__outbox_event_publication.sql) over the JDBC replication protocol and publishes them in
+ * commit order.
+ * <ul>
+ *   <li>Only complete transactions are published; once Kafka acknowledged them the commit LSN is
+ *   confirmed to the slot, which is the only progress kept (plus outbox_relay_checkpoint for
+ *   partition maintenance). No row is updated.</li>
+ *   <li>A failed send restarts the stream from the confirmed LSN: at-least-once, like the claim mode.</li>
+ *   <li>The slot accepts one consumer: on several instances one relays, the others retry every
+ *   listener-reconnect-delay-ms and take over when it stops.</li>
+ *   <li>Inserts of event types without route are skipped.</li>
+ * </ul>
+ * The slot only moves on when an outbox transaction commits: on an idle outbox the server keeps
+ * the WAL written since the last one.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "outbox.publisher", name = "relay-mode", havingValue = "LOGICAL_REPLICATION")
+public class OutboxReplicationRelay {
+
+    static final String OUTBOX_TABLE = "outbox_event";
+    private static final long IDLE_WAIT_MS = 10;
+    private static final HexFormat HEX = HexFormat.of();
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final OutboxKafkaProducer producer;
+    private final OutboxEventRouter router;
+    private final OutboxEventTypeMetrics typeMetrics;
+    private final OutboxRelayCheckpointRepository checkpointRepository;
+    private final OutboxPublisherProperties props;
+    private final Counter transactions;
+    private final Counter restarts;
+
+    private final List<OutboxEventEntity> pending = new ArrayList<>();
+    private Commit lastCommit;
+    private long lastCheckpointAt;
+
+    private volatile boolean running;
+    private Thread relayThread;
+
+    public OutboxReplicationRelay(DataSource dataSource,
+                                  JdbcTemplate jdbcTemplate,
+                                  OutboxKafkaProducer producer,
+                                  OutboxEventRouter router,
+                                  OutboxEventTypeMetrics typeMetrics,
+                                  OutboxRelayCheckpointRepository checkpointRepository,
+                                  OutboxPublisherProperties props,
+                                  MeterRegistry meterRegistry) {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = jdbcTemplate;
+        this.producer = producer;
+        this.router = router;
+        this.typeMetrics = typeMetrics;
+        this.checkpointRepository = checkpointRepository;
+        this.props = props;
+        this.transactions = Counter.builder("outbox.relay.transactions")
+                .description("Committed transactions confirmed to the replication slot")
+                .register(meterRegistry);
+        this.restarts = Counter.builder("outbox.relay.restarts")
+                .description("Replication stream restarts from the confirmed LSN")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void start() {
+        running = true;
+        relayThread = Thread.ofPlatform().name("outbox-replication").daemon().start(this::relayLoop);
+        log.info("Outbox publisher in LOGICAL_REPLICATION mode: slot={}, publication={}",
+                props.getReplicationSlot(), props.getReplicationPublication());
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        relayThread.interrupt();
+        relayThread.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    private void relayLoop() {
+        while (running) {
+            try (Connection connection = replicationConnection()) {
+                createSlotIfMissing();
+                try (PGReplicationStream stream = connection.unwrap(PGConnection.class).getReplicationAPI()
+                        .replicationStream()
+                        .logical()
+                        .withSlotName(props.getReplicationSlot())
+                        .withSlotOption("proto_version", "1")
+                        .withSlotOption("publication_names", props.getReplicationPublication())
+                        .withStatusInterval((int) props.getReplicationStatusIntervalMs(), TimeUnit.MILLISECONDS)
+                        .start()) {
+                    log.info("Streaming outbox inserts from replication slot {}", props.getReplicationSlot());
+                    relay(stream);
+                }
+            } catch (Exception ex) {
+                // Unconfirmed transactions are streamed again by the next connection.
+                pending.clear();
+                lastCommit = null;
+                if (!running) return;
+                restarts.increment();
+                log.warn("Outbox replication stream stopped, restarting from the confirmed LSN in {} ms",
+                        props.getListenerReconnectDelayMs(), ex);
+                sleepQuietly(props.getListenerReconnectDelayMs());
+            }
+        }
+    }
+
+    private void relay(PGReplicationStream stream) throws SQLException {
+        PgOutputDecoder decoder = new PgOutputDecoder();
+        List<OutboxEventEntity> transaction = new ArrayList<>();
+        while (running) {
+            ByteBuffer message = stream.readPending();
+            if (message == null) {
+                publishAndConfirm(stream);
+                sleepQuietly(IDLE_WAIT_MS);
+                continue;
+            }
+            switch (decoder.decode(message)) {
+                case Begin begin -> transaction.clear();
+                case Insert insert -> {
+                    if (OUTBOX_TABLE.equals(insert.table())) {
+                        transaction.add(toEvent(insert.values()));
+                    }
+                }
+                case Commit commit -> {
+                    for (OutboxEventEntity e : transaction) {
+                        if (router.routedTypes().contains(e.getEventType())) {
+                            pending.add(e);
+                        } else {
+                            log.debug("Skipping outbox event {} of unrouted type {}", e.getId(), e.getEventType());
+                        }
+                    }
+                    transaction.clear();
+                    lastCommit = commit;
+                    if (pending.size() >= props.getReplicationBatchSize()) {
+                        publishAndConfirm(stream);
+                    }
+                }
+                case null -> {
+                }
+            }
+        }
+    }
+
+    /**
+     * Sends the inserts of the transactions received so far, waits for Kafka, then confirms the
+     * end LSN of the last one so the server can recycle its WAL.
+     */
+    private void publishAndConfirm(PGReplicationStream stream) {
+        if (lastCommit == null) return;
+
+        if (!pending.isEmpty()) {
+            long sentAt = System.nanoTime();
+            var futures = producer.sendAndFlush(pending.stream().map(router::record).toList());
+            RuntimeException failure = null;
+            for (int i = 0; i < pending.size(); i++) {
+                try {
+                    futures.get(i).join();
+                    typeMetrics.published(pending.get(i));
+                } catch (CompletionException ex) {
+                    typeMetrics.failed(pending.get(i));
+                    failure = ex;
+                }
+            }
+            if (failure != null) {
+                throw new IllegalStateException("Kafka publish failed for outbox event(s) streamed from the slot", failure);
+            }
+            log.debug("Relayed {} outbox events in {} ms", pending.size(), (System.nanoTime() - sentAt) / 1_000_000);
+        }
+
+        LogSequenceNumber lsn = LogSequenceNumber.valueOf(lastCommit.endLsn());
+        stream.setAppliedLSN(lsn);
+        stream.setFlushedLSN(lsn);
+        transactions.increment();
+        if (System.currentTimeMillis() - lastCheckpointAt >= props.getReplicationStatusIntervalMs()) {
+            checkpointRepository.save(props.getReplicationSlot(), lsn.asString(), lastCommit.committedAt());
+            lastCheckpointAt = System.currentTimeMillis();
+        }
+        pending.clear();
+        lastCommit = null;
+    }
+
+    private void createSlotIfMissing() {
+        jdbcTemplate.query("""
+                SELECT pg_create_logical_replication_slot(?, 'pgoutput')
+                WHERE NOT EXISTS (SELECT 1 FROM pg_replication_slots WHERE slot_name = ?)
+                """, rs -> {
+            log.info("Created replication slot {}", props.getReplicationSlot());
+        }, props.getReplicationSlot(), props.getReplicationSlot());
+    }
+
+    /**
+     * A dedicated physical connection: replication connections cannot come from the pool.
+     */
+    private Connection replicationConnection() throws SQLException {
+        HikariDataSource pool = dataSource.unwrap(HikariDataSource.class);
+        Properties properties = new Properties();
+        PGProperty.USER.set(properties, pool.getUsername());
+        if (pool.getPassword() != null) {
+            PGProperty.PASSWORD.set(properties, pool.getPassword());
+        }
+        PGProperty.ASSUME_MIN_SERVER_VERSION.set(properties, "10");
+        PGProperty.REPLICATION.set(properties, "database");
+        PGProperty.PREFER_QUERY_MODE.set(properties, "simple");
+        return DriverManager.getConnection(pool.getJdbcUrl(), properties);
+    }
+
+    /**
+     * Row of an insert, from the text representation of its columns.
+     */
+    static OutboxEventEntity toEvent(Map<String, String> row) {
+        return OutboxEventEntity.builder()
+                .id(UUID.fromString(row.get("id")))
+                .aggregateType(row.get("aggregate_type"))
+                .aggregateId(UUID.fromString(row.get("aggregate_id")))
+                .shardKey(UUID.fromString(row.get("shard_key")))
+                .eventType(EventType.valueOf(row.get("event_type")))
+                .eventStatus(EventStatus.valueOf(row.get("event_status")))
+                .payload(bytea(row.get("payload")))
+                .messageKey(row.get("message_key"))
+                .headers(bytea(row.get("headers")))
+                .attemptCount(Integer.parseInt(row.get("attempt_count")))
+                .createdAt(Timestamp.valueOf(row.get("created_at")).toInstant())
+                .build();
+    }
+
+    /**
+     * bytea in hex output format: \x0a1b...
+     */
+    private static byte[] bytea(String text) {
+        return text == null ? null : HEX.parseHex(text, 2, text.length());
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package com.alpian.paymentservice.outbox;
+
+import com.alpian.paymentservice.outbox.model.OutboxPublisherProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.*;
+
+/**
+ * Cluster-wide ownership of outbox shards, without external coordinator. An instance owns a shard
+ * while its dedicated connection holds pg_try_advisory_lock(LOCK_NAMESPACE, shard):
+ * <ul>
+ *   <li>every heartbeat the instance refreshes its outbox_publisher_instance row and computes its
+ *   fair share from the live instances, then locks free shards up to that share (takeover: the
+ *   locks of a dead instance vanish with its session);</li>
+ *   <li>above its share (an instance joined) it stops publishing the extra shards and unlocks them
+ *   one heartbeat later, so their in-flight batch completes before another instance claims them.</li>
+ * </ul>
+ * With shard-ownership disabled the instance publishes every shard.
+ */
+@Slf4j
+@Component
+public class OutboxShardOwnership {
+
+    /**
+     * First key of the two-int advisory lock, reserved for outbox shards.
+     */
+    static final int LOCK_NAMESPACE = 0x6F627820;
+
+    private final DataSource dataSource;
+    private final OutboxPublisherProperties props;
+    private final UUID instanceId = UUID.randomUUID();
+    private final Set<Integer> releasing = new TreeSet<>();
+
+    private volatile Set<Integer> owned = Set.of();
+    private Connection connection;
+
+    @Autowired
+    public OutboxShardOwnership(DataSource dataSource, OutboxPublisherProperties props, MeterRegistry meterRegistry) {
+        this(dataSource, props);
+        Gauge.builder("outbox.publisher.owned-shards", this, o -> o.ownedShards().size())
+                .description("Outbox shards published by this instance")
+                .register(meterRegistry);
+    }
+
+    OutboxShardOwnership(DataSource dataSource, OutboxPublisherProperties props) {
+        this.dataSource = dataSource;
+        this.props = props;
+    }
+
+    /**
+     * Shards this instance may publish right now.
+     */
+    public Set<Integer> ownedShards() {
+        if (!props.isShardOwnership()) {
+            Set<Integer> all = new TreeSet<>();
+            for (int shard = 0; shard < props.getShardCount(); shard++) {
+                all.add(shard);
+            }
+            return all;
+        }
+        return owned;
+    }
+
+    @Scheduled(fixedDelayString = "${outbox.publisher.heartbeat-interval-ms:2000}")
+    public synchronized void heartbeat() {
+        if (!props.isShardOwnership()) return;
+
+        try {
+            Connection c = connection();
+            int liveInstances = refreshInstances(c);
+            int fairShare = (props.getShardCount() + liveInstances - 1) / liveInstances;
+
+            // Withdrawn one heartbeat ago: their last batch is done, let other instances take them.
+            for (int shard : releasing) {
+                unlock(c, shard);
+            }
+            releasing.clear();
+
+            TreeSet<Integer> next = new TreeSet<>(owned);
+            next.removeIf(shard -> {
+                boolean withdrawn = shard >= props.getShardCount();
+                if (withdrawn) releasing.add(shard);
+                return withdrawn;
+            });
+            while (next.size() > fairShare) {
+                releasing.add(next.pollLast());
+            }
+            for (int shard = 0; shard < props.getShardCount() && next.size() < fairShare; shard++) {
+                if (!next.contains(shard) && !releasing.contains(shard) && tryLock(c, shard)) {
+                    next.add(shard);
+                }
+            }
+
+            if (!next.equals(owned)) {
+                log.info("Outbox shard ownership changed: instance={}, liveInstances={}, owned={}, releasing={}",
+                        instanceId, liveInstances, next, releasing);
+            }
+            owned = Set.copyOf(next);
+        } catch (SQLException ex) {
+            // Locks are session scoped: whatever happened to the connection, assume they are gone.
+            log.warn("Outbox shard heartbeat failed, dropping all shards of instance {}", instanceId, ex);
+            owned = Set.of();
+            releasing.clear();
+            closeConnection();
+        }
+    }
+
+    @PreDestroy
+    synchronized void release() {
+        if (connection == null) return;
+
+        owned = Set.of();
+        try (PreparedStatement ps = connection.prepareStatement(
+                "DELETE FROM outbox_publisher_instance WHERE instance_id = ?")) {
+            ps.setObject(1, instanceId);
+            ps.executeUpdate();
+        } catch (SQLException ex) {
+            log.warn("Could not deregister outbox publisher instance {}", instanceId, ex);
+        }
+        closeConnection();
+    }
+
+    /**
+     * Upserts our heartbeat, forgets instances that stopped heartbeating and counts the live ones.
+     */
+    private int refreshInstances(Connection c) throws SQLException {
+        try (PreparedStatement ps = c.prepareStatement("""
+                INSERT INTO outbox_publisher_instance (instance_id, heartbeat_at)
+                VALUES (?, NOW())
+                ON CONFLICT (instance_id) DO UPDATE SET heartbeat_at = NOW()
+                """)) {
+            ps.setObject(1, instanceId);
+            ps.executeUpdate();
+        }
+        try (PreparedStatement ps = c.prepareStatement("""
+                DELETE FROM outbox_publisher_instance
+                WHERE heartbeat_at < NOW() - (? || ' milliseconds')::interval
+                """)) {
+            ps.setLong(1, props.getInstanceTimeoutMs());
+            ps.executeUpdate();
+        }
+        try (PreparedStatement ps = c.prepareStatement("SELECT count(*) FROM outbox_publisher_instance");
+             ResultSet rs = ps.executeQuery()) {
+            rs.next();
+            return Math.max(1, rs.getInt(1));
+        }
+    }
+
+    private boolean tryLock(Connection c, int shard) throws SQLException {
+        try (PreparedStatement ps = c.prepareStatement("SELECT pg_try_advisory_lock(?, ?)")) {
+            ps.setInt(1, LOCK_NAMESPACE);
+            ps.setInt(2, shard);
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                return rs.getBoolean(1);
+            }
+        }
+    }
+
+    private void unlock(Connection c, int shard) throws SQLException {
+        try (PreparedStatement ps = c.prepareStatement("SELECT pg_advisory_unlock(?, ?)")) {
+            ps.setInt(1, LOCK_NAMESPACE);
+            ps.setInt(2, shard);
+            ps.executeQuery().close();
+        }
+    }
+
+    /**
+     * Held for the life of the instance: the shard locks belong to its session.
+     */
+    private Connection connection() throws SQLException {
+        if (connection == null) {
+            connection = dataSource.getConnection();
+            connection.setAutoCommit(true);
+        }
+        return connection;
+    }
+
+    /**
+     * The connection goes back to the pool with its session, so the locks are released explicitly;
+     * if that fails the physical connection is aborted, which releases them as well.
+     */
+    private void closeConnection() {
+        if (connection == null) return;
+        try (PreparedStatement ps = connection.prepareStatement("SELECT pg_advisory_unlock_all()")) {
+            ps.executeQuery().close();
+            connection.close();
+        } catch (SQLException ex) {
+            log.debug("Releasing the outbox shard connection failed, aborting it", ex);
+            try {
+                connection.abort(Runnable::run);
+            } catch (SQLException abortEx) {
+                log.debug("Aborting the outbox shard connection failed", abortEx);
+            }
+        }
+        connection = null;
+    }
+}
@@ -0,0 +1,113 @@
+package com.alpian.paymentservice.outbox;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Decoder of the pgoutput logical replication protocol, version 1, text tuple format. Keeps the
+ * Relation messages it has seen, since Insert messages only carry the relation id.
+ * Begin, Commit and Insert are returned; other messages (Origin, Type, Update, Delete, Truncate)
+ * are skipped.
+ */
+final class PgOutputDecoder {
+
+    private static final Instant PG_EPOCH = Instant.parse("2000-01-01T00:00:00Z");
+
+    private final Map<Integer, Relation> relations = new HashMap<>();
+
+    sealed interface Message permits Begin, Commit, Insert {
+    }
+
+    record Begin(long finalLsn, Instant committedAt, int xid) implements Message {
+    }
+
+    record Commit(long commitLsn, long endLsn, Instant committedAt) implements Message {
+    }
+
+    /**
+     * Column values in their text representation, null for SQL NULL.
+     */
+    record Insert(String schema, String table, Map<String, String> values) implements Message {
+    }
+
+    private record Relation(String schema, String table, String[] columns) {
+    }
+
+    /**
+     * @return the decoded message, null when it is not one of Begin, Commit, Insert
+     */
+    Message decode(ByteBuffer buffer) {
+        char type = (char) buffer.get();
+        return switch (type) {
+            case 'B' -> new Begin(buffer.getLong(), timestamp(buffer.getLong()), buffer.getInt());
+            case 'C' -> {
+                buffer.get(); // flags, unused
+                yield new Commit(buffer.getLong(), buffer.getLong(), timestamp(buffer.getLong()));
+            }
+            case 'R' -> {
+                readRelation(buffer);
+                yield null;
+            }
+            case 'I' -> readInsert(buffer);
+            default -> null;
+        };
+    }
+
+    private void readRelation(ByteBuffer buffer) {
+        int relationId = buffer.getInt();
+        String schema = readString(buffer);
+        String table = readString(buffer);
+        buffer.get(); // replica identity
+        String[] columns = new String[buffer.getShort()];
+        for (int i = 0; i < columns.length; i++) {
+            buffer.get(); // flags
+            columns[i] = readString(buffer);
+            buffer.getInt(); // type oid
+            buffer.getInt(); // type modifier
+        }
+        relations.put(relationId, new Relation(schema, table, columns));
+    }
+
+    private Insert readInsert(ByteBuffer buffer) {
+        Relation relation = relations.get(buffer.getInt());
+        if (relation == null) {
+            throw new IllegalStateException("Insert received before the Relation message of its table");
+        }
+        buffer.get(); // 'N': new tuple
+        int columnCount = buffer.getShort();
+        Map<String, String> values = new LinkedHashMap<>();
+        for (int i = 0; i < columnCount; i++) {
+            char kind = (char) buffer.get();
+            String value = switch (kind) {
+                case 'n', 'u' -> null;
+                case 't' -> {
+                    byte[] text = new byte[buffer.getInt()];
+                    buffer.get(text);
+                    yield new String(text, StandardCharsets.UTF_8);
+                }
+                default -> throw new IllegalStateException("Unsupported tuple column kind " + kind);
+            };
+            values.put(relation.columns()[i], value);
+        }
+        return new Insert(relation.schema(), relation.table(), values);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int start = buffer.position();
+        int end = start;
+        while (buffer.get(end) != 0) end++;
+        byte[] bytes = new byte[end - start];
+        buffer.get(bytes);
+        buffer.get(); // terminating zero
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static Instant timestamp(long microsSincePgEpoch) {
+        return PG_EPOCH.plus(microsSincePgEpoch, ChronoUnit.MICROS);
+    }
+}
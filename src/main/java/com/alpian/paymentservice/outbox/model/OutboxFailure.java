@@ -0,0 +1,14 @@
+package com.alpian.paymentservice.outbox.model;
+
+import java.util.UUID;
+
+/**
+ * A failed publish attempt waiting to be written back as a scheduled retry or a dead letter.
+ */
+public record OutboxFailure(UUID outboxId, int attemptCount, String error) {
+
+    public static OutboxFailure of(UUID outboxId, int attemptCount, Throwable ex) {
+        return new OutboxFailure(outboxId, attemptCount,
+                ex.getClass().getSimpleName() + ": " + (ex.getMessage() == null ? "" : ex.getMessage()));
+    }
+}
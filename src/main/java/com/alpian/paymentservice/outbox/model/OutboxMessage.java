@@ -0,0 +1,8 @@
+package com.alpian.paymentservice.outbox.model;
+
+/**
+ * A Kafka record as stored in the outbox and sent as is: key, serialized value and
+ * headers encoded with KafkaHeadersCodec.
+ */
+public record OutboxMessage(String key, byte[] value, byte[] headers) {
+}
@@ -0,0 +1,36 @@
+package com.alpian.paymentservice.outbox.model;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Daily partitions of outbox_event (see V11__outbox_event_partitioned.sql and OutboxPartitionMaintenance).
+ */
+@ConfigurationProperties(prefix = "outbox.partitions")
+@Getter
+@Setter
+public class OutboxPartitionProperties {
+    boolean maintenanceEnabled = true;
+    long maintenanceIntervalMs = 3600000;
+    /**
+     * Partitions created ahead of today, so inserts never land in the default partition.
+     */
+    int premakeDays = 3;
+    /**
+     * A day partition is removed once it ended more than retention-days ago and all its rows are SENT or FAILED.
+     */
+    int retentionDays = 7;
+    RetentionMode retentionMode = RetentionMode.DROP;
+
+    public enum RetentionMode {
+        /**
+         * Detach then drop the partition.
+         */
+        DROP,
+        /**
+         * Only detach: the table stays, outside outbox_event, for archiving.
+         */
+        DETACH
+    }
+}
@@ -12,5 +12,123 @@ public class OutboxPublisherProperties {
     int maxAttempts;
     long pollIntervalMs;
     long processingTimeoutSeconds;
-}
+    /**
+     * OutboxReaper: how often PROCESSING rows older than processing-timeout-seconds are put back
+     * to PENDING, and how many per statement.
+     */
+    long reaperIntervalMs = 60000;
+    int reaperBatchSize = 1000;
+    /**
+     * Delay before retry n is retry-base-delay-ms * 2^(n-1), capped at retry-max-delay-ms, then
+     * jittered in [delay/2, delay] so events failing together do not retry together.
+     */
+    long retryBaseDelayMs = 1000;
+    long retryMaxDelayMs = 300000;
+    /**
+     * Derive the batch size and the idle poll interval from the backlog instead of using
+     * batch-size and poll-interval-ms as is (see OutboxPublishController).
+     */
+    boolean adaptive;
+    int minBatchSize = 10;
+    int maxBatchSize = 1000;
+    long minPollIntervalMs = 10;
+    long maxPollIntervalMs = 5000;
+    /**
+     * The publisher is behind when the oldest pending event is older than this.
+     */
+    long targetLagMs = 1000;
+    /**
+     * Above this average Kafka ack latency batches shrink instead of growing.
+     */
+    long maxAckLatencyMs = 200;
+    long backlogSampleIntervalMs = 1000;
+    int backlogCountCap = 100000;
+    /**
+     * Publisher threads; every worker owns the shards s with s % workers == its index.
+     * Read again every worker-reconcile-interval-ms, so it can be changed at runtime.
+     */
+    int workers = 4;
+    /**
+     * Logical outbox shards (mod of outbox_event.shard); all events of an account share a shard.
+     */
+    int shardCount = 16;
+    long workerReconcileIntervalMs = 1000;
+    /**
+     * Several instances: split the shards between them with advisory locks instead of every
+     * instance claiming every shard.
+     */
+    boolean shardOwnership;
+    long heartbeatIntervalMs = 2000;
+    /**
+     * An instance without heartbeat for this long no longer counts for the fair share.
+     */
+    long instanceTimeoutMs = 10000;
+    /**
+     * Send outcomes buffered before they are written back in one set-based update.
+     */
+    int ackBatchSize = 200;
+    long ackFlushIntervalMs = 50;
+    /**
+     * Send outcomes queued by Kafka callbacks; when full a callback waits ack-enqueue-timeout-ms, then drops the outcome.
+     */
+    int ackQueueCapacity = 10000;
+    long ackEnqueueTimeoutMs = 100;
+    /**
+     * Virtual threads writing acknowledgements concurrently.
+     */
+    int ackWriters = 2;
+
+    /**
+     * POLLING: claim every poll-interval-ms (default).
+     * NOTIFY: wake up on pg_notify from outbox_event inserts, with a slow fallback poll.
+     */
+    WakeupMode wakeupMode = WakeupMode.POLLING;
+    /**
+     * NOTIFY mode: poll anyway after this long without notification (missed notifications, listener reconnects).
+     */
+    long fallbackPollIntervalMs = 30000;
+    /**
+     * NOTIFY mode: wait after the first notification so a burst of inserts is claimed in one batch.
+     */
+    long notifyDebounceMs = 2;
+    long listenerReconnectDelayMs = 5000;
+
+    /**
+     * CREATED_AT: claim PENDING rows oldest created_at first (default).
+     * ID: claim them in id order (idx_outbox_event_pending_id), which is creation order for the
+     * time-ordered ids written since V17. Rows from before have random ids and would be claimed
+     * out of order: drain the PENDING backlog in CREATED_AT order before switching.
+     */
+    ClaimOrder claimOrder = ClaimOrder.CREATED_AT;
+
+    /**
+     * CLAIM: workers claim PENDING rows and mark them SENT (default).
+     * LOGICAL_REPLICATION: OutboxReplicationRelay streams outbox_event inserts from a pgoutput
+     * replication slot in commit order; rows are never updated, progress is the confirmed LSN of
+     * the slot. Needs wal_level = logical and a user allowed to replicate. Drain the PENDING
+     * backlog in CLAIM mode before switching.
+     */
+    RelayMode relayMode = RelayMode.CLAIM;
+    String replicationSlot = "outbox_relay";
+    String replicationPublication = "outbox_event_pub";
+    /**
+     * Inserts of complete transactions sent to Kafka before the LSN is confirmed.
+     */
+    int replicationBatchSize = 500;
+    long replicationStatusIntervalMs = 1000;
 
+    public enum WakeupMode {
+        POLLING,
+        NOTIFY
+    }
+
+    public enum ClaimOrder {
+        CREATED_AT,
+        ID
+    }
+
+    public enum RelayMode {
+        CLAIM,
+        LOGICAL_REPLICATION
+    }
+}
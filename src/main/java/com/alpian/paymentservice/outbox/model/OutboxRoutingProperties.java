@@ -0,0 +1,56 @@
+package com.alpian.paymentservice.outbox.model;
+
+import com.alpian.paymentservice.persistence.entity.EventType;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Where each outbox event type goes (see OutboxEventRouter). Event types without a route are
+ * never claimed and stay PENDING; PAYMENT_CREATED always has one.
+ */
+@ConfigurationProperties(prefix = "outbox.routing")
+@Getter
+@Setter
+public class OutboxRoutingProperties {
+    Map<EventType, Route> routes = new EnumMap<>(EventType.class);
+
+    @Getter
+    @Setter
+    public static class Route {
+        String topic;
+        /**
+         * Kafka Serializer class applied when the outbox row is written. Defaults to the
+         * payment notification serializer (kafka.topics.paymentNotificationFormat) for
+         * PAYMENT_CREATED and to Spring's JacksonJsonSerializer for the other types.
+         */
+        String serializer;
+        KeySource key = KeySource.MESSAGE_KEY;
+        /**
+         * Partitions of the topic when it is created at startup.
+         */
+        int partitions = 4;
+    }
+
+    /**
+     * Kafka record key, resolved when the event is published.
+     */
+    public enum KeySource {
+        /**
+         * The key stored with the event when it was written.
+         */
+        MESSAGE_KEY,
+        /**
+         * outbox_event.shard_key (the account): per-account ordering.
+         */
+        SHARD_KEY,
+        AGGREGATE_ID,
+        /**
+         * No key: records are spread over the partitions.
+         */
+        NONE
+    }
+}
@@ -0,0 +1,56 @@
+package com.alpian.paymentservice.persistence.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * One sub-balance of a striped account. Concurrent debits lock different stripes,
+ * so a hot account is no longer serialized on its single account row.
+ */
+@Entity
+@Table(name = "account_balance_stripe")
+@IdClass(AccountBalanceStripeEntity.StripeId.class)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AccountBalanceStripeEntity {
+
+    @Id
+    @Column(name = "account_id", nullable = false, updatable = false)
+    private UUID accountId;
+
+    @Id
+    @Column(name = "stripe_no", nullable = false, updatable = false)
+    private int stripeNo;
+
+    @Column(name = "balance", nullable = false, precision = 19, scale = 2)
+    private BigDecimal balance;
+
+    /**
+     * Sum of the debits applied to this stripe since the last rebalance; used by the consistency check.
+     */
+    @Column(name = "debited_since_rebalance", nullable = false, precision = 19, scale = 2)
+    private BigDecimal debitedSinceRebalance;
+
+    @UpdateTimestamp
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @EqualsAndHashCode
+    public static class StripeId implements Serializable {
+        private UUID accountId;
+        private int stripeNo;
+    }
+}
@@ -1,11 +1,12 @@
 package com.alpian.paymentservice.persistence.entity;
 
+import com.alpian.paymentservice.money.MinorUnitsConverter;
+import com.alpian.paymentservice.money.Money;
 import jakarta.persistence.*;
 import lombok.*;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
-import java.math.BigDecimal;
 import java.time.Instant;
 import java.util.UUID;
 
@@ -25,12 +26,37 @@ public class AccountEntity {
     @Column(name = "user_id", nullable = false)
     private UUID userId;
 
+    /**
+     * In minor units, see {@link Money}; the currency is {@link #baseCurrency}.
+     */
+    @Convert(converter = MinorUnitsConverter.class)
     @Column(name = "balance", nullable = false, precision = 19, scale = 2)
-    private BigDecimal balance;
+    private long balance;
+
+    /**
+     * Ledger mode: {@link #balance} is the balance as of this ledger_entry id. Only written by
+     * the compaction job, together with the balance.
+     */
+    @Column(name = "balance_entry_id", nullable = false, insertable = false, updatable = false)
+    private long balanceEntryId;
 
     @Column(name = "base_currency", nullable = false, length = 3)
     private String baseCurrency;
 
+    /**
+     * When true the balance is split across account_balance_stripe rows and
+     * {@link #balance} is only refreshed by the rebalancing job.
+     */
+    @Column(name = "striped", nullable = false)
+    private boolean striped;
+
+    /**
+     * Incremented on every debit; the optimistic debit path only applies when it is unchanged.
+     */
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
+
     @CreationTimestamp
     @Column(nullable = false, updatable = false)
     private Instant createdAt;
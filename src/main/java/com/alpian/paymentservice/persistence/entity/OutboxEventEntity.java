@@ -1,5 +1,6 @@
 package com.alpian.paymentservice.persistence.entity;
 
+import com.alpian.paymentservice.persistence.id.TimeOrderedUuid;
 import jakarta.persistence.*;
 import lombok.*;
 import org.hibernate.annotations.CreationTimestamp;
@@ -21,7 +22,7 @@ import java.util.UUID;
 public class OutboxEventEntity {
 
     @Id
-    @GeneratedValue
+    @TimeOrderedUuid
     private UUID id;
 
     @Column(name = "aggregate_type", nullable = false)
@@ -30,6 +31,12 @@ public class OutboxEventEntity {
     @Column(name = "aggregate_id", nullable = false)
     private UUID aggregateId;
 
+    /**
+     * Events with the same shard key (the account) are published by one worker, in order.
+     */
+    @Column(name = "shard_key", nullable = false)
+    private UUID shardKey;
+
     @Column(name = "event_type", nullable = false)
     @Enumerated(EnumType.STRING)
     private EventType eventType;
@@ -38,8 +45,20 @@ public class OutboxEventEntity {
     @Enumerated(EnumType.STRING)
     private EventStatus eventStatus;
 
-    @Column(name = "payload", nullable = false, columnDefinition = "TEXT")
-    private String payload;
+    /**
+     * Kafka record value, already serialized.
+     */
+    @Column(name = "payload", nullable = false)
+    private byte[] payload;
+
+    @Column(name = "message_key")
+    private String messageKey;
+
+    /**
+     * Kafka record headers, encoded with KafkaHeadersCodec.
+     */
+    @Column(name = "headers")
+    private byte[] headers;
 
     @Column(name = "attempt_count", nullable = false)
     private int attemptCount;
@@ -56,4 +75,10 @@ public class OutboxEventEntity {
 
     @Column(name = "processing_started_at")
     private Instant processingStartedAt;
+
+    /**
+     * A retried event is not claimed again before this instant (exponential backoff).
+     */
+    @Column(name = "next_attempt_at")
+    private Instant nextAttemptAt;
 }
\ No newline at end of file
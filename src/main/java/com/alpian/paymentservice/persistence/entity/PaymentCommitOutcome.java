@@ -0,0 +1,13 @@
+package com.alpian.paymentservice.persistence.entity;
+
+/**
+ * Result codes returned by the create_payment_single_statement database function.
+ */
+public enum PaymentCommitOutcome {
+    COMPLETED,
+    ACCOUNT_NOT_FOUND,
+    DUPLICATE,
+    REPLAYED,
+    INSUFFICIENT_FUNDS,
+    STRIPED
+}
@@ -1,10 +1,12 @@
 package com.alpian.paymentservice.persistence.entity;
 
+import com.alpian.paymentservice.money.MinorUnitsConverter;
+import com.alpian.paymentservice.money.Money;
+import com.alpian.paymentservice.persistence.id.TimeOrderedUuid;
 import jakarta.persistence.*;
 import lombok.*;
 import org.hibernate.annotations.CreationTimestamp;
 
-import java.math.BigDecimal;
 import java.time.Instant;
 import java.util.UUID;
 
@@ -26,14 +28,18 @@ import java.util.UUID;
 public class PaymentEntity {
 
     @Id
-    @GeneratedValue
+    @TimeOrderedUuid
     private UUID id;
 
     @Column(name = "account_id", nullable = false)
     private UUID accountId;
 
+    /**
+     * In minor units of {@link #currency}, see {@link Money}.
+     */
+    @Convert(converter = MinorUnitsConverter.class)
     @Column(name = "amount", nullable = false, precision = 19, scale = 2)
-    private BigDecimal amount;
+    private long amount;
 
     @Column(name = "currency", nullable = false, length = 3)
     private String currency;
@@ -0,0 +1,48 @@
+package com.alpian.paymentservice.persistence.repository;
+
+import com.alpian.paymentservice.persistence.entity.AccountBalanceStripeEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface AccountBalanceStripeRepository
+        extends JpaRepository<AccountBalanceStripeEntity, AccountBalanceStripeEntity.StripeId> {
+
+    /**
+     * Fast path: lock one stripe that can cover the amount on its own, skipping the ones
+     * held by concurrent debits. Random order spreads the load across stripes.
+     */
+    @Query(value = """
+        SELECT *
+        FROM account_balance_stripe
+        WHERE account_id = :accountId
+          AND balance >= :amount
+        ORDER BY random()
+        LIMIT 1
+        FOR UPDATE SKIP LOCKED
+        """, nativeQuery = true)
+    Optional<AccountBalanceStripeEntity> lockStripeCovering(@Param("accountId") UUID accountId,
+                                                            @Param("amount") BigDecimal amount);
+
+    /**
+     * Consolidating path: lock every stripe of the account, always in stripe order to avoid deadlocks.
+     */
+    @Query(value = """
+        SELECT *
+        FROM account_balance_stripe
+        WHERE account_id = :accountId
+        ORDER BY stripe_no
+        FOR UPDATE
+        """, nativeQuery = true)
+    List<AccountBalanceStripeEntity> lockAllForAccount(@Param("accountId") UUID accountId);
+
+    @Query(value = "SELECT EXISTS (SELECT 1 FROM account_balance_stripe)", nativeQuery = true)
+    boolean anyStripeExists();
+}
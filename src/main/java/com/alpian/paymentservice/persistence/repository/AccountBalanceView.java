@@ -0,0 +1,16 @@
+package com.alpian.paymentservice.persistence.repository;
+
+/**
+ * Balance snapshot read by the optimistic debit path.
+ */
+public interface AccountBalanceView {
+
+    /**
+     * In minor units, see {@link com.alpian.paymentservice.money.Money}.
+     */
+    long getBalance();
+
+    Long getVersion();
+
+    boolean getStriped();
+}
@@ -0,0 +1,63 @@
+package com.alpian.paymentservice.persistence.repository;
+
+import com.alpian.paymentservice.money.Money;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Database side of the engine mode: accounts loaded into a partition and the write-behind of its
+ * balances and checkpoint.
+ */
+@Repository
+@RequiredArgsConstructor
+public class AccountEngineRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public Optional<EngineAccount> findAccount(UUID accountId) {
+        return jdbcTemplate.query("""
+                SELECT user_id, balance FROM account WHERE id = ?
+                """, (rs, rowNum) -> new EngineAccount(rs.getObject("user_id", UUID.class),
+                        Money.minorUnits(rs.getBigDecimal("balance"))),
+                accountId).stream().findFirst();
+    }
+
+    /**
+     * Sets the balances computed by the engine, in minor units; absolute values, so replaying a
+     * batch is harmless.
+     */
+    public void updateBalances(Map<UUID, Long> balances, int batchSize) {
+        jdbcTemplate.batchUpdate("""
+                UPDATE account
+                SET balance = ?, version = version + 1, updated_at = NOW()
+                WHERE id = ?
+                """, List.copyOf(balances.entrySet()), batchSize, (ps, e) -> {
+            ps.setBigDecimal(1, Money.toDecimal(e.getValue()));
+            ps.setObject(2, e.getKey());
+        });
+    }
+
+    public long appliedSequence(int partition) {
+        return jdbcTemplate.query("""
+                SELECT applied_sequence FROM engine_checkpoint WHERE partition_id = ?
+                """, (rs, rowNum) -> rs.getLong(1), partition).stream().findFirst().orElse(0L);
+    }
+
+    public void saveAppliedSequence(int partition, long sequence) {
+        jdbcTemplate.update("""
+                INSERT INTO engine_checkpoint (partition_id, applied_sequence, updated_at)
+                VALUES (?, ?, NOW())
+                ON CONFLICT (partition_id) DO UPDATE
+                SET applied_sequence = EXCLUDED.applied_sequence,
+                    updated_at = EXCLUDED.updated_at
+                """, partition, sequence);
+    }
+
+    public record EngineAccount(UUID userId, long balanceMinor) {}
+}
@@ -3,10 +3,15 @@ package com.alpian.paymentservice.persistence.repository;
 import com.alpian.paymentservice.persistence.entity.AccountEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import jakarta.persistence.LockModeType;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -20,4 +25,59 @@ public interface AccountRepository extends JpaRepository<AccountEntity, UUID> {
         WHERE a.id = :accountId AND a.userId = :userId
     """)
     Optional<AccountEntity> findForUpdate(UUID accountId, UUID userId);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query(value = """
+        SELECT a
+        FROM AccountEntity a
+        WHERE a.id = :accountId
+    """)
+    Optional<AccountEntity> findByIdForUpdate(UUID accountId);
+
+    /**
+     * Reads the striping flag without loading the entity, so a later locking read still sees fresh state.
+     */
+    @Query(value = """
+        SELECT a.striped
+        FROM AccountEntity a
+        WHERE a.id = :accountId AND a.userId = :userId
+    """)
+    Optional<Boolean> findStripedFlag(UUID accountId, UUID userId);
+
+    Optional<AccountEntity> findByIdAndUserId(UUID accountId, UUID userId);
+
+    @Query(value = """
+        SELECT a.id
+        FROM AccountEntity a
+        WHERE a.striped = true
+    """)
+    List<UUID> findStripedAccountIds();
+
+    /**
+     * Ownership check plus the state needed by the optimistic debit, without loading the entity.
+     */
+    @Query(value = """
+        SELECT a.balance AS balance, a.version AS version, a.striped AS striped
+        FROM AccountEntity a
+        WHERE a.id = :accountId AND a.userId = :userId
+    """)
+    Optional<AccountBalanceView> findBalanceView(UUID accountId, UUID userId);
+
+    /**
+     * Native: the amount is bound as NUMERIC, not through the minor-units converter of balance.
+     */
+    @Modifying
+    @Query(value = """
+        UPDATE account
+        SET balance = balance - :amount,
+            version = version + 1,
+            updated_at = :updatedAt
+        WHERE id = :accountId
+          AND version = :version
+          AND balance >= :amount
+    """, nativeQuery = true)
+    int debitIfVersionMatches(@Param("accountId") UUID accountId,
+                              @Param("amount") BigDecimal amount,
+                              @Param("version") Long version,
+                              @Param("updatedAt") Instant updatedAt);
 }
@@ -0,0 +1,127 @@
+package com.alpian.paymentservice.persistence.repository;
+
+import com.alpian.paymentservice.money.Money;
+import com.alpian.paymentservice.persistence.entity.PaymentEntity;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Append-only ledger_entry table of the ledger balance mode and the snapshot columns of account
+ * (balance, balance_entry_id) it is compacted into.
+ */
+@Repository
+@RequiredArgsConstructor
+public class LedgerEntryRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Net movement of the account after the given entry in minor units: credits minus debits.
+     * Index-only scan of idx_ledger_entry_account.
+     */
+    public long sumAfter(UUID accountId, long afterEntryId) {
+        return jdbcTemplate.queryForObject("""
+                SELECT CAST(coalesce(sum(CASE direction WHEN 'CREDIT' THEN amount ELSE -amount END), 0) * 100 AS BIGINT)
+                FROM ledger_entry
+                WHERE account_id = ? AND id > ?
+                """, Long.class, accountId, afterEntryId);
+    }
+
+    /**
+     * Two entries per payment in one statement: the customer DEBIT and the clearing CREDIT.
+     */
+    public void appendPayments(List<PaymentEntity> payments, int batchSize) {
+        jdbcTemplate.batchUpdate("""
+                INSERT INTO ledger_entry (payment_id, account_id, ledger_account, direction, amount, currency, created_at)
+                VALUES (?, ?, 'CUSTOMER', 'DEBIT', ?, ?, ?),
+                       (?, NULL, 'PAYMENT_CLEARING', 'CREDIT', ?, ?, ?)
+                """, payments, batchSize, (ps, p) -> {
+            ps.setObject(1, p.getId());
+            ps.setObject(2, p.getAccountId());
+            ps.setBigDecimal(3, Money.toDecimal(p.getAmount()));
+            ps.setString(4, p.getCurrency());
+            ps.setObject(5, utc(p.getCreatedAt()));
+            ps.setObject(6, p.getId());
+            ps.setBigDecimal(7, Money.toDecimal(p.getAmount()));
+            ps.setString(8, p.getCurrency());
+            ps.setObject(9, utc(p.getCreatedAt()));
+        });
+    }
+
+    /**
+     * Locks the account row and returns the entry its balance snapshot is at. Every ledger debit
+     * of the account holds the same lock, so once it is granted no entry of the account is in flight.
+     */
+    public Optional<Long> lockSnapshot(UUID accountId) {
+        return jdbcTemplate.query("""
+                SELECT balance_entry_id FROM account WHERE id = ? FOR UPDATE
+                """, (rs, rowNum) -> rs.getLong("balance_entry_id"), accountId).stream().findFirst();
+    }
+
+    /**
+     * Folds the entries after afterEntryId into account.balance. Must run after
+     * {@link #lockSnapshot(UUID)} in the same transaction, as a separate statement so its
+     * snapshot includes the entries committed while the lock was awaited.
+     *
+     * @return the number of entries folded
+     */
+    public long compact(UUID accountId, long afterEntryId) {
+        return jdbcTemplate.queryForObject("""
+                WITH folded AS (
+                    SELECT max(id) AS last_id,
+                           count(*) AS entries,
+                           sum(CASE direction WHEN 'CREDIT' THEN amount ELSE -amount END) AS delta
+                    FROM ledger_entry
+                    WHERE account_id = ? AND id > ?
+                ), updated AS (
+                    UPDATE account a
+                    SET balance = a.balance + f.delta,
+                        balance_entry_id = f.last_id,
+                        version = a.version + 1,
+                        updated_at = NOW()
+                    FROM folded f
+                    WHERE a.id = ? AND f.entries > 0
+                    RETURNING f.entries
+                )
+                SELECT coalesce((SELECT entries FROM updated), 0)
+                """, Long.class, accountId, afterEntryId, accountId);
+    }
+
+    /**
+     * Accounts with entries after the given id, with their last entry id. Range scan of the primary key.
+     */
+    public Map<UUID, Long> lastEntryIdByAccountAfter(long afterEntryId) {
+        Map<UUID, Long> lastEntryIds = new LinkedHashMap<>();
+        jdbcTemplate.query("""
+                SELECT account_id, max(id) AS last_id
+                FROM ledger_entry
+                WHERE id > ? AND account_id IS NOT NULL
+                GROUP BY account_id
+                """, rs -> {
+            lastEntryIds.put(rs.getObject("account_id", UUID.class), rs.getLong("last_id"));
+        }, afterEntryId);
+        return lastEntryIds;
+    }
+
+    /**
+     * Highest entry already folded into an account snapshot.
+     */
+    public long maxSnapshotEntryId() {
+        Long max = jdbcTemplate.queryForObject("SELECT max(balance_entry_id) FROM account", Long.class);
+        return max == null ? 0 : max;
+    }
+
+    private static OffsetDateTime utc(Instant instant) {
+        return instant.atOffset(ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,100 @@
+package com.alpian.paymentservice.persistence.repository;
+
+import com.alpian.paymentservice.outbox.model.OutboxFailure;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Set-based outbox acknowledgements: one statement per flush whatever the number of events,
+ * with the ids (and per-row values) bound as arrays.
+ */
+@Repository
+@RequiredArgsConstructor
+public class OutboxAckRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public int markSent(Collection<UUID> outboxIds, Instant processedAt) {
+        return jdbcTemplate.update("""
+                UPDATE outbox_event
+                SET event_status = 'SENT',
+                    processed_at = ?,
+                    processing_started_at = NULL
+                WHERE id = ANY(?)
+                """, ps -> {
+            ps.setObject(1, utc(processedAt));
+            ps.setArray(2, ps.getConnection().createArrayOf("uuid", outboxIds.toArray()));
+        });
+    }
+
+    /**
+     * Puts the events back to PENDING, not claimable before now + their retry delay.
+     */
+    public int markRetry(List<OutboxFailure> failures, List<Long> retryDelaysMs) {
+        Object[] ids = column(failures, OutboxFailure::outboxId);
+        Object[] attempts = column(failures, OutboxFailure::attemptCount);
+        Object[] errors = column(failures, OutboxFailure::error);
+
+        return jdbcTemplate.update("""
+                UPDATE outbox_event o
+                SET event_status = 'PENDING',
+                    attempt_count = f.attempt_count,
+                    last_error = f.last_error,
+                    next_attempt_at = LOCALTIMESTAMP + f.delay_ms * INTERVAL '1 millisecond',
+                    processing_started_at = NULL
+                FROM unnest(?, ?, ?, ?) AS f(id, attempt_count, last_error, delay_ms)
+                WHERE o.id = f.id
+                """, ps -> {
+            ps.setArray(1, ps.getConnection().createArrayOf("uuid", ids));
+            ps.setArray(2, ps.getConnection().createArrayOf("int4", attempts));
+            ps.setArray(3, ps.getConnection().createArrayOf("text", errors));
+            ps.setArray(4, ps.getConnection().createArrayOf("int8", retryDelaysMs.toArray()));
+        });
+    }
+
+    /**
+     * Moves the events out of outbox_event into outbox_dead_letter, in one statement.
+     */
+    public int moveToDeadLetter(List<OutboxFailure> failures, Instant deadLetteredAt) {
+        Object[] ids = column(failures, OutboxFailure::outboxId);
+        Object[] attempts = column(failures, OutboxFailure::attemptCount);
+        Object[] errors = column(failures, OutboxFailure::error);
+
+        return jdbcTemplate.update("""
+                WITH dead AS (
+                    DELETE FROM outbox_event o
+                    USING unnest(?, ?, ?) AS f(id, attempt_count, last_error)
+                    WHERE o.id = f.id
+                    RETURNING o.id, o.aggregate_type, o.aggregate_id, o.shard_key, o.event_type, o.payload,
+                              o.message_key, o.headers, f.attempt_count, f.last_error, o.created_at
+                )
+                INSERT INTO outbox_dead_letter (id, aggregate_type, aggregate_id, shard_key, event_type, payload,
+                                                message_key, headers, attempt_count, last_error, created_at, dead_lettered_at)
+                SELECT id, aggregate_type, aggregate_id, shard_key, event_type, payload,
+                       message_key, headers, attempt_count, last_error, created_at, ?
+                FROM dead
+                """, ps -> {
+            ps.setArray(1, ps.getConnection().createArrayOf("uuid", ids));
+            ps.setArray(2, ps.getConnection().createArrayOf("int4", attempts));
+            ps.setArray(3, ps.getConnection().createArrayOf("text", errors));
+            ps.setObject(4, utc(deadLetteredAt));
+        });
+    }
+
+    private static Object[] column(List<OutboxFailure> failures, Function<OutboxFailure, Object> value) {
+        return failures.stream().map(value).toArray();
+    }
+
+    private static OffsetDateTime utc(Instant instant) {
+        return instant.atOffset(ZoneOffset.UTC);
+    }
+}
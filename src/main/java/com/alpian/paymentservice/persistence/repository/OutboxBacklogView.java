@@ -0,0 +1,17 @@
+package com.alpian.paymentservice.persistence.repository;
+
+/**
+ * Backlog sample read by the adaptive outbox publisher.
+ */
+public interface OutboxBacklogView {
+
+    /**
+     * PENDING events, counted up to the sampling cap.
+     */
+    Long getPending();
+
+    /**
+     * Age of the oldest PENDING event, null when there is none.
+     */
+    Long getOldestAgeMs();
+}
@@ -0,0 +1,58 @@
+package com.alpian.paymentservice.persistence.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Outbox events that exhausted their attempts, parked out of the claim path until replayed.
+ */
+@Repository
+@RequiredArgsConstructor
+public class OutboxDeadLetterRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public Map<String, Long> countByEventType() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        jdbcTemplate.query("""
+                SELECT event_type, count(*) AS dead_letters
+                FROM outbox_dead_letter
+                GROUP BY event_type
+                ORDER BY event_type
+                """, rs -> {
+            counts.put(rs.getString("event_type"), rs.getLong("dead_letters"));
+        });
+        return counts;
+    }
+
+    /**
+     * Moves up to limit dead letters (oldest first, all types when eventType is null) back to
+     * outbox_event as fresh PENDING events: attempt count reset, claimable immediately.
+     *
+     * @return the number of events replayed
+     */
+    public int replay(String eventType, int limit) {
+        return jdbcTemplate.update("""
+                WITH replayed AS (
+                    DELETE FROM outbox_dead_letter
+                    WHERE id IN (SELECT id
+                                 FROM outbox_dead_letter
+                                 WHERE CAST(? AS VARCHAR) IS NULL OR event_type = ?
+                                 ORDER BY dead_lettered_at
+                                 LIMIT ?
+                                 FOR UPDATE SKIP LOCKED)
+                    RETURNING id, aggregate_type, aggregate_id, shard_key, event_type, payload, message_key, headers,
+                              last_error, created_at
+                )
+                INSERT INTO outbox_event (id, aggregate_type, aggregate_id, shard_key, event_type, event_status,
+                                          payload, message_key, headers, attempt_count, last_error, created_at)
+                SELECT id, aggregate_type, aggregate_id, shard_key, event_type, 'PENDING',
+                       payload, message_key, headers, 0, last_error, created_at
+                FROM replayed
+                """, eventType, eventType, limit);
+    }
+}
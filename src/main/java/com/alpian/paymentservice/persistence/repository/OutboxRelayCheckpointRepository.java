@@ -0,0 +1,34 @@
+package com.alpian.paymentservice.persistence.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Last transaction confirmed by the logical replication relay of a slot (LOGICAL_REPLICATION relay mode).
+ */
+@Repository
+@RequiredArgsConstructor
+public class OutboxRelayCheckpointRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void save(String slotName, String confirmedLsn, Instant committedAt) {
+        jdbcTemplate.update("""
+                INSERT INTO outbox_relay_checkpoint (slot_name, confirmed_lsn, committed_at, updated_at)
+                VALUES (?, CAST(? AS PG_LSN), ?, NOW())
+                ON CONFLICT (slot_name) DO UPDATE
+                SET confirmed_lsn = EXCLUDED.confirmed_lsn,
+                    committed_at = EXCLUDED.committed_at,
+                    updated_at = EXCLUDED.updated_at
+                """, slotName, confirmedLsn, utc(committedAt));
+    }
+
+    private static OffsetDateTime utc(Instant instant) {
+        return instant.atOffset(ZoneOffset.UTC);
+    }
+}
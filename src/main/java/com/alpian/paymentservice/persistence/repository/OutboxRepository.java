@@ -6,35 +6,143 @@ import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
 @Repository
 public interface OutboxRepository extends JpaRepository<OutboxEventEntity, UUID> {
 
+    /**
+     * Range scan of idx_outbox_event_pending_created: only PENDING rows, oldest first, all routed
+     * event types in one pass. Rows stuck in PROCESSING are not claimed here, OutboxReaper puts
+     * them back to PENDING. A row is held back while an earlier row of its shard_key is still in
+     * flight (PROCESSING, until acknowledged or reaped) or waits out its retry backoff
+     * (idx_outbox_event_unfinished), so the events of an account keep their order.
+     */
     @Query(value = """
     SELECT *
-    FROM outbox_event
-    WHERE event_type = :eventType
-      AND (
-            event_status = 'PENDING'
-         OR (event_status = 'PROCESSING'
-             AND processing_started_at IS NOT NULL
-             AND processing_started_at < (NOW() - (:timeoutSeconds || ' seconds')::interval)
-            )
-      )
+    FROM outbox_event o
+    WHERE event_type IN (:eventTypes)
+      AND event_status = 'PENDING'
+      AND (next_attempt_at IS NULL OR next_attempt_at <= LOCALTIMESTAMP)
+      AND NOT EXISTS (SELECT 1 FROM outbox_event b
+                      WHERE b.shard_key = o.shard_key
+                        AND (b.event_status = 'PROCESSING'
+                             OR (b.event_status = 'PENDING' AND b.next_attempt_at > LOCALTIMESTAMP))
+                        AND (b.created_at, b.id) < (o.created_at, o.id))
     ORDER BY created_at
     LIMIT :batchSize
     FOR UPDATE SKIP LOCKED
     """, nativeQuery = true)
-    List<OutboxEventEntity> lockNextBatchRecoverable(
-            @Param("eventType") String eventType,
-            @Param("batchSize") int batchSize,
-            @Param("timeoutSeconds") long timeoutSeconds
+    List<OutboxEventEntity> lockNextPendingBatch(
+            @Param("eventTypes") Collection<String> eventTypes,
+            @Param("batchSize") int batchSize
     );
 
+    /**
+     * Same claim as lockNextPendingBatch, restricted to the shard buckets of one worker: a bitmap
+     * scan of idx_outbox_event_pending_shard, so a worker never reads the rows of the others.
+     */
+    @Query(value = """
+    SELECT *
+    FROM outbox_event o
+    WHERE event_type IN (:eventTypes)
+      AND event_status = 'PENDING'
+      AND (next_attempt_at IS NULL OR next_attempt_at <= LOCALTIMESTAMP)
+      AND NOT EXISTS (SELECT 1 FROM outbox_event b
+                      WHERE b.shard_key = o.shard_key
+                        AND (b.event_status = 'PROCESSING'
+                             OR (b.event_status = 'PENDING' AND b.next_attempt_at > LOCALTIMESTAMP))
+                        AND (b.created_at, b.id) < (o.created_at, o.id))
+      AND shard IN (:buckets)
+    ORDER BY created_at
+    LIMIT :batchSize
+    FOR UPDATE SKIP LOCKED
+    """, nativeQuery = true)
+    List<OutboxEventEntity> lockNextPendingShardBatch(
+            @Param("eventTypes") Collection<String> eventTypes,
+            @Param("buckets") Collection<Integer> buckets,
+            @Param("batchSize") int batchSize
+    );
+
+    /**
+     * lockNextPendingBatch in id order: range scan of idx_outbox_event_pending_id.
+     */
+    @Query(value = """
+    SELECT *
+    FROM outbox_event o
+    WHERE event_type IN (:eventTypes)
+      AND event_status = 'PENDING'
+      AND (next_attempt_at IS NULL OR next_attempt_at <= LOCALTIMESTAMP)
+      AND NOT EXISTS (SELECT 1 FROM outbox_event b
+                      WHERE b.shard_key = o.shard_key
+                        AND (b.event_status = 'PROCESSING'
+                             OR (b.event_status = 'PENDING' AND b.next_attempt_at > LOCALTIMESTAMP))
+                        AND (b.created_at, b.id) < (o.created_at, o.id))
+    ORDER BY id
+    LIMIT :batchSize
+    FOR UPDATE SKIP LOCKED
+    """, nativeQuery = true)
+    List<OutboxEventEntity> lockNextPendingBatchById(
+            @Param("eventTypes") Collection<String> eventTypes,
+            @Param("batchSize") int batchSize
+    );
+
+    /**
+     * lockNextPendingShardBatch in id order.
+     */
+    @Query(value = """
+    SELECT *
+    FROM outbox_event o
+    WHERE event_type IN (:eventTypes)
+      AND event_status = 'PENDING'
+      AND (next_attempt_at IS NULL OR next_attempt_at <= LOCALTIMESTAMP)
+      AND NOT EXISTS (SELECT 1 FROM outbox_event b
+                      WHERE b.shard_key = o.shard_key
+                        AND (b.event_status = 'PROCESSING'
+                             OR (b.event_status = 'PENDING' AND b.next_attempt_at > LOCALTIMESTAMP))
+                        AND (b.created_at, b.id) < (o.created_at, o.id))
+      AND shard IN (:buckets)
+    ORDER BY id
+    LIMIT :batchSize
+    FOR UPDATE SKIP LOCKED
+    """, nativeQuery = true)
+    List<OutboxEventEntity> lockNextPendingShardBatchById(
+            @Param("eventTypes") Collection<String> eventTypes,
+            @Param("buckets") Collection<Integer> buckets,
+            @Param("batchSize") int batchSize
+    );
+
+    @Query(value = """
+    SELECT (SELECT count(*)
+            FROM (SELECT 1 FROM outbox_event WHERE event_status = 'PENDING' LIMIT :countCap) p) AS "pending",
+           (SELECT (EXTRACT(EPOCH FROM LOCALTIMESTAMP - min(created_at)) * 1000)::bigint
+            FROM outbox_event
+            WHERE event_status = 'PENDING'
+              AND (next_attempt_at IS NULL OR next_attempt_at <= LOCALTIMESTAMP)) AS "oldestAgeMs"
+    """, nativeQuery = true)
+    OutboxBacklogView sampleBacklog(@Param("countCap") int countCap);
+
+    /**
+     * sampleBacklog of one event type. The oldest due row is found by walking
+     * idx_outbox_event_pending_created from its start.
+     */
+    @Query(value = """
+    SELECT (SELECT count(*)
+            FROM (SELECT 1 FROM outbox_event
+                  WHERE event_status = 'PENDING' AND event_type = :eventType
+                  LIMIT :countCap) p) AS "pending",
+           (SELECT (EXTRACT(EPOCH FROM LOCALTIMESTAMP - min(created_at)) * 1000)::bigint
+            FROM outbox_event
+            WHERE event_status = 'PENDING'
+              AND event_type = :eventType
+              AND (next_attempt_at IS NULL OR next_attempt_at <= LOCALTIMESTAMP)) AS "oldestAgeMs"
+    """, nativeQuery = true)
+    OutboxBacklogView sampleBacklogOf(@Param("eventType") String eventType, @Param("countCap") int countCap);
+
     @Modifying
     @Query(value = """
         UPDATE outbox_event
@@ -45,43 +153,23 @@ public interface OutboxRepository extends JpaRepository<OutboxEventEntity, UUID>
         """, nativeQuery = true)
     int markProcessingAndIncrementAttempt(@Param("ids") List<UUID> ids);
 
+    /**
+     * Puts back to PENDING up to batchSize rows left in PROCESSING for longer than timeoutSeconds
+     * (publisher crashed or lost its acknowledgements). Rows being acknowledged right now are skipped.
+     */
+    @Transactional
     @Modifying
     @Query(value = """
         UPDATE outbox_event
-        SET event_status='SENT',
-        processed_at=:processedAt,
-        processing_started_at=NULL
-        WHERE id=:id
-        """, nativeQuery = true)
-    int updateStatusSent(@Param("id") UUID id, @Param("processedAt") Instant processedAt);
-
-    @Modifying
-    @Query(value = """
-        UPDATE outbox_event
-        SET event_status='FAILED',
-        attempt_count=:attemptCount,
-        last_error=:lastError,
-        processed_at=:processedAt,
-        processing_started_at=NULL
-        WHERE id=:id
-        """, nativeQuery = true)
-    int updateStatusFailed(@Param("id") UUID id,
-                           @Param("attemptCount") int attemptCount,
-                           @Param("lastError") String lastError,
-                           @Param("processedAt") Instant processedAt);
-
-    @Modifying
-    @Query(value = """
-        UPDATE outbox_event
-        SET event_status='PENDING',
-        attempt_count=:attemptCount,
-        last_error=:lastError,
-        processing_started_at=NULL
-        WHERE id=:id
+        SET event_status = 'PENDING',
+            processing_started_at = NULL,
+            last_error = 'Processing timed out'
+        WHERE id IN (SELECT id
+                     FROM outbox_event
+                     WHERE event_status = 'PROCESSING'
+                       AND processing_started_at < (NOW() - (:timeoutSeconds || ' seconds')::interval)
+                     LIMIT :batchSize
+                     FOR UPDATE SKIP LOCKED)
         """, nativeQuery = true)
-    int updateStatusRetry(@Param("id") UUID id,
-                          @Param("attemptCount") int attemptCount,
-                          @Param("lastError") String lastError);
-
+    int recoverTimedOutProcessing(@Param("timeoutSeconds") long timeoutSeconds, @Param("batchSize") int batchSize);
 }
-
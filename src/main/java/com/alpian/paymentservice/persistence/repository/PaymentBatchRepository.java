@@ -0,0 +1,111 @@
+package com.alpian.paymentservice.persistence.repository;
+
+import com.alpian.paymentservice.money.Money;
+import com.alpian.paymentservice.outbox.model.OutboxMessage;
+import com.alpian.paymentservice.persistence.entity.OutboxEventEntity;
+import com.alpian.paymentservice.persistence.entity.PaymentCommitOutcome;
+import com.alpian.paymentservice.persistence.entity.PaymentEntity;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Plain JDBC access for the bulk and group-commit payment paths: batched inserts (one round trip
+ * per chunk instead of per row) and savepoint-scoped calls that never mark the JPA transaction
+ * rollback-only.
+ */
+@Repository
+@RequiredArgsConstructor
+public class PaymentBatchRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Inserts the payments, skipping the ones whose (account_id, payment_id) already exists.
+     *
+     * @return one flag per payment, false when the row was skipped as a duplicate
+     */
+    public boolean[] insertPaymentsIgnoringDuplicates(List<PaymentEntity> payments, int batchSize) {
+        int[][] counts = jdbcTemplate.batchUpdate("""
+                INSERT INTO payment (id, account_id, amount, currency, payment_id, status, created_at)
+                VALUES (?, ?, ?, ?, ?, ?, ?)
+                ON CONFLICT (account_id, payment_id) DO NOTHING
+                """, payments, batchSize, (ps, p) -> {
+            ps.setObject(1, p.getId());
+            ps.setObject(2, p.getAccountId());
+            ps.setBigDecimal(3, Money.toDecimal(p.getAmount()));
+            ps.setString(4, p.getCurrency());
+            ps.setObject(5, p.getPaymentId());
+            ps.setString(6, p.getStatus().name());
+            ps.setObject(7, utc(p.getCreatedAt()));
+        });
+
+        boolean[] inserted = new boolean[payments.size()];
+        int i = 0;
+        for (int[] chunk : counts) {
+            for (int count : chunk) {
+                inserted[i++] = count != 0;
+            }
+        }
+        return inserted;
+    }
+
+    public void insertOutboxEvents(List<OutboxEventEntity> events, int batchSize) {
+        jdbcTemplate.batchUpdate("""
+                INSERT INTO outbox_event (id, aggregate_type, aggregate_id, shard_key, event_type, event_status,
+                                          payload, message_key, headers, created_at)
+                VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+                """, events, batchSize, (ps, e) -> {
+            ps.setObject(1, e.getId());
+            ps.setString(2, e.getAggregateType());
+            ps.setObject(3, e.getAggregateId());
+            ps.setObject(4, e.getShardKey());
+            ps.setString(5, e.getEventType().name());
+            ps.setString(6, e.getEventStatus().name());
+            ps.setBytes(7, e.getPayload());
+            ps.setString(8, e.getMessageKey());
+            ps.setBytes(9, e.getHeaders());
+            ps.setObject(10, utc(e.getCreatedAt()));
+        });
+    }
+
+    /**
+     * Calls create_payment_single_statement inside a savepoint of the current transaction, so an
+     * unexpected SQL error only undoes this payment and leaves the rest of the group intact.
+     */
+    public SingleStatementResult commitSingleStatementInSavepoint(UUID accountId, UUID userId, UUID paymentId,
+                                                                  BigDecimal amount, String currency,
+                                                                  Instant createdAt, OutboxMessage message) {
+        jdbcTemplate.execute("SAVEPOINT group_commit_item");
+        try {
+            SingleStatementResult result = jdbcTemplate.queryForObject("""
+                    SELECT r.result_code, r.payment_internal_id
+                    FROM create_payment_single_statement(?, ?, ?, ?, ?, ?, ?, ?, ?) r
+                    """, (rs, rowNum) -> new SingleStatementResult(
+                            PaymentCommitOutcome.valueOf(rs.getString(1)), rs.getObject(2, UUID.class)),
+                    accountId, userId, paymentId, amount, currency, utc(createdAt),
+                    message.value(), message.key(), message.headers());
+            jdbcTemplate.execute("RELEASE SAVEPOINT group_commit_item");
+            return result;
+        } catch (RuntimeException ex) {
+            jdbcTemplate.execute("ROLLBACK TO SAVEPOINT group_commit_item");
+            throw ex;
+        }
+    }
+
+    public record SingleStatementResult(PaymentCommitOutcome outcome, UUID paymentInternalId) {}
+
+    /**
+     * Same binding as Hibernate uses for Instant: a UTC timestamp converted by the session time zone.
+     */
+    private static OffsetDateTime utc(Instant instant) {
+        return instant.atOffset(ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,13 @@
+package com.alpian.paymentservice.persistence.repository;
+
+import java.util.UUID;
+
+/**
+ * Projection of the row returned by create_payment_single_statement.
+ */
+public interface PaymentCommitResult {
+
+    String getResultCode();
+
+    UUID getPaymentInternalId();
+}
@@ -1,11 +1,79 @@
 package com.alpian.paymentservice.persistence.repository;
 
 import com.alpian.paymentservice.persistence.entity.PaymentEntity;
+import com.alpian.paymentservice.persistence.entity.PaymentStatus;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 @Repository
 public interface PaymentRepository extends JpaRepository<PaymentEntity, UUID> {
+
+    /**
+     * Runs the whole payment flow in one round trip (see V2__create_payment_single_statement.sql).
+     * The function writes, so the query must never run in the read-only default of query methods.
+     */
+    @Transactional
+    @Query(value = """
+        SELECT r.result_code AS "resultCode",
+               r.payment_internal_id AS "paymentInternalId"
+        FROM create_payment_single_statement(
+                :accountId, :userId, :paymentId, :amount, :currency, :createdAt,
+                :payload, :messageKey, :headers) r
+        """, nativeQuery = true)
+    PaymentCommitResult commitSingleStatement(@Param("accountId") UUID accountId,
+                                              @Param("userId") UUID userId,
+                                              @Param("paymentId") UUID paymentId,
+                                              @Param("amount") BigDecimal amount,
+                                              @Param("currency") String currency,
+                                              @Param("createdAt") Instant createdAt,
+                                              @Param("payload") byte[] payload,
+                                              @Param("messageKey") String messageKey,
+                                              @Param("headers") byte[] headers);
+
+    @Query(value = """
+        SELECT p
+        FROM PaymentEntity p
+        WHERE p.accountId = :accountId AND p.paymentId IN :paymentIds
+        """)
+    List<PaymentEntity> findExistingPayments(@Param("accountId") UUID accountId,
+                                             @Param("paymentIds") Collection<UUID> paymentIds);
+
+    /**
+     * Inserts the payment unless (account_id, payment_id) already exists.
+     * Empty means the payment id was already used: no exception, the transaction stays usable.
+     */
+    @Transactional
+    @Query(value = """
+        INSERT INTO payment (account_id, amount, currency, payment_id, status, created_at)
+        VALUES (:accountId, :amount, :currency, :paymentId, :status, :createdAt)
+        ON CONFLICT (account_id, payment_id) DO NOTHING
+        RETURNING id
+        """, nativeQuery = true)
+    Optional<UUID> insertIfAbsent(@Param("accountId") UUID accountId,
+                                  @Param("amount") BigDecimal amount,
+                                  @Param("currency") String currency,
+                                  @Param("paymentId") UUID paymentId,
+                                  @Param("status") String status,
+                                  @Param("createdAt") Instant createdAt);
+
+    Optional<PaymentEntity> findByAccountIdAndPaymentId(UUID accountId, UUID paymentId);
+
+    @Modifying
+    @Query(value = """
+        UPDATE PaymentEntity p
+        SET p.status = :status
+        WHERE p.id = :id
+        """)
+    int updateStatus(@Param("id") UUID id, @Param("status") PaymentStatus status);
 }
@@ -0,0 +1,122 @@
+package com.alpian.paymentservice.service;
+
+import com.alpian.paymentservice.config.PaymentProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * Per-account conflict rate of optimistic debits. The rate is an exponentially weighted average
+ * of attempt outcomes that also decays with time, so an account that went pessimistic (and
+ * therefore stopped producing optimistic attempts) drifts back to the optimistic path.
+ */
+@Slf4j
+@Component
+public class AccountContentionTracker {
+
+    private static final double ATTEMPT_WEIGHT = 0.2;
+    private static final double IDLE_RATE = 0.001;
+
+    private final PaymentProperties paymentProperties;
+    private final LongSupplier nanoClock;
+    private final ConcurrentHashMap<UUID, Contention> accounts = new ConcurrentHashMap<>();
+    private final AtomicInteger pessimisticAccounts = new AtomicInteger();
+
+    @Autowired
+    public AccountContentionTracker(PaymentProperties paymentProperties, MeterRegistry meterRegistry) {
+        this(paymentProperties, meterRegistry, System::nanoTime);
+    }
+
+    AccountContentionTracker(PaymentProperties paymentProperties, MeterRegistry meterRegistry, LongSupplier nanoClock) {
+        this.paymentProperties = paymentProperties;
+        this.nanoClock = nanoClock;
+
+        Gauge.builder("payment.account.locking.accounts", pessimisticAccounts, AtomicInteger::get)
+                .description("Tracked accounts per debit locking mode")
+                .tag("mode", "pessimistic")
+                .register(meterRegistry);
+        Gauge.builder("payment.account.locking.accounts", this, t -> t.accounts.size() - t.pessimisticAccounts.get())
+                .description("Tracked accounts per debit locking mode")
+                .tag("mode", "optimistic")
+                .register(meterRegistry);
+    }
+
+    public boolean isPessimistic(UUID accountId) {
+        Contention contention = accounts.get(accountId);
+        if (contention == null) return false;
+
+        synchronized (contention) {
+            decay(contention);
+            updateMode(accountId, contention);
+            return contention.pessimistic;
+        }
+    }
+
+    public void recordAttempt(UUID accountId, boolean conflict) {
+        Contention contention = accounts.computeIfAbsent(accountId, id -> new Contention(nanoClock.getAsLong()));
+
+        synchronized (contention) {
+            decay(contention);
+            contention.rate = contention.rate * (1 - ATTEMPT_WEIGHT) + (conflict ? ATTEMPT_WEIGHT : 0);
+            updateMode(accountId, contention);
+        }
+    }
+
+    /**
+     * Forgets quiet optimistic accounts so the map only holds accounts that saw contention recently.
+     */
+    @Scheduled(fixedDelayString = "${payment.locking.conflict-rate-half-life-ms:10000}")
+    public void evictIdleAccounts() {
+        accounts.entrySet().removeIf(entry -> {
+            Contention contention = entry.getValue();
+            synchronized (contention) {
+                decay(contention);
+                updateMode(entry.getKey(), contention);
+                return !contention.pessimistic && contention.rate < IDLE_RATE;
+            }
+        });
+    }
+
+    private void decay(Contention contention) {
+        long now = nanoClock.getAsLong();
+        long elapsedNanos = now - contention.lastUpdateNanos;
+        contention.lastUpdateNanos = now;
+
+        long halfLifeNanos = paymentProperties.getLocking().getConflictRateHalfLifeMs() * 1_000_000L;
+        if (elapsedNanos > 0 && halfLifeNanos > 0) {
+            contention.rate *= Math.pow(0.5, (double) elapsedNanos / halfLifeNanos);
+        }
+    }
+
+    private void updateMode(UUID accountId, Contention contention) {
+        PaymentProperties.Locking locking = paymentProperties.getLocking();
+
+        if (!contention.pessimistic && contention.rate > locking.getPessimisticEnterRate()) {
+            contention.pessimistic = true;
+            pessimisticAccounts.incrementAndGet();
+            log.info("Account moved to pessimistic debits: accountId={}, conflictRate={}", accountId, contention.rate);
+        } else if (contention.pessimistic && contention.rate < locking.getPessimisticExitRate()) {
+            contention.pessimistic = false;
+            pessimisticAccounts.decrementAndGet();
+            log.info("Account moved back to optimistic debits: accountId={}, conflictRate={}", accountId, contention.rate);
+        }
+    }
+
+    private static final class Contention {
+        double rate;
+        long lastUpdateNanos;
+        boolean pessimistic;
+
+        Contention(long nowNanos) {
+            this.lastUpdateNanos = nowNanos;
+        }
+    }
+}
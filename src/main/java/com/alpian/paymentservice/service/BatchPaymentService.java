@@ -0,0 +1,123 @@
+package com.alpian.paymentservice.service;
+
+import com.alpian.paymentservice.api.dto.BatchItemStatus;
+import com.alpian.paymentservice.api.dto.BatchPaymentItemResult;
+import com.alpian.paymentservice.api.dto.BatchPaymentResponse;
+import com.alpian.paymentservice.api.dto.PaymentRequest;
+import com.alpian.paymentservice.api.dto.PaymentResponse;
+import com.alpian.paymentservice.api.exception.AccountNotFoundOrForbiddenException;
+import com.alpian.paymentservice.api.exception.BatchTooLargeException;
+import com.alpian.paymentservice.api.exception.DuplicatePaymentException;
+import com.alpian.paymentservice.api.exception.InsufficientFundsException;
+import com.alpian.paymentservice.config.PaymentProperties;
+import com.alpian.paymentservice.engine.AccountEngine;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class BatchPaymentService {
+
+    private final BatchPaymentTxService batchPaymentTxService;
+    private final AccountEngine accountEngine;
+    private final PaymentProperties paymentProperties;
+
+    public BatchPaymentResponse createPayments(List<PaymentRequest> requests, UUID userId) {
+        log.info("Batch payment requested: userId={}, items={}", userId, requests.size());
+        int maxItems = paymentProperties.getBatch().getMaxItems();
+        if (requests.size() > maxItems) {
+            throw new BatchTooLargeException("Batch of " + requests.size() + " items exceeds the maximum of " + maxItems);
+        }
+
+        BatchItemStatus[] statuses = accountEngine.isEnabled()
+                ? submitToEngine(requests, userId)
+                : processByAccount(requests, userId);
+
+        List<BatchPaymentItemResult> results = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            PaymentRequest request = requests.get(i);
+            results.add(new BatchPaymentItemResult(i, request.accountId(), request.paymentId(), statuses[i]));
+        }
+        return new BatchPaymentResponse(results);
+    }
+
+    /**
+     * Groups the items by account and runs one transaction per account, in order of first appearance.
+     * A failing account group only fails its own items.
+     */
+    private BatchItemStatus[] processByAccount(List<PaymentRequest> requests, UUID userId) {
+        Map<UUID, List<Integer>> indexesByAccount = new LinkedHashMap<>();
+        for (int i = 0; i < requests.size(); i++) {
+            indexesByAccount.computeIfAbsent(requests.get(i).accountId(), id -> new ArrayList<>()).add(i);
+        }
+
+        BatchItemStatus[] statuses = new BatchItemStatus[requests.size()];
+        indexesByAccount.forEach((accountId, indexes) -> {
+            List<PaymentRequest> group = indexes.stream().map(requests::get).toList();
+
+            List<BatchItemStatus> groupStatuses;
+            try {
+                groupStatuses = batchPaymentTxService.processAccountGroup(accountId, userId, group);
+            } catch (Exception ex) {
+                log.error("Batch account group failed: accountId={}, items={}", accountId, group.size(), ex);
+                groupStatuses = Collections.nCopies(group.size(), BatchItemStatus.FAILED);
+            }
+
+            for (int k = 0; k < indexes.size(); k++) {
+                statuses[indexes.get(k)] = groupStatuses.get(k);
+            }
+        });
+        return statuses;
+    }
+
+    /**
+     * Engine mode: every item is published to the partition of its account before any result is
+     * awaited, so the partitions apply them in parallel. A payment id repeated within the submission
+     * is a duplicate; an identical payment already stored is replayed as COMPLETED.
+     */
+    private BatchItemStatus[] submitToEngine(List<PaymentRequest> requests, UUID userId) {
+        BatchItemStatus[] statuses = new BatchItemStatus[requests.size()];
+        List<CompletableFuture<PaymentResponse>> results = new ArrayList<>(requests.size());
+        Map<UUID, Set<UUID>> seenPaymentIds = new HashMap<>();
+        for (int i = 0; i < requests.size(); i++) {
+            PaymentRequest request = requests.get(i);
+            if (seenPaymentIds.computeIfAbsent(request.accountId(), id -> new HashSet<>()).add(request.paymentId())) {
+                results.add(accountEngine.submitAsync(request, userId));
+            } else {
+                statuses[i] = BatchItemStatus.DUPLICATE;
+                results.add(null);
+            }
+        }
+
+        for (int i = 0; i < requests.size(); i++) {
+            if (results.get(i) != null) {
+                statuses[i] = engineStatus(requests.get(i), results.get(i));
+            }
+        }
+        return statuses;
+    }
+
+    private static BatchItemStatus engineStatus(PaymentRequest request, CompletableFuture<PaymentResponse> result) {
+        try {
+            result.join();
+            return BatchItemStatus.COMPLETED;
+        } catch (CompletionException ex) {
+            return switch (ex.getCause()) {
+                case DuplicatePaymentException e -> BatchItemStatus.DUPLICATE;
+                case InsufficientFundsException e -> BatchItemStatus.INSUFFICIENT_FUNDS;
+                case AccountNotFoundOrForbiddenException e -> BatchItemStatus.FORBIDDEN;
+                default -> {
+                    log.error("Batch item failed in the engine: accountId={}, paymentId={}",
+                            request.accountId(), request.paymentId(), ex.getCause());
+                    yield BatchItemStatus.FAILED;
+                }
+            };
+        }
+    }
+}
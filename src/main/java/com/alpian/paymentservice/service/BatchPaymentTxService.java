@@ -0,0 +1,165 @@
+package com.alpian.paymentservice.service;
+
+import com.alpian.paymentservice.api.dto.BatchItemStatus;
+import com.alpian.paymentservice.api.dto.PaymentRequest;
+import com.alpian.paymentservice.config.PaymentProperties;
+import com.alpian.paymentservice.kafka.PaymentNotification;
+import com.alpian.paymentservice.kafka.PaymentNotificationEncoder;
+import com.alpian.paymentservice.money.Money;
+import com.alpian.paymentservice.outbox.model.OutboxMessage;
+import com.alpian.paymentservice.persistence.entity.*;
+import com.alpian.paymentservice.persistence.id.UuidV7;
+import com.alpian.paymentservice.persistence.repository.AccountRepository;
+import com.alpian.paymentservice.persistence.repository.PaymentBatchRepository;
+import com.alpian.paymentservice.persistence.repository.PaymentRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * Processes all the items of a bulk submission that target the same account in one transaction:
+ * one account lock, one duplicate lookup, batched inserts and a single debit.
+ * Each item is decided on its own, so one rejected item never rolls back the others. A payment id
+ * already stored for the account is replayed as COMPLETED when amount and currency are identical,
+ * like the single endpoint does, and is a DUPLICATE otherwise.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class BatchPaymentTxService {
+
+    private static final int EXISTING_LOOKUP_CHUNK = 1000;
+
+    private final AccountRepository accountRepository;
+    private final PaymentRepository paymentRepository;
+    private final PaymentBatchRepository paymentBatchRepository;
+    private final StripedBalanceService stripedBalanceService;
+    private final LedgerService ledgerService;
+    private final PaymentNotificationEncoder notificationEncoder;
+    private final PaymentProperties paymentProperties;
+
+    @Transactional
+    public List<BatchItemStatus> processAccountGroup(UUID accountId, UUID userId, List<PaymentRequest> requests) {
+        Optional<AccountEntity> locked = accountRepository.findForUpdate(accountId, userId);
+        if (locked.isEmpty()) {
+            log.warn("Batch items rejected, account not found or not owned by user: accountId={}, userId={}, items={}",
+                    accountId, userId, requests.size());
+            return Collections.nCopies(requests.size(), BatchItemStatus.FORBIDDEN);
+        }
+
+        AccountEntity account = locked.get();
+        boolean striped = account.isStriped() && paymentProperties.getStriping().isEnabled();
+        boolean ledger = !striped && ledgerService.isEnabled();
+        long available = striped
+                ? Money.minorUnits(stripedBalanceService.lockBalance(account))
+                : ledger ? ledgerService.lockedBalance(account) : account.getBalance();
+
+        Instant now = Instant.now();
+        Map<UUID, PaymentEntity> stored = findExistingPayments(accountId,
+                requests.stream().map(PaymentRequest::paymentId).distinct().toList());
+        Set<UUID> seenPaymentIds = new HashSet<>();
+        BatchItemStatus[] statuses = new BatchItemStatus[requests.size()];
+        List<PaymentEntity> accepted = new ArrayList<>();
+        List<Integer> acceptedIndexes = new ArrayList<>();
+
+        for (int i = 0; i < requests.size(); i++) {
+            PaymentRequest request = requests.get(i);
+            if (!seenPaymentIds.add(request.paymentId())) {
+                statuses[i] = BatchItemStatus.DUPLICATE;
+            } else if (stored.containsKey(request.paymentId())) {
+                statuses[i] = replayStatus(stored.get(request.paymentId()), request.money().minorUnits(), request.currency());
+            } else if (available < request.money().minorUnits()) {
+                statuses[i] = BatchItemStatus.INSUFFICIENT_FUNDS;
+            } else {
+                available -= request.money().minorUnits();
+                accepted.add(PaymentEntity.builder()
+                        .id(UuidV7.next())
+                        .accountId(accountId)
+                        .amount(request.money().minorUnits())
+                        .currency(request.currency())
+                        .paymentId(request.paymentId())
+                        .status(PaymentStatus.COMPLETED)
+                        .createdAt(now)
+                        .build());
+                acceptedIndexes.add(i);
+            }
+        }
+
+        int batchSize = paymentProperties.getBatch().getJdbcBatchSize();
+
+        // Paths that do not take the account lock (optimistic, striped) may have inserted the same
+        // payment id concurrently: those rows are skipped by ON CONFLICT and compared to the stored one.
+        boolean[] inserted = paymentBatchRepository.insertPaymentsIgnoringDuplicates(accepted, batchSize);
+        List<UUID> skippedPaymentIds = new ArrayList<>();
+        for (int j = 0; j < accepted.size(); j++) {
+            if (!inserted[j]) skippedPaymentIds.add(accepted.get(j).getPaymentId());
+        }
+        Map<UUID, PaymentEntity> storedConcurrently = findExistingPayments(accountId, skippedPaymentIds);
+
+        long debit = 0;
+        List<PaymentEntity> debited = new ArrayList<>(accepted.size());
+        List<OutboxEventEntity> events = new ArrayList<>(accepted.size());
+        for (int j = 0; j < accepted.size(); j++) {
+            PaymentEntity payment = accepted.get(j);
+            if (!inserted[j]) {
+                statuses[acceptedIndexes.get(j)] = replayStatus(storedConcurrently.get(payment.getPaymentId()),
+                        payment.getAmount(), payment.getCurrency());
+                continue;
+            }
+            statuses[acceptedIndexes.get(j)] = BatchItemStatus.COMPLETED;
+            debit += payment.getAmount();
+            debited.add(payment);
+            OutboxMessage message = notificationEncoder.encode(PaymentNotification.from(payment));
+            events.add(OutboxEventEntity.builder()
+                    .id(UuidV7.next())
+                    .aggregateType("PAYMENT")
+                    .aggregateId(payment.getId())
+                    .shardKey(accountId)
+                    .eventType(EventType.PAYMENT_CREATED)
+                    .eventStatus(EventStatus.PENDING)
+                    .payload(message.value())
+                    .messageKey(message.key())
+                    .headers(message.headers())
+                    .createdAt(now)
+                    .build());
+        }
+
+        if (debit > 0) {
+            if (striped) {
+                stripedBalanceService.debitLockedStripes(accountId, Money.toDecimal(debit));
+            } else if (ledger) {
+                ledgerService.appendLocked(debited);
+            } else {
+                account.setBalance(account.getBalance() - debit);
+                accountRepository.save(account);
+            }
+        }
+
+        paymentBatchRepository.insertOutboxEvents(events, batchSize);
+
+        log.info("Batch account group processed: accountId={}, items={}, completed={}, debitedMinor={}",
+                accountId, requests.size(), events.size(), debit);
+
+        return Arrays.asList(statuses);
+    }
+
+    private static BatchItemStatus replayStatus(PaymentEntity stored, long amountMinor, String currency) {
+        return stored != null && stored.getAmount() == amountMinor && stored.getCurrency().equals(currency)
+                ? BatchItemStatus.COMPLETED
+                : BatchItemStatus.DUPLICATE;
+    }
+
+    private Map<UUID, PaymentEntity> findExistingPayments(UUID accountId, List<UUID> paymentIds) {
+        Map<UUID, PaymentEntity> existing = new HashMap<>();
+        for (int from = 0; from < paymentIds.size(); from += EXISTING_LOOKUP_CHUNK) {
+            List<UUID> chunk = paymentIds.subList(from, Math.min(from + EXISTING_LOOKUP_CHUNK, paymentIds.size()));
+            paymentRepository.findExistingPayments(accountId, chunk)
+                    .forEach(payment -> existing.put(payment.getPaymentId(), payment));
+        }
+        return existing;
+    }
+}
@@ -1,33 +0,0 @@
-package com.alpian.paymentservice.service;
-
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import lombok.RequiredArgsConstructor;
-import lombok.extern.slf4j.Slf4j;
-import org.springframework.stereotype.Service;
-
-@Slf4j
-@Service
-@RequiredArgsConstructor
-public class JsonService {
-
-    private final ObjectMapper objectMapper;
-
-    public String toJson(Object value) {
-        try {
-            return objectMapper.writeValueAsString(value);
-        } catch (JsonProcessingException e) {
-            log.error("Failed to serialize object to JSON: {}", value, e);
-            throw new IllegalStateException("Failed to serialize object to JSON", e);
-        }
-    }
-
-    public <T> T fromJson(String json, Class<T> valueType) {
-        try {
-            return objectMapper.readValue(json, valueType);
-        } catch (JsonProcessingException e) {
-            log.error("Failed to deserialize JSON to {}: {}", valueType.getSimpleName(), json, e);
-            throw new IllegalStateException("Failed to deserialize JSON", e);
-        }
-    }
-}
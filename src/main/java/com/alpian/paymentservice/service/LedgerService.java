@@ -0,0 +1,101 @@
+package com.alpian.paymentservice.service;
+
+import com.alpian.paymentservice.api.exception.InsufficientFundsException;
+import com.alpian.paymentservice.config.PaymentProperties;
+import com.alpian.paymentservice.persistence.entity.AccountEntity;
+import com.alpian.paymentservice.persistence.entity.PaymentEntity;
+import com.alpian.paymentservice.persistence.repository.LedgerEntryRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Ledger balance mode (payment.ledger.enabled): a debit appends a DEBIT/CREDIT pair to
+ * ledger_entry instead of rewriting account.balance. The balance of an account is its snapshot
+ * (account.balance as of account.balance_entry_id) plus the entries after it; compact() folds
+ * those entries into the snapshot in the background.
+ * Debits still serialize on the account row lock (FOR UPDATE marks the row, it writes no new
+ * version), which keeps the overdraft check exact: under the lock every earlier entry of the
+ * account is committed and visible to the balance read.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class LedgerService {
+
+    private final LedgerEntryRepository ledgerEntryRepository;
+    private final PaymentProperties paymentProperties;
+
+    /**
+     * The single statement function, group commit and version-checked debits update
+     * account.balance without looking at the ledger: they would overdraw ledger accounts.
+     */
+    @PostConstruct
+    void checkCompatibleModes() {
+        if (!isEnabled()) return;
+
+        if (paymentProperties.getCommitMode() != PaymentProperties.CommitMode.JPA
+                || paymentProperties.getGroupCommit().isEnabled()
+                || paymentProperties.getLocking().getMode() != PaymentProperties.LockingMode.PESSIMISTIC) {
+            throw new IllegalStateException(
+                    "payment.ledger.enabled requires commit-mode JPA, locking.mode PESSIMISTIC and group-commit disabled");
+        }
+    }
+
+    public boolean isEnabled() {
+        return paymentProperties.getLedger().isEnabled();
+    }
+
+    /**
+     * Balance, in minor units, of an account whose row the caller has locked in this transaction.
+     */
+    public long lockedBalance(AccountEntity lockedAccount) {
+        return lockedAccount.getBalance()
+                + ledgerEntryRepository.sumAfter(lockedAccount.getId(), lockedAccount.getBalanceEntryId());
+    }
+
+    /**
+     * Runs inside the payment transaction, the account row locked by the caller.
+     */
+    @Transactional
+    public void debitOrThrow(AccountEntity lockedAccount, PaymentEntity payment, UUID userId) {
+        long balance = lockedBalance(lockedAccount);
+        if (balance < payment.getAmount()) {
+            log.warn("Debit rejected (insufficient funds): accountId={}, userId={}, balanceMinor={}, amountMinor={}",
+                    lockedAccount.getId(), userId, balance, payment.getAmount());
+            throw new InsufficientFundsException("Insufficient funds");
+        }
+
+        ledgerEntryRepository.appendPayments(List.of(payment), 1);
+
+        log.info("Ledger debit appended: accountId={}, paymentInternalId={}, amountMinor={}, newBalanceMinor={}",
+                lockedAccount.getId(), payment.getId(), payment.getAmount(), balance - payment.getAmount());
+    }
+
+    /**
+     * Bulk submission: payments already checked against {@link #lockedBalance(AccountEntity)}
+     * under the same lock.
+     */
+    @Transactional
+    public void appendLocked(List<PaymentEntity> payments) {
+        ledgerEntryRepository.appendPayments(payments, paymentProperties.getBatch().getJdbcBatchSize());
+    }
+
+    /**
+     * Folds the entries of the account into its snapshot: one account update per compaction
+     * instead of one per payment.
+     *
+     * @return the number of entries folded
+     */
+    @Transactional
+    public long compact(UUID accountId) {
+        return ledgerEntryRepository.lockSnapshot(accountId)
+                .map(snapshotEntryId -> ledgerEntryRepository.compact(accountId, snapshotEntryId))
+                .orElse(0L);
+    }
+}
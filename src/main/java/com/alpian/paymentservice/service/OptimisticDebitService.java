@@ -0,0 +1,106 @@
+package com.alpian.paymentservice.service;
+
+import com.alpian.paymentservice.api.exception.AccountNotFoundOrForbiddenException;
+import com.alpian.paymentservice.api.exception.InsufficientFundsException;
+import com.alpian.paymentservice.config.PaymentProperties;
+import com.alpian.paymentservice.money.Money;
+import com.alpian.paymentservice.persistence.repository.AccountBalanceView;
+import com.alpian.paymentservice.persistence.repository.AccountRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Version-checked debit: no row lock is held between reading the balance and applying the debit.
+ */
+@Slf4j
+@Service
+public class OptimisticDebitService {
+
+    private final AccountRepository accountRepository;
+    private final AccountContentionTracker contentionTracker;
+    private final PaymentProperties paymentProperties;
+    private final Counter retries;
+    private final Counter fallbacks;
+    private final DistributionSummary attemptsPerDebit;
+
+    public OptimisticDebitService(AccountRepository accountRepository,
+                                  AccountContentionTracker contentionTracker,
+                                  PaymentProperties paymentProperties,
+                                  MeterRegistry meterRegistry) {
+        this.accountRepository = accountRepository;
+        this.contentionTracker = contentionTracker;
+        this.paymentProperties = paymentProperties;
+        this.retries = Counter.builder("payment.account.optimistic.retries")
+                .description("Optimistic debits retried after a version conflict")
+                .register(meterRegistry);
+        this.fallbacks = Counter.builder("payment.account.optimistic.fallbacks")
+                .description("Optimistic debits that exhausted their retries and took the account lock")
+                .register(meterRegistry);
+        this.attemptsPerDebit = DistributionSummary.builder("payment.account.optimistic.attempts")
+                .description("Version-checked UPDATE attempts per optimistic debit")
+                .register(meterRegistry);
+    }
+
+    /**
+     * True when the account should skip SELECT ... FOR UPDATE and try a version-checked debit.
+     */
+    public boolean appliesTo(UUID accountId) {
+        return paymentProperties.getLocking().getMode() == PaymentProperties.LockingMode.ADAPTIVE
+                && !contentionTracker.isPessimistic(accountId);
+    }
+
+    public AccountBalanceView readOrThrow(UUID accountId, UUID userId) {
+        return accountRepository.findBalanceView(accountId, userId)
+                .orElseThrow(() -> {
+                    log.warn("Account not found or not owned by user: accountId={}, userId={}", accountId, userId);
+                    return new AccountNotFoundOrForbiddenException("Account not found or not owned by user");
+                });
+    }
+
+    /**
+     * Applies the debit with bounded retries on version conflicts. The amount is in minor units.
+     *
+     * @return false when the retries are exhausted, the caller then takes the pessimistic path
+     */
+    @Transactional
+    public boolean tryDebitOrThrow(UUID accountId, UUID userId, AccountBalanceView snapshot, long amount) {
+        int maxRetries = paymentProperties.getLocking().getMaxOptimisticRetries();
+        AccountBalanceView current = snapshot;
+
+        for (int attempt = 1; ; attempt++) {
+            if (current.getBalance() < amount) {
+                attemptsPerDebit.record(attempt);
+                log.warn("Debit rejected (insufficient funds): accountId={}, userId={}, balanceMinor={}, amountMinor={}",
+                        accountId, userId, current.getBalance(), amount);
+                throw new InsufficientFundsException("Insufficient funds");
+            }
+
+            int updated = accountRepository.debitIfVersionMatches(accountId, Money.toDecimal(amount), current.getVersion(), Instant.now());
+            boolean conflict = updated == 0;
+            contentionTracker.recordAttempt(accountId, conflict);
+
+            if (!conflict) {
+                attemptsPerDebit.record(attempt);
+                log.info("Account debited optimistically: accountId={}, amountMinor={}, attempt={}", accountId, amount, attempt);
+                return true;
+            }
+
+            if (attempt > maxRetries) {
+                attemptsPerDebit.record(attempt);
+                fallbacks.increment();
+                log.info("Optimistic debit retries exhausted, falling back to account lock: accountId={}", accountId);
+                return false;
+            }
+
+            retries.increment();
+            current = readOrThrow(accountId, userId);
+        }
+    }
+}
@@ -1,10 +1,11 @@
 package com.alpian.paymentservice.service;
 
-import com.alpian.paymentservice.kafka.PaymentNotification;
+import com.alpian.paymentservice.outbox.OutboxEventRouter;
+import com.alpian.paymentservice.outbox.model.OutboxFailure;
 import com.alpian.paymentservice.outbox.model.OutboxPublisherProperties;
 import com.alpian.paymentservice.persistence.entity.EventStatus;
-import com.alpian.paymentservice.persistence.entity.EventType;
 import com.alpian.paymentservice.persistence.entity.OutboxEventEntity;
+import com.alpian.paymentservice.persistence.repository.OutboxAckRepository;
 import com.alpian.paymentservice.persistence.repository.OutboxRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -12,21 +13,64 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class OutboxTxService {
 
+    static final int SHARD_BUCKETS = 1024;
+
     private final OutboxRepository outboxRepository;
+    private final OutboxAckRepository outboxAckRepository;
     private final OutboxPublisherProperties props;
-    private final JsonService jsonService;
+    private final OutboxEventRouter router;
 
+    /**
+     * Claims the oldest pending events of every routed event type in one query.
+     */
     @Transactional
     public List<OutboxEventEntity> claimBatch() {
-        var outboxEvents = outboxRepository.lockNextBatchRecoverable(EventType.PAYMENT_CREATED.name(), props.getBatchSize(), props.getProcessingTimeoutSeconds());
+        var outboxEvents = byId()
+                ? outboxRepository.lockNextPendingBatchById(router.routedTypeNames(), props.getBatchSize())
+                : outboxRepository.lockNextPendingBatch(router.routedTypeNames(), props.getBatchSize());
+        return markProcessing(outboxEvents);
+    }
+
+    /**
+     * Claims pending events of the given shards only, so each shard is published by a single worker.
+     */
+    @Transactional
+    public List<OutboxEventEntity> claimShardBatch(Collection<Integer> shards, int batchSize) {
+        List<Integer> buckets = shardBuckets(shards, props.getShardCount());
+        var outboxEvents = byId()
+                ? outboxRepository.lockNextPendingShardBatchById(router.routedTypeNames(), buckets, batchSize)
+                : outboxRepository.lockNextPendingShardBatch(router.routedTypeNames(), buckets, batchSize);
+        return markProcessing(outboxEvents);
+    }
+
+    /**
+     * The outbox_event.shard buckets (0..1023, see V7) mapped to the given shards by
+     * mod(shard, shardCount), listed so the claim can use the shard index.
+     */
+    static List<Integer> shardBuckets(Collection<Integer> shards, int shardCount) {
+        return IntStream.range(0, SHARD_BUCKETS)
+                .filter(bucket -> shards.contains(bucket % shardCount))
+                .boxed()
+                .toList();
+    }
+
+    private boolean byId() {
+        return props.getClaimOrder() == OutboxPublisherProperties.ClaimOrder.ID;
+    }
+
+    private List<OutboxEventEntity> markProcessing(List<OutboxEventEntity> outboxEvents) {
         if (outboxEvents.isEmpty()) return List.of();
 
         var outboxIds = outboxEvents.stream().map(OutboxEventEntity::getId).toList();
@@ -39,26 +83,55 @@ public class OutboxTxService {
         return outboxEvents;
     }
 
-    public PaymentNotification deserialize(OutboxEventEntity e) {
-        return jsonService.fromJson(e.getPayload(), PaymentNotification.class);
-    }
-
     @Transactional
-    public void markSent(UUID outboxId) {
-        outboxRepository.updateStatusSent(outboxId, Instant.now());
+    public void markSent(Collection<UUID> outboxIds) {
+        outboxAckRepository.markSent(outboxIds, Instant.now());
     }
 
+    /**
+     * Failures below maxAttempts are rescheduled with exponential backoff, the others are moved
+     * to the dead-letter table. While an event is in flight or waits out its backoff, the claim
+     * queries hold back the later events of its shard_key, so the events of an account are still
+     * published in order.
+     */
     @Transactional
-    public void markFailedOrRetry(UUID outboxId, int attemptCount, Throwable ex) {
-        String err = ex.getClass().getSimpleName() + ": " + (ex.getMessage() == null ? "" : ex.getMessage());
-
-        if (attemptCount >= props.getMaxAttempts()) {
-            outboxRepository.updateStatusFailed(outboxId, attemptCount, err, Instant.now());
-            log.error("Outbox event {} marked FAILED after {} attempts", outboxId, attemptCount);
-        } else {
-            outboxRepository.updateStatusRetry(outboxId, attemptCount, err);
-            log.warn("Outbox event {} will retry (attempt {}/{})", outboxId, attemptCount, props.getMaxAttempts());
+    public void markFailedOrRetry(List<OutboxFailure> failures) {
+        var byExhausted = failures.stream()
+                .collect(Collectors.partitioningBy(f -> f.attemptCount() >= props.getMaxAttempts()));
+        var retries = byExhausted.get(false);
+        var deadLetters = byExhausted.get(true);
+
+        if (!retries.isEmpty()) {
+            var delays = retries.stream()
+                    .map(f -> retryDelayMs(f.attemptCount(), props.getRetryBaseDelayMs(), props.getRetryMaxDelayMs(),
+                            ThreadLocalRandom.current().nextDouble()))
+                    .toList();
+            outboxAckRepository.markRetry(retries, delays);
+            for (int i = 0; i < retries.size(); i++) {
+                OutboxFailure failure = retries.get(i);
+                log.warn("Outbox event {} will retry in {} ms (attempt {}/{})",
+                        failure.outboxId(), delays.get(i), failure.attemptCount(), props.getMaxAttempts());
+            }
+        }
+        if (!deadLetters.isEmpty()) {
+            outboxAckRepository.moveToDeadLetter(deadLetters, Instant.now());
+            for (OutboxFailure failure : deadLetters) {
+                log.error("Outbox event {} dead-lettered after {} attempts: {}",
+                        failure.outboxId(), failure.attemptCount(), failure.error());
+            }
         }
     }
-}
 
+    /**
+     * Exponential backoff with "equal jitter": half of the delay is fixed, the other half random.
+     *
+     * @param random uniform in [0, 1)
+     */
+    static long retryDelayMs(int attemptCount, long baseDelayMs, long maxDelayMs, double random) {
+        int exponent = Math.max(attemptCount - 1, 0);
+        boolean overflows = exponent >= Long.numberOfLeadingZeros(baseDelayMs) - 1;
+        long delay = overflows ? maxDelayMs : Math.min(maxDelayMs, baseDelayMs << exponent);
+        long half = delay / 2;
+        return half + (long) (random * (delay - half));
+    }
+}
@@ -0,0 +1,213 @@
+package com.alpian.paymentservice.service;
+
+import com.alpian.paymentservice.api.dto.PaymentRequest;
+import com.alpian.paymentservice.api.dto.PaymentResponse;
+import com.alpian.paymentservice.config.PaymentProperties;
+import com.alpian.paymentservice.kafka.PaymentNotification;
+import com.alpian.paymentservice.kafka.PaymentNotificationEncoder;
+import com.alpian.paymentservice.outbox.model.OutboxMessage;
+import com.alpian.paymentservice.persistence.repository.PaymentBatchRepository;
+import com.alpian.paymentservice.persistence.repository.PaymentBatchRepository.SingleStatementResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+
+/**
+ * Group commit for concurrent payments: requests are queued for at most max-wait-micros (or until
+ * max-group-size is reached) and then committed together in one transaction, so a single WAL flush
+ * covers the whole group. Every payment runs create_payment_single_statement in its own savepoint
+ * and its caller gets its own response or exception once the group has committed.
+ */
+@Slf4j
+@Service
+public class PaymentGroupCommitter {
+
+    private final PaymentService paymentService;
+    private final PaymentBatchRepository paymentBatchRepository;
+    private final PaymentNotificationEncoder notificationEncoder;
+    private final PaymentProperties.GroupCommit config;
+    private final TransactionTemplate transactionTemplate;
+    private final BlockingQueue<PendingPayment> queue;
+    private final DistributionSummary groupSizes;
+    private final Counter overflows;
+
+    private ExecutorService committers;
+    private volatile boolean running;
+
+    public PaymentGroupCommitter(PaymentService paymentService,
+                                 PaymentBatchRepository paymentBatchRepository,
+                                 PaymentNotificationEncoder notificationEncoder,
+                                 PaymentProperties paymentProperties,
+                                 PlatformTransactionManager transactionManager,
+                                 MeterRegistry meterRegistry) {
+        this.paymentService = paymentService;
+        this.paymentBatchRepository = paymentBatchRepository;
+        this.notificationEncoder = notificationEncoder;
+        this.config = paymentProperties.getGroupCommit();
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, config.getQueueCapacity()));
+        this.groupSizes = DistributionSummary.builder("payment.group-commit.group-size")
+                .description("Payments committed per group transaction")
+                .register(meterRegistry);
+        this.overflows = Counter.builder("payment.group-commit.overflows")
+                .description("Payments committed on their own because the group queue was full")
+                .register(meterRegistry);
+        Gauge.builder("payment.group-commit.queue-depth", queue, BlockingQueue::size)
+                .description("Payments waiting for a group")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return config.isEnabled();
+    }
+
+    @PostConstruct
+    void start() {
+        if (!config.isEnabled()) return;
+
+        running = true;
+        committers = Executors.newFixedThreadPool(config.getCommitters(), Thread.ofPlatform().name("payment-group-commit-", 0).factory());
+        for (int i = 0; i < config.getCommitters(); i++) {
+            committers.submit(this::commitLoop);
+        }
+        log.info("Payment group commit started: committers={}, maxGroupSize={}, maxWaitMicros={}",
+                config.getCommitters(), config.getMaxGroupSize(), config.getMaxWaitMicros());
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        if (committers == null) return;
+
+        running = false;
+        committers.shutdown();
+        if (!committers.awaitTermination(5, TimeUnit.SECONDS)) {
+            committers.shutdownNow();
+        }
+        PendingPayment pending;
+        while ((pending = queue.poll()) != null) {
+            pending.result.completeExceptionally(new IllegalStateException("Payment group commit stopped"));
+        }
+    }
+
+    public PaymentResponse submit(PaymentRequest request, UUID userId) {
+        Instant now = Instant.now();
+        OutboxMessage message = notificationEncoder.encode(PaymentNotification.from(request, now));
+        PendingPayment pending = new PendingPayment(request, userId, now, message, new CompletableFuture<>());
+
+        if (!running || !queue.offer(pending)) {
+            overflows.increment();
+            return paymentService.createPayment(request, userId);
+        }
+
+        SingleStatementResult result;
+        try {
+            result = pending.result.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) throw cause;
+            throw ex;
+        }
+
+        return paymentService.resolveCommitOutcomeOrThrow(request, userId, result.outcome(), result.paymentInternalId())
+                .orElseGet(() -> paymentService.createPayment(request, userId));
+    }
+
+    private void commitLoop() {
+        List<PendingPayment> group = new ArrayList<>(config.getMaxGroupSize());
+        while (running) {
+            try {
+                PendingPayment first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+
+                group.add(first);
+                fillGroup(group);
+                commitGroup(group);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                group.forEach(p -> p.result.completeExceptionally(ex));
+                return;
+            } catch (RuntimeException ex) {
+                log.error("Payment group commit loop failed", ex);
+                group.forEach(p -> p.result.completeExceptionally(ex));
+            } finally {
+                group.clear();
+            }
+        }
+    }
+
+    /**
+     * Waits until max-wait-micros after the first payment was queued, or until the group is full.
+     */
+    private void fillGroup(List<PendingPayment> group) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MICROSECONDS.toNanos(config.getMaxWaitMicros());
+        while (group.size() < config.getMaxGroupSize()) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                queue.drainTo(group, config.getMaxGroupSize() - group.size());
+                return;
+            }
+            PendingPayment next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) return;
+            group.add(next);
+        }
+    }
+
+    private void commitGroup(List<PendingPayment> group) {
+        // Same account lock order in every group, so two concurrent groups can never deadlock.
+        List<PendingPayment> ordered = new ArrayList<>(group);
+        ordered.sort(Comparator.comparing(p -> p.request.accountId()));
+
+        List<SingleStatementResult> results = new ArrayList<>(ordered.size());
+        List<RuntimeException> errors = new ArrayList<>(ordered.size());
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                for (PendingPayment p : ordered) {
+                    try {
+                        results.add(paymentBatchRepository.commitSingleStatementInSavepoint(
+                                p.request.accountId(), p.userId, p.request.paymentId(), p.request.amount(),
+                                p.request.currency(), p.createdAt, p.message));
+                        errors.add(null);
+                    } catch (RuntimeException ex) {
+                        log.warn("Payment rolled back to its savepoint: accountId={}, paymentId={}",
+                                p.request.accountId(), p.request.paymentId(), ex);
+                        results.add(null);
+                        errors.add(ex);
+                    }
+                }
+            });
+        } catch (RuntimeException ex) {
+            log.error("Payment group commit failed: groupSize={}", ordered.size(), ex);
+            ordered.forEach(p -> p.result.completeExceptionally(ex));
+            return;
+        }
+
+        groupSizes.record(ordered.size());
+        for (int i = 0; i < ordered.size(); i++) {
+            PendingPayment p = ordered.get(i);
+            if (errors.get(i) != null) {
+                p.result.completeExceptionally(errors.get(i));
+            } else {
+                p.result.complete(results.get(i));
+            }
+        }
+    }
+
+    private record PendingPayment(PaymentRequest request,
+                                  UUID userId,
+                                  Instant createdAt,
+                                  OutboxMessage message,
+                                  CompletableFuture<SingleStatementResult> result) {}
+}
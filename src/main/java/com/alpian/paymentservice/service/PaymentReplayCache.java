@@ -0,0 +1,255 @@
+package com.alpian.paymentservice.service;
+
+import com.alpian.paymentservice.api.dto.PaymentRequest;
+import com.alpian.paymentservice.api.dto.PaymentResponse;
+import com.alpian.paymentservice.config.PaymentProperties;
+import com.alpian.paymentservice.persistence.entity.PaymentStatus;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Bounded cache of completed payment responses keyed by (accountId, paymentId), so client retries
+ * are answered without taking the account lock. Only a hit for the same user, amount and currency
+ * is replayed; anything else goes to PaymentService, where the unique constraint decides.
+ * <p>
+ * Entries live in flat primitive arrays (UUIDs as two longs, amount in minor units, currency packed
+ * in an int): no per-entry objects, so the cache adds nothing for the GC to trace. Each segment is a
+ * 4-way set-associative table: an insert takes an empty or expired slot of its bucket, otherwise it
+ * evicts the entry closest to expiry.
+ */
+@Component
+public class PaymentReplayCache {
+
+    private static final int WAYS = 4;
+    private static final int LONGS_PER_SLOT = 8;
+    private static final byte EMPTY = 0;
+    private static final PaymentStatus[] STATUSES = PaymentStatus.values();
+    private static final String[] STATUS_NAMES = new String[STATUSES.length];
+
+    static {
+        for (int i = 0; i < STATUSES.length; i++) {
+            STATUS_NAMES[i] = STATUSES[i].name();
+        }
+    }
+
+    private final boolean enabled;
+    private final long ttlNanos;
+    private final LongSupplier nanoClock;
+    private final Segment[] segments;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+
+    @Autowired
+    public PaymentReplayCache(PaymentProperties paymentProperties, MeterRegistry meterRegistry) {
+        this(paymentProperties, meterRegistry, System::nanoTime);
+    }
+
+    PaymentReplayCache(PaymentProperties paymentProperties, MeterRegistry meterRegistry, LongSupplier nanoClock) {
+        PaymentProperties.ReplayCache config = paymentProperties.getReplayCache();
+        this.enabled = config.isEnabled();
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(config.getTtlSeconds());
+        this.nanoClock = nanoClock;
+
+        int segmentCount = ceilPowerOfTwo(Math.max(1, config.getSegments()));
+        int bucketsPerSegment = ceilPowerOfTwo(Math.max(1, config.getMaxEntries() / (segmentCount * WAYS)));
+        this.segments = new Segment[enabled ? segmentCount : 0];
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = new Segment(bucketsPerSegment);
+        }
+
+        this.hits = Counter.builder("payment.replay-cache.requests")
+                .description("Payment requests checked against the replay cache")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("payment.replay-cache.requests")
+                .description("Payment requests checked against the replay cache")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        this.evictions = Counter.builder("payment.replay-cache.evictions")
+                .description("Live entries evicted to make room before their TTL")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Optional<PaymentResponse> lookup(PaymentRequest request, UUID userId) {
+        if (!enabled) return Optional.empty();
+
+        long amountMinor = request.money().minorUnits();
+        int currency = packCurrency(request.currency());
+        if (currency == -1) {
+            misses.increment();
+            return Optional.empty();
+        }
+
+        UUID accountId = request.accountId();
+        UUID paymentId = request.paymentId();
+        long hash = hash(accountId, paymentId);
+        byte status = segmentFor(hash).find(hash, accountId, paymentId, userId, amountMinor, currency, nanoClock.getAsLong());
+
+        if (status == EMPTY) {
+            misses.increment();
+            return Optional.empty();
+        }
+        hits.increment();
+        return Optional.of(new PaymentResponse(paymentId, STATUS_NAMES[status - 1]));
+    }
+
+    /**
+     * Caches a final response. Only COMPLETED payments are stored: every other outcome is an
+     * exception and must be re-evaluated by the database.
+     */
+    public void put(PaymentRequest request, UUID userId, PaymentResponse response) {
+        if (!enabled || !PaymentStatus.COMPLETED.name().equals(response.status())) return;
+
+        long amountMinor = request.money().minorUnits();
+        int currency = packCurrency(request.currency());
+        if (currency == -1) return;
+
+        UUID accountId = request.accountId();
+        UUID paymentId = request.paymentId();
+        long hash = hash(accountId, paymentId);
+        byte status = (byte) (PaymentStatus.COMPLETED.ordinal() + 1);
+
+        long now = nanoClock.getAsLong();
+        if (segmentFor(hash).store(hash, accountId, paymentId, userId, amountMinor, currency, status, now, now + ttlNanos)) {
+            evictions.increment();
+        }
+    }
+
+    private Segment segmentFor(long hash) {
+        return segments[(int) hash & (segments.length - 1)];
+    }
+
+    private static long hash(UUID accountId, UUID paymentId) {
+        long h = accountId.getMostSignificantBits() * 31 + accountId.getLeastSignificantBits();
+        h = h * 31 + paymentId.getMostSignificantBits();
+        h = h * 31 + paymentId.getLeastSignificantBits();
+        h *= 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 32);
+    }
+
+    /**
+     * Three ASCII letters packed in an int, or -1 for anything else.
+     */
+    private static int packCurrency(String currency) {
+        if (currency.length() != 3) return -1;
+        int packed = 0;
+        for (int i = 0; i < 3; i++) {
+            char c = currency.charAt(i);
+            if (c > 0x7F) return -1;
+            packed = (packed << 8) | c;
+        }
+        return packed;
+    }
+
+    private static int ceilPowerOfTwo(int value) {
+        return value <= 1 ? 1 : Integer.highestOneBit(value - 1) << 1;
+    }
+
+    /**
+     * Slot i of the segment uses data[i * 8 .. i * 8 + 7]: account id (2 longs), payment id (2),
+     * user id (2), amount in minor units and expiry. Status 0 marks an empty slot.
+     */
+    private static final class Segment {
+
+        private final int bucketMask;
+        private final long[] data;
+        private final int[] currencies;
+        private final byte[] statuses;
+
+        Segment(int buckets) {
+            this.bucketMask = buckets - 1;
+            this.data = new long[buckets * WAYS * LONGS_PER_SLOT];
+            this.currencies = new int[buckets * WAYS];
+            this.statuses = new byte[buckets * WAYS];
+        }
+
+        synchronized byte find(long hash, UUID accountId, UUID paymentId, UUID userId,
+                               long amountMinor, int currency, long now) {
+            int slot = indexOf(hash, accountId, paymentId);
+            if (slot < 0) return EMPTY;
+
+            int base = slot * LONGS_PER_SLOT;
+            if (now - data[base + 7] >= 0) {
+                statuses[slot] = EMPTY;
+                return EMPTY;
+            }
+            boolean samePayment = data[base + 4] == userId.getMostSignificantBits()
+                    && data[base + 5] == userId.getLeastSignificantBits()
+                    && data[base + 6] == amountMinor
+                    && currencies[slot] == currency;
+            return samePayment ? statuses[slot] : EMPTY;
+        }
+
+        /**
+         * @return true when a live entry had to be evicted
+         */
+        synchronized boolean store(long hash, UUID accountId, UUID paymentId, UUID userId,
+                                   long amountMinor, int currency, byte status, long now, long expiresAt) {
+            int slot = indexOf(hash, accountId, paymentId);
+            boolean evicted = false;
+            if (slot < 0) {
+                slot = victim(hash);
+                evicted = statuses[slot] != EMPTY && now - data[slot * LONGS_PER_SLOT + 7] < 0;
+            }
+
+            int base = slot * LONGS_PER_SLOT;
+            data[base] = accountId.getMostSignificantBits();
+            data[base + 1] = accountId.getLeastSignificantBits();
+            data[base + 2] = paymentId.getMostSignificantBits();
+            data[base + 3] = paymentId.getLeastSignificantBits();
+            data[base + 4] = userId.getMostSignificantBits();
+            data[base + 5] = userId.getLeastSignificantBits();
+            data[base + 6] = amountMinor;
+            data[base + 7] = expiresAt;
+            currencies[slot] = currency;
+            statuses[slot] = status;
+            return evicted;
+        }
+
+        private int indexOf(long hash, UUID accountId, UUID paymentId) {
+            int first = firstSlot(hash);
+            for (int slot = first; slot < first + WAYS; slot++) {
+                int base = slot * LONGS_PER_SLOT;
+                if (statuses[slot] != EMPTY
+                        && data[base] == accountId.getMostSignificantBits()
+                        && data[base + 1] == accountId.getLeastSignificantBits()
+                        && data[base + 2] == paymentId.getMostSignificantBits()
+                        && data[base + 3] == paymentId.getLeastSignificantBits()) {
+                    return slot;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * An empty slot of the bucket, else the one expiring first (expired entries included).
+         */
+        private int victim(long hash) {
+            int first = firstSlot(hash);
+            int victim = first;
+            for (int slot = first; slot < first + WAYS; slot++) {
+                if (statuses[slot] == EMPTY) return slot;
+                if (data[slot * LONGS_PER_SLOT + 7] - data[victim * LONGS_PER_SLOT + 7] < 0) {
+                    victim = slot;
+                }
+            }
+            return victim;
+        }
+
+        private int firstSlot(long hash) {
+            return ((int) (hash >>> 16) & bucketMask) * WAYS;
+        }
+    }
+}
@@ -5,18 +5,25 @@ import com.alpian.paymentservice.api.dto.PaymentResponse;
 import com.alpian.paymentservice.api.exception.AccountNotFoundOrForbiddenException;
 import com.alpian.paymentservice.api.exception.DuplicatePaymentException;
 import com.alpian.paymentservice.api.exception.InsufficientFundsException;
+import com.alpian.paymentservice.config.PaymentProperties;
+import com.alpian.paymentservice.engine.AccountEngine;
 import com.alpian.paymentservice.kafka.PaymentNotification;
+import com.alpian.paymentservice.kafka.PaymentNotificationEncoder;
+import com.alpian.paymentservice.money.Money;
+import com.alpian.paymentservice.outbox.model.OutboxMessage;
 import com.alpian.paymentservice.persistence.entity.*;
+import com.alpian.paymentservice.persistence.repository.AccountBalanceView;
 import com.alpian.paymentservice.persistence.repository.AccountRepository;
 import com.alpian.paymentservice.persistence.repository.OutboxRepository;
+import com.alpian.paymentservice.persistence.repository.PaymentCommitResult;
 import com.alpian.paymentservice.persistence.repository.PaymentRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.Instant;
+import java.util.Optional;
 import java.util.UUID;
 
 @Slf4j
@@ -27,19 +34,45 @@ public class PaymentService {
     private final AccountRepository accountRepository;
     private final PaymentRepository paymentRepository;
     private final OutboxRepository outboxRepository;
-    private final JsonService jsonService;
+    private final PaymentNotificationEncoder notificationEncoder;
+    private final PaymentProperties paymentProperties;
+    private final StripedBalanceService stripedBalanceService;
+    private final OptimisticDebitService optimisticDebitService;
+    private final LedgerService ledgerService;
+    private final AccountEngine accountEngine;
+    private final TransactionTemplate transactionTemplate;
 
-    @Transactional
+    /**
+     * In engine mode the payment goes to the partition owning the account; no transaction (and no
+     * pooled connection) is held while it waits there. Otherwise steps 1 to 5 run in one transaction.
+     */
     public PaymentResponse createPayment(PaymentRequest request, UUID userId) {
-        final Instant now = Instant.now();
-
         logRequest(request, userId);
 
-        AccountEntity account = lockAccountOrThrow(request.accountId(), userId);
+        if (accountEngine.isEnabled()) {
+            return accountEngine.submit(request, userId);
+        }
 
-        PaymentEntity payment = createPaymentIntentionOrThrow(request, now);
+        return transactionTemplate.execute(status -> createPaymentInTransaction(request, userId));
+    }
+
+    private PaymentResponse createPaymentInTransaction(PaymentRequest request, UUID userId) {
+        final Instant now = Instant.now();
 
-        debitOrThrow(account, request.amount(), request.accountId(), userId);
+        if (paymentProperties.getCommitMode() == PaymentProperties.CommitMode.SINGLE_STATEMENT) {
+            Optional<PaymentResponse> committed = commitSingleStatementOrThrow(request, userId, now);
+            if (committed.isPresent()) {
+                return committed.get();
+            }
+        }
+
+        PaymentEntity payment = optimisticDebitService.appliesTo(request.accountId())
+                ? createAndDebitOptimistically(request, userId, now)
+                : createAndDebitLocked(request, userId, now);
+
+        if (isReplay(payment)) {
+            return PaymentResponse.from(payment);
+        }
 
         markPaymentCompleted(payment);
 
@@ -48,65 +81,212 @@ public class PaymentService {
         return PaymentResponse.from(payment);
     }
 
+    /**
+     * Steps 1 to 3 under the account row lock.
+     */
+    private PaymentEntity createAndDebitLocked(PaymentRequest request, UUID userId, Instant now) {
+        AccountEntity account = lockAccountOrThrow(request.accountId(), userId);
+
+        PaymentEntity payment = createPaymentIntentionOrThrow(request, now);
+        if (isReplay(payment)) {
+            return payment;
+        }
+
+        debitOrThrow(account, payment, userId);
+
+        return payment;
+    }
+
+    /**
+     * Steps 1 to 3 without the account row lock: read balance and version, insert the payment,
+     * then apply a version-checked debit. Falls back to the locked debit once retries run out.
+     */
+    private PaymentEntity createAndDebitOptimistically(PaymentRequest request, UUID userId, Instant now) {
+        AccountBalanceView snapshot = optimisticDebitService.readOrThrow(request.accountId(), userId);
+
+        PaymentEntity payment = createPaymentIntentionOrThrow(request, now);
+        if (isReplay(payment)) {
+            return payment;
+        }
+
+        if (usesStripes(snapshot.getStriped())) {
+            stripedBalanceService.debitOrThrow(request.accountId(), request.amount());
+        } else if (!optimisticDebitService.tryDebitOrThrow(request.accountId(), userId, snapshot, request.money().minorUnits())) {
+            debitOrThrow(lockAccountOrThrow(request.accountId(), userId), payment, userId);
+        }
+
+        return payment;
+    }
+
     private void logRequest(PaymentRequest request, UUID userId) {
-        log.info("Create payment requested: accountId={}, userId={}, paymentId={}, amount={}, currency={}",
-                request.accountId(), userId, request.paymentId(), request.amount(), request.currency());
+        log.info("Create payment requested: accountId={}, userId={}, paymentId={}, amount={}",
+                request.accountId(), userId, request.paymentId(), request.money());
+    }
+
+    /**
+     * Single round trip variant of steps 1 to 5: the database function locks the account,
+     * inserts the payment, debits and writes the outbox row, then reports the outcome as a code.
+     * Returns empty for striped accounts, which must go through the JPA flow.
+     */
+    private Optional<PaymentResponse> commitSingleStatementOrThrow(PaymentRequest request, UUID userId, Instant now) {
+        OutboxMessage message = notificationEncoder.encode(PaymentNotification.from(request, now));
+
+        PaymentCommitResult result = paymentRepository.commitSingleStatement(
+                request.accountId(), userId, request.paymentId(), request.amount(), request.currency(), now,
+                message.value(), message.key(), message.headers());
+
+        return resolveCommitOutcomeOrThrow(request, userId,
+                PaymentCommitOutcome.valueOf(result.getResultCode()), result.getPaymentInternalId());
+    }
+
+    /**
+     * Maps a create_payment_single_statement outcome to the response or to the matching exception.
+     * Returns empty for striped accounts, which must go through the JPA flow.
+     */
+    public Optional<PaymentResponse> resolveCommitOutcomeOrThrow(PaymentRequest request, UUID userId,
+                                                                 PaymentCommitOutcome outcome, UUID paymentInternalId) {
+        switch (outcome) {
+            case ACCOUNT_NOT_FOUND -> {
+                log.warn("Account not found or not owned by user: accountId={}, userId={}", request.accountId(), userId);
+                throw new AccountNotFoundOrForbiddenException("Account not found or not owned by user");
+            }
+            case DUPLICATE -> {
+                log.warn("Duplicate payment request rejected: accountId={}, paymentId={}",
+                        request.accountId(), request.paymentId());
+                throw new DuplicatePaymentException("Duplicate payment request detected");
+            }
+            case INSUFFICIENT_FUNDS -> {
+                log.warn("Debit rejected (insufficient funds): accountId={}, userId={}, amount={}",
+                        request.accountId(), userId, request.money());
+                throw new InsufficientFundsException("Insufficient funds");
+            }
+            case REPLAYED -> log.info("Identical payment retry replayed: internalId={}, accountId={}, paymentId={}",
+                    paymentInternalId, request.accountId(), request.paymentId());
+            case STRIPED -> {
+                return Optional.empty();
+            }
+            case COMPLETED -> log.info("Payment completed (single statement): internalId={}, accountId={}, paymentId={}",
+                    paymentInternalId, request.accountId(), request.paymentId());
+        }
+
+        return Optional.of(new PaymentResponse(request.paymentId(), PaymentStatus.COMPLETED.name()));
     }
 
     /**
      * Step 1: Lock account row (SELECT ... FOR UPDATE) to serialize concurrent debits.
+     * When striping is enabled, striped accounts are only read: their debits serialize on a stripe instead.
      */
     private AccountEntity lockAccountOrThrow(UUID accountId, UUID userId) {
+        if (paymentProperties.getStriping().isEnabled()) {
+            boolean striped = accountRepository.findStripedFlag(accountId, userId)
+                    .orElseThrow(() -> accountNotFound(accountId, userId));
+            if (striped) {
+                return accountRepository.findByIdAndUserId(accountId, userId)
+                        .orElseThrow(() -> accountNotFound(accountId, userId));
+            }
+        }
+
         return accountRepository.findForUpdate(accountId, userId)
-                .orElseThrow(() -> {
-                    log.warn("Account not found or not owned by user: accountId={}, userId={}", accountId, userId);
-                    return new AccountNotFoundOrForbiddenException("Account not found or not owned by user");
-                });
+                .orElseThrow(() -> accountNotFound(accountId, userId));
+    }
+
+    /**
+     * account.striped only counts while striping is enabled: the rebalancer, which folds stripe
+     * debits back into account.balance, does not run otherwise.
+     */
+    private boolean usesStripes(boolean stripedFlag) {
+        return stripedFlag && paymentProperties.getStriping().isEnabled();
+    }
+
+    private AccountNotFoundOrForbiddenException accountNotFound(UUID accountId, UUID userId) {
+        log.warn("Account not found or not owned by user: accountId={}, userId={}", accountId, userId);
+        return new AccountNotFoundOrForbiddenException("Account not found or not owned by user");
     }
 
     /**
      * Step 2: Insert payment "pending" to leverage DB uniqueness (idempotency) and persist transaction.
-     * If duplicate -> we deliberately fail fast.
+     * The insert uses ON CONFLICT DO NOTHING, so a duplicate never aborts the transaction:
+     * an identical retry returns the stored payment (replayed as is), a conflicting one fails fast.
      */
     private PaymentEntity createPaymentIntentionOrThrow(PaymentRequest request, Instant now) {
-        try {
-            PaymentEntity payment = PaymentEntity.builder()
-                    .accountId(request.accountId())
-                    .amount(request.amount())
-                    .currency(request.currency())
-                    .paymentId(request.paymentId())
-                    .status(PaymentStatus.PENDING)
-                    .createdAt(now)
-                    .build();
-
-            PaymentEntity saved = paymentRepository.saveAndFlush(payment);
-
-            log.info("Payment created (PENDING): internalId={}, accountId={}, paymentId={}",
-                    saved.getId(), saved.getAccountId(), saved.getPaymentId());
-
-            return saved;
-        } catch (DataIntegrityViolationException ex) {
-            log.warn("Duplicate payment request rejected: accountId={}, paymentId={}",
-                    request.accountId(), request.paymentId(), ex);
-            throw new DuplicatePaymentException("Duplicate payment request detected");
+        Optional<UUID> insertedId = paymentRepository.insertIfAbsent(request.accountId(), request.amount(),
+                request.currency(), request.paymentId(), PaymentStatus.PENDING.name(), now);
+
+        if (insertedId.isEmpty()) {
+            return replayOrThrow(request);
+        }
+
+        PaymentEntity payment = PaymentEntity.builder()
+                .id(insertedId.get())
+                .accountId(request.accountId())
+                .amount(request.money().minorUnits())
+                .currency(request.currency())
+                .paymentId(request.paymentId())
+                .status(PaymentStatus.PENDING)
+                .createdAt(now)
+                .build();
+
+        log.info("Payment created (PENDING): internalId={}, accountId={}, paymentId={}",
+                payment.getId(), payment.getAccountId(), payment.getPaymentId());
+
+        return payment;
+    }
+
+    private PaymentEntity replayOrThrow(PaymentRequest request) {
+        Optional<PaymentEntity> existing = paymentRepository.findByAccountIdAndPaymentId(request.accountId(), request.paymentId());
+
+        if (existing.isPresent() && isSamePayment(existing.get(), request)) {
+            log.info("Identical payment retry replayed: internalId={}, accountId={}, paymentId={}",
+                    existing.get().getId(), request.accountId(), request.paymentId());
+            return existing.get();
         }
+
+        log.warn("Duplicate payment request rejected: accountId={}, paymentId={}",
+                request.accountId(), request.paymentId());
+        throw new DuplicatePaymentException("Duplicate payment request detected");
+    }
+
+    private static boolean isSamePayment(PaymentEntity payment, PaymentRequest request) {
+        return payment.getAmount() == request.money().minorUnits()
+                && payment.getCurrency().equals(request.currency());
+    }
+
+    /**
+     * A stored payment is only ever visible once its transaction committed it as COMPLETED,
+     * so anything but the PENDING row we just inserted is a replay.
+     */
+    private static boolean isReplay(PaymentEntity payment) {
+        return payment.getStatus() != PaymentStatus.PENDING;
     }
 
     /**
      * Step 3: Check business rules + apply debit on the locked row.
      * Easy to extend later if buisness logic need
+     * In ledger mode the debit is appended to ledger_entry and the account row is left untouched.
      */
-    private void debitOrThrow(AccountEntity account, java.math.BigDecimal amount, UUID accountId, UUID userId) {
-        if (account.getBalance().compareTo(amount) < 0) {
-            log.warn("Debit rejected (insufficient funds): accountId={}, userId={}, balance={}, amount={}",
+    private void debitOrThrow(AccountEntity account, PaymentEntity payment, UUID userId) {
+        UUID accountId = account.getId();
+        long amount = payment.getAmount();
+        if (usesStripes(account.isStriped())) {
+            stripedBalanceService.debitOrThrow(accountId, Money.toDecimal(amount));
+            return;
+        }
+
+        if (ledgerService.isEnabled()) {
+            ledgerService.debitOrThrow(account, payment, userId);
+            return;
+        }
+
+        if (account.getBalance() < amount) {
+            log.warn("Debit rejected (insufficient funds): accountId={}, userId={}, balanceMinor={}, amountMinor={}",
                     accountId, userId, account.getBalance(), amount);
             throw new InsufficientFundsException("Insufficient funds");
         }
 
-        account.setBalance(account.getBalance().subtract(amount));
+        account.setBalance(account.getBalance() - amount);
         accountRepository.save(account);
 
-        log.info("Account debited successfully: accountId={}, amount={}, newBalance={}",
+        log.info("Account debited successfully: accountId={}, amountMinor={}, newBalanceMinor={}",
                 accountId, amount, account.getBalance());
     }
 
@@ -115,7 +295,7 @@ public class PaymentService {
      */
     private void markPaymentCompleted(PaymentEntity payment) {
         payment.setStatus(PaymentStatus.COMPLETED);
-        paymentRepository.save(payment);
+        paymentRepository.updateStatus(payment.getId(), PaymentStatus.COMPLETED);
 
         log.info("Payment completed: internalId={}, accountId={}, paymentId={}",
                 payment.getId(), payment.getAccountId(), payment.getPaymentId());
@@ -125,22 +305,17 @@ public class PaymentService {
      * Step 5: Transactional outbox write (Worker will poll + process outbox table).
      */
     private void createOutboxEvent(PaymentEntity payment, Instant now) {
-        PaymentNotification notification = new PaymentNotification(
-                payment.getPaymentId(),
-                payment.getAccountId(),
-                payment.getAmount(),
-                payment.getCurrency(),
-                payment.getCreatedAt()
-        );
-
-        String payloadJson = jsonService.toJson(notification);
+        OutboxMessage message = notificationEncoder.encode(PaymentNotification.from(payment));
 
         OutboxEventEntity event = OutboxEventEntity.builder()
                 .aggregateType("PAYMENT")
                 .aggregateId(payment.getId())
+                .shardKey(payment.getAccountId())
                 .eventType(EventType.PAYMENT_CREATED)
                 .eventStatus(EventStatus.PENDING)
-                .payload(payloadJson)
+                .payload(message.value())
+                .messageKey(message.key())
+                .headers(message.headers())
                 .createdAt(now)
                 .build();
 
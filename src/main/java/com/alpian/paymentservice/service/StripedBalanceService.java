@@ -0,0 +1,227 @@
+package com.alpian.paymentservice.service;
+
+import com.alpian.paymentservice.api.exception.AccountNotFoundOrForbiddenException;
+import com.alpian.paymentservice.api.exception.InsufficientFundsException;
+import com.alpian.paymentservice.config.PaymentProperties;
+import com.alpian.paymentservice.money.Money;
+import com.alpian.paymentservice.persistence.entity.AccountBalanceStripeEntity;
+import com.alpian.paymentservice.persistence.entity.AccountEntity;
+import com.alpian.paymentservice.persistence.repository.AccountBalanceStripeRepository;
+import com.alpian.paymentservice.persistence.repository.AccountRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Debits and rebalances striped accounts. The logical balance of a striped account is the sum
+ * of its stripes; account.balance is re-materialised on every rebalance.
+ * Lock order, shared with bulk submission: the account row first, then the stripes in stripe_no
+ * order. Debits never lock the account row while holding a stripe.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class StripedBalanceService {
+
+    private final AccountRepository accountRepository;
+    private final AccountBalanceStripeRepository stripeRepository;
+    private final PaymentProperties paymentProperties;
+
+    /**
+     * With striping disabled, account.striped is ignored and debits go to account.balance again.
+     * Existing stripes may hold debits that were never folded into account.balance, and would be
+     * stale if striping came back, so they must be rebalanced and removed before turning it off.
+     */
+    @PostConstruct
+    void checkNoStripesWhenDisabled() {
+        if (paymentProperties.getStriping().isEnabled()) return;
+
+        if (stripeRepository.anyStripeExists()) {
+            throw new IllegalStateException(
+                    "payment.striping.enabled is false but account_balance_stripe has rows: rebalance them with striping enabled, then delete them and clear account.striped");
+        }
+    }
+
+    /**
+     * Runs inside the payment transaction. Tries a single stripe first (SKIP LOCKED) and only
+     * falls back to locking every stripe when no free stripe can cover the amount alone.
+     */
+    @Transactional
+    public void debitOrThrow(UUID accountId, BigDecimal amount) {
+        Optional<AccountBalanceStripeEntity> covering = stripeRepository.lockStripeCovering(accountId, amount);
+        if (covering.isPresent()) {
+            AccountBalanceStripeEntity stripe = covering.get();
+            applyDebit(stripe, amount);
+            stripeRepository.save(stripe);
+
+            log.info("Striped account debited: accountId={}, stripe={}, amount={}, stripeBalance={}",
+                    accountId, stripe.getStripeNo(), amount, stripe.getBalance());
+            return;
+        }
+
+        consolidateAndDebitOrThrow(accountId, amount);
+    }
+
+    /**
+     * Consolidating path: every stripe is locked, the debit is spread over the largest ones.
+     */
+    private void consolidateAndDebitOrThrow(UUID accountId, BigDecimal amount) {
+        List<AccountBalanceStripeEntity> stripes = lockOrCreateStripes(accountId);
+
+        BigDecimal total = sumBalances(stripes);
+        if (total.compareTo(amount) < 0) {
+            log.warn("Debit rejected (insufficient funds across stripes): accountId={}, balance={}, amount={}",
+                    accountId, total, amount);
+            throw new InsufficientFundsException("Insufficient funds");
+        }
+
+        spreadDebit(stripes, amount);
+
+        log.info("Striped account debited (consolidated): accountId={}, amount={}, newBalance={}",
+                accountId, amount, total.subtract(amount));
+    }
+
+    /**
+     * Locks every stripe of the account and returns the logical balance. Used by bulk submission,
+     * which decides all of its items against this balance before debiting once. The caller must
+     * already hold the account row lock.
+     */
+    @Transactional
+    public BigDecimal lockBalance(AccountEntity lockedAccount) {
+        return sumBalances(lockOrCreateStripes(lockedAccount));
+    }
+
+    /**
+     * Debits stripes already locked by {@link #lockBalance(AccountEntity)} in the same transaction.
+     */
+    @Transactional
+    public void debitLockedStripes(UUID accountId, BigDecimal amount) {
+        spreadDebit(stripeRepository.lockAllForAccount(accountId), amount);
+
+        log.info("Striped account debited (bulk): accountId={}, amount={}", accountId, amount);
+    }
+
+    private void spreadDebit(List<AccountBalanceStripeEntity> stripes, BigDecimal amount) {
+        BigDecimal remaining = amount;
+        List<AccountBalanceStripeEntity> byBalanceDesc = new ArrayList<>(stripes);
+        byBalanceDesc.sort(Comparator.comparing(AccountBalanceStripeEntity::getBalance).reversed());
+        for (AccountBalanceStripeEntity stripe : byBalanceDesc) {
+            BigDecimal taken = stripe.getBalance().min(remaining);
+            if (taken.signum() > 0) {
+                applyDebit(stripe, taken);
+                remaining = remaining.subtract(taken);
+            }
+            if (remaining.signum() == 0) break;
+        }
+        stripeRepository.saveAll(stripes);
+    }
+
+    /**
+     * Re-spreads the logical balance evenly across the stripes and writes it back to account.balance.
+     * Before touching anything it checks that account.balance minus the debits applied since the
+     * previous rebalance still equals the sum of the stripes.
+     */
+    @Transactional
+    public void rebalance(UUID accountId) {
+        AccountEntity account = lockAccount(accountId);
+        List<AccountBalanceStripeEntity> stripes = lockOrCreateStripes(account);
+
+        BigDecimal total = sumBalances(stripes);
+        BigDecimal debited = stripes.stream()
+                .map(AccountBalanceStripeEntity::getDebitedSinceRebalance)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        BigDecimal accountBalance = Money.toDecimal(account.getBalance());
+        BigDecimal expected = accountBalance.subtract(debited);
+
+        if (expected.compareTo(total) != 0) {
+            log.error("Striped balance inconsistency: accountId={}, accountBalance={}, debitedSinceRebalance={}, stripesTotal={}",
+                    accountId, accountBalance, debited, total);
+            throw new IllegalStateException("Striped balance inconsistency for account " + accountId);
+        }
+
+        spreadEvenly(stripes, total);
+        stripeRepository.saveAll(stripes);
+
+        account.setBalance(Money.minorUnits(total));
+        accountRepository.save(account);
+
+        log.debug("Striped account rebalanced: accountId={}, stripes={}, balance={}", accountId, stripes.size(), total);
+    }
+
+    /**
+     * Debit path, which does not hold the account row: returns the locked stripes, or locks the
+     * account and creates them the first time a flagged account is debited. No stripe is locked
+     * when they do not exist yet, so taking the account lock here keeps the lock order.
+     */
+    private List<AccountBalanceStripeEntity> lockOrCreateStripes(UUID accountId) {
+        List<AccountBalanceStripeEntity> stripes = stripeRepository.lockAllForAccount(accountId);
+        if (!stripes.isEmpty()) return stripes;
+
+        return lockOrCreateStripes(lockAccount(accountId));
+    }
+
+    /**
+     * Returns the locked stripes of an account whose row is already locked, creating them from
+     * account.balance the first time a flagged account is debited or rebalanced.
+     */
+    private List<AccountBalanceStripeEntity> lockOrCreateStripes(AccountEntity lockedAccount) {
+        UUID accountId = lockedAccount.getId();
+        // Another transaction may have created them while we were waiting for the account lock.
+        List<AccountBalanceStripeEntity> stripes = stripeRepository.lockAllForAccount(accountId);
+        if (!stripes.isEmpty()) return stripes;
+
+        int count = Math.max(1, paymentProperties.getStriping().getStripeCount());
+        List<AccountBalanceStripeEntity> created = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            created.add(AccountBalanceStripeEntity.builder()
+                    .accountId(accountId)
+                    .stripeNo(i)
+                    .balance(BigDecimal.ZERO)
+                    .debitedSinceRebalance(BigDecimal.ZERO)
+                    .build());
+        }
+        BigDecimal balance = Money.toDecimal(lockedAccount.getBalance());
+        spreadEvenly(created, balance);
+
+        log.info("Account striped: accountId={}, stripes={}, balance={}", accountId, count, balance);
+        return stripeRepository.saveAll(created);
+    }
+
+    private AccountEntity lockAccount(UUID accountId) {
+        return accountRepository.findByIdForUpdate(accountId)
+                .orElseThrow(() -> new AccountNotFoundOrForbiddenException("Account not found"));
+    }
+
+    private static void applyDebit(AccountBalanceStripeEntity stripe, BigDecimal amount) {
+        stripe.setBalance(stripe.getBalance().subtract(amount));
+        stripe.setDebitedSinceRebalance(stripe.getDebitedSinceRebalance().add(amount));
+    }
+
+    /**
+     * Splits the total in equal cent amounts, the rounding remainder goes to stripe 0.
+     */
+    private static void spreadEvenly(List<AccountBalanceStripeEntity> stripes, BigDecimal total) {
+        BigDecimal share = total.divide(BigDecimal.valueOf(stripes.size()), 2, RoundingMode.DOWN);
+        BigDecimal remainder = total.subtract(share.multiply(BigDecimal.valueOf(stripes.size())));
+        for (AccountBalanceStripeEntity stripe : stripes) {
+            stripe.setBalance(stripe.getStripeNo() == 0 ? share.add(remainder) : share);
+            stripe.setDebitedSinceRebalance(BigDecimal.ZERO);
+        }
+    }
+
+    private static BigDecimal sumBalances(List<AccountBalanceStripeEntity> stripes) {
+        return stripes.stream()
+                .map(AccountBalanceStripeEntity::getBalance)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+}
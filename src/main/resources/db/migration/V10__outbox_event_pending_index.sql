@@ -0,0 +1,11 @@
+-- Claim path: only PENDING rows, in (event_type, created_at) order. The index stays as small as the
+-- backlog however many SENT rows the table holds, and the claim query is a range scan of it.
+CREATE INDEX idx_outbox_event_pending ON outbox_event (event_type, created_at)
+    WHERE event_status = 'PENDING';
+
+-- Recovery of PROCESSING rows whose publisher died is done by OutboxReaper, off the claim path.
+CREATE INDEX idx_outbox_event_processing ON outbox_event (processing_started_at)
+    WHERE event_status = 'PROCESSING';
+
+-- Superseded by the two indexes above.
+DROP INDEX idx_outbox_event_unsent_shard;
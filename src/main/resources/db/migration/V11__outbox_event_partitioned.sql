@@ -0,0 +1,61 @@
+-- outbox_event partitioned by day of created_at. Old partitions are dropped (or detached) by
+-- OutboxPartitionMaintenance once every row is SENT or FAILED, instead of deleting rows.
+-- The primary key must contain the partition key: (id, created_at).
+ALTER TABLE outbox_event RENAME TO outbox_event_unpartitioned;
+ALTER TABLE outbox_event_unpartitioned RENAME CONSTRAINT outbox_event_pkey TO outbox_event_unpartitioned_pkey;
+DROP TRIGGER trg_outbox_event_notify ON outbox_event_unpartitioned;
+
+CREATE TABLE outbox_event (
+                              id UUID NOT NULL DEFAULT gen_random_uuid(),
+                              aggregate_type VARCHAR(50) NOT NULL,
+                              aggregate_id UUID NOT NULL,
+                              shard_key UUID NOT NULL,
+                              shard INT NOT NULL
+                                  GENERATED ALWAYS AS ((get_byte(uuid_send(shard_key), 14) * 256 + get_byte(uuid_send(shard_key), 15)) % 1024) STORED,
+                              event_type VARCHAR(50) NOT NULL,
+                              event_status VARCHAR(50) NOT NULL,
+                              payload TEXT NOT NULL,
+                              attempt_count INT NOT NULL DEFAULT 0,
+                              last_error TEXT,
+                              created_at TIMESTAMP NOT NULL DEFAULT NOW(),
+                              processed_at TIMESTAMP,
+                              processing_started_at TIMESTAMP,
+                              next_attempt_at TIMESTAMP,
+                              PRIMARY KEY (id, created_at)
+) PARTITION BY RANGE (created_at);
+
+-- Everything created before today, existing rows included, in one partition.
+-- It is dropped like any other once past retention and fully sent.
+DO $$
+BEGIN
+    EXECUTE format('CREATE TABLE outbox_event_p_history PARTITION OF outbox_event FOR VALUES FROM (MINVALUE) TO (%L)',
+                   CURRENT_DATE);
+    FOR d IN 0..2 LOOP
+        EXECUTE format('CREATE TABLE %I PARTITION OF outbox_event FOR VALUES FROM (%L) TO (%L)',
+                       'outbox_event_p' || to_char(CURRENT_DATE + d, 'YYYYMMDD'),
+                       CURRENT_DATE + d, CURRENT_DATE + d + 1);
+    END LOOP;
+END $$;
+
+-- Catches rows outside the created partitions (maintenance job late, replayed dead letters
+-- of dropped days) so an insert never fails for lack of a partition. Never dropped.
+CREATE TABLE outbox_event_p_default PARTITION OF outbox_event DEFAULT;
+
+INSERT INTO outbox_event (id, aggregate_type, aggregate_id, shard_key, event_type, event_status, payload,
+                          attempt_count, last_error, created_at, processed_at, processing_started_at, next_attempt_at)
+SELECT id, aggregate_type, aggregate_id, shard_key, event_type, event_status, payload,
+       attempt_count, last_error, created_at, processed_at, processing_started_at, next_attempt_at
+FROM outbox_event_unpartitioned;
+
+DROP TABLE outbox_event_unpartitioned;
+
+CREATE INDEX idx_outbox_event_pending ON outbox_event (event_type, created_at)
+    WHERE event_status = 'PENDING';
+
+CREATE INDEX idx_outbox_event_processing ON outbox_event (processing_started_at)
+    WHERE event_status = 'PROCESSING';
+
+CREATE TRIGGER trg_outbox_event_notify
+    AFTER INSERT ON outbox_event
+    FOR EACH STATEMENT
+    EXECUTE FUNCTION notify_outbox_event();
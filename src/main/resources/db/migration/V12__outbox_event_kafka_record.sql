@@ -0,0 +1,105 @@
+-- The outbox stores the Kafka record as sent: value bytes, key and headers, so the publisher
+-- forwards them with ByteArraySerializer instead of parsing and re-serializing the payload.
+-- headers is KafkaHeadersCodec's encoding: int count, then per header int name length, UTF-8 name,
+-- int value length, value bytes (big-endian ints, as int4send).
+ALTER TABLE outbox_event ALTER COLUMN payload TYPE BYTEA USING convert_to(payload, 'UTF8');
+ALTER TABLE outbox_event ADD COLUMN message_key TEXT;
+ALTER TABLE outbox_event ADD COLUMN headers BYTEA;
+
+ALTER TABLE outbox_dead_letter ALTER COLUMN payload TYPE BYTEA USING convert_to(payload, 'UTF8');
+ALTER TABLE outbox_dead_letter ADD COLUMN message_key TEXT;
+ALTER TABLE outbox_dead_letter ADD COLUMN headers BYTEA;
+
+-- Existing events: the key and the type header Spring's JsonSerializer used to add at send time.
+UPDATE outbox_event
+SET message_key = shard_key::text,
+    headers = int4send(1)
+        || int4send(length('__TypeId__')) || convert_to('__TypeId__', 'UTF8')
+        || int4send(length('com.alpian.paymentservice.kafka.PaymentNotification'))
+        || convert_to('com.alpian.paymentservice.kafka.PaymentNotification', 'UTF8')
+WHERE event_status IN ('PENDING', 'PROCESSING');
+
+UPDATE outbox_dead_letter
+SET message_key = shard_key::text,
+    headers = int4send(1)
+        || int4send(length('__TypeId__')) || convert_to('__TypeId__', 'UTF8')
+        || int4send(length('com.alpian.paymentservice.kafka.PaymentNotification'))
+        || convert_to('com.alpian.paymentservice.kafka.PaymentNotification', 'UTF8');
+
+DROP FUNCTION create_payment_single_statement(UUID, UUID, UUID, NUMERIC, VARCHAR, TIMESTAMPTZ, TEXT);
+
+CREATE FUNCTION create_payment_single_statement(
+    p_account_id UUID,
+    p_user_id UUID,
+    p_payment_id UUID,
+    p_amount NUMERIC(19,2),
+    p_currency VARCHAR(3),
+    p_created_at TIMESTAMPTZ,
+    p_payload BYTEA,
+    p_message_key TEXT,
+    p_headers BYTEA
+)
+RETURNS TABLE (result_code TEXT, payment_internal_id UUID)
+LANGUAGE plpgsql
+AS $$
+DECLARE
+    v_striped BOOLEAN;
+    v_balance NUMERIC(19,2);
+    v_payment_internal_id UUID;
+    v_existing payment%ROWTYPE;
+BEGIN
+    SELECT a.striped INTO v_striped
+    FROM account a
+    WHERE a.id = p_account_id AND a.user_id = p_user_id;
+
+    IF NOT FOUND THEN
+        RETURN QUERY SELECT 'ACCOUNT_NOT_FOUND'::TEXT, NULL::UUID;
+        RETURN;
+    END IF;
+
+    IF v_striped THEN
+        RETURN QUERY SELECT 'STRIPED'::TEXT, NULL::UUID;
+        RETURN;
+    END IF;
+
+    SELECT a.balance INTO v_balance
+    FROM account a
+    WHERE a.id = p_account_id
+    FOR UPDATE;
+
+    IF v_balance >= p_amount THEN
+        INSERT INTO payment (account_id, amount, currency, payment_id, status, created_at)
+        VALUES (p_account_id, p_amount, p_currency, p_payment_id, 'COMPLETED', p_created_at)
+        ON CONFLICT (account_id, payment_id) DO NOTHING
+        RETURNING id INTO v_payment_internal_id;
+    END IF;
+
+    -- Same precedence as the JPA flow: a duplicate is reported before insufficient funds.
+    IF v_payment_internal_id IS NULL THEN
+        SELECT * INTO v_existing
+        FROM payment p
+        WHERE p.account_id = p_account_id AND p.payment_id = p_payment_id;
+
+        IF FOUND AND v_existing.amount = p_amount AND v_existing.currency = p_currency THEN
+            RETURN QUERY SELECT 'REPLAYED'::TEXT, v_existing.id;
+        ELSIF FOUND THEN
+            RETURN QUERY SELECT 'DUPLICATE'::TEXT, NULL::UUID;
+        ELSE
+            RETURN QUERY SELECT 'INSUFFICIENT_FUNDS'::TEXT, NULL::UUID;
+        END IF;
+        RETURN;
+    END IF;
+
+    UPDATE account
+    SET balance = balance - p_amount,
+        updated_at = p_created_at
+    WHERE id = p_account_id;
+
+    INSERT INTO outbox_event (aggregate_type, aggregate_id, shard_key, event_type, event_status,
+                              payload, message_key, headers, created_at)
+    VALUES ('PAYMENT', v_payment_internal_id, p_account_id, 'PAYMENT_CREATED', 'PENDING',
+            p_payload, p_message_key, p_headers, p_created_at);
+
+    RETURN QUERY SELECT 'COMPLETED'::TEXT, v_payment_internal_id;
+END;
+$$;
@@ -0,0 +1,6 @@
+-- The publisher claims every routed event type in one pass, oldest first: the pending index is
+-- ordered by created_at alone and the event type becomes a filter of the range scan.
+CREATE INDEX idx_outbox_event_pending_created ON outbox_event (created_at)
+    WHERE event_status = 'PENDING';
+
+DROP INDEX idx_outbox_event_pending;
@@ -0,0 +1,14 @@
+-- LOGICAL_REPLICATION relay mode (OutboxReplicationRelay): outbox_event inserts are streamed from a
+-- pgoutput slot instead of being claimed. Changes of every partition are published as changes of
+-- outbox_event itself. Needs wal_level = logical on the server to be consumed, not to be created.
+CREATE PUBLICATION outbox_event_pub FOR TABLE outbox_event
+    WITH (publish = 'insert', publish_via_partition_root = true);
+
+-- Commit timestamp of the last transaction confirmed by the relay of each slot: rows are not marked
+-- SENT in this mode, partition maintenance uses it to know which partitions were streamed.
+CREATE TABLE outbox_relay_checkpoint (
+    slot_name     TEXT PRIMARY KEY,
+    confirmed_lsn PG_LSN      NOT NULL,
+    committed_at  TIMESTAMPTZ NOT NULL,
+    updated_at    TIMESTAMPTZ NOT NULL DEFAULT NOW()
+);
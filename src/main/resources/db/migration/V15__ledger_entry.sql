@@ -0,0 +1,23 @@
+-- Opt-in append-only ledger (payment.ledger.enabled): a payment no longer rewrites account.balance,
+-- it appends a balanced pair of entries, a DEBIT on the customer account and the matching CREDIT on
+-- the payment clearing account (account_id NULL).
+CREATE TABLE ledger_entry (
+    id             BIGINT GENERATED ALWAYS AS IDENTITY PRIMARY KEY,
+    payment_id     UUID          NOT NULL,
+    account_id     UUID          REFERENCES account(id),
+    ledger_account VARCHAR(32)   NOT NULL CHECK (ledger_account IN ('CUSTOMER', 'PAYMENT_CLEARING')),
+    direction      VARCHAR(6)    NOT NULL CHECK (direction IN ('DEBIT', 'CREDIT')),
+    amount         NUMERIC(19,2) NOT NULL CHECK (amount > 0),
+    currency       VARCHAR(3)    NOT NULL,
+    created_at     TIMESTAMP     NOT NULL DEFAULT NOW(),
+    CHECK ((ledger_account = 'CUSTOMER') = (account_id IS NOT NULL))
+);
+
+-- Entries of an account after its snapshot, summed by an index-only scan.
+CREATE INDEX idx_ledger_entry_account ON ledger_entry (account_id, id) INCLUDE (direction, amount)
+    WHERE account_id IS NOT NULL;
+
+-- account.balance becomes the balance snapshot as of entry balance_entry_id: the balance of a
+-- ledger account is account.balance plus its entries after balance_entry_id. The compaction job
+-- folds new entries into the snapshot.
+ALTER TABLE account ADD COLUMN balance_entry_id BIGINT NOT NULL DEFAULT 0;
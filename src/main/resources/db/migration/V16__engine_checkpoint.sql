@@ -0,0 +1,8 @@
+-- Engine mode (AccountEngine): last journal sequence of each partition written to account and
+-- payment. Updated in the same transaction as the rows, so the tables are the snapshot the journal
+-- is replayed on at startup.
+CREATE TABLE engine_checkpoint (
+    partition_id     INT PRIMARY KEY,
+    applied_sequence BIGINT      NOT NULL,
+    updated_at       TIMESTAMPTZ NOT NULL DEFAULT NOW()
+);
@@ -0,0 +1,24 @@
+-- Time-ordered ids for the rows whose id the database generates (insertIfAbsent and the single
+-- statement function). The application generates the same layout with UuidV7; this one is only
+-- ordered to the millisecond, which is enough to keep inserts on the right edge of the index.
+-- UUIDv7 (RFC 9562): the first 48 bits of a random UUID replaced by the Unix time in ms,
+-- version nibble 4 turned into 7; the variant bits are already right.
+CREATE OR REPLACE FUNCTION uuid_generate_v7() RETURNS uuid
+    LANGUAGE sql VOLATILE PARALLEL SAFE AS $$
+SELECT encode(
+               set_bit(
+                       set_bit(
+                               overlay(uuid_send(gen_random_uuid())
+                                       PLACING substring(int8send(floor(extract(EPOCH FROM clock_timestamp()) * 1000)::bigint) FROM 3)
+                                       FROM 1 FOR 6),
+                               52, 1),
+                       53, 1),
+               'hex')::uuid
+$$;
+
+ALTER TABLE payment ALTER COLUMN id SET DEFAULT uuid_generate_v7();
+ALTER TABLE outbox_event ALTER COLUMN id SET DEFAULT uuid_generate_v7();
+
+-- Claim path of outbox.publisher.claim-order ID: PENDING rows in id order.
+CREATE INDEX idx_outbox_event_pending_id ON outbox_event (id)
+    WHERE event_status = 'PENDING';
@@ -0,0 +1,6 @@
+-- Sharded claim (OutboxRepository.lockNextPendingShardBatch[ById]): V10 dropped the shard index,
+-- leaving each worker to walk the whole pending index and skip the rows of the other workers.
+-- The claim lists the buckets of its shards (shard IN (...)) and reads only those, in a bitmap
+-- scan of this index, then sorts them by created_at or id. PENDING rows only, like the others.
+CREATE INDEX idx_outbox_event_pending_shard ON outbox_event (shard, created_at)
+    WHERE event_status = 'PENDING';
@@ -0,0 +1,5 @@
+-- Claim queries hold back the rows of a shard_key while an earlier row of that key waits out its
+-- retry backoff, so a retry never lets later events of the same account overtake it. Only rows
+-- that failed at least once have next_attempt_at, which keeps this index as small as the retries.
+CREATE INDEX idx_outbox_event_backoff ON outbox_event (shard_key, created_at)
+    WHERE event_status = 'PENDING' AND next_attempt_at IS NOT NULL;
@@ -0,0 +1,8 @@
+-- Claim queries also hold back the rows of a shard_key while an earlier row of that key is still
+-- PROCESSING (sent, not yet acknowledged, or stuck until OutboxReaper resets it): a failure of that
+-- send must be retried before the later events of the account are published. Supersedes the
+-- backoff-only index of V19; both sets stay as small as the in-flight and retrying rows.
+CREATE INDEX idx_outbox_event_unfinished ON outbox_event (shard_key, created_at)
+    WHERE event_status = 'PROCESSING' OR (event_status = 'PENDING' AND next_attempt_at IS NOT NULL);
+
+DROP INDEX idx_outbox_event_backoff;
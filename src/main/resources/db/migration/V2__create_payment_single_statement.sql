@@ -0,0 +1,61 @@
+-- Single round trip payment commit: ownership check, idempotent insert, conditional debit,
+-- COMPLETED payment row and outbox row, all while holding the account row lock once.
+-- Business outcomes are returned as result codes instead of raised errors so the caller
+-- transaction is never aborted.
+CREATE OR REPLACE FUNCTION create_payment_single_statement(
+    p_account_id UUID,
+    p_user_id UUID,
+    p_payment_id UUID,
+    p_amount NUMERIC(19,2),
+    p_currency VARCHAR(3),
+    p_created_at TIMESTAMPTZ,
+    p_payload TEXT
+)
+RETURNS TABLE (result_code TEXT, payment_internal_id UUID)
+LANGUAGE plpgsql
+AS $$
+DECLARE
+    v_balance NUMERIC(19,2);
+    v_payment_internal_id UUID;
+BEGIN
+    SELECT a.balance INTO v_balance
+    FROM account a
+    WHERE a.id = p_account_id AND a.user_id = p_user_id
+    FOR UPDATE;
+
+    IF NOT FOUND THEN
+        RETURN QUERY SELECT 'ACCOUNT_NOT_FOUND'::TEXT, NULL::UUID;
+        RETURN;
+    END IF;
+
+    -- Same precedence as the JPA flow: a duplicate is reported before insufficient funds.
+    IF v_balance < p_amount THEN
+        IF EXISTS (SELECT 1 FROM payment p WHERE p.account_id = p_account_id AND p.payment_id = p_payment_id) THEN
+            RETURN QUERY SELECT 'DUPLICATE'::TEXT, NULL::UUID;
+        ELSE
+            RETURN QUERY SELECT 'INSUFFICIENT_FUNDS'::TEXT, NULL::UUID;
+        END IF;
+        RETURN;
+    END IF;
+
+    INSERT INTO payment (account_id, amount, currency, payment_id, status, created_at)
+    VALUES (p_account_id, p_amount, p_currency, p_payment_id, 'COMPLETED', p_created_at)
+    ON CONFLICT (account_id, payment_id) DO NOTHING
+    RETURNING id INTO v_payment_internal_id;
+
+    IF v_payment_internal_id IS NULL THEN
+        RETURN QUERY SELECT 'DUPLICATE'::TEXT, NULL::UUID;
+        RETURN;
+    END IF;
+
+    UPDATE account
+    SET balance = balance - p_amount,
+        updated_at = p_created_at
+    WHERE id = p_account_id;
+
+    INSERT INTO outbox_event (aggregate_type, aggregate_id, event_type, event_status, payload, created_at)
+    VALUES ('PAYMENT', v_payment_internal_id, 'PAYMENT_CREATED', 'PENDING', p_payload, p_created_at);
+
+    RETURN QUERY SELECT 'COMPLETED'::TEXT, v_payment_internal_id;
+END;
+$$;
@@ -0,0 +1,82 @@
+-- Opt-in striped balances for hot accounts: the logical balance of a striped account is
+-- the sum of its stripes. account.balance is re-materialised by the rebalancing job.
+ALTER TABLE account ADD COLUMN striped BOOLEAN NOT NULL DEFAULT FALSE;
+
+CREATE TABLE account_balance_stripe (
+                                        account_id UUID NOT NULL REFERENCES account(id),
+                                        stripe_no INT NOT NULL,
+                                        balance NUMERIC(19,2) NOT NULL CHECK (balance >= 0),
+                                        debited_since_rebalance NUMERIC(19,2) NOT NULL DEFAULT 0,
+                                        updated_at TIMESTAMP NOT NULL DEFAULT NOW(),
+                                        PRIMARY KEY (account_id, stripe_no)
+);
+
+-- Striped accounts never take the account row lock, so the single statement flow hands them
+-- back to the application (result code STRIPED) instead of debiting account.balance.
+CREATE OR REPLACE FUNCTION create_payment_single_statement(
+    p_account_id UUID,
+    p_user_id UUID,
+    p_payment_id UUID,
+    p_amount NUMERIC(19,2),
+    p_currency VARCHAR(3),
+    p_created_at TIMESTAMPTZ,
+    p_payload TEXT
+)
+RETURNS TABLE (result_code TEXT, payment_internal_id UUID)
+LANGUAGE plpgsql
+AS $$
+DECLARE
+    v_striped BOOLEAN;
+    v_balance NUMERIC(19,2);
+    v_payment_internal_id UUID;
+BEGIN
+    SELECT a.striped INTO v_striped
+    FROM account a
+    WHERE a.id = p_account_id AND a.user_id = p_user_id;
+
+    IF NOT FOUND THEN
+        RETURN QUERY SELECT 'ACCOUNT_NOT_FOUND'::TEXT, NULL::UUID;
+        RETURN;
+    END IF;
+
+    IF v_striped THEN
+        RETURN QUERY SELECT 'STRIPED'::TEXT, NULL::UUID;
+        RETURN;
+    END IF;
+
+    SELECT a.balance INTO v_balance
+    FROM account a
+    WHERE a.id = p_account_id
+    FOR UPDATE;
+
+    -- Same precedence as the JPA flow: a duplicate is reported before insufficient funds.
+    IF v_balance < p_amount THEN
+        IF EXISTS (SELECT 1 FROM payment p WHERE p.account_id = p_account_id AND p.payment_id = p_payment_id) THEN
+            RETURN QUERY SELECT 'DUPLICATE'::TEXT, NULL::UUID;
+        ELSE
+            RETURN QUERY SELECT 'INSUFFICIENT_FUNDS'::TEXT, NULL::UUID;
+        END IF;
+        RETURN;
+    END IF;
+
+    INSERT INTO payment (account_id, amount, currency, payment_id, status, created_at)
+    VALUES (p_account_id, p_amount, p_currency, p_payment_id, 'COMPLETED', p_created_at)
+    ON CONFLICT (account_id, payment_id) DO NOTHING
+    RETURNING id INTO v_payment_internal_id;
+
+    IF v_payment_internal_id IS NULL THEN
+        RETURN QUERY SELECT 'DUPLICATE'::TEXT, NULL::UUID;
+        RETURN;
+    END IF;
+
+    UPDATE account
+    SET balance = balance - p_amount,
+        updated_at = p_created_at
+    WHERE id = p_account_id;
+
+    INSERT INTO outbox_event (aggregate_type, aggregate_id, event_type, event_status, payload, created_at)
+    VALUES ('PAYMENT', v_payment_internal_id, 'PAYMENT_CREATED', 'PENDING', p_payload, p_created_at);
+
+    RETURN QUERY SELECT 'COMPLETED'::TEXT, v_payment_internal_id;
+END;
+$$;
@@ -0,0 +1,2 @@
+-- Version column for the optimistic debit path.
+ALTER TABLE account ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,16 @@
+-- Wakes NOTIFY-mode publishers as soon as outbox rows are committed. Statement level, and
+-- PostgreSQL folds identical notifications of one transaction, so a batch insert notifies once.
+CREATE OR REPLACE FUNCTION notify_outbox_event()
+RETURNS TRIGGER
+LANGUAGE plpgsql
+AS $$
+BEGIN
+    PERFORM pg_notify('outbox_event', '');
+    RETURN NULL;
+END;
+$$;
+
+CREATE TRIGGER trg_outbox_event_notify
+    AFTER INSERT ON outbox_event
+    FOR EACH STATEMENT
+    EXECUTE FUNCTION notify_outbox_event();
@@ -0,0 +1,93 @@
+-- Outbox sharding: shard_key is the account of the event, so every event of an account lands in
+-- the same shard and is published by one worker, in created_at order. shard is a fixed bucket
+-- (0..1023) of shard_key; publishers map buckets to shards with mod(shard, shard-count).
+ALTER TABLE outbox_event ADD COLUMN shard_key UUID;
+
+UPDATE outbox_event o
+SET shard_key = p.account_id
+FROM payment p
+WHERE p.id = o.aggregate_id;
+
+UPDATE outbox_event
+SET shard_key = aggregate_id
+WHERE shard_key IS NULL;
+
+ALTER TABLE outbox_event ALTER COLUMN shard_key SET NOT NULL;
+
+ALTER TABLE outbox_event ADD COLUMN shard INT NOT NULL
+    GENERATED ALWAYS AS ((get_byte(uuid_send(shard_key), 14) * 256 + get_byte(uuid_send(shard_key), 15)) % 1024) STORED;
+
+CREATE INDEX idx_outbox_event_unsent_shard ON outbox_event (shard, created_at)
+    WHERE event_status IN ('PENDING', 'PROCESSING');
+
+CREATE OR REPLACE FUNCTION create_payment_single_statement(
+    p_account_id UUID,
+    p_user_id UUID,
+    p_payment_id UUID,
+    p_amount NUMERIC(19,2),
+    p_currency VARCHAR(3),
+    p_created_at TIMESTAMPTZ,
+    p_payload TEXT
+)
+RETURNS TABLE (result_code TEXT, payment_internal_id UUID)
+LANGUAGE plpgsql
+AS $$
+DECLARE
+    v_striped BOOLEAN;
+    v_balance NUMERIC(19,2);
+    v_payment_internal_id UUID;
+    v_existing payment%ROWTYPE;
+BEGIN
+    SELECT a.striped INTO v_striped
+    FROM account a
+    WHERE a.id = p_account_id AND a.user_id = p_user_id;
+
+    IF NOT FOUND THEN
+        RETURN QUERY SELECT 'ACCOUNT_NOT_FOUND'::TEXT, NULL::UUID;
+        RETURN;
+    END IF;
+
+    IF v_striped THEN
+        RETURN QUERY SELECT 'STRIPED'::TEXT, NULL::UUID;
+        RETURN;
+    END IF;
+
+    SELECT a.balance INTO v_balance
+    FROM account a
+    WHERE a.id = p_account_id
+    FOR UPDATE;
+
+    IF v_balance >= p_amount THEN
+        INSERT INTO payment (account_id, amount, currency, payment_id, status, created_at)
+        VALUES (p_account_id, p_amount, p_currency, p_payment_id, 'COMPLETED', p_created_at)
+        ON CONFLICT (account_id, payment_id) DO NOTHING
+        RETURNING id INTO v_payment_internal_id;
+    END IF;
+
+    -- Same precedence as the JPA flow: a duplicate is reported before insufficient funds.
+    IF v_payment_internal_id IS NULL THEN
+        SELECT * INTO v_existing
+        FROM payment p
+        WHERE p.account_id = p_account_id AND p.payment_id = p_payment_id;
+
+        IF FOUND AND v_existing.amount = p_amount AND v_existing.currency = p_currency THEN
+            RETURN QUERY SELECT 'REPLAYED'::TEXT, v_existing.id;
+        ELSIF FOUND THEN
+            RETURN QUERY SELECT 'DUPLICATE'::TEXT, NULL::UUID;
+        ELSE
+            RETURN QUERY SELECT 'INSUFFICIENT_FUNDS'::TEXT, NULL::UUID;
+        END IF;
+        RETURN;
+    END IF;
+
+    UPDATE account
+    SET balance = balance - p_amount,
+        updated_at = p_created_at
+    WHERE id = p_account_id;
+
+    INSERT INTO outbox_event (aggregate_type, aggregate_id, shard_key, event_type, event_status, payload, created_at)
+    VALUES ('PAYMENT', v_payment_internal_id, p_account_id, 'PAYMENT_CREATED', 'PENDING', p_payload, p_created_at);
+
+    RETURN QUERY SELECT 'COMPLETED'::TEXT, v_payment_internal_id;
+END;
+$$;
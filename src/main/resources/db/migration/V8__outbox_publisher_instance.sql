@@ -0,0 +1,8 @@
+-- Live outbox publisher instances. Each instance heartbeats its row; the number of live rows
+-- gives every instance its fair share of outbox shards (ceil(shard-count / instances)).
+-- Shard ownership itself is a session advisory lock, released by PostgreSQL when the instance dies.
+CREATE TABLE outbox_publisher_instance (
+                                           instance_id UUID PRIMARY KEY,
+                                           started_at TIMESTAMP NOT NULL DEFAULT NOW(),
+                                           heartbeat_at TIMESTAMP NOT NULL DEFAULT NOW()
+);
@@ -0,0 +1,32 @@
+-- Scheduled retries: a failed event goes back to PENDING with next_attempt_at = now + backoff,
+-- and the claim queries skip it until then. NULL means "as soon as possible".
+ALTER TABLE outbox_event ADD COLUMN next_attempt_at TIMESTAMP;
+
+-- Events that reached outbox.publisher.max-attempts are moved here, out of the claim path,
+-- and can be moved back to outbox_event in bulk (see OutboxDeadLetterRepository.replay).
+CREATE TABLE outbox_dead_letter (
+                                    id UUID PRIMARY KEY,
+                                    aggregate_type VARCHAR(50) NOT NULL,
+                                    aggregate_id UUID NOT NULL,
+                                    shard_key UUID NOT NULL,
+                                    event_type VARCHAR(50) NOT NULL,
+                                    payload TEXT NOT NULL,
+                                    attempt_count INT NOT NULL,
+                                    last_error TEXT,
+                                    created_at TIMESTAMP NOT NULL,
+                                    dead_lettered_at TIMESTAMP NOT NULL DEFAULT NOW()
+);
+
+CREATE INDEX idx_outbox_dead_letter_type_dead_at ON outbox_dead_letter(event_type, dead_lettered_at);
+
+-- Events already FAILED before this migration become dead letters too.
+WITH failed AS (
+    DELETE FROM outbox_event
+    WHERE event_status = 'FAILED'
+    RETURNING id, aggregate_type, aggregate_id, shard_key, event_type, payload, attempt_count, last_error, created_at,
+              COALESCE(processed_at, NOW()) AS dead_lettered_at
+)
+INSERT INTO outbox_dead_letter (id, aggregate_type, aggregate_id, shard_key, event_type, payload,
+                                attempt_count, last_error, created_at, dead_lettered_at)
+SELECT id, aggregate_type, aggregate_id, shard_key, event_type, payload, attempt_count, last_error, created_at, dead_lettered_at
+FROM failed;
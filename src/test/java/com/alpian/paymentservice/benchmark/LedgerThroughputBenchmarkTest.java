@@ -0,0 +1,142 @@
+package com.alpian.paymentservice.benchmark;
+
+import com.alpian.paymentservice.api.dto.PaymentRequest;
+import com.alpian.paymentservice.config.PaymentProperties;
+import com.alpian.paymentservice.integration.AbstractIntegrationTest;
+import com.alpian.paymentservice.persistence.entity.AccountEntity;
+import com.alpian.paymentservice.persistence.repository.AccountRepository;
+import com.alpian.paymentservice.service.PaymentService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Payments per second with the in-place account.balance update against the append-only ledger,
+ * on one hot account and on accounts spread across the threads. The updates and HOT updates
+ * of account show the write amplification the ledger removes; compaction runs at its default
+ * interval during the ledger runs.
+ * Run with: mvn test -Pbenchmark -Dtest=LedgerThroughputBenchmarkTest
+ */
+@Tag("benchmark")
+@TestPropertySource(properties = {
+        "outbox.publisher.poll-interval-ms=600000",
+        "outbox.publisher.reaper-interval-ms=600000",
+        "payment.ledger.compaction-interval-ms=1000"
+})
+class LedgerThroughputBenchmarkTest extends AbstractIntegrationTest {
+
+    private static final int THREADS = 16;
+    private static final int PAYMENTS_PER_THREAD = 500;
+    private static final BigDecimal AMOUNT = new BigDecimal("1.00");
+
+    @Autowired
+    PaymentService paymentService;
+
+    @Autowired
+    PaymentProperties paymentProperties;
+
+    @Autowired
+    AccountRepository accountRepository;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void restoreInPlaceMode() {
+        paymentProperties.getLedger().setEnabled(false);
+    }
+
+    @Test
+    void ledger_against_in_place_balance_update() throws Exception {
+        for (boolean hot : List.of(true, false)) {
+            for (boolean ledger : List.of(false, true)) {
+                paymentProperties.getLedger().setEnabled(ledger);
+                jdbcTemplate.execute("VACUUM account");
+                Map<String, Object> before = accountStats();
+
+                double perSecond = run(hot);
+
+                Map<String, Object> after = accountStats();
+                System.out.printf("%-9s %-6s payments/s=%,.0f account n_tup_upd=+%d n_tup_hot_upd=+%d%n",
+                        ledger ? "ledger" : "in-place", hot ? "hot" : "spread", perSecond,
+                        delta(before, after, "n_tup_upd"), delta(before, after, "n_tup_hot_upd"));
+            }
+        }
+    }
+
+    private double run(boolean hot) throws Exception {
+        List<UUID> userIds = new ArrayList<>();
+        List<UUID> accountIds = new ArrayList<>();
+        for (int i = 0; i < (hot ? 1 : THREADS); i++) {
+            UUID userId = UUID.randomUUID();
+            UUID accountId = UUID.randomUUID();
+            accountRepository.save(
+                    AccountEntity.builder()
+                            .id(accountId)
+                            .userId(userId)
+                            .balance(100_000_000L)
+                            .baseCurrency("CHF")
+                            .build()
+            );
+            userIds.add(userId);
+            accountIds.add(accountId);
+        }
+
+        var executor = Executors.newFixedThreadPool(THREADS);
+        var startGate = new CountDownLatch(1);
+        var doneGate = new CountDownLatch(THREADS);
+        var errors = new AtomicInteger(0);
+
+        for (int t = 0; t < THREADS; t++) {
+            int slot = hot ? 0 : t;
+            executor.submit(() -> {
+                try {
+                    startGate.await();
+                    for (int i = 0; i < PAYMENTS_PER_THREAD; i++) {
+                        paymentService.createPayment(
+                                new PaymentRequest(accountIds.get(slot), AMOUNT, "CHF", UUID.randomUUID()),
+                                userIds.get(slot));
+                    }
+                } catch (Exception ex) {
+                    errors.incrementAndGet();
+                } finally {
+                    doneGate.countDown();
+                }
+                return null;
+            });
+        }
+
+        long start = System.nanoTime();
+        startGate.countDown();
+        doneGate.await();
+        long elapsed = System.nanoTime() - start;
+        executor.shutdown();
+
+        assertThat(errors.get()).isZero();
+        return THREADS * PAYMENTS_PER_THREAD / (elapsed / 1e9);
+    }
+
+    private Map<String, Object> accountStats() {
+        jdbcTemplate.execute("SELECT pg_stat_force_next_flush()");
+        return jdbcTemplate.queryForMap(
+                "SELECT n_tup_upd, n_tup_hot_upd FROM pg_stat_user_tables WHERE relname = 'account'");
+    }
+
+    private static long delta(Map<String, Object> before, Map<String, Object> after, String column) {
+        return ((Number) after.get(column)).longValue() - ((Number) before.get(column)).longValue();
+    }
+}
@@ -0,0 +1,115 @@
+package com.alpian.paymentservice.benchmark;
+
+import com.alpian.paymentservice.api.dto.PaymentRequest;
+import com.alpian.paymentservice.money.Money;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.management.ThreadMXBean;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.LongSupplier;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * In-memory cost of the debit check (compare, subtract, carry the balance) on BigDecimal amounts,
+ * as the entities held them, versus long minor units, plus parsing a payment request body into
+ * each representation. Reports ns and allocated bytes per operation (thread allocation counter),
+ * after a warm-up run of the same loop. No database: the round trips are the same for both.
+ * Run with: mvn test -Pbenchmark -Dtest=MoneyDebitBenchmarkTest
+ */
+@Tag("benchmark")
+class MoneyDebitBenchmarkTest {
+
+    private static final int DEBITS = 20_000_000;
+    private static final int PARSES = 500_000;
+    private static final long OPENING_BALANCE_MINOR = 1_000_000_000_000L;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void compare_bigdecimal_and_minor_units() throws Exception {
+        BigDecimal[] decimalAmounts = new BigDecimal[1024];
+        long[] minorAmounts = new long[decimalAmounts.length];
+        for (int i = 0; i < decimalAmounts.length; i++) {
+            minorAmounts[i] = 1 + (i * 7919L) % 50_000;
+            decimalAmounts[i] = Money.toDecimal(minorAmounts[i]);
+        }
+
+        Map<String, double[]> results = new LinkedHashMap<>();
+        results.put("debit, BigDecimal balance", measure(DEBITS, () -> debitDecimal(decimalAmounts)));
+        results.put("debit, long minor units", measure(DEBITS, () -> debitMinor(minorAmounts)));
+
+        byte[] body = objectMapper.writeValueAsBytes(
+                new PaymentRequest(UUID.randomUUID(), new BigDecimal("123.45"), "CHF", UUID.randomUUID()));
+        results.put("parse request, BigDecimal amount", measure(PARSES, () -> parse(body, DecimalRequest.class)));
+        results.put("parse request, Money amount", measure(PARSES, () -> parse(body, PaymentRequest.class)));
+
+        results.forEach((name, r) -> System.out.printf("%-36s %10.1f ns/op %10.1f bytes/op%n", name, r[0], r[1]));
+
+        assertThat(results.get("debit, long minor units")[1])
+                .isLessThan(results.get("debit, BigDecimal balance")[1]);
+    }
+
+    private static long debitDecimal(BigDecimal[] amounts) {
+        BigDecimal balance = Money.toDecimal(OPENING_BALANCE_MINOR);
+        for (int i = 0; i < DEBITS; i++) {
+            BigDecimal amount = amounts[i & (amounts.length - 1)];
+            if (balance.compareTo(amount) >= 0) {
+                balance = balance.subtract(amount);
+            }
+        }
+        return Money.minorUnits(balance);
+    }
+
+    private static long debitMinor(long[] amounts) {
+        long balance = OPENING_BALANCE_MINOR;
+        for (int i = 0; i < DEBITS; i++) {
+            long amount = amounts[i & (amounts.length - 1)];
+            if (balance >= amount) {
+                balance -= amount;
+            }
+        }
+        return balance;
+    }
+
+    private long parse(byte[] body, Class<?> type) {
+        long checksum = 0;
+        try {
+            for (int i = 0; i < PARSES; i++) {
+                checksum += objectMapper.readValue(body, type).hashCode();
+            }
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+        return checksum;
+    }
+
+    /**
+     * Runs the loop once to warm up, then once measured: {ns/op, bytes/op}.
+     */
+    private static double[] measure(int operations, LongSupplier loop) {
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().threadId();
+        long sink = loop.getAsLong();
+
+        long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        sink += loop.getAsLong();
+        long elapsed = System.nanoTime() - start;
+        long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+        assertThat(sink).isNotEqualTo(Long.MIN_VALUE);
+        return new double[]{(double) elapsed / operations, (double) allocated / operations};
+    }
+
+    /**
+     * The request shape before Money: the amount stays a BigDecimal.
+     */
+    record DecimalRequest(UUID accountId, BigDecimal amount, String currency, UUID paymentId) {}
+}
@@ -0,0 +1,118 @@
+package com.alpian.paymentservice.benchmark;
+
+import com.alpian.paymentservice.integration.AbstractIntegrationTest;
+import com.alpian.paymentservice.persistence.entity.EventType;
+import com.alpian.paymentservice.persistence.repository.OutboxRepository;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Claim cost against the size of outbox_event: a constant backlog of PENDING events plus
+ * 100k, 1M then 10M SENT events. The claim must stay a range scan of idx_outbox_event_pending_created,
+ * so its latency and buffer accesses must not follow the table size.
+ * Run with: mvn test -Pbenchmark -Dtest=OutboxClaimBenchmarkTest
+ */
+@Tag("benchmark")
+@TestPropertySource(properties = {
+        "outbox.publisher.poll-interval-ms=600000",
+        "outbox.publisher.reaper-interval-ms=600000"
+})
+class OutboxClaimBenchmarkTest extends AbstractIntegrationTest {
+
+    private static final int PENDING_EVENTS = 1_000;
+    private static final int CLAIM_BATCH_SIZE = 50;
+    private static final int INSERT_CHUNK = 1_000_000;
+    private static final int WARMUP_CLAIMS = 50;
+    private static final int MEASURED_CLAIMS = 500;
+    private static final List<String> EVENT_TYPES = Arrays.stream(EventType.values()).map(Enum::name).toList();
+
+    private static final String CLAIM_SQL = """
+            SELECT *
+            FROM outbox_event
+            WHERE event_type IN ('PAYMENT_CREATED', 'PAYMENT_FAILED', 'ACCOUNT_UPDATED')
+              AND event_status = 'PENDING'
+              AND (next_attempt_at IS NULL OR next_attempt_at <= LOCALTIMESTAMP)
+            ORDER BY created_at
+            LIMIT 50
+            FOR UPDATE SKIP LOCKED
+            """;
+
+    @Autowired
+    OutboxRepository outboxRepository;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Test
+    void claim_cost_does_not_grow_with_table_size() {
+        jdbcTemplate.execute("TRUNCATE outbox_event");
+        insertEvents(PENDING_EVENTS, "PENDING");
+
+        Map<Integer, Long> p50ByRows = new LinkedHashMap<>();
+        int sentRows = 0;
+        for (int targetRows : List.of(100_000, 1_000_000, 10_000_000)) {
+            while (sentRows < targetRows) {
+                int chunk = Math.min(INSERT_CHUNK, targetRows - sentRows);
+                insertEvents(chunk, "SENT");
+                sentRows += chunk;
+            }
+            jdbcTemplate.execute("VACUUM ANALYZE outbox_event");
+
+            String plan = String.join("\n", jdbcTemplate.queryForList(
+                    "EXPLAIN (ANALYZE, BUFFERS) " + CLAIM_SQL, String.class));
+            // per-partition copies of idx_outbox_event_pending_created; empty partitions may be seq-scanned
+            assertThat(plan).contains("_created_at_idx");
+
+            long p50 = claimLatencyP50Nanos();
+            p50ByRows.put(targetRows, p50);
+            System.out.printf("outbox_event rows=%,d pending=%,d claim p50=%.3f ms%n%s%n",
+                    targetRows + PENDING_EVENTS, PENDING_EVENTS, p50 / 1e6, plan);
+        }
+
+        long small = p50ByRows.get(100_000);
+        long large = p50ByRows.get(10_000_000);
+        // 100x more rows; a scan-bound claim would be ~100x slower
+        assertThat(large).isLessThan(small * 3 + 2_000_000);
+    }
+
+    private long claimLatencyP50Nanos() {
+        long[] samples = new long[MEASURED_CLAIMS];
+        for (int i = 0; i < WARMUP_CLAIMS + MEASURED_CLAIMS; i++) {
+            long start = System.nanoTime();
+            transactionTemplate.executeWithoutResult(status -> {
+                assertThat(outboxRepository.lockNextPendingBatch(EVENT_TYPES, CLAIM_BATCH_SIZE))
+                        .hasSize(CLAIM_BATCH_SIZE);
+                status.setRollbackOnly();
+            });
+            long elapsed = System.nanoTime() - start;
+            if (i >= WARMUP_CLAIMS) samples[i - WARMUP_CLAIMS] = elapsed;
+        }
+        Arrays.sort(samples);
+        return samples[samples.length / 2];
+    }
+
+    private void insertEvents(int count, String status) {
+        jdbcTemplate.update("""
+                INSERT INTO outbox_event (id, aggregate_type, aggregate_id, shard_key, event_type, event_status,
+                                          payload, attempt_count, created_at, processed_at)
+                SELECT gen_random_uuid(), 'PAYMENT', gen_random_uuid(), gen_random_uuid(), 'PAYMENT_CREATED', ?,
+                       '{}', 1, LOCALTIMESTAMP - (i || ' milliseconds')::interval,
+                       CASE WHEN CAST(? AS VARCHAR) = 'SENT' THEN LOCALTIMESTAMP END
+                FROM generate_series(1, ?) AS i
+                """, status, status, count);
+    }
+}
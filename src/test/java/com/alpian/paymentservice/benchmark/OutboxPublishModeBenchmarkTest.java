@@ -0,0 +1,134 @@
+package com.alpian.paymentservice.benchmark;
+
+import com.alpian.paymentservice.integration.AbstractIntegrationTest;
+import com.alpian.paymentservice.kafka.OutboxKafkaProducer;
+import com.alpian.paymentservice.kafka.PaymentNotification;
+import com.alpian.paymentservice.kafka.PaymentNotificationBinarySerializer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Kafka-side throughput of the outbox producer modes on the same 100k records, published in
+ * claimed batches of 500 and counted once every record is acknowledged by the broker:
+ * RECORD (send, callbacks), RECORD with tuned linger/batch, BATCH (send + one flush per batch),
+ * TRANSACTIONAL (one Kafka transaction per batch).
+ * Run with: mvn test -Pbenchmark -Dtest=OutboxPublishModeBenchmarkTest
+ */
+@Tag("benchmark")
+@TestPropertySource(properties = "outbox.publisher.poll-interval-ms=600000")
+class OutboxPublishModeBenchmarkTest extends AbstractIntegrationTest {
+
+    private static final int RECORDS = 100_000;
+    private static final int CLAIM_BATCH = 500;
+    private static final String TOPIC = "outbox-publish-benchmark";
+
+    @Value("${spring.kafka.bootstrap-servers}")
+    String bootstrapServers;
+
+    @Test
+    void compare_producer_modes() {
+        List<ProducerRecord<String, byte[]>> messages = messages();
+
+        Map<String, Double> recordsPerSecond = new LinkedHashMap<>();
+        recordsPerSecond.put("RECORD (Kafka defaults)", run(messages, Map.of(), false, this::perRecord));
+        recordsPerSecond.put("RECORD (linger 5 ms, 64 KiB batches)", run(messages, tuned(), false, this::perRecord));
+        recordsPerSecond.put("BATCH (send + flush)", run(messages, tuned(), false, this::sendAndFlush));
+        recordsPerSecond.put("TRANSACTIONAL", run(messages, tuned(), true, this::transactional));
+
+        recordsPerSecond.forEach((mode, rate) -> System.out.printf("%-40s %,12.0f records/s%n", mode, rate));
+        assertThat(recordsPerSecond.values()).allMatch(rate -> rate > 0);
+    }
+
+    private double run(List<ProducerRecord<String, byte[]>> messages, Map<String, Object> overrides, boolean transactional,
+                       PublishStrategy strategy) {
+        Map<String, Object> config = new HashMap<>();
+        config.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        config.put(ProducerConfig.ACKS_CONFIG, "all");
+        config.putAll(overrides);
+        DefaultKafkaProducerFactory<String, byte[]> factory =
+                new DefaultKafkaProducerFactory<>(config, new StringSerializer(), new ByteArraySerializer());
+        if (transactional) {
+            factory.setTransactionIdPrefix("outbox-benchmark-" + UUID.randomUUID() + "-");
+        }
+        try {
+            OutboxKafkaProducer producer = new OutboxKafkaProducer(new KafkaTemplate<>(factory));
+            strategy.publish(producer, messages.subList(0, CLAIM_BATCH * 4)); // warm-up
+
+            long start = System.nanoTime();
+            strategy.publish(producer, messages);
+            return messages.size() / ((System.nanoTime() - start) / 1e9);
+        } finally {
+            factory.destroy();
+        }
+    }
+
+    private void perRecord(OutboxKafkaProducer producer, List<ProducerRecord<String, byte[]>> messages) {
+        List<CompletableFuture<SendResult<String, byte[]>>> inFlight = new ArrayList<>(messages.size());
+        for (ProducerRecord<String, byte[]> m : messages) {
+            inFlight.add(producer.sendAsync(m));
+        }
+        CompletableFuture.allOf(inFlight.toArray(CompletableFuture[]::new)).join();
+    }
+
+    private void sendAndFlush(OutboxKafkaProducer producer, List<ProducerRecord<String, byte[]>> messages) {
+        for (int i = 0; i < messages.size(); i += CLAIM_BATCH) {
+            producer.sendAndFlush(messages.subList(i, Math.min(i + CLAIM_BATCH, messages.size())))
+                    .forEach(CompletableFuture::join);
+        }
+    }
+
+    private void transactional(OutboxKafkaProducer producer, List<ProducerRecord<String, byte[]>> messages) {
+        for (int i = 0; i < messages.size(); i += CLAIM_BATCH) {
+            producer.sendInTransaction(messages.subList(i, Math.min(i + CLAIM_BATCH, messages.size())));
+        }
+    }
+
+    private static Map<String, Object> tuned() {
+        return Map.of(
+                ProducerConfig.LINGER_MS_CONFIG, 5,
+                ProducerConfig.BATCH_SIZE_CONFIG, 65536,
+                ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+    }
+
+    private static List<ProducerRecord<String, byte[]>> messages() {
+        PaymentNotificationBinarySerializer serializer = new PaymentNotificationBinarySerializer();
+        List<UUID> accounts = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) accounts.add(UUID.randomUUID());
+        List<ProducerRecord<String, byte[]>> messages = new ArrayList<>(RECORDS);
+        for (int i = 0; i < RECORDS; i++) {
+            UUID accountId = accounts.get(i % accounts.size());
+            RecordHeaders headers = new RecordHeaders();
+            byte[] value = serializer.serialize(TOPIC, headers, new PaymentNotification(UUID.randomUUID(), accountId,
+                    new BigDecimal("42.50"), "CHF", Instant.now()));
+            messages.add(new ProducerRecord<>(TOPIC, null, accountId.toString(), value, headers));
+        }
+        return messages;
+    }
+
+    @FunctionalInterface
+    private interface PublishStrategy {
+        void publish(OutboxKafkaProducer producer, List<ProducerRecord<String, byte[]>> messages);
+    }
+}
@@ -0,0 +1,97 @@
+package com.alpian.paymentservice.benchmark;
+
+import com.alpian.paymentservice.integration.AbstractIntegrationTest;
+import com.alpian.paymentservice.persistence.id.UuidV7;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Random (version 4) against time-ordered (UuidV7) primary keys: 2M rows shaped like payment are
+ * inserted in JDBC batches of 1000 into a fresh table per generator. Reports insert throughput,
+ * the size and leaf density of the primary-key index, and the index blocks the inserts touched
+ * (pg_statio_user_indexes, hits plus reads).
+ * Run with: mvn test -Pbenchmark -Dtest=UuidGeneratorBenchmarkTest
+ */
+@Tag("benchmark")
+@TestPropertySource(properties = {
+        "outbox.publisher.poll-interval-ms=600000",
+        "outbox.publisher.reaper-interval-ms=600000"
+})
+class UuidGeneratorBenchmarkTest extends AbstractIntegrationTest {
+
+    private static final int ROWS = 2_000_000;
+    private static final int BATCH = 1_000;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Test
+    void compare_random_and_time_ordered_ids() {
+        jdbcTemplate.execute("CREATE EXTENSION IF NOT EXISTS pgstattuple");
+
+        Map<String, Result> results = new LinkedHashMap<>();
+        results.put("random (UUID.randomUUID)", run("uuid_bench_v4", UUID::randomUUID));
+        results.put("time-ordered (UuidV7)", run("uuid_bench_v7", UuidV7::next));
+
+        results.forEach((name, r) -> System.out.printf(
+                "%-28s %,10.0f rows/s  pkey %,8d KiB  leaf density %5.1f%%  index blocks %,10d%n",
+                name, r.rowsPerSecond(), r.indexBytes() / 1024, r.leafDensity(), r.indexBlocks()));
+
+        assertThat(results.get("time-ordered (UuidV7)").indexBytes())
+                .isLessThan(results.get("random (UUID.randomUUID)").indexBytes());
+    }
+
+    private Result run(String table, Supplier<UUID> ids) {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + table);
+        jdbcTemplate.execute("CREATE TABLE " + table + " (LIKE payment INCLUDING DEFAULTS)");
+        jdbcTemplate.execute("ALTER TABLE " + table + " ADD PRIMARY KEY (id)");
+
+        UUID accountId = UUID.randomUUID();
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        long blocksBefore = indexBlocks(table);
+
+        long start = System.nanoTime();
+        for (int inserted = 0; inserted < ROWS; inserted += BATCH) {
+            List<Object[]> rows = new ArrayList<>(BATCH);
+            for (int i = 0; i < BATCH; i++) {
+                rows.add(new Object[]{ids.get(), accountId, BigDecimal.ONE, "CHF", UUID.randomUUID(), "COMPLETED", now});
+            }
+            jdbcTemplate.batchUpdate("INSERT INTO " + table
+                    + " (id, account_id, amount, currency, payment_id, status, created_at) VALUES (?, ?, ?, ?, ?, ?, ?)", rows);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        long indexBlocks = indexBlocks(table) - blocksBefore;
+        long indexBytes = jdbcTemplate.queryForObject("SELECT pg_relation_size(?::regclass)", Long.class, table + "_pkey");
+        double leafDensity = jdbcTemplate.queryForObject("SELECT avg_leaf_density FROM pgstatindex(?::regclass)", Double.class,
+                table + "_pkey");
+        jdbcTemplate.execute("DROP TABLE " + table);
+        return new Result(ROWS / seconds, indexBytes, leafDensity, indexBlocks);
+    }
+
+    private long indexBlocks(String table) {
+        jdbcTemplate.execute("SELECT pg_stat_force_next_flush()");
+        Long blocks = jdbcTemplate.queryForObject("""
+                SELECT coalesce(sum(idx_blks_hit + idx_blks_read), 0)
+                FROM pg_statio_user_indexes
+                WHERE relname = ?
+                """, Long.class, table);
+        return blocks == null ? 0 : blocks;
+    }
+
+    private record Result(double rowsPerSecond, long indexBytes, double leafDensity, long indexBlocks) {}
+}
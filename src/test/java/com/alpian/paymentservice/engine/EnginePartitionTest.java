@@ -0,0 +1,82 @@
+package com.alpian.paymentservice.engine;
+
+import com.alpian.paymentservice.api.dto.PaymentResponse;
+import com.alpian.paymentservice.kafka.PaymentNotificationEncoder;
+import com.alpian.paymentservice.persistence.repository.AccountEngineRepository;
+import com.alpian.paymentservice.persistence.repository.PaymentBatchRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class EnginePartitionTest {
+
+    private static final UUID ACCOUNT_ID = UUID.randomUUID();
+    private static final UUID USER_ID = UUID.randomUUID();
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void writeBehindBatchThatNeverCommits_failsThePartition_andEveryLaterCommand() throws InterruptedException {
+        AccountEngineRepository accountEngineRepository = mock(AccountEngineRepository.class);
+        when(accountEngineRepository.findAccount(ACCOUNT_ID))
+                .thenReturn(Optional.of(new AccountEngineRepository.EngineAccount(USER_ID, 10_000)));
+        TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+        doThrow(new DataIntegrityViolationException("payment_account_id_fkey"))
+                .when(transactionTemplate).executeWithoutResult(any());
+
+        PartitionWriteBehind writeBehind = new PartitionWriteBehind(0, 16, 16, 100, 2, 10,
+                accountEngineRepository, mock(PaymentBatchRepository.class), mock(PaymentNotificationEncoder.class),
+                transactionTemplate);
+        EnginePartition partition = new EnginePartition(0, new DebitRingBuffer(8),
+                new PaymentJournal(dir, 0, 1 << 20, false), writeBehind, accountEngineRepository,
+                mock(DistributionSummary.class), 8, 30_000, 50, 1_000);
+        partition.start();
+        try {
+            // journaled and synced: the caller is answered before the write-behind fails
+            assertThat(debit(partition)).succeedsWithin(Duration.ofSeconds(5))
+                    .extracting(PaymentResponse::status).isEqualTo("COMPLETED");
+
+            await().atMost(Duration.ofSeconds(5)).until(() -> !partition.isRunning());
+            verify(transactionTemplate, times(2)).executeWithoutResult(any());
+
+            assertThat(debit(partition)).failsWithin(Duration.ofSeconds(5))
+                    .withThrowableThat()
+                    .havingRootCause()
+                    .isInstanceOf(DataIntegrityViolationException.class);
+        } finally {
+            partition.stop();
+        }
+    }
+
+    @Test
+    void ringThatStaysFull_claimGivesUpAfterTheTimeout() {
+        DebitRingBuffer ring = new DebitRingBuffer(2);
+        for (int i = 0; i < ring.capacity(); i++) {
+            assertThat(ring.claim(0)).isEqualTo(i);
+        }
+
+        assertThat(ring.claim(TimeUnit.MILLISECONDS.toNanos(20))).isEqualTo(-1);
+
+        ring.release(0);
+        assertThat(ring.claim(0)).isEqualTo(ring.capacity());
+    }
+
+    private static CompletableFuture<PaymentResponse> debit(EnginePartition partition) {
+        return partition.publish(ACCOUNT_ID, USER_ID, UUID.randomUUID(), 100, "CHF", System.nanoTime());
+    }
+}
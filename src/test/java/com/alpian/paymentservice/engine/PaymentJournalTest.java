@@ -0,0 +1,106 @@
+package com.alpian.paymentservice.engine;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.*;
+
+class PaymentJournalTest {
+
+    private static final UUID ACCOUNT_ID = UUID.randomUUID();
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void recover_returnsTheRecordsAfterTheCheckpoint_andContinuesAfterThem() {
+        PaymentJournal journal = new PaymentJournal(dir, 0, 1 << 20, true);
+        assertThat(journal.recover(0)).isEmpty();
+        List<JournalRecord> written = List.of(record(1, 900), record(2, 800), record(3, 700));
+        written.forEach(journal::append);
+        journal.sync();
+
+        PaymentJournal reopened = new PaymentJournal(dir, 0, 1 << 20, true);
+        assertThat(reopened.recover(1)).containsExactly(written.get(1), written.get(2));
+        assertThat(reopened.lastSequence()).isEqualTo(3);
+
+        reopened.append(record(4, 600));
+        reopened.sync();
+        assertThat(new PaymentJournal(dir, 0, 1 << 20, true).recover(3)).containsExactly(record(4, 600));
+    }
+
+    @Test
+    void recover_stopsAtATornRecord_andOverwritesIt() throws IOException {
+        PaymentJournal journal = new PaymentJournal(dir, 0, 1 << 20, true);
+        journal.recover(0);
+        journal.append(record(1, 900));
+        journal.append(record(2, 800));
+        journal.sync();
+
+        try (RandomAccessFile file = new RandomAccessFile(segments().getFirst().toFile(), "rw")) {
+            file.seek(PaymentJournal.RECORD_BYTES + 60);
+            file.write(0x7F);
+        }
+
+        PaymentJournal recovered = new PaymentJournal(dir, 0, 1 << 20, true);
+        assertThat(recovered.recover(0)).containsExactly(record(1, 900));
+        recovered.append(record(2, 850));
+        recovered.sync();
+
+        assertThat(new PaymentJournal(dir, 0, 1 << 20, true).recover(0))
+                .containsExactly(record(1, 900), record(2, 850));
+    }
+
+    @Test
+    void append_rollsSegments_andReleaseDeletesTheWrittenBehindOnes() throws IOException {
+        PaymentJournal journal = new PaymentJournal(dir, 0, 2 * PaymentJournal.RECORD_BYTES, true);
+        journal.recover(0);
+        for (int sequence = 1; sequence <= 5; sequence++) {
+            journal.append(record(sequence, 1000 - sequence));
+        }
+        journal.sync();
+        assertThat(segments()).hasSize(3);
+
+        journal.releaseUpTo(3);
+        assertThat(segments()).hasSize(2);
+        journal.releaseUpTo(5);
+        assertThat(segments()).hasSize(1);
+
+        assertThat(new PaymentJournal(dir, 0, 2 * PaymentJournal.RECORD_BYTES, true).recover(0))
+                .containsExactly(record(5, 995));
+    }
+
+    @Test
+    void append_afterASequenceGap_startsANewSegment() throws IOException {
+        PaymentJournal journal = new PaymentJournal(dir, 0, 1 << 20, true);
+        journal.recover(0);
+        journal.append(record(1, 900));
+        journal.append(record(7, 800));
+        journal.sync();
+
+        assertThat(segments()).hasSize(2);
+        assertThat(new PaymentJournal(dir, 0, 1 << 20, true).recover(0))
+                .containsExactly(record(1, 900), record(7, 800));
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.sorted().toList();
+        }
+    }
+
+    private static JournalRecord record(long sequence, long balanceAfter) {
+        return new JournalRecord(sequence, ACCOUNT_ID, new UUID(0, sequence), new UUID(1, sequence), 100,
+                balanceAfter, "CHF", Instant.parse("2026-01-01T00:00:00Z").plus(sequence, ChronoUnit.MICROS));
+    }
+}
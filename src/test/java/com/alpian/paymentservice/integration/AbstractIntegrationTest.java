@@ -19,7 +19,8 @@ public abstract class AbstractIntegrationTest {
     @Container
     @ServiceConnection
     static final PostgreSQLContainer<?> postgres =
-            new PostgreSQLContainer<>(DockerImageName.parse("postgres:16-alpine"));
+            new PostgreSQLContainer<>(DockerImageName.parse("postgres:16-alpine"))
+                    .withCommand("postgres", "-c", "fsync=off", "-c", "wal_level=logical");
 
     @Container
     static final KafkaContainer kafka =
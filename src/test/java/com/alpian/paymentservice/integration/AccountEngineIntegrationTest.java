@@ -0,0 +1,152 @@
+package com.alpian.paymentservice.integration;
+
+import com.alpian.paymentservice.api.dto.PaymentRequest;
+import com.alpian.paymentservice.api.exception.DuplicatePaymentException;
+import com.alpian.paymentservice.api.exception.InsufficientFundsException;
+import com.alpian.paymentservice.money.Money;
+import com.alpian.paymentservice.persistence.entity.AccountEntity;
+import com.alpian.paymentservice.persistence.entity.PaymentStatus;
+import com.alpian.paymentservice.persistence.repository.AccountRepository;
+import com.alpian.paymentservice.service.PaymentService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.awaitility.Awaitility.await;
+
+@TestPropertySource(properties = {
+        "payment.engine.enabled=true",
+        "payment.engine.partitions=2",
+        "payment.engine.fsync=false"
+})
+class AccountEngineIntegrationTest extends AbstractIntegrationTest {
+
+    @DynamicPropertySource
+    static void journalDir(DynamicPropertyRegistry registry) throws IOException {
+        String dir = Files.createTempDirectory("engine-journal-it").toString();
+        registry.add("payment.engine.journal-dir", () -> dir);
+    }
+
+    @Autowired
+    PaymentService paymentService;
+
+    @Autowired
+    AccountRepository accountRepository;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Test
+    void should_never_overdraw_and_write_the_debits_behind() throws Exception {
+        UUID userId = UUID.randomUUID();
+        UUID accountId = createAccount(userId, "100.00");
+
+        int threads = 20;
+        BigDecimal amount = new BigDecimal("10.00");
+
+        var executor = Executors.newFixedThreadPool(threads);
+        var startGate = new CountDownLatch(1);
+        var doneGate = new CountDownLatch(threads);
+        var success = new AtomicInteger(0);
+        var insufficient = new AtomicInteger(0);
+        var otherErrors = new AtomicInteger(0);
+
+        for (int i = 0; i < threads; i++) {
+            executor.submit(() -> {
+                try {
+                    startGate.await();
+                    paymentService.createPayment(new PaymentRequest(accountId, amount, "CHF", UUID.randomUUID()), userId);
+                    success.incrementAndGet();
+                } catch (InsufficientFundsException ex) {
+                    insufficient.incrementAndGet();
+                } catch (Exception ex) {
+                    otherErrors.incrementAndGet();
+                } finally {
+                    doneGate.countDown();
+                }
+                return null;
+            });
+        }
+
+        startGate.countDown();
+        doneGate.await();
+        executor.shutdown();
+
+        assertThat(otherErrors.get()).isZero();
+        assertThat(success.get()).isEqualTo(10);
+        assertThat(insufficient.get()).isEqualTo(10);
+
+        await()
+                .atMost(Duration.ofSeconds(10))
+                .pollInterval(Duration.ofMillis(50))
+                .untilAsserted(() -> {
+                    assertThat(accountRepository.findById(accountId).orElseThrow().getBalance())
+                            .isEqualTo(0L);
+                    assertThat(countPayments(accountId)).isEqualTo(10);
+                    assertThat(jdbcTemplate.queryForObject(
+                            "SELECT count(*) FROM outbox_event WHERE shard_key = ?", Integer.class, accountId))
+                            .isEqualTo(10);
+                });
+    }
+
+    @Test
+    void should_replay_identical_retries_and_reject_conflicting_ones_before_and_after_write_behind() {
+        UUID userId = UUID.randomUUID();
+        UUID accountId = createAccount(userId, "100.00");
+        UUID paymentId = UUID.randomUUID();
+        PaymentRequest request = new PaymentRequest(accountId, new BigDecimal("30.00"), "CHF", paymentId);
+        PaymentRequest conflicting = new PaymentRequest(accountId, new BigDecimal("31.00"), "CHF", paymentId);
+
+        assertThat(paymentService.createPayment(request, userId).status()).isEqualTo(PaymentStatus.COMPLETED.name());
+        assertThat(paymentService.createPayment(request, userId).status()).isEqualTo(PaymentStatus.COMPLETED.name());
+        assertThatThrownBy(() -> paymentService.createPayment(conflicting, userId))
+                .isInstanceOf(DuplicatePaymentException.class);
+
+        await()
+                .atMost(Duration.ofSeconds(10))
+                .pollInterval(Duration.ofMillis(50))
+                .untilAsserted(() -> assertThat(countPayments(accountId)).isEqualTo(1));
+
+        assertThat(paymentService.createPayment(request, userId).status()).isEqualTo(PaymentStatus.COMPLETED.name());
+        assertThatThrownBy(() -> paymentService.createPayment(conflicting, userId))
+                .isInstanceOf(DuplicatePaymentException.class);
+
+        await()
+                .atMost(Duration.ofSeconds(10))
+                .pollInterval(Duration.ofMillis(50))
+                .untilAsserted(() -> assertThat(accountRepository.findById(accountId).orElseThrow().getBalance())
+                        .isEqualTo(7000L));
+        assertThat(countPayments(accountId)).isEqualTo(1);
+    }
+
+    private UUID createAccount(UUID userId, String balance) {
+        UUID accountId = UUID.randomUUID();
+        accountRepository.save(
+                AccountEntity.builder()
+                        .id(accountId)
+                        .userId(userId)
+                        .balance(Money.minorUnits(new BigDecimal(balance)))
+                        .baseCurrency("CHF")
+                        .build()
+        );
+        return accountId;
+    }
+
+    private Integer countPayments(UUID accountId) {
+        return jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM payment WHERE account_id = ? AND status = 'COMPLETED'", Integer.class, accountId);
+    }
+}
@@ -0,0 +1,102 @@
+package com.alpian.paymentservice.integration;
+
+import com.alpian.paymentservice.api.dto.PaymentRequest;
+import com.alpian.paymentservice.api.exception.InsufficientFundsException;
+import com.alpian.paymentservice.persistence.entity.AccountBalanceStripeEntity;
+import com.alpian.paymentservice.persistence.entity.AccountEntity;
+import com.alpian.paymentservice.persistence.repository.AccountBalanceStripeRepository;
+import com.alpian.paymentservice.persistence.repository.AccountRepository;
+import com.alpian.paymentservice.service.PaymentService;
+import com.alpian.paymentservice.service.StripedBalanceService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.*;
+
+@TestPropertySource(properties = {
+        "payment.striping.enabled=true",
+        "payment.striping.stripe-count=4",
+        "payment.striping.rebalance-interval-ms=3600000"
+})
+class AccountStripingIntegrationTest extends AbstractIntegrationTest {
+
+    @Autowired
+    PaymentService paymentService;
+
+    @Autowired
+    StripedBalanceService stripedBalanceService;
+
+    @Autowired
+    AccountRepository accountRepository;
+
+    @Autowired
+    AccountBalanceStripeRepository stripeRepository;
+
+    @Test
+    void should_never_overdraw_a_striped_account_and_stay_consistent_after_rebalance() throws Exception {
+        UUID userId = UUID.randomUUID();
+        UUID accountId = UUID.randomUUID();
+
+        accountRepository.save(
+                AccountEntity.builder()
+                        .id(accountId)
+                        .userId(userId)
+                        .balance(10_000L)
+                        .baseCurrency("CHF")
+                        .striped(true)
+                        .build()
+        );
+
+        int threads = 10;
+        BigDecimal amount = new BigDecimal("30.00");
+
+        var executor = Executors.newFixedThreadPool(threads);
+        var startGate = new CountDownLatch(1);
+        var doneGate = new CountDownLatch(threads);
+        var success = new AtomicInteger(0);
+        var insufficient = new AtomicInteger(0);
+        var otherErrors = new AtomicInteger(0);
+
+        for (int i = 0; i < threads; i++) {
+            executor.submit(() -> {
+                try {
+                    startGate.await();
+                    paymentService.createPayment(new PaymentRequest(accountId, amount, "CHF", UUID.randomUUID()), userId);
+                    success.incrementAndGet();
+                } catch (InsufficientFundsException ex) {
+                    insufficient.incrementAndGet();
+                } catch (Exception ex) {
+                    otherErrors.incrementAndGet();
+                } finally {
+                    doneGate.countDown();
+                }
+                return null;
+            });
+        }
+
+        startGate.countDown();
+        doneGate.await();
+        executor.shutdown();
+
+        assertThat(otherErrors.get()).isZero();
+        assertThat(success.get()).isEqualTo(3);
+        assertThat(insufficient.get()).isEqualTo(7);
+
+        BigDecimal stripesTotal = stripeRepository.findAll().stream()
+                .filter(s -> s.getAccountId().equals(accountId))
+                .map(AccountBalanceStripeEntity::getBalance)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        assertThat(stripesTotal).isEqualByComparingTo("10.00");
+
+        stripedBalanceService.rebalance(accountId);
+
+        assertThat(accountRepository.findById(accountId).orElseThrow().getBalance()).isEqualTo(1000L);
+    }
+}
@@ -0,0 +1,105 @@
+package com.alpian.paymentservice.integration;
+
+import com.alpian.paymentservice.api.dto.BatchItemStatus;
+import com.alpian.paymentservice.api.dto.BatchPaymentItemResult;
+import com.alpian.paymentservice.api.dto.BatchPaymentResponse;
+import com.alpian.paymentservice.api.dto.PaymentRequest;
+import com.alpian.paymentservice.api.exception.BatchTooLargeException;
+import com.alpian.paymentservice.config.PaymentProperties;
+import com.alpian.paymentservice.money.Money;
+import com.alpian.paymentservice.persistence.entity.AccountEntity;
+import com.alpian.paymentservice.persistence.repository.AccountRepository;
+import com.alpian.paymentservice.persistence.repository.OutboxRepository;
+import com.alpian.paymentservice.service.BatchPaymentService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.*;
+
+class BatchPaymentIntegrationTest extends AbstractIntegrationTest {
+
+    @Autowired
+    BatchPaymentService batchPaymentService;
+
+    @Autowired
+    AccountRepository accountRepository;
+
+    @Autowired
+    OutboxRepository outboxRepository;
+
+    @Autowired
+    PaymentProperties paymentProperties;
+
+    @Test
+    void should_return_a_result_per_item_and_only_debit_completed_ones() {
+        UUID userId = UUID.randomUUID();
+        UUID accountA = seedAccount(userId, "100.00");
+        UUID accountB = seedAccount(userId, "10.00");
+        UUID foreignAccount = seedAccount(UUID.randomUUID(), "100.00");
+        outboxRepository.deleteAll();
+
+        UUID repeatedPaymentId = UUID.randomUUID();
+        List<PaymentRequest> requests = List.of(
+                new PaymentRequest(accountA, new BigDecimal("60.00"), "CHF", repeatedPaymentId),
+                new PaymentRequest(accountB, new BigDecimal("20.00"), "CHF", UUID.randomUUID()),
+                new PaymentRequest(accountA, new BigDecimal("30.00"), "CHF", UUID.randomUUID()),
+                new PaymentRequest(accountA, new BigDecimal("60.00"), "CHF", repeatedPaymentId),
+                new PaymentRequest(accountA, new BigDecimal("30.00"), "CHF", UUID.randomUUID()),
+                new PaymentRequest(foreignAccount, new BigDecimal("1.00"), "CHF", UUID.randomUUID())
+        );
+
+        BatchPaymentResponse response = batchPaymentService.createPayments(requests, userId);
+
+        assertThat(response.results()).extracting(BatchPaymentItemResult::status).containsExactly(
+                BatchItemStatus.COMPLETED,
+                BatchItemStatus.INSUFFICIENT_FUNDS,
+                BatchItemStatus.COMPLETED,
+                BatchItemStatus.DUPLICATE,
+                BatchItemStatus.INSUFFICIENT_FUNDS,
+                BatchItemStatus.FORBIDDEN
+        );
+
+        assertThat(accountRepository.findById(accountA).orElseThrow().getBalance()).isEqualTo(1000L);
+        assertThat(accountRepository.findById(accountB).orElseThrow().getBalance()).isEqualTo(1000L);
+        assertThat(outboxRepository.findAll()).hasSize(2);
+
+        BatchPaymentResponse replay = batchPaymentService.createPayments(List.of(
+                requests.get(0),
+                new PaymentRequest(accountA, new BigDecimal("5.00"), "CHF", requests.get(2).paymentId())
+        ), userId);
+        assertThat(replay.results()).extracting(BatchPaymentItemResult::status)
+                .containsExactly(BatchItemStatus.COMPLETED, BatchItemStatus.DUPLICATE);
+        assertThat(accountRepository.findById(accountA).orElseThrow().getBalance()).isEqualTo(1000L);
+        assertThat(outboxRepository.findAll()).hasSize(2);
+    }
+
+    @Test
+    void should_reject_a_batch_over_the_maximum_size() {
+        UUID userId = UUID.randomUUID();
+        UUID accountId = seedAccount(userId, "100.00");
+        List<PaymentRequest> requests = Collections.nCopies(paymentProperties.getBatch().getMaxItems() + 1,
+                new PaymentRequest(accountId, new BigDecimal("1.00"), "CHF", UUID.randomUUID()));
+
+        assertThatThrownBy(() -> batchPaymentService.createPayments(requests, userId))
+                .isInstanceOf(BatchTooLargeException.class);
+        assertThat(accountRepository.findById(accountId).orElseThrow().getBalance()).isEqualTo(10000L);
+    }
+
+    private UUID seedAccount(UUID userId, String balance) {
+        UUID accountId = UUID.randomUUID();
+        accountRepository.save(
+                AccountEntity.builder()
+                        .id(accountId)
+                        .userId(userId)
+                        .balance(Money.minorUnits(new BigDecimal(balance)))
+                        .baseCurrency("CHF")
+                        .build()
+        );
+        return accountId;
+    }
+}
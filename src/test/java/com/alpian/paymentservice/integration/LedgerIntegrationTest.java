@@ -0,0 +1,119 @@
+package com.alpian.paymentservice.integration;
+
+import com.alpian.paymentservice.api.dto.PaymentRequest;
+import com.alpian.paymentservice.api.exception.InsufficientFundsException;
+import com.alpian.paymentservice.persistence.entity.AccountEntity;
+import com.alpian.paymentservice.persistence.repository.AccountRepository;
+import com.alpian.paymentservice.service.LedgerService;
+import com.alpian.paymentservice.service.PaymentService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.*;
+
+@TestPropertySource(properties = {
+        "payment.ledger.enabled=true",
+        "payment.ledger.compaction-interval-ms=3600000"
+})
+class LedgerIntegrationTest extends AbstractIntegrationTest {
+
+    @Autowired
+    PaymentService paymentService;
+
+    @Autowired
+    LedgerService ledgerService;
+
+    @Autowired
+    AccountRepository accountRepository;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Test
+    void should_never_overdraw_a_ledger_account_and_compact_into_the_snapshot() throws Exception {
+        UUID userId = UUID.randomUUID();
+        UUID accountId = UUID.randomUUID();
+
+        accountRepository.save(
+                AccountEntity.builder()
+                        .id(accountId)
+                        .userId(userId)
+                        .balance(10_000L)
+                        .baseCurrency("CHF")
+                        .build()
+        );
+
+        int threads = 20;
+        BigDecimal amount = new BigDecimal("10.00");
+
+        var executor = Executors.newFixedThreadPool(threads);
+        var startGate = new CountDownLatch(1);
+        var doneGate = new CountDownLatch(threads);
+        var success = new AtomicInteger(0);
+        var insufficient = new AtomicInteger(0);
+        var otherErrors = new AtomicInteger(0);
+
+        for (int i = 0; i < threads; i++) {
+            executor.submit(() -> {
+                try {
+                    startGate.await();
+                    paymentService.createPayment(new PaymentRequest(accountId, amount, "CHF", UUID.randomUUID()), userId);
+                    success.incrementAndGet();
+                } catch (InsufficientFundsException ex) {
+                    insufficient.incrementAndGet();
+                } catch (Exception ex) {
+                    otherErrors.incrementAndGet();
+                } finally {
+                    doneGate.countDown();
+                }
+                return null;
+            });
+        }
+
+        startGate.countDown();
+        doneGate.await();
+        executor.shutdown();
+
+        assertThat(otherErrors.get()).isZero();
+        assertThat(success.get()).isEqualTo(10);
+        assertThat(insufficient.get()).isEqualTo(10);
+
+        // The snapshot is untouched by the debits; the ledger carries them, balanced per payment.
+        AccountEntity account = accountRepository.findById(accountId).orElseThrow();
+        assertThat(account.getBalance()).isEqualTo(10_000L);
+        assertThat(account.getBalanceEntryId()).isZero();
+
+        Integer unbalancedPayments = jdbcTemplate.queryForObject("""
+                SELECT count(*) FROM (
+                    SELECT payment_id
+                    FROM ledger_entry
+                    WHERE payment_id IN (SELECT payment_id FROM ledger_entry WHERE account_id = ?)
+                    GROUP BY payment_id
+                    HAVING sum(CASE direction WHEN 'CREDIT' THEN amount ELSE -amount END) <> 0
+                        OR count(*) <> 2
+                ) unbalanced
+                """, Integer.class, accountId);
+        assertThat(unbalancedPayments).isZero();
+        assertThat(ledgerService.lockedBalance(account)).isEqualTo(0L);
+
+        assertThat(ledgerService.compact(accountId)).isEqualTo(10);
+        assertThat(ledgerService.compact(accountId)).isZero();
+
+        AccountEntity compacted = accountRepository.findById(accountId).orElseThrow();
+        assertThat(compacted.getBalance()).isEqualTo(0L);
+        assertThat(compacted.getBalanceEntryId()).isPositive();
+        assertThat(ledgerService.lockedBalance(compacted)).isEqualTo(0L);
+
+        assertThatThrownBy(() -> paymentService.createPayment(
+                new PaymentRequest(accountId, amount, "CHF", UUID.randomUUID()), userId))
+                .isInstanceOf(InsufficientFundsException.class);
+    }
+}
@@ -0,0 +1,106 @@
+package com.alpian.paymentservice.integration;
+
+import com.alpian.paymentservice.outbox.OutboxDeadLetterEndpoint;
+import com.alpian.paymentservice.outbox.model.OutboxFailure;
+import com.alpian.paymentservice.persistence.entity.EventStatus;
+import com.alpian.paymentservice.persistence.entity.EventType;
+import com.alpian.paymentservice.persistence.entity.OutboxEventEntity;
+import com.alpian.paymentservice.persistence.repository.OutboxRepository;
+import com.alpian.paymentservice.service.OutboxTxService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.*;
+
+@TestPropertySource(properties = "outbox.publisher.poll-interval-ms=600000")
+class OutboxAckIntegrationTest extends AbstractIntegrationTest {
+
+    @Autowired
+    OutboxTxService outboxTxService;
+
+    @Autowired
+    OutboxRepository outboxRepository;
+
+    @Autowired
+    OutboxDeadLetterEndpoint outboxDeadLetterEndpoint;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Test
+    void should_ack_sent_retry_and_failed_events_in_set_based_updates() {
+        outboxRepository.deleteAll();
+        jdbcTemplate.update("DELETE FROM outbox_dead_letter");
+        UUID sent1 = processingEvent(1);
+        UUID sent2 = processingEvent(1);
+        UUID retry = processingEvent(1);
+        UUID failed = processingEvent(3);
+
+        outboxTxService.markSent(List.of(sent1, sent2));
+        outboxTxService.markFailedOrRetry(List.of(
+                new OutboxFailure(retry, 1, "TimeoutException: boom"),
+                new OutboxFailure(failed, 3, "TimeoutException: boom")));
+
+        assertThat(outboxRepository.findById(sent1).orElseThrow().getEventStatus()).isEqualTo(EventStatus.SENT);
+        assertThat(outboxRepository.findById(sent2).orElseThrow().getProcessedAt()).isNotNull();
+
+        OutboxEventEntity retried = outboxRepository.findById(retry).orElseThrow();
+        assertThat(retried.getEventStatus()).isEqualTo(EventStatus.PENDING);
+        assertThat(retried.getProcessingStartedAt()).isNull();
+        assertThat(retried.getLastError()).isEqualTo("TimeoutException: boom");
+        assertThat(retried.getNextAttemptAt()).isNotNull();
+
+        assertThat(outboxRepository.findById(failed)).isEmpty();
+        Integer deadAttempts = jdbcTemplate.queryForObject(
+                "SELECT attempt_count FROM outbox_dead_letter WHERE id = ?", Integer.class, failed);
+        assertThat(deadAttempts).isEqualTo(3);
+    }
+
+    @Test
+    void should_not_claim_a_retry_before_its_backoff_and_replay_dead_letters_in_bulk() {
+        outboxRepository.deleteAll();
+        jdbcTemplate.update("DELETE FROM outbox_dead_letter");
+        UUID retry = processingEvent(1);
+        UUID dead1 = processingEvent(3);
+        UUID dead2 = processingEvent(3);
+
+        outboxTxService.markFailedOrRetry(List.of(
+                new OutboxFailure(retry, 1, "TimeoutException: boom"),
+                new OutboxFailure(dead1, 3, "TimeoutException: boom"),
+                new OutboxFailure(dead2, 3, "TimeoutException: boom")));
+
+        // backoff of the first retry is at least retry-base-delay-ms / 2
+        assertThat(outboxTxService.claimBatch()).isEmpty();
+        assertThat(outboxDeadLetterEndpoint.deadLetters()).containsEntry(EventType.PAYMENT_CREATED.name(), 2L);
+
+        assertThat(outboxDeadLetterEndpoint.replay(EventType.PAYMENT_CREATED.name(), null))
+                .containsEntry("replayed", 2);
+
+        assertThat(outboxDeadLetterEndpoint.deadLetters()).isEmpty();
+        assertThat(outboxTxService.claimBatch())
+                .extracting(OutboxEventEntity::getId)
+                .containsExactlyInAnyOrder(dead1, dead2);
+    }
+
+    private UUID processingEvent(int attemptCount) {
+        return outboxRepository.save(
+                OutboxEventEntity.builder()
+                        .aggregateType("PAYMENT")
+                        .aggregateId(UUID.randomUUID())
+                        .shardKey(UUID.randomUUID())
+                        .eventType(EventType.PAYMENT_CREATED)
+                        .eventStatus(EventStatus.PROCESSING)
+                        .payload("{}".getBytes(StandardCharsets.UTF_8))
+                        .attemptCount(attemptCount)
+                        .processingStartedAt(Instant.now())
+                        .build()
+        ).getId();
+    }
+}
@@ -0,0 +1,73 @@
+package com.alpian.paymentservice.integration;
+
+import com.alpian.paymentservice.outbox.model.OutboxFailure;
+import com.alpian.paymentservice.persistence.entity.EventStatus;
+import com.alpian.paymentservice.persistence.entity.EventType;
+import com.alpian.paymentservice.persistence.entity.OutboxEventEntity;
+import com.alpian.paymentservice.persistence.repository.OutboxRepository;
+import com.alpian.paymentservice.service.OutboxTxService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.*;
+
+@TestPropertySource(properties = {
+        "outbox.publisher.batch-size=10",
+        "outbox.publisher.poll-interval-ms=600000",
+        "outbox.publisher.reaper-interval-ms=600000"
+})
+class OutboxClaimOrderIntegrationTest extends AbstractIntegrationTest {
+
+    @Autowired
+    OutboxTxService outboxTxService;
+
+    @Autowired
+    OutboxRepository outboxRepository;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Test
+    void should_hold_back_later_events_of_an_account_while_an_earlier_one_is_in_flight_or_retrying() {
+        outboxRepository.deleteAll();
+        UUID account = UUID.randomUUID();
+        Instant start = Instant.now().truncatedTo(ChronoUnit.MILLIS).minusSeconds(10);
+
+        UUID first = pendingEvent(account, start);
+        assertThat(outboxTxService.claimBatch()).extracting(OutboxEventEntity::getId).containsExactly(first);
+
+        // the next event of the account arrives while the first one is still PROCESSING
+        UUID second = pendingEvent(account, start.plusMillis(1));
+        UUID otherAccount = pendingEvent(UUID.randomUUID(), start.plusMillis(2));
+        assertThat(outboxTxService.claimBatch()).extracting(OutboxEventEntity::getId).containsExactly(otherAccount);
+
+        // the send of the first one fails: it waits out its backoff, the second one still waits behind it
+        outboxTxService.markFailedOrRetry(List.of(new OutboxFailure(first, 1, "TimeoutException: boom")));
+        assertThat(outboxTxService.claimBatch()).isEmpty();
+
+        jdbcTemplate.update("UPDATE outbox_event SET next_attempt_at = LOCALTIMESTAMP - INTERVAL '1 second' WHERE id = ?", first);
+        assertThat(outboxTxService.claimBatch()).extracting(OutboxEventEntity::getId).containsExactly(first, second);
+    }
+
+    private UUID pendingEvent(UUID shardKey, Instant createdAt) {
+        return outboxRepository.save(
+                OutboxEventEntity.builder()
+                        .aggregateType("PAYMENT")
+                        .aggregateId(UUID.randomUUID())
+                        .shardKey(shardKey)
+                        .eventType(EventType.PAYMENT_CREATED)
+                        .eventStatus(EventStatus.PENDING)
+                        .payload("{}".getBytes(StandardCharsets.UTF_8))
+                        .createdAt(createdAt)
+                        .build()
+        ).getId();
+    }
+}
@@ -0,0 +1,63 @@
+package com.alpian.paymentservice.integration;
+
+import com.alpian.paymentservice.api.dto.PaymentRequest;
+import com.alpian.paymentservice.persistence.entity.AccountEntity;
+import com.alpian.paymentservice.persistence.entity.EventStatus;
+import com.alpian.paymentservice.persistence.repository.AccountRepository;
+import com.alpian.paymentservice.persistence.repository.OutboxRepository;
+import com.alpian.paymentservice.service.PaymentService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.awaitility.Awaitility.await;
+
+@TestPropertySource(properties = {
+        "outbox.publisher.wakeup-mode=NOTIFY",
+        "outbox.publisher.fallback-poll-interval-ms=600000"
+})
+class OutboxNotifyWakeupIntegrationTest extends AbstractIntegrationTest {
+
+    @Autowired
+    PaymentService paymentService;
+
+    @Autowired
+    AccountRepository accountRepository;
+
+    @Autowired
+    OutboxRepository outboxRepository;
+
+    @Test
+    void should_publish_on_notification_without_waiting_for_a_poll() {
+        UUID userId = UUID.randomUUID();
+        UUID accountId = UUID.randomUUID();
+        outboxRepository.deleteAll();
+
+        accountRepository.save(
+                AccountEntity.builder()
+                        .id(accountId)
+                        .userId(userId)
+                        .balance(10_000L)
+                        .baseCurrency("CHF")
+                        .build()
+        );
+
+        // the listener connects asynchronously; its initial wakeup drains anything inserted before LISTEN
+        for (int i = 0; i < 5; i++) {
+            paymentService.createPayment(
+                    new PaymentRequest(accountId, new BigDecimal("10.00"), "CHF", UUID.randomUUID()), userId);
+        }
+
+        await()
+                .atMost(Duration.ofSeconds(10))
+                .pollInterval(Duration.ofMillis(50))
+                .untilAsserted(() -> assertThat(outboxRepository.findAll())
+                        .hasSize(5)
+                        .allSatisfy(e -> assertThat(e.getEventStatus()).isEqualTo(EventStatus.SENT)));
+    }
+}
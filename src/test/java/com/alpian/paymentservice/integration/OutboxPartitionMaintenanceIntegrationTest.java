@@ -0,0 +1,83 @@
+package com.alpian.paymentservice.integration;
+
+import com.alpian.paymentservice.outbox.OutboxPartitionMaintenance;
+import com.alpian.paymentservice.outbox.model.OutboxPartitionProperties;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.*;
+
+@TestPropertySource(properties = {
+        "outbox.publisher.poll-interval-ms=600000",
+        "outbox.partitions.maintenance-enabled=false"
+})
+class OutboxPartitionMaintenanceIntegrationTest extends AbstractIntegrationTest {
+
+    @Autowired
+    OutboxPartitionMaintenance maintenance;
+
+    @Autowired
+    OutboxPartitionProperties partitionProperties;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Test
+    void should_premake_partitions_and_drop_past_ones_only_once_fully_sent() {
+        partitionProperties.setMaintenanceEnabled(true);
+        partitionProperties.setRetentionDays(0);
+        jdbcTemplate.update("DELETE FROM outbox_event");
+        LocalDate today = jdbcTemplate.queryForObject("SELECT CURRENT_DATE", LocalDate.class);
+        UUID yesterdayEvent = insertEvent(today.minusDays(1), "PENDING");
+
+        maintenance.maintain();
+
+        assertThat(exists("outbox_event_p" + today.plusDays(3).format(DateTimeFormatter.BASIC_ISO_DATE))).isTrue();
+        assertThat(exists("outbox_event_p_history")).isTrue();
+
+        jdbcTemplate.update("UPDATE outbox_event SET event_status = 'SENT' WHERE id = ?", yesterdayEvent);
+        maintenance.maintain();
+
+        assertThat(exists("outbox_event_p_history")).isFalse();
+        assertThat(exists("outbox_event_p" + today.format(DateTimeFormatter.BASIC_ISO_DATE))).isTrue();
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM outbox_event WHERE id = ?", Long.class, yesterdayEvent))
+                .isZero();
+    }
+
+    @Test
+    void should_move_rows_of_a_missed_day_out_of_the_default_partition() {
+        partitionProperties.setMaintenanceEnabled(true);
+        partitionProperties.setRetentionDays(7);
+        jdbcTemplate.update("DELETE FROM outbox_event");
+        LocalDate today = jdbcTemplate.queryForObject("SELECT CURRENT_DATE", LocalDate.class);
+        LocalDate missedDay = today.plusDays(10);
+        String missedPartition = "outbox_event_p" + missedDay.format(DateTimeFormatter.BASIC_ISO_DATE);
+        UUID event = insertEvent(missedDay, "PENDING");
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM outbox_event_p_default", Long.class)).isEqualTo(1);
+
+        maintenance.maintain();
+
+        assertThat(exists(missedPartition)).isTrue();
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM outbox_event_p_default", Long.class)).isZero();
+        assertThat(jdbcTemplate.queryForObject("SELECT tableoid::regclass::text FROM outbox_event WHERE id = ?",
+                String.class, event)).isEqualTo(missedPartition);
+    }
+
+    private UUID insertEvent(LocalDate day, String status) {
+        return jdbcTemplate.queryForObject("""
+                INSERT INTO outbox_event (aggregate_type, aggregate_id, shard_key, event_type, event_status, payload, created_at)
+                VALUES ('PAYMENT', gen_random_uuid(), gen_random_uuid(), 'PAYMENT_CREATED', ?, '{}', ?::date + TIME '12:00')
+                RETURNING id
+                """, UUID.class, status, day.toString());
+    }
+
+    private boolean exists(String table) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject("SELECT to_regclass(?) IS NOT NULL", Boolean.class, table));
+    }
+}
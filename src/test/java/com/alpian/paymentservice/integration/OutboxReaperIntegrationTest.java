@@ -0,0 +1,66 @@
+package com.alpian.paymentservice.integration;
+
+import com.alpian.paymentservice.outbox.OutboxReaper;
+import com.alpian.paymentservice.persistence.entity.EventStatus;
+import com.alpian.paymentservice.persistence.entity.EventType;
+import com.alpian.paymentservice.persistence.entity.OutboxEventEntity;
+import com.alpian.paymentservice.persistence.repository.OutboxRepository;
+import com.alpian.paymentservice.service.OutboxTxService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.*;
+
+@TestPropertySource(properties = {
+        "outbox.publisher.poll-interval-ms=600000",
+        "outbox.publisher.reaper-interval-ms=600000",
+        "outbox.publisher.processing-timeout-seconds=30"
+})
+class OutboxReaperIntegrationTest extends AbstractIntegrationTest {
+
+    @Autowired
+    OutboxReaper outboxReaper;
+
+    @Autowired
+    OutboxTxService outboxTxService;
+
+    @Autowired
+    OutboxRepository outboxRepository;
+
+    @Test
+    void should_recover_only_timed_out_processing_events_and_leave_them_out_of_the_claim_until_then() {
+        outboxRepository.deleteAll();
+        UUID stuck = processingEvent(Instant.now().minusSeconds(60));
+        UUID inFlight = processingEvent(Instant.now());
+
+        assertThat(outboxTxService.claimBatch()).isEmpty();
+
+        assertThat(outboxReaper.reap()).isEqualTo(1);
+
+        assertThat(outboxRepository.findById(stuck).orElseThrow().getEventStatus()).isEqualTo(EventStatus.PENDING);
+        assertThat(outboxRepository.findById(inFlight).orElseThrow().getEventStatus()).isEqualTo(EventStatus.PROCESSING);
+        assertThat(outboxTxService.claimBatch())
+                .extracting(OutboxEventEntity::getId)
+                .containsExactly(stuck);
+    }
+
+    private UUID processingEvent(Instant processingStartedAt) {
+        return outboxRepository.save(
+                OutboxEventEntity.builder()
+                        .aggregateType("PAYMENT")
+                        .aggregateId(UUID.randomUUID())
+                        .shardKey(UUID.randomUUID())
+                        .eventType(EventType.PAYMENT_CREATED)
+                        .eventStatus(EventStatus.PROCESSING)
+                        .payload("{}".getBytes(StandardCharsets.UTF_8))
+                        .attemptCount(1)
+                        .processingStartedAt(processingStartedAt)
+                        .build()
+        ).getId();
+    }
+}
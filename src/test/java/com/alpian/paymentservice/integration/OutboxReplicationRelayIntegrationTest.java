@@ -0,0 +1,109 @@
+package com.alpian.paymentservice.integration;
+
+import com.alpian.paymentservice.api.dto.PaymentRequest;
+import com.alpian.paymentservice.kafka.PaymentNotification;
+import com.alpian.paymentservice.persistence.entity.AccountEntity;
+import com.alpian.paymentservice.persistence.repository.AccountRepository;
+import com.alpian.paymentservice.service.PaymentService;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.support.serializer.JacksonJsonDeserializer;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.awaitility.Awaitility.await;
+
+@TestPropertySource(properties = {
+        "outbox.publisher.relay-mode=LOGICAL_REPLICATION",
+        "outbox.publisher.replication-slot=outbox_relay_it",
+        "outbox.publisher.replication-status-interval-ms=100",
+        "outbox.routing.routes.PAYMENT_CREATED.topic=" + OutboxReplicationRelayIntegrationTest.TOPIC
+})
+class OutboxReplicationRelayIntegrationTest extends AbstractIntegrationTest {
+
+    static final String TOPIC = "outbox-replication-relay";
+    private static final String SLOT = "outbox_relay_it";
+
+    @Autowired
+    PaymentService paymentService;
+
+    @Autowired
+    AccountRepository accountRepository;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Value("${spring.kafka.bootstrap-servers}")
+    String bootstrapServers;
+
+    @Test
+    void should_stream_outbox_inserts_in_commit_order_and_confirm_the_slot() {
+        await().atMost(Duration.ofSeconds(30)).until(() -> jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM pg_replication_slots WHERE slot_name = ? AND active", Integer.class, SLOT) == 1);
+        String confirmedBefore = confirmedLsn();
+
+        UUID userId = UUID.randomUUID();
+        UUID accountId = UUID.randomUUID();
+        accountRepository.save(AccountEntity.builder()
+                .id(accountId)
+                .userId(userId)
+                .balance(50_000L)
+                .baseCurrency("CHF")
+                .build());
+        List<UUID> paymentIds = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            UUID paymentId = UUID.randomUUID();
+            paymentService.createPayment(new PaymentRequest(accountId, BigDecimal.TEN, "CHF", paymentId), userId);
+            paymentIds.add(paymentId);
+        }
+
+        Map<String, Object> consumerProps = Map.of(
+                ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers,
+                ConsumerConfig.GROUP_ID_CONFIG, "replication-relay-" + UUID.randomUUID(),
+                ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        JacksonJsonDeserializer<PaymentNotification> valueDeserializer = new JacksonJsonDeserializer<>(PaymentNotification.class, false);
+        try (Consumer<String, PaymentNotification> consumer = new DefaultKafkaConsumerFactory<>(consumerProps,
+                new StringDeserializer(), valueDeserializer).createConsumer()) {
+            consumer.subscribe(Set.of(TOPIC));
+            List<UUID> received = new ArrayList<>();
+            await().atMost(Duration.ofSeconds(20)).until(() -> {
+                for (ConsumerRecord<String, PaymentNotification> record : consumer.poll(Duration.ofMillis(200))) {
+                    if (record.value().accountId().equals(accountId)) {
+                        received.add(record.value().paymentId());
+                    }
+                }
+                return received.size() >= paymentIds.size();
+            });
+
+            assertThat(received).containsExactlyElementsOf(paymentIds);
+        }
+
+        await().atMost(Duration.ofSeconds(10)).untilAsserted(() -> {
+            assertThat(jdbcTemplate.queryForObject("""
+                    SELECT confirmed_flush_lsn > CAST(? AS PG_LSN) FROM pg_replication_slots WHERE slot_name = ?
+                    """, Boolean.class, confirmedBefore, SLOT)).isTrue();
+            assertThat(jdbcTemplate.queryForObject(
+                    "SELECT count(*) FROM outbox_relay_checkpoint WHERE slot_name = ?", Integer.class, SLOT)).isEqualTo(1);
+        });
+    }
+
+    private String confirmedLsn() {
+        return jdbcTemplate.queryForObject(
+                "SELECT confirmed_flush_lsn::text FROM pg_replication_slots WHERE slot_name = ?", String.class, SLOT);
+    }
+}
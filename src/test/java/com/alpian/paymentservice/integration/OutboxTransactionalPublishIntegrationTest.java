@@ -0,0 +1,105 @@
+package com.alpian.paymentservice.integration;
+
+import com.alpian.paymentservice.api.dto.PaymentRequest;
+import com.alpian.paymentservice.kafka.PaymentNotification;
+import com.alpian.paymentservice.kafka.PaymentNotificationBinaryDeserializer;
+import com.alpian.paymentservice.outbox.OutboxPublisherScheduler;
+import com.alpian.paymentservice.persistence.entity.AccountEntity;
+import com.alpian.paymentservice.persistence.entity.EventStatus;
+import com.alpian.paymentservice.persistence.entity.OutboxEventEntity;
+import com.alpian.paymentservice.persistence.repository.AccountRepository;
+import com.alpian.paymentservice.persistence.repository.OutboxRepository;
+import com.alpian.paymentservice.service.PaymentService;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.awaitility.Awaitility.await;
+
+@TestPropertySource(properties = {
+        "outbox.publisher.poll-interval-ms=600000",
+        "outbox.publisher.batch-size=10",
+        "kafka.topics.producerMode=TRANSACTIONAL",
+        "kafka.topics.paymentNotificationFormat=BINARY"
+})
+class OutboxTransactionalPublishIntegrationTest extends AbstractIntegrationTest {
+
+    @Autowired
+    PaymentService paymentService;
+
+    @Autowired
+    AccountRepository accountRepository;
+
+    @Autowired
+    OutboxRepository outboxRepository;
+
+    @Autowired
+    OutboxPublisherScheduler publisherScheduler;
+
+    @Value("${spring.kafka.bootstrap-servers}")
+    String bootstrapServers;
+
+    @Value("${kafka.topics.paymentNotification}")
+    String topic;
+
+    @Test
+    void should_publish_a_claimed_batch_in_one_transaction_and_ack_it_synchronously() {
+        outboxRepository.deleteAll();
+        UUID userId = UUID.randomUUID();
+        UUID accountId = UUID.randomUUID();
+        accountRepository.save(AccountEntity.builder()
+                .id(accountId)
+                .userId(userId)
+                .balance(50_000L)
+                .baseCurrency("CHF")
+                .build());
+        List<UUID> paymentIds = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            UUID paymentId = UUID.randomUUID();
+            paymentService.createPayment(new PaymentRequest(accountId, BigDecimal.TEN, "CHF", paymentId), userId);
+            paymentIds.add(paymentId);
+        }
+
+        assertThat(publisherScheduler.publishLoop()).isEqualTo(3);
+
+        assertThat(outboxRepository.findAll())
+                .extracting(OutboxEventEntity::getEventStatus)
+                .containsOnly(EventStatus.SENT);
+
+        Map<String, Object> consumerProps = Map.of(
+                ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers,
+                ConsumerConfig.GROUP_ID_CONFIG, "tx-publish-" + UUID.randomUUID(),
+                ConsumerConfig.ISOLATION_LEVEL_CONFIG, "read_committed",
+                ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        try (Consumer<String, PaymentNotification> consumer = new DefaultKafkaConsumerFactory<>(consumerProps,
+                new StringDeserializer(), new PaymentNotificationBinaryDeserializer()).createConsumer()) {
+            consumer.subscribe(Set.of(topic));
+            List<UUID> received = new ArrayList<>();
+            await().atMost(Duration.ofSeconds(10)).until(() -> {
+                for (ConsumerRecord<String, PaymentNotification> record : consumer.poll(Duration.ofMillis(200))) {
+                    if (record.value().accountId().equals(accountId)) {
+                        received.add(record.value().paymentId());
+                    }
+                }
+                return received.size() >= paymentIds.size();
+            });
+
+            assertThat(received).containsExactlyElementsOf(paymentIds);
+        }
+    }
+}
@@ -41,7 +41,7 @@ class PaymentE2EIntegrationTest extends AbstractIntegrationTest {
                 AccountEntity.builder()
                         .id(accountId)
                         .userId(userId)
-                        .balance(BigDecimal.valueOf(500))
+                        .balance(50_000L)
                         .baseCurrency("CHF")
                         .build()
         );
@@ -81,7 +81,7 @@ class PaymentE2EIntegrationTest extends AbstractIntegrationTest {
                 AccountEntity.builder()
                         .id(accountId)
                         .userId(userId)
-                        .balance(new BigDecimal("100.00"))
+                        .balance(10_000L)
                         .baseCurrency("CHF")
                         .build()
         );
@@ -135,11 +135,41 @@ class PaymentE2EIntegrationTest extends AbstractIntegrationTest {
 
         // balance must be 10.00
         AccountEntity refreshed = accountRepository.findById(accountId).orElseThrow();
-        assertThat(refreshed.getBalance()).isEqualByComparingTo("10.00");
+        assertThat(refreshed.getBalance()).isEqualTo(1000L);
 
         // outbox events should equal successful payments (one per completed payment)
         assertThat(outboxRepository.findAll()).hasSize(3);
     }
 
-}
+    @Test
+    void should_replay_identical_retry_and_reject_conflicting_duplicate() {
+        UUID userId = UUID.randomUUID();
+        UUID accountId = UUID.randomUUID();
+        outboxRepository.deleteAll();
+
+        accountRepository.save(
+                AccountEntity.builder()
+                        .id(accountId)
+                        .userId(userId)
+                        .balance(10_000L)
+                        .baseCurrency("CHF")
+                        .build()
+        );
+
+        UUID paymentId = UUID.randomUUID();
+        PaymentRequest request = new PaymentRequest(accountId, new BigDecimal("40.00"), "CHF", paymentId);
+
+        assertThat(paymentService.createPayment(request, userId).status()).isEqualTo("COMPLETED");
+        assertThat(paymentService.createPayment(request, userId).status()).isEqualTo("COMPLETED");
 
+        assertThatThrownBy(() -> paymentService.createPayment(
+                new PaymentRequest(accountId, new BigDecimal("41.00"), "CHF", paymentId), userId))
+                .isInstanceOf(com.alpian.paymentservice.api.exception.DuplicatePaymentException.class);
+
+        // the retry neither debited twice nor emitted a second event
+        AccountEntity refreshed = accountRepository.findById(accountId).orElseThrow();
+        assertThat(refreshed.getBalance()).isEqualTo(6000L);
+        assertThat(outboxRepository.findAll()).hasSize(1);
+    }
+
+}
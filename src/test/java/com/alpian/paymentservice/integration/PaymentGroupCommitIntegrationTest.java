@@ -0,0 +1,79 @@
+package com.alpian.paymentservice.integration;
+
+import com.alpian.paymentservice.api.dto.PaymentRequest;
+import com.alpian.paymentservice.api.exception.InsufficientFundsException;
+import com.alpian.paymentservice.persistence.entity.AccountEntity;
+import com.alpian.paymentservice.persistence.repository.AccountRepository;
+import com.alpian.paymentservice.persistence.repository.OutboxRepository;
+import com.alpian.paymentservice.service.PaymentGroupCommitter;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.*;
+
+@TestPropertySource(properties = {
+        "payment.group-commit.enabled=true",
+        "payment.group-commit.max-wait-micros=2000"
+})
+class PaymentGroupCommitIntegrationTest extends AbstractIntegrationTest {
+
+    @Autowired
+    PaymentGroupCommitter paymentGroupCommitter;
+
+    @Autowired
+    AccountRepository accountRepository;
+
+    @Autowired
+    OutboxRepository outboxRepository;
+
+    @Test
+    void should_commit_concurrent_payments_in_groups_and_isolate_failures() throws Exception {
+        UUID userId = UUID.randomUUID();
+        UUID accountId = UUID.randomUUID();
+        outboxRepository.deleteAll();
+
+        accountRepository.save(
+                AccountEntity.builder()
+                        .id(accountId)
+                        .userId(userId)
+                        .balance(10_000L)
+                        .baseCurrency("CHF")
+                        .build()
+        );
+
+        int requests = 20;
+        int completed = 0;
+        int rejected = 0;
+        try (ExecutorService executor = Executors.newFixedThreadPool(requests)) {
+            List<Future<String>> futures = new ArrayList<>();
+            for (int i = 0; i < requests; i++) {
+                PaymentRequest request = new PaymentRequest(accountId, new BigDecimal("10.00"), "CHF", UUID.randomUUID());
+                futures.add(executor.submit(() -> {
+                    try {
+                        return paymentGroupCommitter.submit(request, userId).status();
+                    } catch (InsufficientFundsException ex) {
+                        return "INSUFFICIENT_FUNDS";
+                    }
+                }));
+            }
+            for (Future<String> future : futures) {
+                if ("COMPLETED".equals(future.get())) completed++;
+                else rejected++;
+            }
+        }
+
+        assertThat(completed).isEqualTo(10);
+        assertThat(rejected).isEqualTo(10);
+        assertThat(accountRepository.findById(accountId).orElseThrow().getBalance()).isEqualTo(0L);
+        assertThat(outboxRepository.findAll()).hasSize(10);
+    }
+}
@@ -0,0 +1,70 @@
+package com.alpian.paymentservice.integration;
+
+import com.alpian.paymentservice.api.dto.PaymentRequest;
+import com.alpian.paymentservice.api.exception.DuplicatePaymentException;
+import com.alpian.paymentservice.api.exception.InsufficientFundsException;
+import com.alpian.paymentservice.persistence.entity.AccountEntity;
+import com.alpian.paymentservice.persistence.entity.EventStatus;
+import com.alpian.paymentservice.persistence.repository.AccountRepository;
+import com.alpian.paymentservice.persistence.repository.OutboxRepository;
+import com.alpian.paymentservice.service.PaymentService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.*;
+
+@TestPropertySource(properties = "payment.commit-mode=SINGLE_STATEMENT")
+class PaymentSingleStatementIntegrationTest extends AbstractIntegrationTest {
+
+    @Autowired
+    PaymentService paymentService;
+
+    @Autowired
+    AccountRepository accountRepository;
+
+    @Autowired
+    OutboxRepository outboxRepository;
+
+    @Test
+    void should_debit_and_write_outbox_in_one_call_and_report_outcomes() {
+        UUID userId = UUID.randomUUID();
+        UUID accountId = UUID.randomUUID();
+        outboxRepository.deleteAll();
+
+        accountRepository.save(
+                AccountEntity.builder()
+                        .id(accountId)
+                        .userId(userId)
+                        .balance(10_000L)
+                        .baseCurrency("CHF")
+                        .build()
+        );
+
+        UUID paymentId = UUID.randomUUID();
+        PaymentRequest request = new PaymentRequest(accountId, new BigDecimal("70.00"), "CHF", paymentId);
+
+        assertThat(paymentService.createPayment(request, userId).status()).isEqualTo("COMPLETED");
+
+        // identical retry is replayed, the same payment id with another amount is a duplicate
+        assertThat(paymentService.createPayment(request, userId).status()).isEqualTo("COMPLETED");
+
+        assertThatThrownBy(() -> paymentService.createPayment(
+                new PaymentRequest(accountId, new BigDecimal("20.00"), "CHF", paymentId), userId))
+                .isInstanceOf(DuplicatePaymentException.class);
+
+        assertThatThrownBy(() -> paymentService.createPayment(
+                new PaymentRequest(accountId, new BigDecimal("70.00"), "CHF", UUID.randomUUID()), userId))
+                .isInstanceOf(InsufficientFundsException.class);
+
+        AccountEntity refreshed = accountRepository.findById(accountId).orElseThrow();
+        assertThat(refreshed.getBalance()).isEqualTo(3000L);
+
+        var events = outboxRepository.findAll();
+        assertThat(events).hasSize(1);
+        assertThat(events.get(0).getEventStatus()).isEqualTo(EventStatus.PENDING);
+    }
+}
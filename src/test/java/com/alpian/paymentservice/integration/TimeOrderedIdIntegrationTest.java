@@ -0,0 +1,86 @@
+package com.alpian.paymentservice.integration;
+
+import com.alpian.paymentservice.api.dto.PaymentRequest;
+import com.alpian.paymentservice.persistence.entity.AccountEntity;
+import com.alpian.paymentservice.persistence.entity.OutboxEventEntity;
+import com.alpian.paymentservice.persistence.entity.PaymentEntity;
+import com.alpian.paymentservice.persistence.repository.AccountRepository;
+import com.alpian.paymentservice.persistence.repository.OutboxRepository;
+import com.alpian.paymentservice.persistence.repository.PaymentRepository;
+import com.alpian.paymentservice.service.OutboxTxService;
+import com.alpian.paymentservice.service.PaymentService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.*;
+
+@TestPropertySource(properties = {
+        "outbox.publisher.claim-order=ID",
+        "outbox.publisher.batch-size=10",
+        "outbox.publisher.poll-interval-ms=600000",
+        "outbox.publisher.reaper-interval-ms=600000"
+})
+class TimeOrderedIdIntegrationTest extends AbstractIntegrationTest {
+
+    @Autowired
+    PaymentService paymentService;
+
+    @Autowired
+    AccountRepository accountRepository;
+
+    @Autowired
+    PaymentRepository paymentRepository;
+
+    @Autowired
+    OutboxRepository outboxRepository;
+
+    @Autowired
+    OutboxTxService outboxTxService;
+
+    @Test
+    void payment_and_outbox_ids_are_uuid_v7_and_claimed_in_creation_order() {
+        UUID userId = UUID.randomUUID();
+        UUID accountId = UUID.randomUUID();
+        outboxRepository.deleteAll();
+        accountRepository.save(
+                AccountEntity.builder()
+                        .id(accountId)
+                        .userId(userId)
+                        .balance(10_000L)
+                        .baseCurrency("CHF")
+                        .build()
+        );
+
+        List<UUID> paymentIds = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            UUID paymentId = UUID.randomUUID();
+            paymentService.createPayment(new PaymentRequest(accountId, new BigDecimal("1.00"), "CHF", paymentId), userId);
+            paymentIds.add(paymentId);
+        }
+
+        // payment ids come from the uuid_generate_v7() column default, outbox ids from the Hibernate generator
+        List<UUID> internalIds = paymentIds.stream()
+                .map(id -> paymentRepository.findByAccountIdAndPaymentId(accountId, id).orElseThrow())
+                .map(PaymentEntity::getId)
+                .toList();
+        assertThat(internalIds).allMatch(id -> id.version() == 7);
+
+        List<OutboxEventEntity> created = outboxRepository.findAll().stream()
+                .sorted(Comparator.comparing(OutboxEventEntity::getCreatedAt))
+                .toList();
+        assertThat(created).hasSize(5).allMatch(e -> e.getId().version() == 7);
+        assertThat(created).map(OutboxEventEntity::getId).isSorted();
+
+        List<OutboxEventEntity> claimed = outboxTxService.claimBatch();
+
+        assertThat(claimed).map(OutboxEventEntity::getId)
+                .containsExactlyElementsOf(created.stream().map(OutboxEventEntity::getId).toList());
+    }
+}
@@ -0,0 +1,73 @@
+package com.alpian.paymentservice.kafka;
+
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.support.serializer.JacksonJsonSerializer;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.*;
+
+class PaymentNotificationBinarySerializerTest {
+
+    private final PaymentNotificationBinarySerializer serializer = new PaymentNotificationBinarySerializer();
+    private final PaymentNotificationBinaryDeserializer deserializer = new PaymentNotificationBinaryDeserializer();
+
+    @Test
+    void roundTrip_isExactAndCompact() {
+        PaymentNotification notification = notification(new BigDecimal("1234.56"));
+        RecordHeaders headers = new RecordHeaders();
+
+        byte[] bytes = serializer.serialize("payments", headers, notification);
+
+        assertThat(bytes).hasSize(52);
+        assertThat(headers.lastHeader(PaymentNotificationBinarySerializer.SCHEMA_VERSION_HEADER).value())
+                .containsExactly(PaymentNotificationBinarySerializer.SCHEMA_VERSION);
+        assertThat(deserializer.deserialize("payments", headers, bytes)).isEqualTo(notification);
+        assertThat(bytes.length).isLessThan(new JacksonJsonSerializer<PaymentNotification>().serialize("payments", notification).length / 3);
+    }
+
+    @Test
+    void deserializer_readsJsonRecordsWithoutSchemaHeader() {
+        PaymentNotification notification = notification(new BigDecimal("10.00"));
+        RecordHeaders headers = new RecordHeaders();
+        byte[] json = new JacksonJsonSerializer<PaymentNotification>().serialize("payments", headers, notification);
+
+        assertThat(deserializer.deserialize("payments", headers, json)).isEqualTo(notification);
+    }
+
+    @Test
+    void deserializer_rejectsUnknownSchemaVersion() {
+        RecordHeaders headers = new RecordHeaders();
+        byte[] bytes = serializer.serialize("payments", headers, notification(BigDecimal.ONE));
+        headers.remove(PaymentNotificationBinarySerializer.SCHEMA_VERSION_HEADER);
+        headers.add(PaymentNotificationBinarySerializer.SCHEMA_VERSION_HEADER, new byte[]{2});
+
+        assertThatThrownBy(() -> deserializer.deserialize("payments", headers, bytes))
+                .isInstanceOf(SerializationException.class);
+    }
+
+    @Test
+    void notification_rejectsAmountsThatDoNotFitALong() {
+        assertThatThrownBy(() -> notification(new BigDecimal("1e30").setScale(2)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void deserializer_readsAmountsWrittenWithAnotherScale() {
+        RecordHeaders headers = new RecordHeaders();
+        byte[] bytes = serializer.serialize("payments", headers, notification(new BigDecimal("12.30")));
+        ByteBuffer.wrap(bytes).putLong(32, 12_300L).put(40, (byte) 3);
+
+        assertThat(deserializer.deserialize("payments", headers, bytes).money().minorUnits()).isEqualTo(1_230L);
+    }
+
+    private static PaymentNotification notification(BigDecimal amount) {
+        return new PaymentNotification(UUID.randomUUID(), UUID.randomUUID(), amount, "CHF",
+                Instant.parse("2026-03-01T08:15:30.123456Z"));
+    }
+}
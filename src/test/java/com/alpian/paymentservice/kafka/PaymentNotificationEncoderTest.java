@@ -0,0 +1,56 @@
+package com.alpian.paymentservice.kafka;
+
+import com.alpian.paymentservice.config.KafkaTopicProperties;
+import com.alpian.paymentservice.outbox.OutboxEventRouter;
+import com.alpian.paymentservice.outbox.model.OutboxMessage;
+import com.alpian.paymentservice.outbox.model.OutboxRoutingProperties;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.support.serializer.JacksonJsonDeserializer;
+import org.springframework.kafka.support.serializer.JacksonJsonSerializer;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.*;
+
+class PaymentNotificationEncoderTest {
+
+    @Test
+    void encode_storesTheBytesKeyAndHeadersAConsumerExpects() {
+        PaymentNotification notification = new PaymentNotification(UUID.randomUUID(), UUID.randomUUID(),
+                new BigDecimal("12.50"), "CHF", Instant.parse("2026-01-01T10:00:00Z"));
+        KafkaTopicProperties topics = new KafkaTopicProperties();
+        topics.setPaymentNotification("payments");
+        PaymentNotificationEncoder encoder = new PaymentNotificationEncoder(
+                new OutboxEventRouter(new OutboxRoutingProperties(), topics, new JacksonJsonSerializer<>()));
+
+        OutboxMessage message = encoder.encode(notification);
+
+        assertThat(message.key()).isEqualTo(notification.accountId().toString());
+        Headers headers = KafkaHeadersCodec.decode(message.headers());
+        assertThat(new String(headers.lastHeader("__TypeId__").value(), StandardCharsets.UTF_8))
+                .isEqualTo(PaymentNotification.class.getName());
+
+        try (JacksonJsonDeserializer<PaymentNotification> deserializer = new JacksonJsonDeserializer<>()) {
+            deserializer.addTrustedPackages(PaymentNotification.class.getPackageName());
+            assertThat(deserializer.deserialize("payments", headers, message.value())).isEqualTo(notification);
+        }
+    }
+
+    @Test
+    void headersCodec_roundTripsNullAndBinaryValues() {
+        RecordHeaders headers = new RecordHeaders();
+        headers.add("schema", new byte[]{0, 1, (byte) 0xFF});
+        headers.add("empty", null);
+
+        Headers decoded = KafkaHeadersCodec.decode(KafkaHeadersCodec.encode(headers));
+
+        assertThat(decoded.lastHeader("schema").value()).containsExactly(0, 1, 0xFF);
+        assertThat(decoded.lastHeader("empty").value()).isNull();
+        assertThat(decoded.toArray()).hasSize(2);
+    }
+}
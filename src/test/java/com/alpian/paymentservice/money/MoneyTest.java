@@ -0,0 +1,65 @@
+package com.alpian.paymentservice.money;
+
+import com.alpian.paymentservice.api.dto.PaymentRequest;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.*;
+
+class MoneyTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void of_isExactForTwoDecimalsOrLess() {
+        assertThat(Money.of(new BigDecimal("12.34"), "CHF")).isEqualTo(new Money(1_234, "CHF"));
+        assertThat(Money.of(new BigDecimal("12.3"), "CHF")).isEqualTo(new Money(1_230, "CHF"));
+        assertThat(Money.of(new BigDecimal("1E+2"), "CHF")).isEqualTo(new Money(10_000, "CHF"));
+        assertThat(Money.of(new BigDecimal("12.340"), "CHF").toBigDecimal()).isEqualTo(new BigDecimal("12.34"));
+    }
+
+    @Test
+    void of_rejectsAmountsItWouldHaveToRound() {
+        assertThatThrownBy(() -> Money.of(new BigDecimal("12.345"), "CHF"))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> Money.of(new BigDecimal("1e30"), "CHF"))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> Money.of(BigDecimal.ONE, "CHFX"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void minorUnitsConverter_roundTripsTheColumnValue() {
+        MinorUnitsConverter converter = new MinorUnitsConverter();
+
+        assertThat(converter.convertToDatabaseColumn(-1_050L)).isEqualTo(new BigDecimal("-10.50"));
+        assertThat(converter.convertToEntityAttribute(new BigDecimal("10.50"))).isEqualTo(1_050L);
+        assertThat(converter.convertToEntityAttribute(null)).isNull();
+    }
+
+    @Test
+    void paymentRequest_keepsItsJsonShape() throws Exception {
+        PaymentRequest request = new PaymentRequest(UUID.randomUUID(), new BigDecimal("80.5"), "CHF", UUID.randomUUID());
+
+        String json = objectMapper.writeValueAsString(request);
+
+        assertThat(json).contains("\"amount\":80.50", "\"currency\":\"CHF\"").doesNotContain("money");
+        assertThat(objectMapper.readValue(json, PaymentRequest.class)).isEqualTo(request);
+    }
+
+    @Test
+    void paymentRequest_rejectsInexactOrNonPositiveAmountsWhenRead() {
+        String template = "{\"accountId\":\"%s\",\"amount\":%s,\"currency\":\"CHF\",\"paymentId\":\"%s\"}";
+
+        for (String amount : new String[]{"10.001", "0", "-5.00"}) {
+            assertThatThrownBy(() -> objectMapper.readValue(
+                    template.formatted(UUID.randomUUID(), amount, UUID.randomUUID()), PaymentRequest.class))
+                    .isInstanceOf(JsonMappingException.class)
+                    .hasStackTraceContaining("Amount must");
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.alpian.paymentservice.outbox;
+
+import com.alpian.paymentservice.config.KafkaTopicProperties;
+import com.alpian.paymentservice.kafka.PaymentNotificationBinarySerializer;
+import com.alpian.paymentservice.outbox.model.OutboxMessage;
+import com.alpian.paymentservice.outbox.model.OutboxRoutingProperties;
+import com.alpian.paymentservice.outbox.model.OutboxRoutingProperties.KeySource;
+import com.alpian.paymentservice.persistence.entity.EventStatus;
+import com.alpian.paymentservice.persistence.entity.EventType;
+import com.alpian.paymentservice.persistence.entity.OutboxEventEntity;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.*;
+
+class OutboxEventRouterTest {
+
+    private OutboxEventRouter router;
+
+    @BeforeEach
+    void setUp() {
+        OutboxRoutingProperties props = new OutboxRoutingProperties();
+        props.getRoutes().put(EventType.ACCOUNT_UPDATED, route("accounts", KeySource.AGGREGATE_ID));
+        router = new OutboxEventRouter(props, topics(), new PaymentNotificationBinarySerializer());
+    }
+
+    @Test
+    void paymentCreated_isRoutedToThePaymentNotificationTopic_byDefault() {
+        assertThat(router.routedTypeNames()).containsExactly("PAYMENT_CREATED", "ACCOUNT_UPDATED");
+        assertThat(router.route(EventType.PAYMENT_CREATED).getTopic()).isEqualTo("payments");
+        assertThatThrownBy(() -> router.route(EventType.PAYMENT_FAILED))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void record_usesTheTopicAndKeySourceOfTheEventType() {
+        UUID aggregateId = UUID.randomUUID();
+        OutboxMessage message = router.encode(EventType.ACCOUNT_UPDATED, Map.of("balance", "10.00"), "ignored");
+        OutboxEventEntity event = OutboxEventEntity.builder()
+                .id(UUID.randomUUID())
+                .aggregateType("ACCOUNT")
+                .aggregateId(aggregateId)
+                .shardKey(UUID.randomUUID())
+                .eventType(EventType.ACCOUNT_UPDATED)
+                .eventStatus(EventStatus.PENDING)
+                .payload(message.value())
+                .messageKey(message.key())
+                .headers(message.headers())
+                .build();
+
+        ProducerRecord<String, byte[]> record = router.record(event);
+
+        assertThat(record.topic()).isEqualTo("accounts");
+        assertThat(record.key()).isEqualTo(aggregateId.toString());
+        assertThat(new String(record.value(), StandardCharsets.UTF_8)).contains("\"balance\":\"10.00\"");
+        assertThat(record.headers().lastHeader("__TypeId__")).isNotNull();
+    }
+
+    @Test
+    void route_withoutTopic_isRejectedAtStartup() {
+        OutboxRoutingProperties props = new OutboxRoutingProperties();
+        props.getRoutes().put(EventType.PAYMENT_FAILED, route(null, KeySource.NONE));
+
+        assertThatThrownBy(() -> new OutboxEventRouter(props, topics(), new PaymentNotificationBinarySerializer()))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("PAYMENT_FAILED");
+    }
+
+    private static KafkaTopicProperties topics() {
+        KafkaTopicProperties topics = new KafkaTopicProperties();
+        topics.setPaymentNotification("payments");
+        return topics;
+    }
+
+    private static OutboxRoutingProperties.Route route(String topic, KeySource key) {
+        OutboxRoutingProperties.Route route = new OutboxRoutingProperties.Route();
+        route.setTopic(topic);
+        route.setKey(key);
+        return route;
+    }
+}
@@ -0,0 +1,87 @@
+package com.alpian.paymentservice.outbox;
+
+import com.alpian.paymentservice.outbox.model.OutboxPublisherProperties;
+import com.alpian.paymentservice.persistence.repository.OutboxBacklogView;
+import com.alpian.paymentservice.persistence.repository.OutboxRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+class OutboxPublishControllerTest {
+
+    private OutboxRepository outboxRepository;
+    private OutboxPublishController controller;
+
+    @BeforeEach
+    void setUp() {
+        OutboxPublisherProperties props = new OutboxPublisherProperties();
+        props.setAdaptive(true);
+        props.setBatchSize(50);
+        props.setWorkers(2);
+        props.setMinBatchSize(10);
+        props.setMaxBatchSize(400);
+        props.setMinPollIntervalMs(10);
+        props.setMaxPollIntervalMs(80);
+        outboxRepository = mock(OutboxRepository.class);
+        controller = new OutboxPublishController(outboxRepository, props, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void batchSize_growsWhileBehind_upToMax_andShrinksWhenCaughtUp() {
+        when(outboxRepository.sampleBacklog(anyInt())).thenReturn(backlog(100_000L, 5_000L));
+        for (int i = 0; i < 5; i++) {
+            controller.sampleBacklog();
+        }
+        assertThat(controller.batchSize()).isEqualTo(400);
+
+        when(outboxRepository.sampleBacklog(anyInt())).thenReturn(backlog(0L, null));
+        for (int i = 0; i < 10; i++) {
+            controller.sampleBacklog();
+        }
+        assertThat(controller.batchSize()).isEqualTo(10);
+    }
+
+    @Test
+    void batchSize_doesNotGrow_whenKafkaAcksAreSlow() {
+        for (int i = 0; i < 100; i++) {
+            controller.recordAckLatency(1_000_000_000L);
+        }
+        when(outboxRepository.sampleBacklog(anyInt())).thenReturn(backlog(100_000L, 5_000L));
+
+        controller.sampleBacklog();
+
+        assertThat(controller.batchSize()).isEqualTo(25);
+    }
+
+    @Test
+    void pollInterval_backsOffExponentiallyWhenIdle_andResetsOnWork() {
+        controller.onClaim(0);
+        controller.onClaim(0);
+        assertThat(controller.pollIntervalMs()).isEqualTo(40);
+
+        controller.onClaim(0);
+        controller.onClaim(0);
+        assertThat(controller.pollIntervalMs()).isEqualTo(80);
+
+        controller.onClaim(3);
+        assertThat(controller.pollIntervalMs()).isEqualTo(10);
+    }
+
+    private static OutboxBacklogView backlog(Long pending, Long oldestAgeMs) {
+        return new OutboxBacklogView() {
+            @Override
+            public Long getPending() {
+                return pending;
+            }
+
+            @Override
+            public Long getOldestAgeMs() {
+                return oldestAgeMs;
+            }
+        };
+    }
+}
@@ -0,0 +1,54 @@
+package com.alpian.paymentservice.outbox;
+
+import com.alpian.paymentservice.config.KafkaTopicProperties;
+import com.alpian.paymentservice.kafka.OutboxKafkaProducer;
+import com.alpian.paymentservice.outbox.model.OutboxFailure;
+import com.alpian.paymentservice.persistence.entity.OutboxEventEntity;
+import com.alpian.paymentservice.service.OutboxTxService;
+import org.apache.kafka.common.errors.TimeoutException;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class OutboxPublisherSchedulerTest {
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void batchMode_sendThatThrows_failsEveryClaimedEvent() {
+        OutboxTxService outboxTxService = mock(OutboxTxService.class);
+        OutboxKafkaProducer producer = mock(OutboxKafkaProducer.class);
+        KafkaTopicProperties kafkaTopicProperties = new KafkaTopicProperties();
+        kafkaTopicProperties.setProducerMode(KafkaTopicProperties.ProducerMode.BATCH);
+        OutboxPublisherScheduler scheduler = new OutboxPublisherScheduler(outboxTxService, producer,
+                mock(OutboxEventRouter.class), mock(OutboxEventTypeMetrics.class), mock(OutboxAckBuffer.class),
+                mock(OutboxPublishController.class), kafkaTopicProperties);
+
+        List<OutboxEventEntity> batch = List.of(event(1), event(2));
+        when(outboxTxService.claimBatch()).thenReturn(batch);
+        when(producer.sendAndFlush(anyList())).thenThrow(new TimeoutException("metadata not available"));
+
+        assertThat(scheduler.publishLoop()).isEqualTo(2);
+
+        ArgumentCaptor<List<OutboxFailure>> failures = ArgumentCaptor.forClass(List.class);
+        verify(outboxTxService).markFailedOrRetry(failures.capture());
+        verify(outboxTxService, never()).markSent(any());
+        assertThat(failures.getValue()).extracting(OutboxFailure::outboxId)
+                .containsExactly(batch.get(0).getId(), batch.get(1).getId());
+        assertThat(failures.getValue()).extracting(OutboxFailure::attemptCount).containsExactly(1, 2);
+        assertThat(failures.getValue().getFirst().error()).isEqualTo("TimeoutException: metadata not available");
+    }
+
+    private static OutboxEventEntity event(int attemptCount) {
+        return OutboxEventEntity.builder()
+                .id(UUID.randomUUID())
+                .attemptCount(attemptCount)
+                .build();
+    }
+}
@@ -0,0 +1,33 @@
+package com.alpian.paymentservice.outbox;
+
+import com.alpian.paymentservice.outbox.model.OutboxPublisherProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class OutboxPublisherWorkersTest {
+
+    @Test
+    void shards_areSplitAcrossWorkers_withoutOverlap() {
+        OutboxPublisherProperties props = new OutboxPublisherProperties();
+        props.setShardCount(16);
+        OutboxShardOwnership ownership = new OutboxShardOwnership(mock(DataSource.class), props);
+        OutboxPublisherWorkers workers = new OutboxPublisherWorkers(
+                mock(OutboxPublisherScheduler.class), ownership, mock(OutboxPublishController.class), props,
+                new SimpleMeterRegistry());
+
+        List<Integer> all = new ArrayList<>();
+        for (int worker = 0; worker < 3; worker++) {
+            all.addAll(workers.shardsOf(worker, 3));
+        }
+
+        assertThat(workers.shardsOf(0, 3)).containsExactly(0, 3, 6, 9, 12, 15);
+        assertThat(all).hasSize(16).doesNotHaveDuplicates();
+    }
+}
@@ -0,0 +1,53 @@
+package com.alpian.paymentservice.outbox;
+
+import com.alpian.paymentservice.integration.AbstractIntegrationTest;
+import com.alpian.paymentservice.outbox.model.OutboxPublisherProperties;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import javax.sql.DataSource;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.*;
+
+class OutboxShardOwnershipIntegrationTest extends AbstractIntegrationTest {
+
+    @Autowired
+    DataSource dataSource;
+
+    @Test
+    void should_split_shards_between_instances_and_take_over_when_one_leaves() {
+        OutboxPublisherProperties props = new OutboxPublisherProperties();
+        props.setShardOwnership(true);
+        props.setShardCount(8);
+
+        OutboxShardOwnership first = new OutboxShardOwnership(dataSource, props);
+        OutboxShardOwnership second = new OutboxShardOwnership(dataSource, props);
+        try {
+            first.heartbeat();
+            assertThat(first.ownedShards()).hasSize(8);
+
+            // second joins: first shrinks to its fair share, then unlocks the rest one heartbeat later
+            second.heartbeat();
+            assertThat(second.ownedShards()).isEmpty();
+            first.heartbeat();
+            assertThat(first.ownedShards()).hasSize(4);
+            first.heartbeat();
+            second.heartbeat();
+
+            Set<Integer> union = new HashSet<>(first.ownedShards());
+            union.addAll(second.ownedShards());
+            assertThat(second.ownedShards()).hasSize(4).doesNotContainAnyElementsOf(first.ownedShards());
+            assertThat(union).hasSize(8);
+
+            // first leaves: its session locks are gone and second takes every shard over
+            first.release();
+            second.heartbeat();
+            assertThat(second.ownedShards()).hasSize(8);
+        } finally {
+            first.release();
+            second.release();
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.alpian.paymentservice.outbox;
+
+import com.alpian.paymentservice.outbox.PgOutputDecoder.Begin;
+import com.alpian.paymentservice.outbox.PgOutputDecoder.Commit;
+import com.alpian.paymentservice.outbox.PgOutputDecoder.Insert;
+import com.alpian.paymentservice.persistence.entity.EventType;
+import com.alpian.paymentservice.persistence.entity.OutboxEventEntity;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.*;
+
+class PgOutputDecoderTest {
+
+    private static final String[] COLUMNS = {"id", "aggregate_type", "aggregate_id", "shard_key", "event_type",
+            "event_status", "payload", "message_key", "headers", "attempt_count", "last_error", "created_at"};
+
+    private final PgOutputDecoder decoder = new PgOutputDecoder();
+
+    @Test
+    void decode_beginAndCommit() throws IOException {
+        WalMessage begin = new WalMessage('B').writeLong(0x16B3748L).writeLong(1_000_000L).writeInt(742);
+        WalMessage commit = new WalMessage('C').writeByte(0).writeLong(0x16B3748L).writeLong(0x16B3778L).writeLong(1_000_000L);
+
+        assertThat(decoder.decode(begin.buffer()))
+                .isEqualTo(new Begin(0x16B3748L, Instant.parse("2000-01-01T00:00:01Z"), 742));
+        assertThat(decoder.decode(commit.buffer()))
+                .isEqualTo(new Commit(0x16B3748L, 0x16B3778L, Instant.parse("2000-01-01T00:00:01Z")));
+    }
+
+    @Test
+    void decode_insert_usesTheColumnsOfItsRelation() throws IOException {
+        UUID id = UUID.randomUUID();
+        UUID accountId = UUID.randomUUID();
+        String[] values = {id.toString(), "PAYMENT", UUID.randomUUID().toString(), accountId.toString(),
+                "PAYMENT_CREATED", "PENDING", "\\x7b7d", accountId.toString(), "\\x00000000", "0", null,
+                "2026-01-01 10:00:00.123456"};
+
+        assertThat(decoder.decode(relation(16385).buffer())).isNull();
+        var message = decoder.decode(insert(16385, values).buffer());
+
+        assertThat(message).isInstanceOf(Insert.class);
+        Insert insert = (Insert) message;
+        assertThat(insert.table()).isEqualTo("outbox_event");
+        assertThat(insert.values()).containsEntry("event_type", "PAYMENT_CREATED").containsEntry("last_error", null);
+
+        OutboxEventEntity event = OutboxReplicationRelay.toEvent(insert.values());
+        assertThat(event.getId()).isEqualTo(id);
+        assertThat(event.getEventType()).isEqualTo(EventType.PAYMENT_CREATED);
+        assertThat(event.getPayload()).isEqualTo("{}".getBytes(StandardCharsets.UTF_8));
+        assertThat(event.getHeaders()).containsExactly(0, 0, 0, 0);
+        assertThat(event.getMessageKey()).isEqualTo(accountId.toString());
+    }
+
+    @Test
+    void decode_insertOfUnknownRelation_fails() throws IOException {
+        String[] values = new String[COLUMNS.length];
+        Arrays.fill(values, "x");
+
+        assertThatThrownBy(() -> decoder.decode(insert(99, values).buffer()))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void decode_skipsOtherMessages() throws IOException {
+        assertThat(decoder.decode(new WalMessage('O').writeLong(1L).writeString("origin").buffer())).isNull();
+    }
+
+    private static WalMessage relation(int relationId) throws IOException {
+        WalMessage message = new WalMessage('R').writeInt(relationId).writeString("public").writeString("outbox_event")
+                .writeByte('d').writeShort(COLUMNS.length);
+        for (String column : COLUMNS) {
+            message.writeByte(0).writeString(column).writeInt(25).writeInt(-1);
+        }
+        return message;
+    }
+
+    private static WalMessage insert(int relationId, String[] values) throws IOException {
+        WalMessage message = new WalMessage('I').writeInt(relationId).writeByte('N').writeShort(values.length);
+        for (String value : values) {
+            if (value == null) {
+                message.writeByte('n');
+            } else {
+                byte[] text = value.getBytes(StandardCharsets.UTF_8);
+                message.writeByte('t').writeInt(text.length).write(text);
+            }
+        }
+        return message;
+    }
+
+    private static final class WalMessage {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final DataOutputStream out = new DataOutputStream(bytes);
+
+        WalMessage(char type) throws IOException {
+            out.writeByte(type);
+        }
+
+        WalMessage writeByte(int value) throws IOException {
+            out.writeByte(value);
+            return this;
+        }
+
+        WalMessage writeShort(int value) throws IOException {
+            out.writeShort(value);
+            return this;
+        }
+
+        WalMessage writeInt(int value) throws IOException {
+            out.writeInt(value);
+            return this;
+        }
+
+        WalMessage writeLong(long value) throws IOException {
+            out.writeLong(value);
+            return this;
+        }
+
+        WalMessage writeString(String value) throws IOException {
+            out.write(value.getBytes(StandardCharsets.UTF_8));
+            out.writeByte(0);
+            return this;
+        }
+
+        WalMessage write(byte[] value) throws IOException {
+            out.write(value);
+            return this;
+        }
+
+        ByteBuffer buffer() {
+            return ByteBuffer.wrap(bytes.toByteArray());
+        }
+    }
+}
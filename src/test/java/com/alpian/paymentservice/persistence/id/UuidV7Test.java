@@ -0,0 +1,91 @@
+package com.alpian.paymentservice.persistence.id;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.*;
+
+class UuidV7Test {
+
+    @Test
+    void next_isVersion7WithTheCurrentTime() {
+        long before = System.currentTimeMillis();
+        UUID id = UuidV7.next();
+
+        assertThat(id.version()).isEqualTo(7);
+        assertThat(id.variant()).isEqualTo(2);
+        assertThat(UuidV7.timestampMillis(id)).isBetween(before, System.currentTimeMillis());
+    }
+
+    @Test
+    void staysMonotonic_whenTheClockGoesBackwards() {
+        AtomicLong clock = new AtomicLong(1_700_000_000_000L);
+        UuidV7 generator = new UuidV7(clock::get);
+
+        UUID first = generator.generate();
+        clock.addAndGet(-5_000);
+        UUID second = generator.generate();
+        clock.set(1_700_000_000_001L);
+        UUID third = generator.generate();
+
+        assertThat(List.of(first, second, third)).isSorted().doesNotHaveDuplicates();
+        assertThat(UuidV7.timestampMillis(second)).isEqualTo(1_700_000_000_000L);
+        assertThat(UuidV7.timestampMillis(third)).isEqualTo(1_700_000_000_001L);
+    }
+
+    @Test
+    void borrowsTheNextMillisecond_whenTheCounterOverflows() {
+        UuidV7 generator = new UuidV7(() -> 1_700_000_000_000L);
+
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            ids.add(generator.generate());
+        }
+
+        assertThat(ids).isSorted().doesNotHaveDuplicates();
+        assertThat(UuidV7.timestampMillis(ids.getLast())).isEqualTo(1_700_000_000_001L);
+    }
+
+    @Test
+    void concurrentCallers_getUniqueIdsInIncreasingOrder() throws Exception {
+        UuidV7 generator = new UuidV7(System::currentTimeMillis);
+        int threads = 8;
+        int perThread = 50_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<List<UUID>>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    List<UUID> ids = new ArrayList<>(perThread);
+                    for (int i = 0; i < perThread; i++) {
+                        ids.add(generator.generate());
+                    }
+                    return ids;
+                }));
+            }
+            start.countDown();
+
+            Set<UUID> all = new HashSet<>();
+            for (Future<List<UUID>> future : futures) {
+                List<UUID> ids = future.get();
+                assertThat(ids).isSorted();
+                all.addAll(ids);
+            }
+            assertThat(all).hasSize(threads * perThread);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.alpian.paymentservice.service;
+
+import com.alpian.paymentservice.config.PaymentProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.*;
+
+class AccountContentionTrackerTest {
+
+    private final AtomicLong clock = new AtomicLong();
+    private SimpleMeterRegistry meterRegistry;
+    private AccountContentionTracker tracker;
+
+    @BeforeEach
+    void setUp() {
+        PaymentProperties properties = new PaymentProperties();
+        properties.getLocking().setConflictRateHalfLifeMs(1000);
+        meterRegistry = new SimpleMeterRegistry();
+        tracker = new AccountContentionTracker(properties, meterRegistry, clock::get);
+    }
+
+    @Test
+    void unknownAccount_isOptimistic() {
+        assertThat(tracker.isPessimistic(UUID.randomUUID())).isFalse();
+    }
+
+    @Test
+    void repeatedConflicts_movePessimistic_andRateDecayMovesBack() {
+        UUID accountId = UUID.randomUUID();
+
+        tracker.recordAttempt(accountId, true);
+        tracker.recordAttempt(accountId, true);
+        assertThat(tracker.isPessimistic(accountId)).isTrue();
+        assertThat(pessimisticGauge()).isEqualTo(1.0);
+
+        clock.addAndGet(10_000_000_000L); // 10 half-lives
+
+        assertThat(tracker.isPessimistic(accountId)).isFalse();
+        assertThat(pessimisticGauge()).isZero();
+    }
+
+    @Test
+    void successfulAttempts_keepAccountOptimistic() {
+        UUID accountId = UUID.randomUUID();
+
+        tracker.recordAttempt(accountId, true);
+        for (int i = 0; i < 20; i++) {
+            tracker.recordAttempt(accountId, false);
+        }
+
+        assertThat(tracker.isPessimistic(accountId)).isFalse();
+    }
+
+    @Test
+    void idleOptimisticAccounts_areEvicted() {
+        UUID accountId = UUID.randomUUID();
+        tracker.recordAttempt(accountId, false);
+
+        tracker.evictIdleAccounts();
+
+        assertThat(meterRegistry.get("payment.account.locking.accounts").tag("mode", "optimistic").gauge().value())
+                .isZero();
+    }
+
+    private double pessimisticGauge() {
+        return meterRegistry.get("payment.account.locking.accounts").tag("mode", "pessimistic").gauge().value();
+    }
+}
@@ -0,0 +1,38 @@
+package com.alpian.paymentservice.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+class OutboxTxServiceTest {
+
+    @Test
+    void retryDelay_doublesPerAttempt() {
+        assertThat(OutboxTxService.retryDelayMs(1, 1000, 300000, 0.999)).isBetween(999L, 1000L);
+        assertThat(OutboxTxService.retryDelayMs(2, 1000, 300000, 0.999)).isBetween(1998L, 2000L);
+        assertThat(OutboxTxService.retryDelayMs(4, 1000, 300000, 0.999)).isBetween(7992L, 8000L);
+    }
+
+    @Test
+    void retryDelay_isJitteredInUpperHalf() {
+        assertThat(OutboxTxService.retryDelayMs(3, 1000, 300000, 0.0)).isEqualTo(2000L);
+        assertThat(OutboxTxService.retryDelayMs(3, 1000, 300000, 0.5)).isEqualTo(3000L);
+    }
+
+    @Test
+    void shardBuckets_areTheBucketsMappedToTheShardsByMod() {
+        List<Integer> buckets = OutboxTxService.shardBuckets(List.of(1, 3), 16);
+
+        assertThat(buckets).hasSize(128).startsWith(1, 3, 17, 19).endsWith(1009, 1011);
+        assertThat(buckets).allMatch(b -> b % 16 == 1 || b % 16 == 3);
+        assertThat(OutboxTxService.shardBuckets(List.of(0), 1)).hasSize(OutboxTxService.SHARD_BUCKETS);
+    }
+
+    @Test
+    void retryDelay_isCappedWithoutOverflow() {
+        assertThat(OutboxTxService.retryDelayMs(10, 1000, 60000, 0.0)).isEqualTo(30000L);
+        assertThat(OutboxTxService.retryDelayMs(Integer.MAX_VALUE, Long.MAX_VALUE / 2, 60000, 0.0)).isEqualTo(30000L);
+    }
+}
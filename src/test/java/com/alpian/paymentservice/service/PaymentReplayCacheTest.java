@@ -0,0 +1,93 @@
+package com.alpian.paymentservice.service;
+
+import com.alpian.paymentservice.api.dto.PaymentRequest;
+import com.alpian.paymentservice.api.dto.PaymentResponse;
+import com.alpian.paymentservice.config.PaymentProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.*;
+
+class PaymentReplayCacheTest {
+
+    private final AtomicLong clock = new AtomicLong();
+    private SimpleMeterRegistry meterRegistry;
+    private PaymentReplayCache cache;
+
+    @BeforeEach
+    void setUp() {
+        PaymentProperties properties = new PaymentProperties();
+        properties.getReplayCache().setEnabled(true);
+        properties.getReplayCache().setMaxEntries(16);
+        properties.getReplayCache().setSegments(1);
+        properties.getReplayCache().setTtlSeconds(60);
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new PaymentReplayCache(properties, meterRegistry, clock::get);
+    }
+
+    @Test
+    void completedPayment_isReplayed_forSameUserAndContent() {
+        UUID userId = UUID.randomUUID();
+        PaymentRequest request = request("80.00");
+
+        assertThat(cache.lookup(request, userId)).isEmpty();
+        cache.put(request, userId, new PaymentResponse(request.paymentId(), "COMPLETED"));
+
+        assertThat(cache.lookup(request, userId))
+                .contains(new PaymentResponse(request.paymentId(), "COMPLETED"));
+        assertThat(cache.lookup(new PaymentRequest(request.accountId(), new BigDecimal("80.0"), "CHF", request.paymentId()), userId))
+                .isPresent();
+
+        assertThat(requests("hit")).isEqualTo(2.0);
+        assertThat(requests("miss")).isEqualTo(1.0);
+    }
+
+    @Test
+    void otherUserOrConflictingContent_missesAndGoesToTheDatabase() {
+        UUID userId = UUID.randomUUID();
+        PaymentRequest request = request("80.00");
+        cache.put(request, userId, new PaymentResponse(request.paymentId(), "COMPLETED"));
+
+        assertThat(cache.lookup(request, UUID.randomUUID())).isEmpty();
+        assertThat(cache.lookup(new PaymentRequest(request.accountId(), new BigDecimal("81.00"), "CHF", request.paymentId()), userId))
+                .isEmpty();
+        assertThat(cache.lookup(new PaymentRequest(request.accountId(), new BigDecimal("80.00"), "EUR", request.paymentId()), userId))
+                .isEmpty();
+    }
+
+    @Test
+    void entries_expireAfterTtl() {
+        UUID userId = UUID.randomUUID();
+        PaymentRequest request = request("10.00");
+        cache.put(request, userId, new PaymentResponse(request.paymentId(), "COMPLETED"));
+
+        clock.addAndGet(61_000_000_000L);
+
+        assertThat(cache.lookup(request, userId)).isEmpty();
+    }
+
+    @Test
+    void cacheStaysBounded_whenMoreEntriesThanCapacityArePut() {
+        UUID userId = UUID.randomUUID();
+        for (int i = 0; i < 1000; i++) {
+            PaymentRequest request = request("10.00");
+            cache.put(request, userId, new PaymentResponse(request.paymentId(), "COMPLETED"));
+            clock.incrementAndGet();
+        }
+
+        assertThat(meterRegistry.get("payment.replay-cache.evictions").counter().count()).isGreaterThanOrEqualTo(984.0);
+    }
+
+    private static PaymentRequest request(String amount) {
+        return new PaymentRequest(UUID.randomUUID(), new BigDecimal(amount), "CHF", UUID.randomUUID());
+    }
+
+    private double requests(String result) {
+        return meterRegistry.get("payment.replay-cache.requests").tag("result", result).counter().count();
+    }
+}
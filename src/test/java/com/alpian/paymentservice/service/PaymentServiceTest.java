@@ -5,17 +5,26 @@ import com.alpian.paymentservice.api.dto.PaymentResponse;
 import com.alpian.paymentservice.api.exception.AccountNotFoundOrForbiddenException;
 import com.alpian.paymentservice.api.exception.DuplicatePaymentException;
 import com.alpian.paymentservice.api.exception.InsufficientFundsException;
+import com.alpian.paymentservice.config.PaymentProperties;
+import com.alpian.paymentservice.engine.AccountEngine;
 import com.alpian.paymentservice.kafka.PaymentNotification;
+import com.alpian.paymentservice.kafka.PaymentNotificationEncoder;
+import com.alpian.paymentservice.money.Money;
+import com.alpian.paymentservice.outbox.model.OutboxMessage;
 import com.alpian.paymentservice.persistence.entity.*;
+import com.alpian.paymentservice.persistence.repository.AccountBalanceView;
 import com.alpian.paymentservice.persistence.repository.AccountRepository;
 import com.alpian.paymentservice.persistence.repository.OutboxRepository;
+import com.alpian.paymentservice.persistence.repository.PaymentCommitResult;
 import com.alpian.paymentservice.persistence.repository.PaymentRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
-import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.util.Optional;
 import java.util.UUID;
@@ -25,10 +34,19 @@ import static org.mockito.Mockito.*;
 
 class PaymentServiceTest {
 
+    private static final OutboxMessage MESSAGE =
+            new OutboxMessage("key", "{\"ok\":true}".getBytes(StandardCharsets.UTF_8), new byte[]{0, 0, 0, 0});
+
     private AccountRepository accountRepository;
     private PaymentRepository paymentRepository;
     private OutboxRepository outboxRepository;
-    private JsonService jsonService;
+    private PaymentNotificationEncoder notificationEncoder;
+    private PaymentProperties paymentProperties;
+    private StripedBalanceService stripedBalanceService;
+    private OptimisticDebitService optimisticDebitService;
+    private LedgerService ledgerService;
+    private AccountEngine accountEngine;
+    private PlatformTransactionManager transactionManager;
 
     private PaymentService paymentService;
 
@@ -37,9 +55,17 @@ class PaymentServiceTest {
         accountRepository = mock(AccountRepository.class);
         paymentRepository = mock(PaymentRepository.class);
         outboxRepository = mock(OutboxRepository.class);
-        jsonService = mock(JsonService.class);
-
-        paymentService = new PaymentService(accountRepository, paymentRepository, outboxRepository, jsonService);
+        notificationEncoder = mock(PaymentNotificationEncoder.class);
+        paymentProperties = new PaymentProperties();
+        stripedBalanceService = mock(StripedBalanceService.class);
+        optimisticDebitService = mock(OptimisticDebitService.class);
+        ledgerService = mock(LedgerService.class);
+        accountEngine = mock(AccountEngine.class);
+        transactionManager = mock(PlatformTransactionManager.class);
+
+        paymentService = new PaymentService(accountRepository, paymentRepository, outboxRepository, notificationEncoder,
+                paymentProperties, stripedBalanceService, optimisticDebitService, ledgerService, accountEngine,
+                new TransactionTemplate(transactionManager));
     }
 
     @Test
@@ -53,7 +79,7 @@ class PaymentServiceTest {
         AccountEntity lockedAccount = AccountEntity.builder()
                 .id(accountId)
                 .userId(userId)
-                .balance(new BigDecimal("500.00"))
+                .balance(50_000L)
                 .build();
         when(accountRepository.findForUpdate(accountId, userId)).thenReturn(Optional.of(lockedAccount));
         when(accountRepository.save(any(AccountEntity.class))).thenAnswer(inv -> inv.getArgument(0));
@@ -61,16 +87,16 @@ class PaymentServiceTest {
         PaymentEntity persistedPayment = PaymentEntity.builder()
                 .id(UUID.randomUUID())
                 .accountId(accountId)
-                .amount(req.amount())
+                .amount(req.money().minorUnits())
                 .currency(req.currency())
                 .paymentId(paymentId)
                 .status(PaymentStatus.PENDING)
                 .createdAt(Instant.now())
                 .build();
-        when(paymentRepository.saveAndFlush(any(PaymentEntity.class))).thenReturn(persistedPayment);
-        when(paymentRepository.save(any(PaymentEntity.class))).thenAnswer(inv -> inv.getArgument(0));
+        when(paymentRepository.insertIfAbsent(any(), any(), any(), any(), any(), any()))
+                .thenReturn(Optional.of(persistedPayment.getId()));
 
-        when(jsonService.toJson(any(PaymentNotification.class))).thenReturn("{\"ok\":true}");
+        when(notificationEncoder.encode(any(PaymentNotification.class))).thenReturn(MESSAGE);
 
         ArgumentCaptor<OutboxEventEntity> outboxCaptor = ArgumentCaptor.forClass(OutboxEventEntity.class);
         when(outboxRepository.save(outboxCaptor.capture())).thenAnswer(inv -> inv.getArgument(0));
@@ -86,12 +112,12 @@ class PaymentServiceTest {
         // debit persisted
         ArgumentCaptor<AccountEntity> accountSaveCaptor = ArgumentCaptor.forClass(AccountEntity.class);
         verify(accountRepository).save(accountSaveCaptor.capture());
-        assertThat(accountSaveCaptor.getValue().getBalance()).isEqualByComparingTo("420.00");
+        assertThat(accountSaveCaptor.getValue().getBalance()).isEqualTo(42_000L);
 
-        // payment completed
-        ArgumentCaptor<PaymentEntity> paymentSaveCaptor = ArgumentCaptor.forClass(PaymentEntity.class);
-        verify(paymentRepository).save(paymentSaveCaptor.capture());
-        assertThat(paymentSaveCaptor.getValue().getStatus()).isEqualTo(PaymentStatus.COMPLETED);
+        // payment inserted PENDING then completed
+        verify(paymentRepository).insertIfAbsent(eq(accountId), eq(req.amount()), eq("CHF"), eq(paymentId),
+                eq(PaymentStatus.PENDING.name()), any(Instant.class));
+        verify(paymentRepository).updateStatus(persistedPayment.getId(), PaymentStatus.COMPLETED);
 
         // outbox event created
         OutboxEventEntity outbox = outboxCaptor.getValue();
@@ -99,7 +125,9 @@ class PaymentServiceTest {
         assertThat(outbox.getEventStatus()).isEqualTo(EventStatus.PENDING);
         assertThat(outbox.getAggregateType()).isEqualTo("PAYMENT");
         assertThat(outbox.getAggregateId()).isEqualTo(persistedPayment.getId());
-        assertThat(outbox.getPayload()).isEqualTo("{\"ok\":true}");
+        assertThat(outbox.getPayload()).isEqualTo(MESSAGE.value());
+        assertThat(outbox.getMessageKey()).isEqualTo(MESSAGE.key());
+        assertThat(outbox.getHeaders()).isEqualTo(MESSAGE.headers());
 
         verify(outboxRepository).save(any(OutboxEventEntity.class));
         verifyNoMoreInteractions(outboxRepository);
@@ -122,11 +150,11 @@ class PaymentServiceTest {
 
         verifyNoInteractions(paymentRepository);
         verifyNoInteractions(outboxRepository);
-        verifyNoInteractions(jsonService);
+        verifyNoInteractions(notificationEncoder);
     }
 
     @Test
-    void createPayment_duplicate_throws_andDoesNotDebitCompleteOrCreateOutbox() {
+    void createPayment_conflictingDuplicate_throws_andDoesNotDebitCompleteOrCreateOutbox() {
         UUID accountId = UUID.randomUUID();
         UUID userId = UUID.randomUUID();
         UUID paymentId = UUID.randomUUID();
@@ -136,24 +164,54 @@ class PaymentServiceTest {
         AccountEntity lockedAccount = AccountEntity.builder()
                 .id(accountId)
                 .userId(userId)
-                .balance(new BigDecimal("500.00"))
+                .balance(50_000L)
                 .build();
         when(accountRepository.findForUpdate(accountId, userId)).thenReturn(Optional.of(lockedAccount));
 
-        when(paymentRepository.saveAndFlush(any(PaymentEntity.class)))
-                .thenThrow(new DataIntegrityViolationException("duplicate"));
+        when(paymentRepository.insertIfAbsent(any(), any(), any(), any(), any(), any())).thenReturn(Optional.empty());
+        when(paymentRepository.findByAccountIdAndPaymentId(accountId, paymentId))
+                .thenReturn(Optional.of(storedPayment(accountId, paymentId, new BigDecimal("25.00"))));
 
         assertThatThrownBy(() -> paymentService.createPayment(req, userId))
                 .isInstanceOf(DuplicatePaymentException.class);
 
         verify(accountRepository).findForUpdate(accountId, userId);
-        verify(paymentRepository).saveAndFlush(any(PaymentEntity.class));
 
         // no debit persisted, no completion, no outbox
         verify(accountRepository, never()).save(any());
-        verify(paymentRepository, never()).save(any());
+        verify(paymentRepository, never()).updateStatus(any(), any());
         verifyNoInteractions(outboxRepository);
-        verifyNoInteractions(jsonService);
+        verifyNoInteractions(notificationEncoder);
+    }
+
+    @Test
+    void createPayment_identicalDuplicate_replaysStoredResponse_withoutDebitOrOutbox() {
+        UUID accountId = UUID.randomUUID();
+        UUID userId = UUID.randomUUID();
+        UUID paymentId = UUID.randomUUID();
+
+        PaymentRequest req = new PaymentRequest(accountId, new BigDecimal("10.00"), "CHF", paymentId);
+
+        AccountEntity lockedAccount = AccountEntity.builder()
+                .id(accountId)
+                .userId(userId)
+                .balance(50_000L)
+                .build();
+        when(accountRepository.findForUpdate(accountId, userId)).thenReturn(Optional.of(lockedAccount));
+
+        when(paymentRepository.insertIfAbsent(any(), any(), any(), any(), any(), any())).thenReturn(Optional.empty());
+        when(paymentRepository.findByAccountIdAndPaymentId(accountId, paymentId))
+                .thenReturn(Optional.of(storedPayment(accountId, paymentId, new BigDecimal("10.0"))));
+
+        PaymentResponse resp = paymentService.createPayment(req, userId);
+
+        assertThat(resp.paymentId()).isEqualTo(paymentId);
+        assertThat(resp.status()).isEqualTo(PaymentStatus.COMPLETED.name());
+
+        verify(accountRepository, never()).save(any());
+        verify(paymentRepository, never()).updateStatus(any(), any());
+        verifyNoInteractions(outboxRepository);
+        verifyNoInteractions(notificationEncoder);
     }
 
     @Test
@@ -167,31 +225,262 @@ class PaymentServiceTest {
         AccountEntity lockedAccount = AccountEntity.builder()
                 .id(accountId)
                 .userId(userId)
-                .balance(new BigDecimal("50.00")) // < 80
+                .balance(5000L) // < 80
                 .build();
         when(accountRepository.findForUpdate(accountId, userId)).thenReturn(Optional.of(lockedAccount));
 
         PaymentEntity persistedPayment = PaymentEntity.builder()
                 .id(UUID.randomUUID())
                 .accountId(accountId)
-                .amount(req.amount())
+                .amount(req.money().minorUnits())
                 .currency(req.currency())
                 .paymentId(paymentId)
                 .status(PaymentStatus.PENDING)
                 .createdAt(Instant.now())
                 .build();
-        when(paymentRepository.saveAndFlush(any(PaymentEntity.class))).thenReturn(persistedPayment);
+        when(paymentRepository.insertIfAbsent(any(), any(), any(), any(), any(), any()))
+                .thenReturn(Optional.of(persistedPayment.getId()));
 
         assertThatThrownBy(() -> paymentService.createPayment(req, userId))
                 .isInstanceOf(InsufficientFundsException.class);
 
         verify(accountRepository).findForUpdate(accountId, userId);
-        verify(paymentRepository).saveAndFlush(any(PaymentEntity.class));
+        verify(paymentRepository).insertIfAbsent(any(), any(), any(), any(), any(), any());
 
         // no debit persisted, no completion, no outbox
         verify(accountRepository, never()).save(any());
-        verify(paymentRepository, never()).save(any());
+        verify(paymentRepository, never()).updateStatus(any(), any());
+        verifyNoInteractions(outboxRepository);
+        verifyNoInteractions(notificationEncoder);
+    }
+
+    @Test
+    void createPayment_singleStatement_completed_returnsResponseWithoutJpaRoundTrips() {
+        paymentProperties.setCommitMode(PaymentProperties.CommitMode.SINGLE_STATEMENT);
+        UUID accountId = UUID.randomUUID();
+        UUID userId = UUID.randomUUID();
+        UUID paymentId = UUID.randomUUID();
+
+        PaymentRequest req = new PaymentRequest(accountId, new BigDecimal("80.00"), "CHF", paymentId);
+
+        when(notificationEncoder.encode(any(PaymentNotification.class))).thenReturn(MESSAGE);
+        when(paymentRepository.commitSingleStatement(eq(accountId), eq(userId), eq(paymentId),
+                eq(req.amount()), eq("CHF"), any(Instant.class),
+                eq(MESSAGE.value()), eq(MESSAGE.key()), eq(MESSAGE.headers())))
+                .thenReturn(commitResult("COMPLETED", UUID.randomUUID()));
+
+        PaymentResponse resp = paymentService.createPayment(req, userId);
+
+        assertThat(resp.paymentId()).isEqualTo(paymentId);
+        assertThat(resp.status()).isEqualTo(PaymentStatus.COMPLETED.name());
+
+        verifyNoInteractions(accountRepository);
         verifyNoInteractions(outboxRepository);
-        verifyNoInteractions(jsonService);
+        verify(paymentRepository, never()).insertIfAbsent(any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void createPayment_singleStatement_mapsResultCodesToExceptions() {
+        paymentProperties.setCommitMode(PaymentProperties.CommitMode.SINGLE_STATEMENT);
+        UUID userId = UUID.randomUUID();
+        PaymentRequest req = new PaymentRequest(UUID.randomUUID(), new BigDecimal("10.00"), "CHF", UUID.randomUUID());
+
+        when(notificationEncoder.encode(any(PaymentNotification.class))).thenReturn(MESSAGE);
+
+        when(paymentRepository.commitSingleStatement(any(), any(), any(), any(), any(), any(), any(), any(), any()))
+                .thenReturn(commitResult("ACCOUNT_NOT_FOUND", null));
+        assertThatThrownBy(() -> paymentService.createPayment(req, userId))
+                .isInstanceOf(AccountNotFoundOrForbiddenException.class);
+
+        when(paymentRepository.commitSingleStatement(any(), any(), any(), any(), any(), any(), any(), any(), any()))
+                .thenReturn(commitResult("DUPLICATE", null));
+        assertThatThrownBy(() -> paymentService.createPayment(req, userId))
+                .isInstanceOf(DuplicatePaymentException.class);
+
+        when(paymentRepository.commitSingleStatement(any(), any(), any(), any(), any(), any(), any(), any(), any()))
+                .thenReturn(commitResult("INSUFFICIENT_FUNDS", null));
+        assertThatThrownBy(() -> paymentService.createPayment(req, userId))
+                .isInstanceOf(InsufficientFundsException.class);
+
+        when(paymentRepository.commitSingleStatement(any(), any(), any(), any(), any(), any(), any(), any(), any()))
+                .thenReturn(commitResult("REPLAYED", UUID.randomUUID()));
+        assertThat(paymentService.createPayment(req, userId).status()).isEqualTo(PaymentStatus.COMPLETED.name());
+    }
+
+    @Test
+    void createPayment_stripedAccount_skipsAccountLock_andDebitsAStripe() {
+        paymentProperties.getStriping().setEnabled(true);
+        UUID accountId = UUID.randomUUID();
+        UUID userId = UUID.randomUUID();
+        UUID paymentId = UUID.randomUUID();
+
+        PaymentRequest req = new PaymentRequest(accountId, new BigDecimal("80.00"), "CHF", paymentId);
+
+        AccountEntity stripedAccount = AccountEntity.builder()
+                .id(accountId)
+                .userId(userId)
+                .balance(50_000L)
+                .striped(true)
+                .build();
+        when(accountRepository.findStripedFlag(accountId, userId)).thenReturn(Optional.of(true));
+        when(accountRepository.findByIdAndUserId(accountId, userId)).thenReturn(Optional.of(stripedAccount));
+
+        PaymentEntity persistedPayment = PaymentEntity.builder()
+                .id(UUID.randomUUID())
+                .accountId(accountId)
+                .amount(req.money().minorUnits())
+                .currency(req.currency())
+                .paymentId(paymentId)
+                .status(PaymentStatus.PENDING)
+                .createdAt(Instant.now())
+                .build();
+        when(paymentRepository.insertIfAbsent(any(), any(), any(), any(), any(), any()))
+                .thenReturn(Optional.of(persistedPayment.getId()));
+        when(notificationEncoder.encode(any(PaymentNotification.class))).thenReturn(MESSAGE);
+
+        PaymentResponse resp = paymentService.createPayment(req, userId);
+
+        assertThat(resp.status()).isEqualTo(PaymentStatus.COMPLETED.name());
+        verify(accountRepository, never()).findForUpdate(any(), any());
+        verify(accountRepository, never()).save(any());
+        verify(stripedBalanceService).debitOrThrow(accountId, req.amount());
+    }
+
+    @Test
+    void createPayment_stripedAccount_withStripingDisabled_debitsTheAccountRow() {
+        UUID accountId = UUID.randomUUID();
+        UUID userId = UUID.randomUUID();
+        UUID paymentId = UUID.randomUUID();
+
+        PaymentRequest req = new PaymentRequest(accountId, new BigDecimal("80.00"), "CHF", paymentId);
+
+        AccountEntity flaggedAccount = AccountEntity.builder()
+                .id(accountId)
+                .userId(userId)
+                .balance(50_000L)
+                .striped(true)
+                .build();
+        when(accountRepository.findForUpdate(accountId, userId)).thenReturn(Optional.of(flaggedAccount));
+        when(accountRepository.save(any(AccountEntity.class))).thenAnswer(inv -> inv.getArgument(0));
+        when(paymentRepository.insertIfAbsent(any(), any(), any(), any(), any(), any()))
+                .thenReturn(Optional.of(UUID.randomUUID()));
+        when(notificationEncoder.encode(any(PaymentNotification.class))).thenReturn(MESSAGE);
+
+        PaymentResponse resp = paymentService.createPayment(req, userId);
+
+        assertThat(resp.status()).isEqualTo(PaymentStatus.COMPLETED.name());
+        verifyNoInteractions(stripedBalanceService);
+        assertThat(flaggedAccount.getBalance()).isEqualTo(42_000L);
+    }
+
+    @Test
+    void createPayment_ledgerMode_appendsToTheLedger_andNeverSavesTheAccount() {
+        UUID accountId = UUID.randomUUID();
+        UUID userId = UUID.randomUUID();
+        UUID paymentId = UUID.randomUUID();
+
+        PaymentRequest req = new PaymentRequest(accountId, new BigDecimal("80.00"), "CHF", paymentId);
+
+        AccountEntity lockedAccount = AccountEntity.builder()
+                .id(accountId)
+                .userId(userId)
+                .balance(50_000L)
+                .build();
+        when(accountRepository.findForUpdate(accountId, userId)).thenReturn(Optional.of(lockedAccount));
+        when(ledgerService.isEnabled()).thenReturn(true);
+        UUID internalId = UUID.randomUUID();
+        when(paymentRepository.insertIfAbsent(any(), any(), any(), any(), any(), any()))
+                .thenReturn(Optional.of(internalId));
+        when(notificationEncoder.encode(any(PaymentNotification.class))).thenReturn(MESSAGE);
+
+        PaymentResponse resp = paymentService.createPayment(req, userId);
+
+        assertThat(resp.status()).isEqualTo(PaymentStatus.COMPLETED.name());
+        ArgumentCaptor<PaymentEntity> debited = ArgumentCaptor.forClass(PaymentEntity.class);
+        verify(ledgerService).debitOrThrow(eq(lockedAccount), debited.capture(), eq(userId));
+        assertThat(debited.getValue().getId()).isEqualTo(internalId);
+        assertThat(debited.getValue().getAmount()).isEqualTo(8000L);
+        verify(accountRepository, never()).save(any());
+        assertThat(lockedAccount.getBalance()).isEqualTo(50_000L);
+    }
+
+    @Test
+    void createPayment_engineMode_submitsToTheEngine_withoutATransaction() {
+        UUID userId = UUID.randomUUID();
+        PaymentRequest req = new PaymentRequest(UUID.randomUUID(), new BigDecimal("80.00"), "CHF", UUID.randomUUID());
+        when(accountEngine.isEnabled()).thenReturn(true);
+        when(accountEngine.submit(req, userId)).thenReturn(new PaymentResponse(req.paymentId(), "COMPLETED"));
+
+        PaymentResponse resp = paymentService.createPayment(req, userId);
+
+        assertThat(resp.paymentId()).isEqualTo(req.paymentId());
+        verifyNoInteractions(transactionManager, accountRepository, paymentRepository, outboxRepository);
+    }
+
+    @Test
+    void createPayment_optimistic_retriesExhausted_fallsBackToAccountLock() {
+        UUID accountId = UUID.randomUUID();
+        UUID userId = UUID.randomUUID();
+        UUID paymentId = UUID.randomUUID();
+
+        PaymentRequest req = new PaymentRequest(accountId, new BigDecimal("80.00"), "CHF", paymentId);
+
+        AccountBalanceView snapshot = mock(AccountBalanceView.class);
+        when(optimisticDebitService.appliesTo(accountId)).thenReturn(true);
+        when(optimisticDebitService.readOrThrow(accountId, userId)).thenReturn(snapshot);
+        when(optimisticDebitService.tryDebitOrThrow(accountId, userId, snapshot, req.money().minorUnits())).thenReturn(false);
+
+        AccountEntity lockedAccount = AccountEntity.builder()
+                .id(accountId)
+                .userId(userId)
+                .balance(50_000L)
+                .build();
+        when(accountRepository.findForUpdate(accountId, userId)).thenReturn(Optional.of(lockedAccount));
+        when(accountRepository.save(any(AccountEntity.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        PaymentEntity persistedPayment = PaymentEntity.builder()
+                .id(UUID.randomUUID())
+                .accountId(accountId)
+                .amount(req.money().minorUnits())
+                .currency(req.currency())
+                .paymentId(paymentId)
+                .status(PaymentStatus.PENDING)
+                .createdAt(Instant.now())
+                .build();
+        when(paymentRepository.insertIfAbsent(any(), any(), any(), any(), any(), any()))
+                .thenReturn(Optional.of(persistedPayment.getId()));
+        when(notificationEncoder.encode(any(PaymentNotification.class))).thenReturn(MESSAGE);
+
+        paymentService.createPayment(req, userId);
+
+        verify(optimisticDebitService).tryDebitOrThrow(accountId, userId, snapshot, req.money().minorUnits());
+        verify(accountRepository).findForUpdate(accountId, userId);
+        assertThat(lockedAccount.getBalance()).isEqualTo(42_000L);
+    }
+
+    private static PaymentEntity storedPayment(UUID accountId, UUID paymentId, BigDecimal amount) {
+        return PaymentEntity.builder()
+                .id(UUID.randomUUID())
+                .accountId(accountId)
+                .amount(Money.minorUnits(amount))
+                .currency("CHF")
+                .paymentId(paymentId)
+                .status(PaymentStatus.COMPLETED)
+                .createdAt(Instant.now())
+                .build();
+    }
+
+    private static PaymentCommitResult commitResult(String code, UUID internalId) {
+        return new PaymentCommitResult() {
+            @Override
+            public String getResultCode() {
+                return code;
+            }
+
+            @Override
+            public UUID getPaymentInternalId() {
+                return internalId;
+            }
+        };
     }
 }